@@ -0,0 +1,237 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.io.PrintWriter;
+import java.util.Iterator;
+import java.util.List;
+
+import net.winrob.commons.pythia.Command;
+import net.winrob.commons.pythia.CommandContext;
+import net.winrob.commons.pythia.ContextCommand;
+
+/**
+ * The {@link Command}s exercised by the benchmarks.
+ * 
+ * @author Winter Roberts
+ */
+public final class BenchmarkCommands {
+	
+	/**
+	 * Holds the last executed command, so that its creation and population cannot be eliminated.
+	 */
+	public static Command sink;
+	
+	/**
+	 * Holds the number of keys read by the last {@link StreamedEvict}, so that reading them cannot be eliminated.
+	 */
+	public static int read;
+	
+	private BenchmarkCommands() {
+	}
+	
+	/**
+	 * A command without options or parameters, measuring dispatch alone.
+	 */
+	public static class Noop extends Command {
+
+		@Override
+		public void execute() {
+			sink = this;
+		}
+		
+	}
+	
+	/**
+	 * A command which prints its parameter to its output, measuring a round trip through a front end.
+	 */
+	public static class Echo extends Command {
+		
+		@Parameter(name = "text", arity = 0, description = "The text to print.")
+		public String text;
+		
+		@Override
+		public void execute() {
+			out().println(text);
+		}
+		
+	}
+	
+	/**
+	 * A command which streams numbered lines to its context and returns how many it wrote.
+	 */
+	public static class Lines extends ContextCommand<Integer> {
+		
+		@Parameter(name = "count", arity = 0, description = "The number of lines to write.")
+		public int count;
+		
+		@Override
+		public Integer execute(CommandContext context) {
+			PrintWriter out = context.getWriter();
+			for (int i = 0; i < count; i++) out.println(i);
+			return count;
+		}
+		
+	}
+	
+	/**
+	 * A command with many options and a few parameters, measuring interpretation and binding.
+	 */
+	@Command.Description(description = "Tunes the limits of a named resource, applying each option which is given and leaving the rest at their defaults.")
+	public static class Tune extends Command {
+		
+		@Option(name = "rate", alias = "r", default_ = "100", description = "The number of requests allowed per second.")
+		public int rate;
+		
+		@Option(name = "burst", alias = "b", default_ = "10", description = "The number of requests allowed to exceed the rate at once.")
+		public Integer burst;
+		
+		@Option(name = "window", alias = "w", default_ = "60000", description = "The length of the rate window, in milliseconds.")
+		public long window;
+		
+		@Option(name = "threshold", alias = "t", default_ = "0.75", description = "The fraction of the limit at which warnings begin.")
+		public double threshold;
+		
+		@Option(name = "owner", alias = "o", default_ = "ops", description = "The team which owns the limit.")
+		public String owner;
+		
+		@Option(name = "zone", alias = "z", default_ = "global", description = "The zone the limit applies in.")
+		public String zone;
+		
+		@Option(name = "priority", alias = "p", default_ = "5", description = "The priority of the limit relative to others.")
+		public Integer priority;
+		
+		@Option(name = "verbose", alias = "v", default_ = "false", description = "Print the resulting limits.")
+		public boolean verbose;
+		
+		@Option(name = "dry", alias = "d", default_ = "false", description = "Validate the limits without applying them.")
+		public boolean dry;
+		
+		@Option(name = "retries", alias = "n", default_ = "3", description = "The number of times to retry applying the limits.")
+		public int retries;
+		
+		@Parameter(name = "resource", arity = 0, description = "The resource the limits apply to.")
+		public String resource;
+		
+		@Parameter(name = "limit", arity = 1, description = "The absolute limit of the resource.")
+		public long limit;
+
+		@Override
+		public void execute() {
+			sink = this;
+		}
+		
+	}
+	
+	/**
+	 * A small command with one option and one parameter, measuring per-execution allocation.
+	 */
+	public static class Ping extends Command {
+		
+		@Option(name = "count", alias = "c", default_ = "1", description = "The number of pings to send.")
+		public int count;
+		
+		@Parameter(name = "host", arity = 0, description = "The host to ping.")
+		public String host;
+		
+		@Override
+		public void execute() {
+			sink = this;
+		}
+		
+	}
+	
+	/**
+	 * {@link Ping} as a {@link Command.Reusable} command, whose instances are pooled per thread.
+	 */
+	@Command.Reusable
+	public static class ReusablePing extends Command {
+		
+		@Option(name = "count", alias = "c", default_ = "1", description = "The number of pings to send.")
+		public int count;
+		
+		@Parameter(name = "host", arity = 0, description = "The host to ping.")
+		public String host;
+		
+		@Override
+		public void execute() {
+			sink = this;
+		}
+		
+	}
+	
+	/**
+	 * A command with a variadic parameter, which collects every key into a list before it executes.
+	 */
+	public static class Evict extends Command {
+		
+		@Option(name = "verbose", alias = "v", default_ = "false", description = "Print each key evicted.")
+		public boolean verbose;
+		
+		@Parameter(name = "keys", arity = 0, description = "The keys to evict.")
+		public List<String> keys;
+		
+		@Override
+		public void execute() {
+			sink = this;
+		}
+		
+	}
+	
+	/**
+	 * {@link Evict} with a streamed parameter, whose keys are converted as they are read.
+	 */
+	public static class StreamedEvict extends Command {
+		
+		@Option(name = "verbose", alias = "v", default_ = "false", description = "Print each key evicted.")
+		public boolean verbose;
+		
+		@Parameter(name = "keys", arity = 0, description = "The keys to evict.")
+		public Iterator<String> keys;
+		
+		@Override
+		public void execute() {
+			int n = 0;
+			while (keys.hasNext()) {
+				keys.next();
+				n++;
+			}
+			read = n;
+			sink = this;
+		}
+		
+	}
+	
+	/**
+	 * The deepest level of the nested sub command chain, reached from {@link Level1} through seven {@code next} keywords.
+	 */
+	public static class Level8 extends Noop {
+	}
+	
+	@Command.SubCommand(keyword = "next", command = Level8.class)
+	public static class Level7 extends Noop {
+	}
+	
+	@Command.SubCommand(keyword = "next", command = Level7.class)
+	public static class Level6 extends Noop {
+	}
+	
+	@Command.SubCommand(keyword = "next", command = Level6.class)
+	public static class Level5 extends Noop {
+	}
+	
+	@Command.SubCommand(keyword = "next", command = Level5.class)
+	public static class Level4 extends Noop {
+	}
+	
+	@Command.SubCommand(keyword = "next", command = Level4.class)
+	public static class Level3 extends Noop {
+	}
+	
+	@Command.SubCommand(keyword = "next", command = Level3.class)
+	public static class Level2 extends Noop {
+	}
+	
+	@Command.SubCommand(keyword = "next", command = Level2.class)
+	public static class Level1 extends Noop {
+	}
+
+}
@@ -0,0 +1,24 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the allocation profiler ({@code -prof gc}) always enabled, so that garbage per operation is reported.
+ * Arguments are those of the JMH command line, e.g. a benchmark name pattern.
+ * 
+ * @author Winter Roberts
+ */
+public final class BenchmarkMain {
+	
+	private BenchmarkMain() {
+	}
+	
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cli = new CommandLineOptions(args);
+		new Runner(new OptionsBuilder().parent(cli).addProfiler(GCProfiler.class).build()).run();
+	}
+
+}
@@ -0,0 +1,66 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.BindingMode;
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+
+/**
+ * Interpreting and binding an option-heavy command, reflectively, through compiled binders or through the binders generated at
+ * compile time, with and without the parse cache.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingBenchmark {
+	
+	@Param({ "REFLECTIVE", "COMPILED", "GENERATED" })
+	public BindingMode mode;
+	
+	@Param({ "false", "true" })
+	public boolean cache;
+	
+	private CommandLine commandLine;
+	private String[] allOptions;
+	private String[] defaults;
+	
+	@Setup
+	public void setup() {
+		commandLine = new CommandLine();
+		commandLine.setBindingMode(mode);
+		commandLine.addCommand("tune", BenchmarkCommands.Tune.class);
+		if (cache) commandLine.enableParseCache(64);
+		allOptions = new String[] { "tune", "-r", "250", "-b", "20", "-w", "30000", "-t", "0.9", "-o", "platform", "-z", "eu-west",
+				"-p", "1", "-v", "-d", "-n", "5", "cache", "1000" };
+		defaults = new String[] { "tune", "cache", "1000" };
+	}
+	
+	@Benchmark
+	public void allOptions() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(allOptions);
+	}
+	
+	@Benchmark
+	public void defaults() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(defaults);
+	}
+
+}
@@ -0,0 +1,66 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.Completion;
+
+/**
+ * Completing a keyword among many commands, every keyword (which is limited), and an option of a command.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompletionBenchmark {
+	
+	private static final String KEYWORD = "ping42";
+	private static final String ANY = "";
+	private static final String OPTION = "tune api -";
+	
+	@Param({ "100", "10000" })
+	public int commands;
+	
+	private CommandLine commandLine;
+	
+	@Setup
+	public void setup() {
+		commandLine = new CommandLine();
+		for (int i = 0; i < commands; i++) {
+			commandLine.addCommand("ping" + i, BenchmarkCommands.Ping.class);
+		}
+		commandLine.addCommand("tune", BenchmarkCommands.Tune.class);
+	}
+	
+	@Benchmark
+	public Completion keyword() {
+		return commandLine.complete(KEYWORD, KEYWORD.length());
+	}
+	
+	@Benchmark
+	public Completion any() {
+		return commandLine.complete(ANY, 0);
+	}
+	
+	@Benchmark
+	public Completion option() {
+		return commandLine.complete(OPTION, OPTION.length());
+	}
+	
+}
@@ -0,0 +1,56 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+
+/**
+ * Executing commands from every available core against one shared {@link CommandLine}.
+ * Compare the throughput with a single thread ({@code -t 1}) to see how execution scales.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class ConcurrentDispatchBenchmark {
+	
+	private CommandLine commandLine;
+	
+	@Setup
+	public void setup() {
+		commandLine = new CommandLine();
+		for (int i = 0; i < 1000; i++) {
+			commandLine.addCommand("command-" + i, BenchmarkCommands.Noop.class);
+		}
+		commandLine.addCommand("tune", BenchmarkCommands.Tune.class);
+	}
+	
+	@Benchmark
+	public void keyword() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute("command-500");
+	}
+	
+	@Benchmark
+	public void options() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute("tune", "-r", "250", "-v", "cache", "1000");
+	}
+
+}
@@ -0,0 +1,56 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.CommandContext;
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+
+/**
+ * Executing a {@link net.winrob.commons.pythia.ContextCommand} which streams the given number of lines to its context, and
+ * returns a result.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextBenchmark {
+	
+	@Param({ "1", "1000", "100000" })
+	public int lines;
+	
+	private CommandLine commandLine;
+	private CommandContext context;
+	private String[] args;
+	
+	@Setup
+	public void setup() {
+		commandLine = new CommandLine();
+		commandLine.addCommand("lines", BenchmarkCommands.Lines.class);
+		context = new CommandContext(OutputStream.nullOutputStream());
+		args = new String[] { "lines", Integer.toString(lines) };
+	}
+	
+	@Benchmark
+	public Object stream() throws CommandInterpretException, IllegalAccessException {
+		return commandLine.execute(context, args);
+	}
+
+}
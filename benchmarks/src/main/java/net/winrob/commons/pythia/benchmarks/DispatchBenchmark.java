@@ -0,0 +1,53 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+
+/**
+ * Keyword dispatch with a growing number of registered commands.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+	
+	@Param({ "10", "1000", "10000" })
+	public int commands;
+	
+	private CommandLine commandLine;
+	private String[] keyword;
+	
+	@Setup
+	public void setup() {
+		commandLine = new CommandLine();
+		for (int i = 0; i < commands; i++) {
+			commandLine.addCommand("command-" + i, BenchmarkCommands.Noop.class);
+		}
+		keyword = new String[] { "command-" + (commands / 2) };
+	}
+	
+	@Benchmark
+	public void keyword() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(keyword);
+	}
+
+}
@@ -0,0 +1,81 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+import net.winrob.commons.pythia.Diagnostic;
+
+/**
+ * Rejecting malformed input, by the exception {@link CommandLine#execute(String...)} throws and by
+ * {@link CommandLine#validate(String...)}, against accepting valid input.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorBenchmark {
+	
+	private static final String[] VALID = { "tune", "-r", "250", "-z", "eu", "api", "1000" };
+	private static final String[] UNKNOWN_OPTION = { "tune", "-r", "250", "-y", "eu", "api", "1000" };
+	private static final String[] INVALID_VALUE = { "tune", "-r", "fast", "-z", "eu", "api", "1000" };
+	
+	private CommandLine commandLine;
+	
+	@Setup
+	public void setup() {
+		commandLine = new CommandLine();
+		commandLine.addCommand("tune", BenchmarkCommands.Tune.class);
+	}
+	
+	@Benchmark
+	public void valid() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(VALID);
+	}
+	
+	@Benchmark
+	public Object unknownOption() throws IllegalAccessException {
+		try {
+			commandLine.execute(UNKNOWN_OPTION);
+			return null;
+		} catch (CommandInterpretException e) {
+			return e.getReason();
+		}
+	}
+	
+	@Benchmark
+	public Object invalidValue() throws IllegalAccessException {
+		try {
+			commandLine.execute(INVALID_VALUE);
+			return null;
+		} catch (CommandInterpretException e) {
+			return e.getReason();
+		}
+	}
+	
+	@Benchmark
+	public Diagnostic validateValid() {
+		return commandLine.validate(VALID);
+	}
+	
+	@Benchmark
+	public Diagnostic validateUnknownOption() {
+		return commandLine.validate(UNKNOWN_OPTION);
+	}
+
+}
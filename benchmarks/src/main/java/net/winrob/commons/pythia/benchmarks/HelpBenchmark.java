@@ -0,0 +1,72 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.BindingMode;
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.CommandSpec;
+import net.winrob.commons.pythia.HelpIndex;
+
+/**
+ * Rendering the help dialog of an option-heavy command, as {@link net.winrob.commons.pythia.CommandLine.CommandInterpreter#showHelpDialog()} does when first called,
+ * streaming it once rendered, and searching the {@link HelpIndex} of a thousand commands.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HelpBenchmark {
+	
+	private static final int COMMANDS = 1000;
+	
+	private CommandSpec spec;
+	private StringBuilder out;
+	private HelpIndex index;
+	
+	@Setup
+	public void setup() {
+		spec = CommandSpec.reflect(BenchmarkCommands.Tune.class, BindingMode.COMPILED);
+		out = new StringBuilder(4096);
+		CommandLine commandLine = new CommandLine();
+		for (int i = 0; i < COMMANDS; i++) {
+			commandLine.addCommand("tune" + i, BenchmarkCommands.Tune.class);
+		}
+		index = commandLine.getHelpIndex();
+		index.prerender(CommandSpec.DEFAULT_WIDTH);
+	}
+	
+	@Benchmark
+	public String renderHelp() {
+		return spec.renderHelp();
+	}
+	
+	@Benchmark
+	public StringBuilder writeHelp() throws IOException {
+		out.setLength(0);
+		spec.writeHelp(out, CommandSpec.DEFAULT_WIDTH);
+		return out;
+	}
+	
+	@Benchmark
+	public List<HelpIndex.Entry> search() {
+		return index.search("tune99");
+	}
+
+}
@@ -0,0 +1,64 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+import net.winrob.commons.pythia.InstantiationStrategy;
+
+/**
+ * Dispatching a command without options, so that its instantiation dominates: allocated through Unsafe, constructed through a
+ * generated supplier, or constructed through an explicit factory.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstantiationBenchmark {
+	
+	@Param({ "UNSAFE", "CONSTRUCTOR", "FACTORY" })
+	public String strategy;
+	
+	private CommandLine commandLine;
+	private String[] keyword;
+	
+	@Setup
+	public void setup() {
+		commandLine = new CommandLine();
+		switch (strategy) {
+		case "UNSAFE":
+			commandLine.setInstantiationStrategy(InstantiationStrategy.UNSAFE);
+			commandLine.addCommand("noop", BenchmarkCommands.Noop.class);
+			break;
+		case "CONSTRUCTOR":
+			commandLine.setInstantiationStrategy(InstantiationStrategy.CONSTRUCTOR);
+			commandLine.addCommand("noop", BenchmarkCommands.Noop.class);
+			break;
+		default:
+			commandLine.addCommand("noop", BenchmarkCommands.Noop.class, BenchmarkCommands.Noop::new);
+		}
+		keyword = new String[] { "noop" };
+	}
+	
+	@Benchmark
+	public void instantiate() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(keyword);
+	}
+
+}
@@ -0,0 +1,77 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.CommandJournal;
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+
+/**
+ * The latency a command journal adds to the executing thread, without a journal, with a journal left to the operating system,
+ * and with a journal forced to storage after each batch, from several threads at once.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class JournalBenchmark {
+	
+	@Param({ "none", "async", "sync" })
+	public String journal;
+	
+	private CommandLine commandLine;
+	private Path directory;
+	private String[] args;
+	
+	@Setup
+	public void setup() throws IOException {
+		commandLine = new CommandLine();
+		commandLine.addCommand("noop", BenchmarkCommands.Noop.class);
+		if (!journal.equals("none")) {
+			directory = Files.createTempDirectory("pythia-journal");
+			CommandJournal j = commandLine.enableJournal(directory);
+			j.setSync(journal.equals("sync"));
+			j.setMaxSegments(4);
+		}
+		args = new String[] { "noop" };
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		CommandJournal j = commandLine.getJournal();
+		if (j == null) return;
+		commandLine.disableJournal();
+		System.out.println();
+		System.out.println("written: " + j.getWritten() + ", dropped: " + j.getDropped());
+		for (Path segment : j.getSegments()) Files.delete(segment);
+		Files.delete(directory);
+	}
+	
+	@Benchmark
+	public void execute() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(args);
+	}
+	
+}
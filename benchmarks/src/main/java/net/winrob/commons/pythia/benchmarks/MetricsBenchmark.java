@@ -0,0 +1,54 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+
+/**
+ * The overhead of command metrics on dispatch, with metrics disabled and enabled, from several threads at once.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MetricsBenchmark {
+	
+	@Param({ "false", "true" })
+	public boolean metrics;
+	
+	private CommandLine commandLine;
+	private String[] keyword;
+	
+	@Setup
+	public void setup() {
+		commandLine = new CommandLine();
+		commandLine.addCommand("noop", BenchmarkCommands.Noop.class);
+		if (metrics) commandLine.enableMetrics();
+		keyword = new String[] { "noop" };
+	}
+	
+	@Benchmark
+	public void keyword() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(keyword);
+	}
+	
+}
@@ -0,0 +1,72 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+import net.winrob.commons.pythia.CommandLine.CommandInterpreter;
+import net.winrob.commons.pythia.CommandSpec.OptionSpec;
+
+/**
+ * Scanning the options of a command with ten options given as separate flags, as a cluster, in long form, and after its parameters.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptionBenchmark {
+	
+	private static final String[] SEPARATE = { "tune", "-v", "-d", "-r", "250", "api", "1000" };
+	private static final String[] CLUSTERED = { "tune", "-vdr", "250", "api", "1000" };
+	private static final String[] LONG = { "tune", "--verbose", "--dry", "--rate=250", "api", "1000" };
+	private static final String[] INTERLEAVED = { "tune", "api", "1000", "-v", "-d", "-r", "250" };
+	
+	private CommandLine commandLine;
+	
+	@Setup
+	public void setup() {
+		commandLine = new CommandLine();
+		commandLine.addCommand("tune", BenchmarkCommands.Tune.class);
+		// Long names are the keys an option registers when it is used by name.
+		CommandInterpreter tune = commandLine.getInterpreterForCommandWord("tune");
+		for (OptionSpec o : tune.getSpec().getOptions()) {
+			tune.addOptionAlias("-" + o.getName(), o);
+		}
+	}
+	
+	@Benchmark
+	public void separate() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(SEPARATE);
+	}
+	
+	@Benchmark
+	public void clustered() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(CLUSTERED);
+	}
+	
+	@Benchmark
+	public void longForm() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(LONG);
+	}
+	
+	@Benchmark
+	public void interleaved() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(INTERLEAVED);
+	}
+
+}
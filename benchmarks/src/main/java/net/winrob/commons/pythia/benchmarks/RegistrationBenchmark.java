@@ -0,0 +1,43 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.CommandLine;
+
+/**
+ * Adding a command with eight levels of nested {@link net.winrob.commons.pythia.Command.SubCommand}s, which are either built
+ * when first dispatched to or all at once by {@link CommandLine#warmUp()}.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistrationBenchmark {
+	
+	@Param({ "false", "true" })
+	public boolean warmUp;
+	
+	@Benchmark
+	public CommandLine addCommand() {
+		CommandLine commandLine = new CommandLine();
+		commandLine.addCommand("nested", BenchmarkCommands.Level1.class);
+		if (warmUp) commandLine.warmUp();
+		return commandLine;
+	}
+
+}
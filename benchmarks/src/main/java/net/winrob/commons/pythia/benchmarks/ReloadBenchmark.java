@@ -0,0 +1,86 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.Command;
+import net.winrob.commons.pythia.CommandLine;
+
+/**
+ * Reloading commands of a command line with many: replacing one command, swapping a module of ten commands of which one
+ * changed, and (for comparison) building a new command line with every command.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReloadBenchmark {
+	
+	@Param({ "100", "1000" })
+	public int commands;
+	
+	private CommandLine commandLine;
+	private Map<String, Class<? extends Command>> module;
+	private boolean reusable;
+	
+	@Setup
+	public void setup() {
+		commandLine = new CommandLine();
+		for (int i = 0; i < commands; i++) {
+			commandLine.addCommand("ping" + i, BenchmarkCommands.Ping.class);
+		}
+		module = new HashMap<>();
+		for (int i = 0; i < 10; i++) {
+			module.put("module" + i, BenchmarkCommands.Ping.class);
+		}
+		commandLine.addCommands(module);
+	}
+	
+	/**
+	 * @return The class the changed command is reloaded as, which alternates so that every reload changes it.
+	 */
+	private Class<? extends Command> next() {
+		reusable = !reusable;
+		return reusable ? BenchmarkCommands.ReusablePing.class : BenchmarkCommands.Ping.class;
+	}
+	
+	@Benchmark
+	public CommandLine replaceOne() {
+		commandLine.replaceCommand("ping0", next());
+		return commandLine;
+	}
+	
+	@Benchmark
+	public CommandLine replaceModule() {
+		module.put("module0", next());
+		commandLine.replaceCommands(module.keySet(), module);
+		return commandLine;
+	}
+	
+	@Benchmark
+	public CommandLine rebuild() {
+		CommandLine rebuilt = new CommandLine();
+		for (int i = 0; i < commands; i++) {
+			rebuilt.addCommand("ping" + i, i == 0 ? next() : BenchmarkCommands.Ping.class);
+		}
+		return rebuilt;
+	}
+	
+}
@@ -0,0 +1,59 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+
+/**
+ * Executing a small command created for each execution, or reused from a per-thread pool.
+ * Compare the allocation reported by {@code -prof gc}.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReuseBenchmark {
+	
+	@Param({ "false", "true" })
+	public boolean reusable;
+	
+	private CommandLine commandLine;
+	private String[] withOption;
+	private String[] withDefault;
+	
+	@Setup
+	public void setup() {
+		commandLine = new CommandLine();
+		commandLine.addCommand("ping", reusable ? BenchmarkCommands.ReusablePing.class : BenchmarkCommands.Ping.class);
+		withOption = new String[] { "ping", "-c", "3", "example.com" };
+		withDefault = new String[] { "ping", "example.com" };
+	}
+	
+	@Benchmark
+	public void withOption() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(withOption);
+	}
+	
+	@Benchmark
+	public void withDefault() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(withDefault);
+	}
+
+}
@@ -0,0 +1,70 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+import net.winrob.commons.pythia.CommandSequence;
+
+/**
+ * Executing ten commands as ten lines, as one {@link CommandSequence} line, and as a sequence which was parsed once.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SequenceBenchmark {
+	
+	private static final int COMMANDS = 10;
+	
+	private CommandLine commandLine;
+	private String[] lines;
+	private String line;
+	private CommandSequence sequence;
+	
+	@Setup
+	public void setup() {
+		commandLine = new CommandLine();
+		commandLine.addCommand("ping", BenchmarkCommands.Ping.class);
+		lines = new String[COMMANDS];
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < COMMANDS; i++) {
+			lines[i] = "ping -c " + i + " host" + i;
+			if (i != 0) sb.append(i % 2 == 0 ? "; " : " && ");
+			sb.append(lines[i]);
+		}
+		line = sb.toString();
+		sequence = CommandSequence.parse(line);
+	}
+	
+	@Benchmark
+	public void lines() throws CommandInterpretException, IllegalAccessException {
+		for (String l : lines) commandLine.executeLine(l);
+	}
+	
+	@Benchmark
+	public CommandSequence.Result sequence() {
+		return commandLine.executeSequence(line);
+	}
+	
+	@Benchmark
+	public CommandSequence.Result parsedSequence() {
+		return commandLine.execute(sequence);
+	}
+
+}
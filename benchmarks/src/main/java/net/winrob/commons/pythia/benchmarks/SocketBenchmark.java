@@ -0,0 +1,95 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.SocketCommandLine;
+
+/**
+ * Round trips of a command through a {@link SocketCommandLine} from loopback clients, one session per benchmark thread.
+ * 
+ * @author Winter Roberts
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class SocketBenchmark {
+	
+	@State(Scope.Benchmark)
+	public static class Server {
+		
+		SocketCommandLine socketCommandLine;
+		SocketAddress address;
+		
+		@Setup
+		public void setup() throws IOException {
+			CommandLine commandLine = new CommandLine();
+			commandLine.addCommand("echo", BenchmarkCommands.Echo.class);
+			socketCommandLine = new SocketCommandLine(commandLine);
+			address = socketCommandLine.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		}
+		
+		@TearDown
+		public void tearDown() {
+			socketCommandLine.stop();
+		}
+		
+	}
+	
+	@State(Scope.Thread)
+	public static class Session {
+		
+		Socket socket;
+		OutputStream out;
+		BufferedReader in;
+		byte[] line;
+		
+		@Setup
+		public void setup(Server server) throws IOException {
+			socket = new Socket();
+			socket.setTcpNoDelay(true);
+			socket.connect(server.address);
+			out = socket.getOutputStream();
+			in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			line = "echo pong\n".getBytes(StandardCharsets.UTF_8);
+		}
+		
+		@TearDown
+		public void tearDown() throws IOException {
+			socket.close();
+		}
+		
+	}
+	
+	@Benchmark
+	public String roundTrip(Session session) throws IOException {
+		session.out.write(session.line);
+		return session.in.readLine();
+	}
+
+}
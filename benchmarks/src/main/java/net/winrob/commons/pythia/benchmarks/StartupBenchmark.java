@@ -0,0 +1,144 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.Command;
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+
+/**
+ * The cold start of a command line of many distinct commands, from a fresh JVM to the first command executed: with every
+ * command reflected over, and with every command restored from a snapshot written by an earlier start.
+ * <p>
+ * The command classes are generated and compiled (without the annotation processor) once, to a directory under
+ * {@code java.io.tmpdir}, and loaded before the measurement so that only building the registry is measured. The snapshot is
+ * written by a separate JVM, so that the measured JVM has not already run the code which reflects over the commands.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+	
+	private static final String PACKAGE = "net.winrob.commons.pythia.startup";
+	
+	@Param({ "1000" })
+	public int commands;
+	
+	@Param({ "false", "true" })
+	public boolean snapshot;
+	
+	private Map<String, Class<? extends Command>> module;
+	private Path file;
+	private String[] first;
+	
+	@Setup
+	public void setup() throws Exception {
+		Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "pythia-startup-" + commands);
+		module = load(directory, commands);
+		file = directory.resolve("snapshot.bin");
+		if (snapshot && !Files.exists(file)) {
+			String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+			Process p = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), StartupBenchmark.class.getName(),
+					directory.toString(), Integer.toString(commands)).inheritIO().start();
+			if (p.waitFor() != 0) throw new IllegalStateException("The snapshot could not be written");
+		}
+		first = new String[] { "cmd" + commands / 2, "-v", "--count=3", "name" };
+	}
+	
+	@Benchmark
+	public CommandLine start() throws IOException, CommandInterpretException, IllegalAccessException {
+		CommandLine commandLine = new CommandLine();
+		if (snapshot) {
+			if (!commandLine.addCommands(module, file)) throw new IllegalStateException("The snapshot is stale");
+		} else {
+			commandLine.addCommands(module);
+		}
+		commandLine.execute(first);
+		return commandLine;
+	}
+	
+	/**
+	 * Writes the snapshot of the generated commands, in a JVM of its own.
+	 * 
+	 * @param args The directory of the generated commands, and their number.
+	 */
+	public static void main(String[] args) throws Exception {
+		Path directory = Paths.get(args[0]);
+		Map<String, Class<? extends Command>> module = load(directory, Integer.parseInt(args[1]));
+		new CommandLine().addCommands(module, directory.resolve("snapshot.bin"));
+	}
+	
+	/**
+	 * Loads the generated commands, generating and compiling them first if the directory does not hold them.
+	 * 
+	 * @return The commands by keyword.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Map<String, Class<? extends Command>> load(Path directory, int count) throws Exception {
+		Path classes = directory.resolve("classes");
+		if (!Files.exists(classes)) generate(directory, classes, count);
+		ClassLoader loader = new URLClassLoader(new URL[] { classes.toUri().toURL() }, StartupBenchmark.class.getClassLoader());
+		Map<String, Class<? extends Command>> module = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			module.put("cmd" + i, (Class<? extends Command>) Class.forName(PACKAGE + ".Cmd" + i, true, loader));
+		}
+		return module;
+	}
+	
+	private static void generate(Path directory, Path classes, int count) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) throw new IllegalStateException("The commands are compiled at setup, which needs a JDK");
+		Path sources = directory.resolve("sources");
+		Files.createDirectories(sources);
+		Files.createDirectories(directory.resolve("compiling"));
+		List<String> args = new ArrayList<>(List.of("-proc:none", "-nowarn", "-cp", System.getProperty("java.class.path"), "-d", directory.resolve("compiling").toString()));
+		for (int i = 0; i < count; i++) {
+			Path source = sources.resolve("Cmd" + i + ".java");
+			Files.writeString(source, "package " + PACKAGE + ";\n"
+					+ "import net.winrob.commons.pythia.Command;\n"
+					+ "@Command.Description(description = \"Generated command " + i + " for the startup benchmark.\")\n"
+					+ "public class Cmd" + i + " extends Command {\n"
+					+ "	@Option(name = \"verbose\", alias = \"v\", default_ = \"false\", description = \"Prints more.\") public boolean verbose;\n"
+					+ "	@Option(name = \"count\", alias = \"c\", default_ = \"1\", useNamed = true, description = \"How many times.\") public int count;\n"
+					+ "	@Option(name = \"label\", alias = \"l\", default_ = \"none\", description = \"A label.\") public String label;\n"
+					+ "	@Parameter(name = \"name\", arity = 0, description = \"The name.\") public String name;\n"
+					+ "	@Override public void execute() {}\n"
+					+ "}\n");
+			args.add(source.toString());
+		}
+		if (compiler.run(null, null, null, args.toArray(new String[0])) != 0) throw new IllegalStateException("The commands could not be compiled");
+		// The compiled classes are moved into place at once, so an interrupted setup compiles them again.
+		Files.move(directory.resolve("compiling"), classes);
+	}
+	
+}
@@ -0,0 +1,53 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+
+/**
+ * Dispatch through a chain of nested {@link net.winrob.commons.pythia.Command.SubCommand}s of the given depth.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubCommandBenchmark {
+	
+	@Param({ "1", "4", "8" })
+	public int depth;
+	
+	private CommandLine commandLine;
+	private String[] nested;
+	
+	@Setup
+	public void setup() {
+		commandLine = new CommandLine();
+		commandLine.addCommand("nested", BenchmarkCommands.Level1.class);
+		nested = new String[depth];
+		nested[0] = "nested";
+		for (int i = 1; i < depth; i++) nested[i] = "next";
+	}
+	
+	@Benchmark
+	public void nestedSubCommands() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(nested);
+	}
+
+}
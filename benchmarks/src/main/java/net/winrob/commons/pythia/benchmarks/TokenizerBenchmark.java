@@ -0,0 +1,60 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.Tokenizer;
+
+/**
+ * Tokenizing short and long lines with quoted arguments.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+	
+	@Param({ "short", "long" })
+	public String line;
+	
+	private String text;
+	private Tokenizer tokenizer;
+	
+	@Setup
+	public void setup() {
+		if (line.equals("short")) {
+			text = "tune -r 250 -o \"platform team\" cache 1000";
+		} else {
+			StringBuilder sb = new StringBuilder("evict");
+			for (int i = 0; i < 2000; i++) sb.append(i % 3 == 0 ? " \"key number " : " key-").append(i).append(i % 3 == 0 ? "\"" : "");
+			text = sb.toString();
+		}
+		tokenizer = new Tokenizer();
+	}
+	
+	@Benchmark
+	public int tokenize() {
+		return tokenizer.tokenize(text).size();
+	}
+	
+	@Benchmark
+	public String[] tokenizeToStrings() {
+		return tokenizer.tokenize(text).toArray();
+	}
+
+}
@@ -0,0 +1,63 @@
+package net.winrob.commons.pythia.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.winrob.commons.pythia.CommandLine;
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+
+/**
+ * Executing a command with a variadic parameter of many keys, collected into a list or streamed to the command.
+ * 
+ * @author Winter Roberts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariadicBenchmark {
+	
+	@Param({ "100", "50000" })
+	public int keys;
+	
+	private CommandLine commandLine;
+	private String[] listed;
+	private String[] streamed;
+	
+	@Setup
+	public void setup() {
+		commandLine = new CommandLine();
+		commandLine.addCommand("evict", BenchmarkCommands.Evict.class);
+		commandLine.addCommand("sevict", BenchmarkCommands.StreamedEvict.class);
+		listed = new String[keys + 2];
+		listed[0] = "evict";
+		listed[1] = "-v";
+		for (int i = 0; i < keys; i++) listed[i + 2] = "key" + i;
+		streamed = listed.clone();
+		streamed[0] = "sevict";
+	}
+	
+	@Benchmark
+	public void list() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(listed);
+	}
+	
+	@Benchmark
+	public void iterator() throws CommandInterpretException, IllegalAccessException {
+		commandLine.execute(streamed);
+	}
+	
+}
@@ -0,0 +1,40 @@
+package net.winrob.commons.pythia;
+
+/**
+ * The strategy a {@link CommandLine} uses to write interpreted arguments to {@link Command} fields.
+ * 
+ * @author Winter Roberts
+ */
+public enum BindingMode {
+	
+	/**
+	 * Fields are populated through {@link java.lang.reflect.Field#set(Object, Object)} on every invocation.
+	 */
+	REFLECTIVE,
+	
+	/**
+	 * Fields are populated through setter handles which are resolved once, when the {@link Command} is added.
+	 */
+	COMPILED,
+	
+	/**
+	 * Fields are populated by the code the annotation processor generated for the {@link Command}, or as {@link #COMPILED} if
+	 * there is none. The two other modes reflect over the command even if a spec was generated for it, so that they can be
+	 * compared with this one.
+	 */
+	GENERATED;
+	
+	/**
+	 * The system property which may be used to select the default binding mode, either "reflective", "compiled" or "generated".
+	 */
+	public static final String PROPERTY = "pythia.binding";
+	
+	/**
+	 * @return The binding mode named by the {@link #PROPERTY} system property, or {@link #GENERATED} if it is not set.
+	 */
+	public static BindingMode getDefault() {
+		String mode = System.getProperty(PROPERTY);
+		return mode == null ? GENERATED : valueOf(mode.trim().toUpperCase());
+	}
+
+}
@@ -0,0 +1,155 @@
+package net.winrob.commons.pythia;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * The converted values interpreted for one {@link Command}, which can populate any number of fresh instances of it.
+ * A plan holds one value for every {@link FieldBinder} of the command: each option (in {@link CommandSpec} order) followed by each parameter.
+ * The values of primitive fields are held unboxed, as their long bits.
+ * <p>
+ * A scratch plan is reused by every interpretation of its command on one thread, so that interpreting a command allocates nothing.
+ * It can only populate a single instance, immediately after it was interpreted.
+ * 
+ * @author Winter Roberts
+ */
+final class BindingPlan {
+	
+	private final CommandLine commandLine;
+	private final String keyword;
+	private final Supplier<? extends Command> factory;
+	private final CommandPool pool;
+	private final FieldBinder[] binders;
+	private final Object[] values;
+	private final long[] primitives;
+	private final boolean scratch;
+	private final boolean cacheable;
+	
+	/**
+	 * @param commandLine The {@link CommandLine} the command belongs to.
+	 * @param keyword The keyword of the command, including the keywords of any parent commands.
+	 * @param factory Creates new instances of the {@link Command}.
+	 * @param pool The pool of instances if the {@link Command} is {@link Command.Reusable}, otherwise null.
+	 * @param binders The {@link FieldBinder}s of the command.
+	 * @param values The value of each binder's field.
+	 * @param primitives The value of each binder's primitive field, or null if the command has no primitive fields.
+	 * @param scratch True if this is the scratch plan of a thread, whose values are overwritten by each interpretation.
+	 */
+	BindingPlan(CommandLine commandLine, String keyword, Supplier<? extends Command> factory, CommandPool pool, FieldBinder[] binders,
+			Object[] values, long[] primitives, boolean scratch) {
+		this.commandLine = commandLine;
+		this.keyword = keyword;
+		this.factory = factory;
+		this.pool = pool;
+		this.binders = binders;
+		this.values = values;
+		this.primitives = primitives;
+		this.scratch = scratch;
+		boolean c = true;
+		for (FieldBinder f : binders) c &= !f.isVariadic();
+		this.cacheable = c;
+	}
+	
+	/**
+	 * @return True if the plan may be cached by a {@link ParseCache}, which is false if it holds the values of a variadic field,
+	 *         which may be mutable collections or streamed from the arguments it was interpreted from.
+	 */
+	boolean isCacheable() {
+		return cacheable;
+	}
+	
+	/**
+	 * @return The value of each binder's field, which an interpreter fills.
+	 */
+	Object[] getValues() {
+		return values;
+	}
+	
+	/**
+	 * @return The value of each binder's primitive field, which an interpreter fills, or null if the command has no primitive fields.
+	 */
+	long[] getPrimitives() {
+		return primitives;
+	}
+	
+	/**
+	 * @return The keyword of the command, including the keywords of any parent commands (e.g. "cache evict").
+	 */
+	String getKeyword() {
+		return keyword;
+	}
+	
+	/**
+	 * @return A new instance of the command, populated by this plan.
+	 * @throws IllegalAccessException If any field of the {@link Command} was inaccessible.
+	 */
+	Command newCommand() throws IllegalAccessException {
+		Command c = factory.get();
+		bind(c);
+		return c;
+	}
+	
+	/**
+	 * Populates an instance of the command which must be {@link #release(Command) released} once it has executed.
+	 * 
+	 * @return The pooled instance of a {@link Command.Reusable} command, otherwise a new instance.
+	 * @throws IllegalAccessException If any field of the {@link Command} was inaccessible.
+	 */
+	Command acquire() throws IllegalAccessException {
+		if (pool == null) return newCommand();
+		Command c = pool.acquire();
+		try {
+			bind(c);
+		} catch (IllegalAccessException | RuntimeException e) {
+			pool.release(c);
+			throw e;
+		}
+		return c;
+	}
+	
+	/**
+	 * @param command An instance {@link #acquire() acquired} from this plan which has executed.
+	 */
+	void release(Command command) {
+		if (pool != null) pool.release(command);
+	}
+	
+	/**
+	 * Populates and executes an instance of the command.
+	 * 
+	 * @return The result of the command, see {@link ContextCommand}.
+	 * @throws IllegalAccessException If any field of the {@link Command} was inaccessible.
+	 */
+	Object execute() throws IllegalAccessException {
+		Command c = acquire();
+		// A scratch plan must not keep the arguments of its last interpretation reachable.
+		if (scratch) Arrays.fill(values, null);
+		try {
+			return c.call();
+		} finally {
+			release(c);
+		}
+	}
+	
+	/**
+	 * Discards a plan which will not be executed, so that a scratch plan does not keep the arguments reachable.
+	 */
+	void discard() {
+		if (scratch) Arrays.fill(values, null);
+	}
+	
+	private void bind(Command c) throws IllegalAccessException {
+		c.commandLine = commandLine;
+		for (int i = 0; i < binders.length; i++) {
+			FieldBinder f = binders[i];
+			switch (f.getKind()) {
+			case INT: f.setInt(c, (int) primitives[i]); break;
+			case LONG: f.setLong(c, primitives[i]); break;
+			case DOUBLE: f.setDouble(c, Double.longBitsToDouble(primitives[i])); break;
+			case BOOLEAN: f.setBoolean(c, primitives[i] != 0); break;
+			default: f.set(c, values[i]);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,26 @@
+package net.winrob.commons.pythia;
+
+import java.util.Iterator;
+
+/**
+ * An {@link ArgumentConverter} which can convert argument(s) to a primitive {@code boolean} without boxing,
+ * so that primitive fields are populated without allocation.
+ * 
+ * @author Winter Roberts
+ */
+public interface BooleanArgumentConverter extends ArgumentConverter<Boolean> {
+	
+	/**
+	 * Parse argument(s), converting them to a primitive {@code boolean}.
+	 * 
+	 * @param itr String iterator to be consumed.
+	 * @return The parsed value.
+	 */
+	public boolean parseBoolean(Iterator<String> itr);
+	
+	@Override
+	public default Boolean parseArg(Iterator<String> itr) {
+		return parseBoolean(itr);
+	}
+
+}
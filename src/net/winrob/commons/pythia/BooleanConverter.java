@@ -0,0 +1,30 @@
+package net.winrob.commons.pythia;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An {@link ArgumentConverter} for a single argument ("true" or "false", ignoring case) to a {@link Boolean} (or {@code boolean}).
+ * 
+ * @author Winter Roberts
+ */
+public class BooleanConverter implements BooleanArgumentConverter, CompletingArgumentConverter<Boolean> {
+
+	@Override
+	public boolean parseBoolean(Iterator<String> itr) {
+		String arg = itr.next();
+		if ("true".equalsIgnoreCase(arg)) return true;
+		if ("false".equalsIgnoreCase(arg)) return false;
+		throw new IllegalArgumentException("Expected true or false, found '" + arg + "'");
+	}
+	
+	@Override
+	public List<String> complete(String prefix, int limit) {
+		List<String> found = new ArrayList<>(2);
+		if ("false".startsWith(prefix)) found.add("false");
+		if ("true".startsWith(prefix)) found.add("true");
+		return found;
+	}
+
+}
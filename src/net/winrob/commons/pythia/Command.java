@@ -4,11 +4,13 @@ import static java.lang.annotation.ElementType.TYPE;
 import static java.lang.annotation.ElementType.FIELD;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
+import java.io.PrintStream;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 
 /**
  * Defines the {@link Option}s, {@link Parameter}s, {@link SubCommand}s, and {@link Description} for a command along with its execution.
+ * Commands are created for each execution unless they are {@link Reusable}.
  * 
  * @author Winter Roberts
  */
@@ -18,6 +20,32 @@ public abstract class Command {
 	
 	public abstract void execute();
 	
+	/**
+	 * Executes the command, returning its result. Every command is executed through this method, which a {@link ContextCommand}
+	 * overrides to return the result of {@link ContextCommand#execute(CommandContext)}.
+	 * 
+	 * @return The result, which is always null for a command which only implements {@link #execute()}.
+	 */
+	Object call() {
+		execute();
+		return null;
+	}
+	
+	/**
+	 * Called after a {@link Reusable} command has executed, before it is returned to its pool.
+	 * Fields annotated as an {@link Option} or {@link Parameter} are always overwritten by the next execution, so only other state needs to be cleared.
+	 */
+	protected void reset() {
+	}
+	
+	/**
+	 * @return The output this execution should print to, which is that of the {@link CommandContext} the command was executed in, otherwise stdout.
+	 * @see CommandLine#output()
+	 */
+	protected PrintStream out() {
+		return CommandLine.output();
+	}
+	
 	/**
 	 * Defines a named option and its alias, along with a possible description and default value.
 	 */
@@ -65,6 +93,18 @@ public abstract class Command {
 		
 	}
 	
+	/**
+	 * Marks a command whose instances may be reused by later executions on the same thread, rather than created for each.
+	 * Every {@link Option} and {@link Parameter} field is overwritten when the command is bound, so a command is reusable when
+	 * its {@link Command#execute()} keeps no other state, or clears it in {@link Command#reset()}, and it does not retain
+	 * a reference to itself after executing.
+	 */
+	@Retention(RUNTIME)
+	@Target(TYPE)
+	public @interface Reusable {
+		
+	}
+	
 	/**
 	 * Provides a description of this command used in help dialog.
 	 */
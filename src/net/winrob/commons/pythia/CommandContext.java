@@ -0,0 +1,113 @@
+package net.winrob.commons.pythia;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The output and result of executing {@link Command}s, given to {@link CommandLine#execute(CommandContext, String...)} by
+ * callers which embed a command line, so that they need not scrape stdout.
+ * <p>
+ * Output is streamed to the context's sink as a command writes it, so a command may write more than fits in memory. It may be
+ * written as text through {@link #getOut()} or {@link #getWriter()}, or as bytes through {@link #getChannel()}. A
+ * {@link ContextCommand} also returns a typed result, which is held by the context until the next execution.
+ * <p>
+ * A context is not thread safe, and should only be used by one execution at a time.
+ * 
+ * @author Winter Roberts
+ */
+public class CommandContext {
+	
+	private final PrintStream out;
+	private PrintWriter writer;
+	private WritableByteChannel channel;
+	private Object result;
+	
+	/**
+	 * Creates a context whose output is stdout (as {@link System#out} is when it is written to).
+	 */
+	public CommandContext() {
+		out = null;
+	}
+	
+	/**
+	 * Creates a context whose output is streamed to a sink.
+	 * 
+	 * @param out The sink, which text is written to as UTF-8 unless it is a {@link PrintStream}. It is flushed, but not closed, after each execution.
+	 */
+	public CommandContext(OutputStream out) {
+		this.out = out instanceof PrintStream ? (PrintStream) out : new PrintStream(out, false, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * @return The output, as a text stream.
+	 */
+	public PrintStream getOut() {
+		return out != null ? out : System.out;
+	}
+	
+	/**
+	 * Gets the output as a writer, which buffers text until it is flushed (which it is after each execution).
+	 * 
+	 * @return The output, as a writer.
+	 */
+	public PrintWriter getWriter() {
+		PrintWriter w = writer;
+		if (w == null) writer = w = new PrintWriter(new OutputStreamWriter(getOut(), StandardCharsets.UTF_8), false);
+		return w;
+	}
+	
+	/**
+	 * Gets the output as a channel, so that a command may write buffers of bytes (such as a dump of binary records) directly.
+	 * 
+	 * @return The output, as a channel which must not be closed.
+	 */
+	public WritableByteChannel getChannel() {
+		WritableByteChannel c = channel;
+		if (c == null) channel = c = Channels.newChannel(getOut());
+		return c;
+	}
+	
+	/**
+	 * Flushes any text buffered by the {@link #getWriter() writer}, and the output.
+	 */
+	public void flush() {
+		flushWriter();
+		getOut().flush();
+	}
+	
+	/**
+	 * Flushes any text buffered by the {@link #getWriter() writer} to the output, after a command has executed, so that it is
+	 * not reordered with the output of later commands.
+	 */
+	void flushWriter() {
+		PrintWriter w = writer;
+		if (w != null) w.flush();
+	}
+	
+	/**
+	 * @return The result of the last command executed in this context, or null if it had none (or was not a {@link ContextCommand}).
+	 */
+	public Object getResult() {
+		return result;
+	}
+	
+	/**
+	 * @param <T> The type of the result.
+	 * @param type The class of the result.
+	 * @return The result of the last command executed in this context, or null if it had none.
+	 * @throws ClassCastException If the result is not of the type.
+	 */
+	public <T> T getResult(Class<T> type) {
+		return type.cast(result);
+	}
+	
+	void setResult(Object result) {
+		this.result = result;
+	}
+	
+}
@@ -0,0 +1,49 @@
+package net.winrob.commons.pythia;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the default {@link ExecutorService} for submitted {@link Command}s: one virtual thread per command where the
+ * runtime supports them, otherwise a cached pool of daemon threads.
+ * 
+ * @author Winter Roberts
+ */
+final class CommandExecutors {
+	
+	private CommandExecutors() {
+	}
+	
+	/**
+	 * @return The shared default executor.
+	 */
+	static ExecutorService getDefault() {
+		return Holder.INSTANCE;
+	}
+	
+	private static ExecutorService create() {
+		try {
+			// Resolved dynamically, so that virtual threads are used when available without requiring a runtime which has them.
+			return (ExecutorService) MethodHandles.publicLookup()
+					.findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class))
+					.invokeExact();
+		} catch (Throwable e) {
+			AtomicInteger count = new AtomicInteger();
+			return Executors.newCachedThreadPool(r -> {
+				Thread t = new Thread(r, "Pythia-Command-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+	
+	private static class Holder {
+		
+		private static final ExecutorService INSTANCE = create();
+		
+	}
+
+}
@@ -0,0 +1,78 @@
+package net.winrob.commons.pythia;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The pending completion of a {@link Command} submitted to a {@link CommandLine}.
+ * Unlike other {@link CompletableFuture}s, cancelling (or timing out) a command interrupts the thread executing it.
+ * 
+ * @author Winter Roberts
+ */
+public class CommandFuture extends CompletableFuture<Void> {
+	
+	// Guards the runner, so that it is never interrupted after the command has finished running on it.
+	private final Object lock = new Object();
+	private Thread runner;
+	
+	CommandFuture() {
+	}
+	
+	/**
+	 * Runs the command on the current thread, unless this future was already cancelled.
+	 * 
+	 * @param command The command.
+	 */
+	void run(Execution command) {
+		if (isDone()) return;
+		synchronized (lock) {
+			runner = Thread.currentThread();
+		}
+		try {
+			if (!isDone()) {
+				command.execute();
+				complete(null);
+			}
+		} catch (Throwable t) {
+			completeExceptionally(t);
+		} finally {
+			synchronized (lock) {
+				runner = null;
+			}
+			// An interrupt meant for this command, which was sent before the runner was cleared, must not leak to the next task
+			// on a pooled thread.
+			Thread.interrupted();
+		}
+	}
+	
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		boolean cancelled = super.cancel(mayInterruptIfRunning);
+		if (cancelled) interrupt();
+		return cancelled;
+	}
+	
+	/**
+	 * Fails this future with a {@link TimeoutException} and interrupts the command, if it has not completed.
+	 */
+	void timeout() {
+		if (completeExceptionally(new TimeoutException("Command timed out"))) interrupt();
+	}
+	
+	private void interrupt() {
+		synchronized (lock) {
+			if (runner != null) runner.interrupt();
+		}
+	}
+	
+	/**
+	 * An interpretation and execution of a command.
+	 */
+	@FunctionalInterface
+	interface Execution {
+		
+		void execute() throws Exception;
+		
+	}
+
+}
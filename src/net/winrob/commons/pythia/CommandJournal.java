@@ -0,0 +1,708 @@
+package net.winrob.commons.pythia;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+
+/**
+ * A {@link CommandListener} which keeps an audit trail of every command executed from a {@link CommandLine}: its tokens, the
+ * keyword it resolved to, whether it succeeded (or the {@link Phase} it failed in) and how long it took.
+ * <p>
+ * Recording a command only queues it, so the executing thread never waits for the file, nor for a lock. A single writer thread drains the
+ * queue in batches, encoding each batch into one write (and, if {@link #setSync(boolean) synced}, one force to storage) however
+ * many commands it holds. The queue is bounded: while it is full, commands are not recorded but {@link #getDropped() counted}.
+ * <p>
+ * Records are appended to segment files in a directory, starting a new segment each time the journal is opened and whenever
+ * the current one reaches its {@link #setSegmentSize(long) size}. Each record is prefixed by its length and a checksum, so a
+ * segment whose last record was torn by a crash is {@link #read(Path) read} up to that record. A segment can be
+ * {@link #replay(Path, CommandLine, ErrorPolicy) replayed} to reproduce what was executed.
+ * <p>
+ * A journal is enabled with {@link CommandLine#enableJournal(Path)}, or added to a command line with
+ * {@link CommandLine#setJournal(CommandJournal)}.
+ * 
+ * @author Winter Roberts
+ */
+public class CommandJournal implements CommandListener, Closeable {
+	
+	/**
+	 * The first bytes of every segment ("PYJ1").
+	 */
+	private static final int MAGIC = 0x50594A31;
+	private static final String PREFIX = "journal-";
+	private static final String SUFFIX = ".log";
+	private static final byte SUCCEEDED = 0;
+	private static final String[] NO_TOKENS = new String[0];
+	private static final int MAX_BATCH = 4096;
+	
+	private final Path directory;
+	private final Queue<Pending> queue;
+	private final AtomicInteger queued;
+	private final int capacity;
+	private final ThreadLocal<String[]> issued;
+	private final LongAdder dropped;
+	private final Thread writer;
+	
+	private volatile long segmentSize;
+	private volatile int maxSegments;
+	private volatile boolean sync;
+	private volatile boolean closed;
+	private volatile boolean parked;
+	private volatile long written;
+	private volatile IOException failure;
+	
+	private FileChannel channel;
+	private Path segment;
+	private long sequence;
+	private ByteBuffer buffer;
+	private int[] ends;
+	
+	/**
+	 * Opens a journal in a directory, queueing up to 8192 commands.
+	 * 
+	 * @param directory The directory of the segments, which is created if it does not exist.
+	 * @throws IOException If the directory or the first segment could not be created.
+	 */
+	public CommandJournal(Path directory) throws IOException {
+		this(directory, 8192);
+	}
+	
+	/**
+	 * Opens a journal in a directory, starting a segment after any it already holds.
+	 * 
+	 * @param directory The directory of the segments, which is created if it does not exist.
+	 * @param queueCapacity The number of commands which may wait to be written before further commands are dropped.
+	 * @throws IOException If the directory or the first segment could not be created.
+	 */
+	public CommandJournal(Path directory, int queueCapacity) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		queue = new ConcurrentLinkedQueue<>();
+		queued = new AtomicInteger();
+		capacity = Math.max(1, queueCapacity);
+		issued = new ThreadLocal<>();
+		dropped = new LongAdder();
+		segmentSize = 16 << 20;
+		sync = true;
+		buffer = ByteBuffer.allocateDirect(1 << 16);
+		ends = new int[64];
+		List<Path> existing = segments(directory);
+		sequence = existing.isEmpty() ? 0 : sequenceOf(existing.get(existing.size() - 1));
+		roll();
+		writer = new Thread(this::write, "Pythia-Journal");
+		writer.setDaemon(true);
+		writer.start();
+	}
+	
+	/**
+	 * @param segmentSize The size in bytes a segment may reach before a new one is started (16MiB by default).
+	 */
+	public void setSegmentSize(long segmentSize) {
+		this.segmentSize = segmentSize;
+	}
+	
+	/**
+	 * @return The size in bytes a segment may reach before a new one is started.
+	 */
+	public long getSegmentSize() {
+		return segmentSize;
+	}
+	
+	/**
+	 * @param maxSegments The number of segments kept, beyond which the oldest are deleted as new ones are started, or 0 to keep every segment (the default).
+	 */
+	public void setMaxSegments(int maxSegments) {
+		this.maxSegments = Math.max(0, maxSegments);
+	}
+	
+	/**
+	 * @return The number of segments kept, or 0 if every segment is kept.
+	 */
+	public int getMaxSegments() {
+		return maxSegments;
+	}
+	
+	/**
+	 * Sets whether each batch is forced to storage once it is written, so that recorded commands survive a crash of the
+	 * operating system as well as of the application.
+	 * 
+	 * @param sync True if batches should be forced (the default), false if they may be left to the operating system.
+	 */
+	public void setSync(boolean sync) {
+		this.sync = sync;
+	}
+	
+	/**
+	 * @return True if each batch is forced to storage once it is written, false otherwise.
+	 */
+	public boolean isSync() {
+		return sync;
+	}
+	
+	/**
+	 * @return The directory of the segments.
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+	
+	/**
+	 * @return The segments in the directory, oldest first, the last of which is being written unless the journal is closed.
+	 * @throws IOException If the directory could not be listed.
+	 */
+	public List<Path> getSegments() throws IOException {
+		return segments(directory);
+	}
+	
+	/**
+	 * @return The number of commands written.
+	 */
+	public long getWritten() {
+		return written;
+	}
+	
+	/**
+	 * @return The number of commands which were not written, because the queue was full, the journal was closed, or writing failed.
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+	
+	/**
+	 * @return The exception which stopped the journal writing, or null if it has not failed.
+	 */
+	public IOException getFailure() {
+		return failure;
+	}
+	
+	/**
+	 * Notes the tokens of a command about to be executed on this thread, which are recorded with its outcome.
+	 * 
+	 * @param tokens The tokens, which are copied.
+	 * @return The tokens of any command whose execution is executing this one, which should be {@link #restore(String[]) restored} afterwards.
+	 */
+	String[] issue(List<String> tokens) {
+		String[] previous = issued.get();
+		issued.set(tokens.toArray(new String[0]));
+		return previous;
+	}
+	
+	/**
+	 * @param previous The tokens {@link #issue(List)} returned.
+	 */
+	void restore(String[] previous) {
+		if (previous == null) issued.remove();
+		else issued.set(previous);
+	}
+	
+	@Override
+	public void executed(String keyword, long dispatchNanos, long bindNanos, long executeNanos) {
+		append(new Pending(keyword, SUCCEEDED, null, dispatchNanos + bindNanos + executeNanos));
+	}
+	
+	@Override
+	public void failed(String keyword, Phase phase, Throwable cause, long elapsedNanos) {
+		append(new Pending(keyword, (byte) (phase.ordinal() + 1), cause, elapsedNanos));
+	}
+	
+	private void append(Pending pending) {
+		if (closed || queued.incrementAndGet() > capacity) {
+			queued.decrementAndGet();
+			dropped.increment();
+			return;
+		}
+		queue.offer(pending);
+		// The writer is only woken if it is parked, so a busy writer costs the executing thread nothing more than the offer.
+		if (parked) LockSupport.unpark(writer);
+	}
+	
+	/**
+	 * Waits until every command recorded before the call has been written (and forced, if the journal is {@link #setSync(boolean) synced}).
+	 * 
+	 * @throws IOException If the journal failed to write, or is closed.
+	 * @throws InterruptedException If the thread was interrupted while waiting.
+	 */
+	public void flush() throws IOException, InterruptedException {
+		Pending marker = new Pending(new CountDownLatch(1));
+		queue.offer(marker);
+		LockSupport.unpark(writer);
+		while (!marker.latch.await(100, TimeUnit.MILLISECONDS)) {
+			if (!writer.isAlive()) break;
+		}
+		if (marker.latch.getCount() != 0) throw new IOException("Journal is closed");
+		IOException f = failure;
+		if (f != null) throw new IOException("Journal failed", f);
+	}
+	
+	/**
+	 * Writes every queued command and closes the current segment. Commands recorded afterwards are dropped.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (closed) return;
+			closed = true;
+		}
+		queue.offer(new Pending(null));
+		LockSupport.unpark(writer);
+		boolean interrupted = false;
+		while (true) {
+			try {
+				writer.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+	
+	/**
+	 * Drains the queue in batches until the journal is closed, parking while it is empty.
+	 */
+	private void write() {
+		List<CountDownLatch> waiting = new ArrayList<>();
+		boolean running = true;
+		while (running) {
+			int records = 0;
+			buffer.clear();
+			Pending p;
+			while (records < MAX_BATCH && (p = queue.poll()) != null) {
+				if (p.outcome < 0) {
+					// A marker: a flush waits for the records before it, and a close (without a latch) ends the journal.
+					if (p.latch == null) running = false;
+					else waiting.add(p.latch);
+					continue;
+				}
+				encode(p);
+				if (records == ends.length) ends = Arrays.copyOf(ends, records * 2);
+				ends[records++] = buffer.position();
+			}
+			if (records == 0 && waiting.isEmpty()) {
+				if (running) park();
+				continue;
+			}
+			queued.addAndGet(-records);
+			if (failure == null) {
+				try {
+					commit(records);
+					written += records;
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+			if (failure != null) dropped.add(records);
+			waiting.forEach(CountDownLatch::countDown);
+			waiting.clear();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			if (failure == null) failure = e;
+		}
+		// Anything queued while closing is counted rather than left waiting.
+		Pending p;
+		while ((p = queue.poll()) != null) {
+			if (p.outcome >= 0) dropped.increment();
+		}
+	}
+	
+	/**
+	 * Parks the writer until a command is queued. The flag is raised before the queue is checked, and commands are queued
+	 * before the flag is checked, so either the writer sees the command or the executing thread sees the flag.
+	 */
+	private void park() {
+		parked = true;
+		if (queue.isEmpty()) LockSupport.park(this);
+		parked = false;
+	}
+	
+	/**
+	 * Writes the encoded batch to the current segment, starting a new segment before any record which would take it past its size.
+	 * 
+	 * @param records The number of records in the batch.
+	 */
+	private void commit(int records) throws IOException {
+		if (records == 0) return;
+		long size = channel.position();
+		int from = 0;
+		for (int i = 0; i < records; i++) {
+			int start = i == 0 ? 0 : ends[i - 1];
+			int length = ends[i] - start;
+			if (size > Integer.BYTES && size + length > segmentSize) {
+				write(from, start);
+				channel.close();
+				roll();
+				from = start;
+				size = Integer.BYTES;
+			}
+			size += length;
+		}
+		write(from, ends[records - 1]);
+	}
+	
+	private void write(int from, int to) throws IOException {
+		if (from == to) return;
+		ByteBuffer range = buffer.duplicate().limit(to).position(from);
+		while (range.hasRemaining()) channel.write(range);
+		if (sync) channel.force(false);
+	}
+	
+	/**
+	 * Starts the next segment, deleting the oldest beyond the number kept.
+	 */
+	private void roll() throws IOException {
+		segment = directory.resolve(String.format("%s%010d%s", PREFIX, ++sequence, SUFFIX));
+		channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		ByteBuffer header = ByteBuffer.allocate(Integer.BYTES).putInt(0, MAGIC);
+		while (header.hasRemaining()) channel.write(header);
+		int max = maxSegments;
+		if (max > 0) {
+			List<Path> all = segments(directory);
+			for (int i = 0; i < all.size() - max; i++) {
+				Files.deleteIfExists(all.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * Appends a record to the batch: its length and checksum, then the time, latency, outcome, keyword, tokens and any error.
+	 */
+	private void encode(Pending p) {
+		byte[] keyword = p.keyword == null ? null : p.keyword.getBytes(StandardCharsets.UTF_8);
+		byte[][] tokens = new byte[p.tokens.length][];
+		int length = Long.BYTES + 10 + 1 + 5 + (keyword == null ? 0 : keyword.length) + 5;
+		for (int i = 0; i < tokens.length; i++) {
+			tokens[i] = p.tokens[i].getBytes(StandardCharsets.UTF_8);
+			length += 5 + tokens[i].length;
+		}
+		byte[] error = null;
+		if (p.cause != null) {
+			String message = p.cause.getMessage();
+			error = (p.cause.getClass().getName() + (message == null ? "" : ": " + message)).getBytes(StandardCharsets.UTF_8);
+		}
+		length += 5 + (error == null ? 0 : error.length);
+		ensure(2 * Integer.BYTES + length);
+		int at = buffer.position();
+		buffer.position(at + 2 * Integer.BYTES);
+		buffer.putLong(p.time);
+		putVarLong(p.elapsedNanos);
+		buffer.put(p.outcome);
+		putBytes(keyword);
+		putVarLong(tokens.length);
+		for (byte[] t : tokens) putBytes(t);
+		putBytes(error);
+		int end = buffer.position();
+		CRC32C crc = new CRC32C();
+		crc.update(buffer.duplicate().position(at + 2 * Integer.BYTES).limit(end));
+		buffer.putInt(at, end - at - 2 * Integer.BYTES);
+		buffer.putInt(at + Integer.BYTES, (int) crc.getValue());
+	}
+	
+	private void ensure(int bytes) {
+		if (buffer.remaining() >= bytes) return;
+		ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+		buffer.flip();
+		grown.put(buffer);
+		buffer = grown;
+	}
+	
+	/**
+	 * Puts a length (one more than the number of bytes, so that 0 is null) and the bytes.
+	 */
+	private void putBytes(byte[] bytes) {
+		if (bytes == null) {
+			putVarLong(0);
+			return;
+		}
+		putVarLong(bytes.length + 1);
+		buffer.put(bytes);
+	}
+	
+	private void putVarLong(long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) (value & 0x7F | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+	
+	/**
+	 * Reads the records of a segment, up to the end of the segment or the first record which is incomplete or corrupt.
+	 * 
+	 * @param segment The segment.
+	 * @return The records, in the order the commands completed.
+	 * @throws IOException If the segment could not be read, or is not a segment of a journal.
+	 */
+	public static List<Record> read(Path segment) throws IOException {
+		ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(segment));
+		if (bytes.remaining() < Integer.BYTES || bytes.getInt() != MAGIC) throw new IOException("Not a journal segment: " + segment);
+		List<Record> records = new ArrayList<>();
+		CRC32C crc = new CRC32C();
+		while (bytes.remaining() >= 2 * Integer.BYTES) {
+			int length = bytes.getInt();
+			int checksum = bytes.getInt();
+			if (length < 0 || length > bytes.remaining()) break;
+			ByteBuffer record = bytes.slice().limit(length);
+			crc.reset();
+			crc.update(record.duplicate());
+			if ((int) crc.getValue() != checksum) break;
+			try {
+				records.add(decode(record));
+			} catch (BufferUnderflowException | EOFException | IllegalArgumentException e) {
+				break;
+			}
+			bytes.position(bytes.position() + length);
+		}
+		return records;
+	}
+	
+	private static Record decode(ByteBuffer record) throws EOFException {
+		long time = record.getLong();
+		long elapsedNanos = getVarLong(record);
+		byte outcome = record.get();
+		if (outcome < 0 || outcome > Phase.values().length) throw new IllegalArgumentException("Unknown outcome " + outcome);
+		String keyword = getString(record);
+		long n = getVarLong(record);
+		if (n > record.remaining()) throw new EOFException();
+		String[] tokens = new String[(int) n];
+		for (int i = 0; i < tokens.length; i++) {
+			tokens[i] = getString(record);
+			if (tokens[i] == null) throw new IllegalArgumentException("Null token");
+		}
+		String error = getString(record);
+		return new Record(time, elapsedNanos, outcome == SUCCEEDED ? null : Phase.values()[outcome - 1], keyword, Arrays.asList(tokens), error);
+	}
+	
+	private static String getString(ByteBuffer record) throws EOFException {
+		long n = getVarLong(record);
+		if (n == 0) return null;
+		if (n - 1 > record.remaining()) throw new EOFException();
+		String s = new String(record.array(), record.arrayOffset() + record.position(), (int) n - 1, StandardCharsets.UTF_8);
+		record.position(record.position() + (int) n - 1);
+		return s;
+	}
+	
+	private static long getVarLong(ByteBuffer record) throws EOFException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			if (!record.hasRemaining()) throw new EOFException();
+			byte b = record.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) return value;
+		}
+		throw new IllegalArgumentException("Malformed length");
+	}
+	
+	/**
+	 * Re-executes every command recorded in a segment, see {@link #replay(Path, CommandLine, ErrorPolicy, Predicate)}.
+	 * 
+	 * @param segment The segment.
+	 * @param commandLine The command line the commands should be executed on.
+	 * @param policy How replay continues after a command fails.
+	 * @return The report of the replay.
+	 * @throws IOException If the segment could not be read.
+	 */
+	public static ScriptReport replay(Path segment, CommandLine commandLine, ErrorPolicy policy) throws IOException {
+		return replay(segment, commandLine, policy, r -> true);
+	}
+	
+	/**
+	 * Re-executes the commands recorded in a segment, in the order they completed, as if the segment were a script of their
+	 * tokens. Each record is a line of the {@link ScriptReport}, so a failure is reported by the (1-based) index of its record.
+	 * Replayed commands are themselves journaled if the command line has a journal.
+	 * 
+	 * @param segment The segment.
+	 * @param commandLine The command line the commands should be executed on.
+	 * @param policy How replay continues after a command fails.
+	 * @param filter The records which should be re-executed, such as those which {@link Record#isSucceeded() succeeded}.
+	 * @return The report of the replay.
+	 * @throws IOException If the segment could not be read.
+	 */
+	public static ScriptReport replay(Path segment, CommandLine commandLine, ErrorPolicy policy, Predicate<? super Record> filter) throws IOException {
+		ScriptReport report = new ScriptReport(policy);
+		long line = 0;
+		for (Record r : read(segment)) {
+			line++;
+			report.lineRead();
+			if (r.getTokens().isEmpty() || !filter.test(r)) continue;
+			try {
+				commandLine.execute(r.getTokens());
+				report.succeeded();
+			} catch (CommandLine.CommandInterpretException | IllegalAccessException | RuntimeException e) {
+				report.failed(line, r.getLine(), e);
+				if (report.isStopped()) break;
+			}
+		}
+		return report;
+	}
+	
+	private static List<Path> segments(Path directory) throws IOException {
+		List<Path> segments = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+			for (Path p : stream) {
+				if (sequenceOf(p) > 0) segments.add(p);
+			}
+		}
+		segments.sort(null);
+		return segments;
+	}
+	
+	/**
+	 * @return The sequence number of a segment, or 0 if the path is not named as a segment.
+	 */
+	private static long sequenceOf(Path segment) {
+		String name = segment.getFileName().toString();
+		try {
+			return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+		} catch (NumberFormatException | IndexOutOfBoundsException e) {
+			return 0;
+		}
+	}
+	
+	/**
+	 * A command waiting to be written, or a marker which a flush or close waits on.
+	 */
+	private final class Pending {
+		
+		private final long time;
+		private final long elapsedNanos;
+		private final byte outcome;
+		private final String keyword;
+		private final String[] tokens;
+		private final Throwable cause;
+		private final CountDownLatch latch;
+		
+		private Pending(String keyword, byte outcome, Throwable cause, long elapsedNanos) {
+			this.time = System.currentTimeMillis();
+			this.elapsedNanos = elapsedNanos;
+			this.outcome = outcome;
+			this.keyword = keyword;
+			String[] t = issued.get();
+			this.tokens = t == null ? NO_TOKENS : t;
+			this.cause = cause;
+			this.latch = null;
+		}
+		
+		private Pending(CountDownLatch latch) {
+			this.time = 0;
+			this.elapsedNanos = 0;
+			this.outcome = -1;
+			this.keyword = null;
+			this.tokens = null;
+			this.cause = null;
+			this.latch = latch;
+		}
+		
+	}
+	
+	/**
+	 * A command read from a segment.
+	 */
+	public static final class Record {
+		
+		private final long time;
+		private final long elapsedNanos;
+		private final Phase failedPhase;
+		private final String keyword;
+		private final List<String> tokens;
+		private final String error;
+		
+		private Record(long time, long elapsedNanos, Phase failedPhase, String keyword, List<String> tokens, String error) {
+			this.time = time;
+			this.elapsedNanos = elapsedNanos;
+			this.failedPhase = failedPhase;
+			this.keyword = keyword;
+			this.tokens = Collections.unmodifiableList(tokens);
+			this.error = error;
+		}
+		
+		/**
+		 * @return The time the command completed.
+		 */
+		public Instant getTime() {
+			return Instant.ofEpochMilli(time);
+		}
+		
+		/**
+		 * @return The time the command took, from the start of its execution until it completed or failed.
+		 */
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+		
+		/**
+		 * @return True if the command executed successfully, false if it failed.
+		 */
+		public boolean isSucceeded() {
+			return failedPhase == null;
+		}
+		
+		/**
+		 * @return The {@link Phase} the command failed in, or null if it succeeded.
+		 */
+		public Phase getFailedPhase() {
+			return failedPhase;
+		}
+		
+		/**
+		 * @return The keyword the command resolved to, including the keywords of any parent commands, or null if no command could be found.
+		 */
+		public String getKeyword() {
+			return keyword;
+		}
+		
+		/**
+		 * @return The tokens the command was issued with.
+		 */
+		public List<String> getTokens() {
+			return tokens;
+		}
+		
+		/**
+		 * @return The exception the command failed with (its class and message), or null if it succeeded.
+		 */
+		public String getError() {
+			return error;
+		}
+		
+		/**
+		 * @return The tokens as a line, each {@link Tokenizer#escape(CharSequence) escaped} so that the line tokenizes to them.
+		 */
+		public String getLine() {
+			StringBuilder sb = new StringBuilder();
+			for (String t : tokens) {
+				if (sb.length() > 0) sb.append(' ');
+				sb.append(t.isEmpty() ? "\"\"" : Tokenizer.escape(t));
+			}
+			return sb.toString();
+		}
+		
+		@Override
+		public String toString() {
+			return getTime() + " " + getLine() + " -> " + (failedPhase == null ? "ok" : failedPhase + " failed: " + error) + " (" + elapsedNanos / 1000 + "us)";
+		}
+		
+	}
+	
+}
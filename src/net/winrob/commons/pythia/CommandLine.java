@@ -1,44 +1,226 @@
 package net.winrob.commons.pythia;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.StreamSupport;
 
-import net.winrob.commons.pythia.Command.Description;
 import net.winrob.commons.pythia.Command.Option;
-import net.winrob.commons.pythia.Command.Parameter;
 import net.winrob.commons.pythia.Command.SubCommand;
-import net.winrob.hestia.data.ComparablePair;
-import net.winrob.hestia.data.Pair;
+import net.winrob.commons.pythia.CommandListener.Phase;
+import net.winrob.commons.pythia.CommandSpec.OptionSpec;
+import net.winrob.commons.pythia.CommandSpec.ParameterSpec;
+import net.winrob.commons.pythia.Diagnostic.Expected;
+import net.winrob.commons.pythia.FieldBinder.Kind;
+import net.winrob.commons.pythia.Tokenizer.Tokens;
 
 /**
  * A collection of commands which accepts and interprets included {@link Command}s by their keywords and definition.
+ * <p>
+ * A command line is thread safe: {@link #execute(String...)} may be called from many threads while commands and converters are added.
+ * Keywords are held in an immutable {@link KeywordTrie} snapshot which each registration replaces by compare-and-set, so neither
+ * registration nor execution takes a lock, and an execution always sees a consistent set of commands.
+ * <p>
+ * The interpreters of {@link SubCommand}s are built when they are first dispatched to, rather than when their parent is added,
+ * see {@link #warmUp()}.
+ * A short-lived process can also skip reflecting over its commands at start by restoring them from a snapshot written by an
+ * earlier start, see {@link #addCommands(Map, Path)}.
+ * <p>
+ * The arguments following a keyword are its options and parameters, in any order. An option is given by its alias ("-f out"), or
+ * by its name if it {@link Option#useNamed() may be} ("--file out" or "--file=out"). Flags, options which take no argument, may
+ * be clustered ("-vx"), where the last option of the cluster may take one ("-vf out"). An argument of "--" ends the options, so
+ * that the arguments after it are parameters even if they begin with '-', as are negative numbers.
+ * <p>
+ * The last parameter may be variadic (an array, {@link List}, {@link Set}, {@link Iterator} or {@link java.util.stream.Stream}),
+ * in which case it takes every remaining argument, so the options must precede it. Each argument is converted by the converter
+ * of the element type. An {@link Iterator} or {@link java.util.stream.Stream} converts its arguments as the command reads them,
+ * so it must be read before the command returns, and a rejected argument fails the command with the converter's exception.
  * 
  * @author Winter Roberts
  */
 public class CommandLine {
 	
-	private Map<String, CommandInterpreter> commands;
+	private static final ThreadLocal<Tokenizer> TOKENIZER = ThreadLocal.withInitial(Tokenizer::new);
+	private static final ThreadLocal<CommandContext> CONTEXT = new ThreadLocal<>();
 	
-	private Map<Class<?>, ArgumentConverter<?>> converters;
+	private static final VarHandle COMMANDS;
+	private static final VarHandle OPTION_TABLE;
+	private static final VarHandle SUB_COMMAND_LINE;
+	static {
+		try {
+			Lookup lookup = MethodHandles.lookup();
+			COMMANDS = lookup.findVarHandle(CommandLine.class, "commands", KeywordTrie.class);
+			OPTION_TABLE = lookup.findVarHandle(CommandInterpreter.class, "optionTable", OptionTable.class);
+			SUB_COMMAND_LINE = lookup.findVarHandle(CommandInterpreter.class, "subCommandLine", CommandLine.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
+	private static final Object REQUIRED = new Object();
+	private static final Object UNCONVERTED = new Object();
+	
+	static final int SUGGESTION_DISTANCE = 2;
+	static final int SUGGESTION_LIMIT = 3;
+	
+	/**
+	 * The number of candidates {@link #complete(CharSequence, int)} returns at most.
+	 */
+	public static final int COMPLETION_LIMIT = 64;
+	
+	private volatile KeywordTrie<CommandInterpreter> commands;
+	
+	private final Map<Class<?>, ArgumentConverter<?>> converters;
+	
+	private final Map<Class<?>, CommandSpec> restored;
+	
+	// Counts the changes of converters and abbreviation matching, which invalidate the plans of the ParseCache.
+	private final AtomicInteger generation;
+	
+	private volatile BindingMode bindingMode;
+	
+	private volatile InstantiationStrategy instantiation;
+	
+	private volatile boolean abbreviations;
+	
+	private volatile Executor executor;
+	
+	private volatile ParseCache parseCache;
+	
+	private volatile CommandListener listener;
+	
+	private volatile CommandJournal journal;
+	
+	private volatile HelpIndex helpIndex;
+	
+	private final String path;
 	
 	/**
-	 * Creates a new command line, with default support for {@link StringConverter} and {@link IntegerConverter} arguments.
+	 * Creates a new command line, with default support for {@link String}, {@link Integer}, {@link Long}, {@link Double}, {@link Boolean},
+	 * {@link Path}, {@link Duration} and enum arguments, including {@code int}, {@code long}, {@code double} and {@code boolean} fields.
+	 * Fields are bound according to {@link BindingMode#getDefault()}, and commands are instantiated according to {@link InstantiationStrategy#getDefault()}.
 	 */
 	public CommandLine() {
-		commands = new HashMap<>();
-		converters = new HashMap<>();
+		commands = KeywordTrie.empty();
+		converters = new ConcurrentHashMap<>();
+		restored = new ConcurrentHashMap<>();
+		generation = new AtomicInteger();
+		bindingMode = BindingMode.getDefault();
+		instantiation = InstantiationStrategy.getDefault();
+		path = "";
 		addConverter(String.class, new StringConverter());
 		addConverter(Integer.class, new IntegerConverter());
+		addConverter(int.class, new IntegerConverter());
+		addConverter(Long.class, new LongConverter());
+		addConverter(long.class, new LongConverter());
+		addConverter(Double.class, new DoubleConverter());
+		addConverter(double.class, new DoubleConverter());
+		addConverter(Boolean.class, new BooleanConverter());
+		addConverter(boolean.class, new BooleanConverter());
+		addConverter(Path.class, new PathConverter());
+		addConverter(Duration.class, new DurationConverter());
+	}
+	
+	/**
+	 * Creates the sub command line of a {@link SubCommand}, which shares the converters of its parent.
+	 * 
+	 * @param parent The command line of the parent command.
+	 * @param path The keyword of the parent command, including the keywords of its own parents.
+	 * @param bindingMode The binding mode of the parent command line when the parent command was added.
+	 * @param instantiation The instantiation strategy of the parent command line when the parent command was added.
+	 */
+	private CommandLine(CommandLine parent, String path, BindingMode bindingMode, InstantiationStrategy instantiation) {
+		commands = KeywordTrie.empty();
+		converters = parent.converters;
+		restored = parent.restored;
+		generation = parent.generation;
+		this.bindingMode = bindingMode;
+		this.instantiation = instantiation;
+		this.path = path + " ";
+	}
+	
+	/**
+	 * Sets how {@link Command} fields are populated, which applies to commands (and their sub commands) added afterwards.
+	 * 
+	 * @param bindingMode The {@link BindingMode} which should be used for future {@link CommandInterpreter}s.
+	 */
+	public void setBindingMode(BindingMode bindingMode) {
+		this.bindingMode = bindingMode;
+	}
+	
+	/**
+	 * @return The {@link BindingMode} used for newly added commands.
+	 */
+	public BindingMode getBindingMode() {
+		return bindingMode;
+	}
+	
+	/**
+	 * Sets how {@link Command}s are instantiated, which applies to commands (and their sub commands) added afterwards.
+	 * 
+	 * @param instantiation The {@link InstantiationStrategy} which should create the factory of each future {@link CommandInterpreter}.
+	 */
+	public void setInstantiationStrategy(InstantiationStrategy instantiation) {
+		this.instantiation = instantiation;
+	}
+	
+	/**
+	 * @return The {@link InstantiationStrategy} used for newly added commands.
+	 */
+	public InstantiationStrategy getInstantiationStrategy() {
+		return instantiation;
+	}
+	
+	/**
+	 * Allows keywords and option aliases to be abbreviated by any prefix which identifies only one of them (e.g. "stat" for "status").
+	 * Sub command keywords must always be given in full, so that they are never mistaken for parameters.
+	 * 
+	 * @param abbreviations True if unique prefixes should be accepted, false otherwise.
+	 */
+	public void setAllowAbbreviations(boolean abbreviations) {
+		this.abbreviations = abbreviations;
+		generation.incrementAndGet();
+	}
+	
+	/**
+	 * @return True if unique prefixes of keywords and option aliases are accepted, false otherwise.
+	 */
+	public boolean isAllowAbbreviations() {
+		return abbreviations;
 	}
 	
 	/**
@@ -49,8 +231,203 @@ public class CommandLine {
 	 * @throws KeyWordCollisionException If the keyword is already in use.
 	 */
 	public void addCommand(String keyword, Class<? extends Command> command) {
+		addCommand(keyword, command, null);
+	}
+	
+	/**
+	 * Adds a {@link CommandInterpreter} invoked by the keyword, which creates each instance of the {@link Command} with a factory.
+	 * 
+	 * @param <T> The type of the {@link Command}.
+	 * @param keyword The keyword which should invoke the interpreter.
+	 * @param command The {@link Command} class for which the {@link CommandInterpreter} should be created.
+	 * @param factory Creates new, unpopulated instances of the command, or null to use the {@link InstantiationStrategy}.
+	 * @throws KeyWordCollisionException If the keyword is already in use.
+	 * @throws IllegalArgumentException If no factory was given and the command cannot be instantiated.
+	 */
+	public <T extends Command> void addCommand(String keyword, Class<T> command, Supplier<? extends T> factory) {
 		if (commands.containsKey(keyword)) throw new KeyWordCollisionException("Keyword '" + keyword + "' is already in use!");
-		commands.put(keyword, new CommandInterpreter(keyword, command));
+		CommandInterpreter interpreter = new CommandInterpreter(keyword, specOf(command), factory);
+		KeywordTrie<CommandInterpreter> current;
+		do {
+			current = commands;
+			if (current.containsKey(keyword)) throw new KeyWordCollisionException("Keyword '" + keyword + "' is already in use!");
+		} while (!COMMANDS.compareAndSet(this, current, current.with(keyword, interpreter)));
+	}
+	
+	/**
+	 * Adds every command of a module at once, so that either all of them are added or (if any keyword is in use) none are.
+	 * 
+	 * @param module The {@link Command} classes by keyword.
+	 * @throws KeyWordCollisionException If any of the keywords is already in use.
+	 */
+	public void addCommands(Map<String, Class<? extends Command>> module) {
+		Map<String, CommandInterpreter> built = build(module, commands);
+		KeywordTrie<CommandInterpreter> current;
+		KeywordTrie<CommandInterpreter> updated;
+		do {
+			current = commands;
+			updated = current;
+			for (Entry<String, CommandInterpreter> e : built.entrySet()) {
+				if (current.containsKey(e.getKey())) throw new KeyWordCollisionException("Keyword '" + e.getKey() + "' is already in use!");
+				updated = updated.with(e.getKey(), e.getValue());
+			}
+		} while (!COMMANDS.compareAndSet(this, current, updated));
+	}
+	
+	/**
+	 * Removes the command of a keyword. Executions which have already found the command complete with it, while later
+	 * executions (including those of lines in the {@link ParseCache}) no longer find it.
+	 * 
+	 * @param keyword The keyword of the command.
+	 * @return True if the command was removed, false if no command had the keyword.
+	 */
+	public boolean removeCommand(String keyword) {
+		KeywordTrie<CommandInterpreter> current;
+		do {
+			current = commands;
+			if (!current.containsKey(keyword)) return false;
+		} while (!COMMANDS.compareAndSet(this, current, current.without(keyword)));
+		return true;
+	}
+	
+	/**
+	 * Replaces the command of a keyword, or adds it if the keyword is not in use, see {@link #replaceCommand(String, Class, Supplier)}.
+	 * 
+	 * @param keyword The keyword which should invoke the interpreter.
+	 * @param command The {@link Command} class for which the {@link CommandInterpreter} should be created.
+	 */
+	public void replaceCommand(String keyword, Class<? extends Command> command) {
+		replaceCommand(keyword, command, null);
+	}
+	
+	/**
+	 * Replaces the command of a keyword, or adds it if the keyword is not in use, such as when the module defining it is
+	 * redeployed. The new interpreter is built before it is swapped in, so executions never see the keyword missing, and
+	 * executions which have already found the old interpreter complete with it. The {@link #setConcurrencyLimit(String, int)
+	 * concurrency limit} of the keyword is kept, and shared with executions of the old interpreter, while option aliases added
+	 * to the old interpreter are not.
+	 * 
+	 * @param <T> The type of the {@link Command}.
+	 * @param keyword The keyword which should invoke the interpreter.
+	 * @param command The {@link Command} class for which the {@link CommandInterpreter} should be created.
+	 * @param factory Creates new, unpopulated instances of the command, or null to use the {@link InstantiationStrategy}.
+	 * @throws IllegalArgumentException If no factory was given and the command cannot be instantiated.
+	 */
+	public <T extends Command> void replaceCommand(String keyword, Class<T> command, Supplier<? extends T> factory) {
+		CommandInterpreter interpreter = new CommandInterpreter(keyword, specOf(command), factory);
+		KeywordTrie<CommandInterpreter> current;
+		do {
+			current = commands;
+			CommandInterpreter old = current.get(keyword);
+			if (old != null) interpreter.limit = old.limit;
+		} while (!COMMANDS.compareAndSet(this, current, current.with(keyword, interpreter)));
+	}
+	
+	/**
+	 * Replaces the commands of a module in one atomic swap, such as when it is redeployed: executions either find every command
+	 * of the previous version of the module, or every command of the new version. Only the keywords whose {@link Command}
+	 * class has changed are rebuilt, so a keyword whose class is the one already registered keeps its interpreter (and any
+	 * option aliases added to it), and the swap costs time in proportion to the commands which changed rather than to every command.
+	 * Replaced interpreters keep their keyword's {@link #setConcurrencyLimit(String, int) concurrency limit}, as with
+	 * {@link #replaceCommand(String, Class, Supplier)}.
+	 * 
+	 * @param previous The keywords of the previous version of the module, which are removed unless the new version has them.
+	 * @param module The {@link Command} classes of the new version by keyword, which are added or replace the keyword's command.
+	 * @throws IllegalArgumentException If any command cannot be instantiated, in which case no command is changed.
+	 */
+	public void replaceCommands(Collection<String> previous, Map<String, Class<? extends Command>> module) {
+		Map<String, CommandInterpreter> built = build(module, commands);
+		KeywordTrie<CommandInterpreter> current;
+		KeywordTrie<CommandInterpreter> updated;
+		do {
+			current = commands;
+			updated = current;
+			for (String keyword : previous) {
+				if (!module.containsKey(keyword)) updated = updated.without(keyword);
+			}
+			for (Entry<String, Class<? extends Command>> e : module.entrySet()) {
+				String keyword = e.getKey();
+				CommandInterpreter old = current.get(keyword);
+				if (old != null && old.spec.getCommand() == e.getValue()) continue;
+				CommandInterpreter interpreter = built.get(keyword);
+				// A keyword which was unchanged when the interpreters were built has changed since, so it is built now.
+				if (interpreter == null) built.put(keyword, interpreter = new CommandInterpreter(keyword, specOf(e.getValue()), null));
+				if (old != null) interpreter.limit = old.limit;
+				updated = updated.with(keyword, interpreter);
+			}
+		} while (!COMMANDS.compareAndSet(this, current, updated));
+	}
+	
+	/**
+	 * Adds every command of a module at once, as {@link #addCommands(Map)}, restoring their specs from a snapshot written by an
+	 * earlier start so that their classes are not reflected over. The snapshot is only used if it was written for the same
+	 * keywords and classes, and no class has changed since (see {@link CommandSnapshot}); otherwise the commands are built
+	 * from their classes, and the snapshot is written for the next start.
+	 * <p>
+	 * Restored commands are built as the {@link InstantiationStrategy} and {@link BindingMode} of this command line decide, but
+	 * resolve their factories and field binders when each is first executed. Option aliases, concurrency limits and converters
+	 * are not part of a snapshot, and are added as usual.
+	 * 
+	 * @param module The {@link Command} classes by keyword.
+	 * @param snapshot The file of the snapshot, which need not exist.
+	 * @return True if the commands were restored from the snapshot, false if they were built and the snapshot written.
+	 * @throws KeyWordCollisionException If any of the keywords is already in use.
+	 * @throws IOException If the snapshot could not be read, or written.
+	 */
+	public boolean addCommands(Map<String, Class<? extends Command>> module, Path snapshot) throws IOException {
+		Map<Class<?>, CommandSpec> specs = CommandSnapshot.read(snapshot, module, bindingMode, instantiation);
+		if (specs != null) {
+			restored.putAll(specs);
+			addCommands(module);
+			return true;
+		}
+		addCommands(module);
+		CommandSnapshot.write(snapshot, module, this::specOf);
+		return false;
+	}
+	
+	/**
+	 * Writes a snapshot of every command added to this command line, and of their {@link SubCommand}s, which a later start
+	 * restores with {@link #addCommands(Map, Path)} given the same keywords and classes.
+	 * 
+	 * @param snapshot The file of the snapshot, which is replaced if it exists.
+	 * @throws IOException If the snapshot could not be written.
+	 */
+	public void writeSnapshot(Path snapshot) throws IOException {
+		KeywordTrie<CommandInterpreter> current = commands;
+		Map<String, Class<? extends Command>> module = new LinkedHashMap<>();
+		for (String keyword : current.keys()) {
+			module.put(keyword, current.get(keyword).spec.getCommand());
+		}
+		CommandSnapshot.write(snapshot, module, this::specOf);
+	}
+	
+	/**
+	 * Finds the spec of a {@link Command} class, restored from a snapshot if there is one, otherwise generated or reflected.
+	 * 
+	 * @param command The {@link Command} class.
+	 * @return The spec of the class.
+	 */
+	private CommandSpec specOf(Class<? extends Command> command) {
+		CommandSpec spec = restored.get(command);
+		return spec != null ? spec : CommandSpec.of(command, bindingMode);
+	}
+	
+	/**
+	 * Builds the interpreters of a module's commands, except those whose class is already registered with the same keyword.
+	 * 
+	 * @param module The {@link Command} classes by keyword.
+	 * @param current The registered commands.
+	 * @return The built interpreters by keyword.
+	 */
+	private Map<String, CommandInterpreter> build(Map<String, Class<? extends Command>> module, KeywordTrie<CommandInterpreter> current) {
+		Map<String, CommandInterpreter> built = new HashMap<>();
+		for (Entry<String, Class<? extends Command>> e : module.entrySet()) {
+			CommandInterpreter old = current.get(e.getKey());
+			if (old != null && old.spec.getCommand() == e.getValue()) continue;
+			built.put(e.getKey(), new CommandInterpreter(e.getKey(), specOf(e.getValue()), null));
+		}
+		return built;
 	}
 
 	/**
@@ -58,15 +435,27 @@ public class CommandLine {
 	 */
 	public class CommandInterpreter {
 		
-		private String keyword;
-		private Class<? extends Command> command;
+		private final String keyword;
+		private final String path;
+		private final CommandSpec spec;
+		private final Supplier<? extends Command> factory;
+		private final CommandPool pool;
+		private final ThreadLocal<BindingPlan> scratch;
+		
+		private final Map<String, Class<? extends Command>> subCommands;
+		private final BindingMode subBindingMode;
+		private final InstantiationStrategy subInstantiation;
+		private volatile CommandLine subCommandLine;
+		private volatile OptionTable optionTable;
 		
-		CommandLine subCommandLine;
-		private Map<String, Option> optionAlias;
-		private Map<Option, Field> optionFields;
-		private Map<Integer, Pair<Parameter, Field>> parameters;
+		private volatile Semaphore limit;
 		
-		private Description description;
+		private final OptionSpec[] options;
+		private final FieldBinder[] binders;
+		private final boolean[] flags;
+		private final int variadic;
+		private volatile Defaults defaults;
+		private final boolean primitives;
 		
 		/**
 		 * Uses the {@link Command} class definition to construct an interpreter.
@@ -75,51 +464,202 @@ public class CommandLine {
 		 * @param command The {@link Command} class for which this interpreter should be created.
 		 */
 		protected CommandInterpreter(String keyword, Class<? extends Command> command) {
+			this(keyword, specOf(command));
+		}
+		
+		/**
+		 * Uses a {@link CommandSpec} to construct an interpreter.
+		 * 
+		 * @param keyword The keyword which invokes the interpreter.
+		 * @param spec The {@link CommandSpec} of the {@link Command} this interpreter should be created for.
+		 */
+		protected CommandInterpreter(String keyword, CommandSpec spec) {
+			this(keyword, spec, null);
+		}
+		
+		/**
+		 * Uses a {@link CommandSpec} to construct an interpreter, which creates each instance of the {@link Command} with a factory.
+		 * Without a factory, the spec's generated factory is used, or else one from the {@link InstantiationStrategy} of the command line.
+		 * 
+		 * @param keyword The keyword which invokes the interpreter.
+		 * @param spec The {@link CommandSpec} of the {@link Command} this interpreter should be created for.
+		 * @param factory Creates new, unpopulated instances of the command, or null.
+		 * @throws IllegalArgumentException If there is no factory, and the command cannot be instantiated.
+		 */
+		protected CommandInterpreter(String keyword, CommandSpec spec, Supplier<? extends Command> factory) {
 			this.keyword = keyword;
-			this.command = command;
-			optionAlias = new HashMap<>();
-			optionFields = new HashMap<>();
-			parameters = new TreeMap<>();
+			this.path = CommandLine.this.path + keyword;
+			this.spec = spec;
+			if (factory == null) factory = spec.getFactory();
+			if (factory == null) factory = instantiation.factory(spec.getCommand());
+			if (factory == null) throw new IllegalArgumentException("Command " + spec.getCommand().getName() + " cannot be instantiated");
+			this.factory = factory;
+			pool = spec.isReusable() ? new CommandPool(factory) : null;
+			scratch = ThreadLocal.withInitial(() -> newPlan(true));
+			optionTable = OptionTable.EMPTY;
 
-			SubCommand[] subCommands = command.getAnnotationsByType(SubCommand.class);
-			for (SubCommand sc : subCommands) {
-				if (subCommandLine == null) subCommandLine = new CommandLine();
-				subCommandLine.addCommand(sc.keyword(), sc.command());
-			}
+			// Sub commands are only held by keyword until one is first dispatched to, see subCommandLine().
+			subCommands = spec.getSubCommands();
+			subBindingMode = bindingMode;
+			subInstantiation = instantiation;
 			
-			for (Field f : command.getDeclaredFields()) {
-				f.setAccessible(true);
-				if (f.isAnnotationPresent(Parameter.class)) {
-					Parameter p = f.getAnnotation(Parameter.class);
-					if (parameters.containsKey(p.arity())) {
-						Pair<Parameter, Field> other = parameters.get(p.arity());
-						String arityErr = String.format(
-								"Arity (%d) overloaded, usage by fields %s (%s) and %s (%s)",
-								p.arity(), f.getName(), f.getType().getTypeName(), other.getSecond().getName(), other.getSecond().getType().getTypeName());
-						throw new RuntimeException(arityErr);
-					}
-					parameters.put(p.arity(), new Pair<>(p, f));
-				} else if (f.isAnnotationPresent(Option.class)) {
-					Option o = f.getAnnotation(Option.class);
-					optionFields.put(o, f);
-					if (o.useNamed()) addOptionAlias("-" + o.name(), o);
-					addOptionAlias(o.alias(), o);
+			options = spec.getOptions().toArray(new OptionSpec[0]);
+			List<ParameterSpec> parameters = spec.getParameters();
+			binders = new FieldBinder[options.length + parameters.size()];
+			flags = new boolean[options.length];
+			for (int i = 0; i < options.length; i++) {
+				OptionSpec o = options[i];
+				flags[i] = o.isFlag();
+				if (o.isUseNamed()) addOptionAlias("-" + o.getName(), o);
+				addOptionAlias(o.getAlias(), o);
+				binders[i] = o.getBinder();
+			}
+			for (int i = 0; i < parameters.size(); i++) {
+				binders[options.length + i] = parameters.get(i).getBinder();
+			}
+			// Only the last parameter may be variadic, see CommandSpec.
+			variadic = !parameters.isEmpty() && parameters.get(parameters.size() - 1).isVariadic() ? binders.length - 1 : -1;
+			boolean p = false;
+			for (FieldBinder f : binders) p |= f.getKind() != Kind.OBJECT;
+			primitives = p;
+			defaults = convertDefaults(generation.get());
+		}
+		
+		/**
+		 * @return The defaults of the options, which are converted again if the converters have changed since they were converted.
+		 */
+		private Defaults defaults() {
+			Defaults d = defaults;
+			int settings = generation.get();
+			if (d.generation != settings) {
+				// Racing threads convert the same defaults, and whichever is stored last is as good as the other.
+				d = convertDefaults(settings);
+				defaults = d;
+			}
+			return d;
+		}
+		
+		/**
+		 * Converts the default of each option with the current converters.
+		 * A primitive default is held as its long bits, see {@link #convertInto(int, Iterator, Object[], long[])}.
+		 * 
+		 * @param settings The generation of the converters.
+		 * @return The defaults, each REQUIRED if the option has none, or UNCONVERTED if it must be converted for every execution.
+		 */
+		private Defaults convertDefaults(int settings) {
+			Object[] values = new Object[binders.length];
+			long[] primitiveValues = new long[binders.length];
+			for (int i = 0; i < options.length; i++) {
+				OptionSpec o = options[i];
+				if (o.getDefaults().length == 0) {
+					values[i] = REQUIRED;
+				} else if (getConverter(binders[i].getType()) == null) {
+					values[i] = UNCONVERTED;
+				} else {
+					convertInto(i, Arrays.asList(o.getDefaults()).iterator(), values, primitiveValues);
+					// A mutable default would be shared by every command bound from it, on every thread.
+					if (binders[i].getKind() == Kind.OBJECT && !isImmutable(values[i])) values[i] = UNCONVERTED;
 				}
 			}
-			
-			Description[] d = command.getAnnotationsByType(Description.class);
-			if (d != null && d.length != 0) {
-				description = d[d.length - 1];
+			return new Defaults(settings, values, primitiveValues);
+		}
+		
+		/**
+		 * Converts argument(s) for a field, storing an object in the values or a primitive (as its long bits) in the primitives.
+		 * 
+		 * @param i The index of the field's {@link FieldBinder}.
+		 * @param argument An iterator over the arguments to the interpreter.
+		 * @param values The object value of each field.
+		 * @param primitives The primitive value of each field.
+		 */
+		private void convertInto(int i, Iterator<String> argument, Object[] values, long[] primitives) {
+			FieldBinder f = binders[i];
+			Kind kind = f.getKind();
+			if (kind == Kind.OBJECT) {
+				values[i] = convertArgument(f.getType(), argument);
+				return;
+			}
+			ArgumentConverter<?> converter = getConverter(f.getType());
+			if (converter == null) throw new IllegalStateException("No converter for " + f.getType().getTypeName());
+			switch (kind) {
+			case INT:
+				primitives[i] = converter instanceof IntArgumentConverter
+						? ((IntArgumentConverter) converter).parseInt(argument) : (Integer) converter.parseArg(argument);
+				break;
+			case LONG:
+				primitives[i] = converter instanceof LongArgumentConverter
+						? ((LongArgumentConverter) converter).parseLong(argument) : (Long) converter.parseArg(argument);
+				break;
+			case DOUBLE:
+				primitives[i] = Double.doubleToRawLongBits(converter instanceof DoubleArgumentConverter
+						? ((DoubleArgumentConverter) converter).parseDouble(argument) : (Double) converter.parseArg(argument));
+				break;
+			case BOOLEAN:
+				boolean b = converter instanceof BooleanArgumentConverter
+						? ((BooleanArgumentConverter) converter).parseBoolean(argument) : (Boolean) converter.parseArg(argument);
+				primitives[i] = b ? 1 : 0;
+				break;
+			default:
+				throw new IllegalStateException(kind.name());
 			}
 		}
 		
 		/**
 		 * @param alias The alias that should be created.
-		 * @param option The {@link Command} {@link Option} that should be aliased.
+		 * @param option The {@link Command} {@link OptionSpec} that should be aliased.
+		 */
+		public void addOptionAlias(String alias, OptionSpec option) {
+			int index = indexOf(option);
+			OptionTable current;
+			do {
+				current = optionTable;
+				if (current.containsKey(alias)) throw new KeyWordCollisionException("Option keyword '" + alias + "' is already in use!");
+			} while (!OPTION_TABLE.compareAndSet(this, current, current.with(alias, index)));
+		}
+		
+		/**
+		 * @param alias The alias that should be created.
+		 * @param option The {@link Command} {@link Option} that should be aliased, matched to its {@link OptionSpec} by name.
 		 */
 		public void addOptionAlias(String alias, Option option) {
-			if (optionAlias.containsKey(alias)) throw new KeyWordCollisionException("Option keyword '" + alias + "' is already in use!");
-			optionAlias.put(alias, option);
+			for (OptionSpec o : spec.getOptions()) {
+				if (o.getName().equals(option.name())) {
+					addOptionAlias(alias, o);
+					return;
+				}
+			}
+			throw new IllegalArgumentException("Option '" + option.name() + "' is not defined by " + spec.getCommand().getName());
+		}
+		
+		/**
+		 * Limits how many {@link CommandLine#submit(String...) submitted} executions of this command may run at once.
+		 * Further submissions wait for a running execution to complete.
+		 * 
+		 * @param limit The maximum number of concurrent executions, or 0 for no limit.
+		 */
+		public void setConcurrencyLimit(int limit) {
+			this.limit = limit > 0 ? new Semaphore(limit, true) : null;
+		}
+		
+		/**
+		 * @return The {@link CommandSpec} this interpreter was built from.
+		 */
+		public CommandSpec getSpec() {
+			return spec;
+		}
+		
+		/**
+		 * @return The keyword which invokes this interpreter.
+		 */
+		public String getKeyword() {
+			return keyword;
+		}
+		
+		/**
+		 * @return The keyword which invokes this interpreter, following the keywords of any parent commands (e.g. "cache evict").
+		 */
+		public String getPath() {
+			return path;
 		}
 		
 		/**
@@ -131,178 +671,423 @@ public class CommandLine {
 		 * @throws IllegalAccessException If any {@link Field} in the {@link Command} was inaccessible to be populated by an interpreted argument.
 		 */
 		protected Command interpret(Iterator<String> argItr) throws CommandInterpretException, IllegalAccessException {
-			String nextWord = argItr.hasNext() ? argItr.next() : null;
-			if (subCommandLine != null && nextWord != null && subCommandLine.hasCommandWord(nextWord)) {
-				return subCommandLine.commands.get(nextWord).interpret(argItr);
+			return plan(argItr).newCommand();
+		}
+		
+		/**
+		 * Interprets {@link CommandLine} input into the converted values of each field, without instantiating the {@link Command}.
+		 * 
+		 * @param argItr An iterator over the arguments to the interpreter.
+		 * @return The {@link BindingPlan} of the interpreted {@link Command}, which may be a sub command.
+		 * @throws CommandInterpretException If the arguments were malformed or insufficient to populate the identified {@link Command} instance.
+		 */
+		BindingPlan plan(Iterator<String> argItr) throws CommandInterpretException {
+			return plan(argItr, false);
+		}
+		
+		/**
+		 * Interprets {@link CommandLine} input into the converted values of each field, without instantiating the {@link Command}.
+		 * 
+		 * @param argItr An iterator over the arguments to the interpreter.
+		 * @param reuse True if the calling thread's scratch plan may be returned, which must be executed before the thread interprets the command again.
+		 * @return The {@link BindingPlan} of the interpreted {@link Command}, which may be a sub command.
+		 * @throws CommandInterpretException If the arguments were malformed or insufficient to populate the identified {@link Command} instance.
+		 */
+		BindingPlan plan(Iterator<String> argItr, boolean reuse) throws CommandInterpretException {
+			// The position of each failure is counted by a cursor, which the entry points of a command line pass in.
+			Cursor cursor = argItr instanceof Cursor ? (Cursor) argItr : new Cursor().reset(argItr);
+			String nextWord = cursor.hasNext() ? cursor.next() : null;
+			CommandInterpreter sub = null;
+			if (nextWord != null && !subCommands.isEmpty()) {
+				CommandLine subLine = subCommandLine;
+				if (subLine == null && subCommands.containsKey(nextWord)) subLine = subCommandLine();
+				if (subLine != null) sub = subLine.commands.get(nextWord);
+			}
+			if (sub != null) {
+				return sub.plan(cursor, reuse);
 			} else {
-				Command c = ObjectInstantiator.getInstance().newInstance(command);
-				try {
-					c.getClass().getField("commandLine").set(c, CommandLine.this);
-				} catch (IllegalArgumentException | IllegalAccessException | NoSuchFieldException
-						| SecurityException e) {
-					e.printStackTrace();
-				}
-				Set<Option> optionAssigned = new HashSet<>();
+				// Every value is overwritten below, so a reused plan needs no clearing.
+				BindingPlan plan = reuse ? scratch.get() : newPlan(false);
+				Object[] values = plan.getValues();
+				long[] primitiveValues = plan.getPrimitives();
+				// Assigned options are marked in a bit set, which only needs an array beyond the first 64 options.
+				long assigned = 0;
+				long[] assignedBeyond = options.length > Long.SIZE ? new long[(options.length - 1) / Long.SIZE] : null;
 				
-				String word = nextWord;
-				while (word != null) {
-					if (!word.startsWith("-")) {
-						break;
+				// Options and parameters are scanned in a single pass, so options may follow parameters, until "--" ends the options.
+				OptionTable table = optionTable;
+				int parameter = options.length;
+				boolean optionsEnded = false;
+				if (nextWord != null) cursor.pushBack();
+				while (cursor.hasNext()) {
+					String word = cursor.next();
+					if (!optionsEnded && isOption(word, table)) {
+						int length = word.length();
+						if (word.charAt(1) == '-') {
+							if (length == 2) {
+								optionsEnded = true;
+								continue;
+							}
+							// A long option, "--name" or "--name=value".
+							int eq = word.indexOf('=', 2);
+							int i = table.find(word, 1, eq < 0 ? length : eq, abbreviations);
+							if (i < 0) throw fail(InterpretFailure.UNKNOWN_OPTION, cursor.position() - 1, eq < 0 ? word : word.substring(0, eq), Expected.OPTION, null, null, table.keys(), "-");
+							assigned = assign(i, word, eq < 0 ? null : word.substring(eq + 1), cursor, values, primitiveValues, assigned, assignedBeyond);
+							continue;
+						}
+						int i = table.find(word, 1, length, false);
+						if (i >= 0) {
+							assigned = assign(i, word, null, cursor, values, primitiveValues, assigned, assignedBeyond);
+						} else if (isCluster(word, table)) {
+							for (int c = 1; c < length; c++) {
+								assigned = assign(table.get(word.charAt(c)), word, null, cursor, values, primitiveValues, assigned, assignedBeyond);
+							}
+						} else {
+							i = abbreviations ? table.find(word, 1, length, true) : -1;
+							if (i < 0) throw fail(InterpretFailure.UNKNOWN_OPTION, cursor.position() - 1, word, Expected.OPTION, null, null, table.keys(), "-");
+							assigned = assign(i, word, null, cursor, values, primitiveValues, assigned, assignedBeyond);
+						}
+						continue;
 					}
-					word = word.substring(1);
-					// TODO missing optionAlias, already assigned
-					Option o = optionAlias.get(word);
-					Field f = optionFields.get(o);
-					if (f.getType().isAssignableFrom(Boolean.class)) f.set(c, true);
-					else f.set(c, convertArgument(f.getType(), argItr));
-					optionAssigned.add(o);
-					word = argItr.hasNext() ? argItr.next() : null;
-				}
-				List<String> params = new LinkedList<>();
-				params.add(word);
-				while (argItr.hasNext()) {
-					params.add(argItr.next());
+					cursor.pushBack();
+					// Arguments beyond the last parameter are left unread, and a variadic parameter takes all of them.
+					if (parameter == binders.length || parameter == variadic) break;
+					convert(parameter++, cursor, values, primitiveValues);
 				}
-				Iterator<String> paramItr = params.iterator();
-				for (Entry<Integer, Pair<Parameter, Field>> pe : parameters.entrySet()) {
-					if (!paramItr.hasNext()) throw new CommandInterpretException("Incomplete parameter list!");
-					Pair<Parameter, Field> pPair = pe.getValue();
-					Field f = pPair.getSecond();
-					f.set(c, convertArgument(f.getType(), paramItr));
+				if (parameter == variadic) {
+					values[variadic] = collect(variadic, cursor);
+					parameter++;
 				}
-				for (Entry<Option, Field> oe : optionFields.entrySet()) {
-					Option o = oe.getKey();
-					Field f = oe.getValue();
-					if (!optionAssigned.contains(o)) {
-						if (o.default_().length == 0) throw new CommandInterpretException("Missing required option '" + o.name() + "'");
-						else f.set(c, convertArgument(f.getType(), Arrays.stream(o.default_()).iterator()));
+				if (parameter < binders.length) throw fail(InterpretFailure.INCOMPLETE_PARAMETERS, cursor.position(), null, Expected.PARAMETER, nameOf(parameter), null, null, "");
+				Defaults converted = defaults();
+				for (int i = 0; i < options.length; i++) {
+					if (((i < Long.SIZE ? assigned : assignedBeyond[i / Long.SIZE - 1]) & 1L << i) == 0) {
+						Object d = converted.values[i];
+						if (d == REQUIRED) throw fail(InterpretFailure.MISSING_OPTION, cursor.position(), null, Expected.OPTION, options[i].getName(), null, null, "");
+						else if (d == UNCONVERTED) convertInto(i, Arrays.asList(options[i].getDefaults()).iterator(), values, primitiveValues);
+						else if (primitives) {
+							values[i] = d;
+							primitiveValues[i] = converted.primitives[i];
+						} else values[i] = d;
 					}
 				}
-				return c;
+				return plan;
 			}
 		}
 		
 		/**
-		 * @return True if this interpreter has a sub-{@link CommandLine} (the {@link Command} defined a {@link SubCommand}, false otherwise.
+		 * @param word An argument.
+		 * @param table The option table.
+		 * @return True if the argument names one or more options (or is "--"), false if it is a value, which includes negative numbers unless an option is keyed by their first digit.
 		 */
-		public boolean hasSubCommandLine() {
-			return subCommandLine != null;
+		private boolean isOption(String word, OptionTable table) {
+			if (word.length() < 2 || word.charAt(0) != '-') return false;
+			char c = word.charAt(1);
+			return c > '9' || c < '0' && c != '.' || table.get(c) >= 0;
 		}
 		
 		/**
-		 * @return The sub-{@link CommandLine} if it exists, null otherwise.
+		 * @param word An argument beginning with a single '-'.
+		 * @param table The option table.
+		 * @return True if every character of the argument is the alias of a flag, except the last which may be the alias of any option.
 		 */
-		public CommandLine getSubCommandLine() {
-			return hasSubCommandLine() ? subCommandLine : null;
+		private boolean isCluster(String word, OptionTable table) {
+			int last = word.length() - 1;
+			for (int c = 1; c <= last; c++) {
+				int i = table.get(word.charAt(c));
+				if (i < 0 || c < last && !flags[i]) return false;
+			}
+			return true;
 		}
 		
 		/**
-		 * Converts argument(s) from input to a typed object.
+		 * Assigns an option, converting its argument from the input unless it is a flag, or from its inline value.
 		 * 
-		 * @param <T> The type of the object for which argument(s) should be interpreted.
-		 * @param clazz The expected class of the output typed object.
-		 * @param argument An iterator over the arguments to the interpreter.
-		 * @return A typed object, the result of converting argument(s).
+		 * @param i The index of the option.
+		 * @param word The argument naming the option.
+		 * @param value The value following '=' in a long option, or null.
+		 * @param cursor The cursor over the input.
+		 * @param values The object value of each field.
+		 * @param primitives The primitive value of each field.
+		 * @param assigned The bits of the first 64 options which are assigned.
+		 * @param assignedBeyond The bits of any further options which are assigned, which are updated.
+		 * @return The bits of the first 64 options which are assigned, including this option.
+		 * @throws CommandInterpretException If the option is already assigned, or its argument could not be converted.
 		 */
-		@SuppressWarnings("unchecked")
-		private <T> T convertArgument(Class<T> clazz, Iterator<String> argument) {
-			return (T) converters.get(clazz).parseArg(argument);
+		private long assign(int i, String word, String value, Cursor cursor, Object[] values, long[] primitives, long assigned, long[] assignedBeyond)
+				throws CommandInterpretException {
+			long bit = 1L << i;
+			if (((i < Long.SIZE ? assigned : assignedBeyond[i / Long.SIZE - 1]) & bit) != 0) {
+				throw fail(InterpretFailure.DUPLICATE_OPTION, cursor.position() - 1, word, Expected.OPTION, options[i].getName(), null, null, "");
+			}
+			if (value != null) {
+				cursor.replace(value);
+				convert(i, cursor, values, primitives);
+			} else if (!flags[i]) {
+				convert(i, cursor, values, primitives);
+			} else if (binders[i].getKind() == Kind.BOOLEAN) {
+				primitives[i] = 1;
+			} else {
+				values[i] = Boolean.TRUE;
+			}
+			if (i < Long.SIZE) return assigned | bit;
+			assignedBeyond[i / Long.SIZE - 1] |= bit;
+			return assigned;
+		}
+		
+		/**
+		 * Converts the argument(s) of a field from the input, failing with the position of the argument the converter rejected.
+		 * 
+		 * @param i The index of the field's {@link FieldBinder}.
+		 * @param cursor The cursor over the input.
+		 * @param values The object value of each field.
+		 * @param primitives The primitive value of each field.
+		 * @throws CommandInterpretException If the input ended before the argument(s), or the converter rejected them.
+		 */
+		private void convert(int i, Cursor cursor, Object[] values, long[] primitives) throws CommandInterpretException {
+			int start = cursor.position();
+			try {
+				convertInto(i, cursor, values, primitives);
+			} catch (NoSuchElementException | IllegalArgumentException e) {
+				throw failConversion(i, start, cursor, e);
+			}
 		}
 		
-		private String helpDialog;
+		/**
+		 * @param i The index of the field's {@link FieldBinder}.
+		 * @param start The position of the cursor before the conversion.
+		 * @param cursor The cursor over the input.
+		 * @param e The exception the converter failed with.
+		 * @return The exception for the failed conversion, placed at the argument the converter rejected.
+		 */
+		private CommandInterpretException failConversion(int i, int start, Cursor cursor, RuntimeException e) {
+			Expected expected = i < options.length ? Expected.VALUE : Expected.PARAMETER;
+			if (e instanceof NoSuchElementException) return fail(InterpretFailure.MISSING_VALUE, cursor.position(), null, expected, nameOf(i), null, null, "");
+			int index = cursor.position() > start ? cursor.position() - 1 : start;
+			return fail(InterpretFailure.INVALID_VALUE, index, cursor.position() > start ? cursor.last() : null, expected, nameOf(i), e.getMessage(), null, "");
+		}
 		
 		/**
-		 * Builds the help dialog for the {@link Command} this object interprets, printing it to stdout.
+		 * Converts every remaining argument for a variadic field. The arguments of a streamed field are converted as the command
+		 * reads them, so a rejected argument fails the command with the converter's exception rather than failing interpretation.
+		 * 
+		 * @param i The index of the field's {@link FieldBinder}.
+		 * @param cursor The cursor over the input.
+		 * @return The value of the field.
+		 * @throws CommandInterpretException If the converter rejected an argument of a field which is not streamed.
 		 */
-		public void showHelpDialog() {
-			if (helpDialog == null) {
-				StringBuilder builder = new StringBuilder();
-				List<ComparablePair<String, Option>> options = new LinkedList<>();
-				for (Option o : optionFields.keySet()) {
-					options.add(ComparablePair.of(o.alias(), o));
-				}
-				Collections.sort(options);
-				
-				builder.append(keyword);
-				if (!options.isEmpty()) {
-					builder.append(" [-");
-					for (Pair<String, Option> pair : options) {
-						builder.append(pair.getFirst());
-					}
-					builder.append("]");
-				}
-				
-				if (!parameters.isEmpty()) {
-					for (Entry<Integer, Pair<Parameter, Field>> p : parameters.entrySet()) {
-						Parameter param = p.getValue().getFirst();
-						builder.append(" <" + param.name() + ">");
-					}
+		private Object collect(int i, Cursor cursor) throws CommandInterpretException {
+			FieldBinder f = binders[i];
+			Class<?> type = f.getType();
+			Class<?> element = f.getElementType();
+			ArgumentConverter<?> converter = getConverter(element);
+			if (converter == null) throw new IllegalStateException("No converter for " + element.getTypeName());
+			if (f.isStreamed()) {
+				Iterator<Object> converted = new Converting(converter, cursor.detach());
+				if (type == Iterator.class) return converted;
+				return StreamSupport.stream(Spliterators.spliteratorUnknownSize(converted, Spliterator.ORDERED), false);
+			}
+			List<Object> list = new ArrayList<>();
+			while (cursor.hasNext()) {
+				int start = cursor.position();
+				try {
+					list.add(converter.parseArg(cursor));
+				} catch (NoSuchElementException | IllegalArgumentException e) {
+					throw failConversion(i, start, cursor, e);
 				}
-				if (description != null) {
-					builder.append("\r\n");
-					builder.append("  ");
-					builder.append(description.description());
-					builder.append("\r\n");
+			}
+			if (type.isArray()) {
+				Object array = Array.newInstance(element, list.size());
+				if (element.isPrimitive()) {
+					for (int e = 0; e < list.size(); e++) Array.set(array, e, list.get(e));
+					return array;
 				}
-				
-				builder.append("\r\n");
-				
-				if (!options.isEmpty()) {
-					builder.append("  OPTIONS:\r\n");
-					for (Pair<String, Option> pair : options) {
-						builder.append("    -");
-						builder.append(String.format("%-9s", pair.getFirst()));
-						builder.append(wrapText(pair.getSecond().description(), "              ", 58));
-						builder.append("\r\n");
-					}
+				return list.toArray((Object[]) array);
+			}
+			return type == Set.class ? new LinkedHashSet<>(list) : list;
+		}
+		
+		/**
+		 * @param i The index of a field's {@link FieldBinder}.
+		 * @return The name of the field's option or parameter.
+		 */
+		private String nameOf(int i) {
+			return i < options.length ? options[i].getName() : spec.getParameters().get(i - options.length).getName();
+		}
+		
+		/**
+		 * Completes the word at the cursor of an input to this interpreter: a sub command keyword, an option, or the value of an
+		 * option or parameter, found by scanning the words before it as {@link #plan(Iterator, boolean)} would, but without
+		 * converting them. Each option is assumed to take a single argument.
+		 * 
+		 * @param words The complete words of the input, from the command's keyword.
+		 * @param i The index of the first word following the keyword.
+		 * @param word The word being typed at the cursor.
+		 * @param completion The completion the candidates are added to.
+		 * @return The completion.
+		 */
+		Completion.Builder complete(String[] words, int i, String word, Completion.Builder completion) {
+			if (!subCommands.isEmpty()) {
+				CommandLine subLine = subCommandLine();
+				if (i == words.length) {
+					completion.add(subLine.commands, word, "", Expected.KEYWORD);
+				} else {
+					CommandInterpreter sub = subLine.commands.get(words[i]);
+					if (sub != null) return sub.complete(words, i + 1, word, completion);
 				}
-				
-				if (!parameters.isEmpty()) {
-					builder.append("  PARAMETERS:\r\n");
-					for (Entry<Integer, Pair<Parameter, Field>> p : parameters.entrySet()) {
-						Parameter param = p.getValue().getFirst();
-						builder.append("    ");
-						builder.append(String.format("%-10s", param.name()));
-						builder.append(wrapText(param.description(), "              ", 58));
-						builder.append("\r\n");
-					}
+			}
+			OptionTable table = optionTable;
+			int parameter = options.length;
+			int value = -1;
+			boolean optionsEnded = false;
+			for (; i < words.length; i++) {
+				String w = words[i];
+				if (value >= 0) {
+					value = -1;
+				} else if (!optionsEnded && isOption(w, table)) {
+					if (w.length() == 2 && w.charAt(1) == '-') optionsEnded = true;
+					else value = awaitingValue(w, table);
+				} else if (parameter < binders.length && parameter != variadic) {
+					parameter++;
 				}
-				helpDialog = builder.toString();
 			}
-			System.out.println(helpDialog);
+			if (value >= 0) return completion.add(converterOf(value), word, "", Expected.VALUE);
+			if (!optionsEnded && (word.equals("-") || isOption(word, table))) {
+				int eq = word.startsWith("--") ? word.indexOf('=') : -1;
+				if (eq < 0) return completion.add(table.keys(), word.substring(1), "-", Expected.OPTION);
+				int o = table.find(word, 1, eq, abbreviations);
+				return o < 0 ? completion : completion.add(converterOf(o), word.substring(eq + 1), word.substring(0, eq + 1), Expected.VALUE);
+			}
+			if (parameter < binders.length) completion.add(converterOf(parameter), word, "", Expected.PARAMETER);
+			return completion;
 		}
 		
 		/**
-		 * Adds space and newline characters to the input text to word-wrap the input string.
-		 * If a word exceeds the line's wrap length, it is wrapped inelegantly.
-		 * 
-		 * @param text The text that should be word-wrapped.
-		 * @param wrapStart The number of blank spaces which should occur before text.
-		 * @param wrapLength The maximum length of a line before word-wrapping should occur.
-		 * @return The word-wrapped version of the input text.
+		 * @param word A word naming one or more options.
+		 * @param table The option table.
+		 * @return The index of the (last) option the word names if the next word is its value, otherwise -1.
 		 */
-		private String wrapText(String text, String wrapStart, int wrapLength) {
-			StringBuilder sb = new StringBuilder(text);
-
-			int i = 0;
-			while (i + wrapLength < sb.length() && (i = sb.lastIndexOf(" ", i + wrapLength)) != -1) {
-			    sb.replace(i, i + 1, "\r\n" + wrapStart);
+		private int awaitingValue(String word, OptionTable table) {
+			int length = word.length();
+			int o;
+			if (word.charAt(1) == '-') {
+				o = word.indexOf('=') < 0 ? table.find(word, 1, length, abbreviations) : -1;
+			} else {
+				o = table.find(word, 1, length, false);
+				if (o < 0 && isCluster(word, table)) o = table.get(word.charAt(length - 1));
+				if (o < 0 && abbreviations) o = table.find(word, 1, length, true);
 			}
-
-			return sb.toString();
+			return o >= 0 && !flags[o] ? o : -1;
 		}
 		
-	}
-	
-	/**
-	 * Executes an input, which should be interpreted from spaces.
-	 * 
-	 * @param args The arguments which should execute a {@link Command}.
-	 * @throws CommandInterpretException If no {@link CommandInterpeter} could be found matching the input, including if the input is malformed.
-	 * @throws IllegalAccessException If any {@link Field} in the {@link Command} was inaccessible to be populated by an interpreted argument.
+		/**
+		 * @param i The index of a field's {@link FieldBinder}.
+		 * @return The converter of the field's arguments, or null if there is none.
+		 */
+		private ArgumentConverter<?> converterOf(int i) {
+			FieldBinder f = binders[i];
+			return getConverter(f.isVariadic() ? f.getElementType() : f.getType());
+		}
+		
+		/**
+		 * @param scratch True if the plan is a thread's scratch plan.
+		 * @return A plan for this interpreter's {@link Command}, with room for the value of each field.
+		 */
+		private BindingPlan newPlan(boolean scratch) {
+			return new BindingPlan(CommandLine.this, path, factory, pool, binders, new Object[binders.length],
+					primitives ? new long[binders.length] : null, scratch);
+		}
+		
+		/**
+		 * @param o An option of this interpreter's {@link Command}.
+		 * @return The index of the option's {@link FieldBinder}.
+		 */
+		private int indexOf(OptionSpec o) {
+			for (int i = 0; i < options.length; i++) {
+				if (options[i] == o) return i;
+			}
+			throw new IllegalArgumentException("Option '" + o.getName() + "' is not defined by " + spec.getCommand().getName());
+		}
+		
+		/**
+		 * @return True if this interpreter has a sub-{@link CommandLine} (the {@link Command} defined a {@link SubCommand}, false otherwise.
+		 */
+		public boolean hasSubCommandLine() {
+			return !subCommands.isEmpty();
+		}
+		
+		/**
+		 * Gets the sub-{@link CommandLine}, building the interpreters of the sub commands if they have not been dispatched to yet.
+		 * 
+		 * @return The sub-{@link CommandLine} if it exists, null otherwise.
+		 */
+		public CommandLine getSubCommandLine() {
+			return hasSubCommandLine() ? subCommandLine() : null;
+		}
+		
+		/**
+		 * Builds the sub command line, and the interpreters of its commands (whose own sub commands are again built lazily), once.
+		 * Threads racing to build it may each build one, but only the first published is ever used.
+		 * 
+		 * @return The sub command line.
+		 */
+		private CommandLine subCommandLine() {
+			CommandLine sub = subCommandLine;
+			if (sub != null) return sub;
+			sub = new CommandLine(CommandLine.this, path, subBindingMode, subInstantiation);
+			for (Entry<String, Class<? extends Command>> sc : subCommands.entrySet()) {
+				sub.addCommand(sc.getKey(), sc.getValue());
+			}
+			CommandLine published = (CommandLine) SUB_COMMAND_LINE.compareAndExchange(this, (CommandLine) null, sub);
+			return published != null ? published : sub;
+		}
+		
+		/**
+		 * Converts argument(s) from input to a typed object.
+		 * 
+		 * @param <T> The type of the object for which argument(s) should be interpreted.
+		 * @param clazz The expected class of the output typed object.
+		 * @param argument An iterator over the arguments to the interpreter.
+		 * @return A typed object, the result of converting argument(s).
+		 */
+		@SuppressWarnings("unchecked")
+		private <T> T convertArgument(Class<T> clazz, Iterator<String> argument) {
+			ArgumentConverter<?> converter = getConverter(clazz);
+			if (converter == null) throw new IllegalStateException("No converter for " + clazz.getTypeName());
+			return (T) converter.parseArg(argument);
+		}
+		
+		/**
+		 * Prints the help dialog for the {@link Command} this object interprets to the {@link CommandLine#output()}.
+		 */
+		public void showHelpDialog() {
+			output().println(keyword + spec.getHelp());
+		}
+		
+		/**
+		 * Writes the help dialog for the {@link Command} this object interprets, wrapped to a width.
+		 * 
+		 * @param out The output the help is appended to.
+		 * @param width The number of columns lines are wrapped to, such as {@link HelpIndex#terminalWidth()}.
+		 * @throws IOException If the output could not be appended to.
+		 */
+		public void writeHelp(Appendable out, int width) throws IOException {
+			spec.writeHelp(out.append(keyword), width);
+		}
+		
+	}
+	
+	/**
+	 * Executes an input, which should be interpreted from spaces.
+	 * 
+	 * @param args The arguments which should execute a {@link Command}.
+	 * @throws CommandInterpretException If no {@link CommandInterpeter} could be found matching the input, including if the input is malformed.
+	 * @throws IllegalAccessException If any {@link Field} in the {@link Command} was inaccessible to be populated by an interpreted argument.
 	 */
 	public void execute(String... args) throws CommandInterpretException, IllegalAccessException {
-		execute(Arrays.stream(args).iterator());
+		ParseCache cache = parseCache;
+		if (cache != null || journal != null) execute(Arrays.asList(args), cache);
+		else execute(Arrays.asList(args).iterator());
 	}
 	
 	/**
@@ -316,19 +1101,666 @@ public class CommandLine {
 		execute(args.iterator());
 	}
 	
+	/**
+	 * Executes an input within a context, which receives the output of the {@link Command} as it is written, and its result.
+	 * 
+	 * @param context The context of the execution, whose output is flushed once the command has executed.
+	 * @param args The arguments which should execute a {@link Command}.
+	 * @return The result of the command if it is a {@link ContextCommand}, otherwise null.
+	 * @throws CommandInterpretException If no {@link CommandInterpeter} could be found matching the input, including if the input is malformed.
+	 * @throws IllegalAccessException If any {@link Field} in the {@link Command} was inaccessible to be populated by an interpreted argument.
+	 */
+	public Object execute(CommandContext context, String... args) throws CommandInterpretException, IllegalAccessException {
+		CommandContext previous = bind(context);
+		context.setResult(null);
+		try {
+			ParseCache cache = parseCache;
+			Object result = cache != null || journal != null ? execute(Arrays.asList(args), cache) : execute(Arrays.asList(args).iterator());
+			context.setResult(result);
+			return result;
+		} finally {
+			bind(previous);
+			context.flush();
+		}
+	}
+	
+	/**
+	 * Tokenizes and executes a line of input, see {@link Tokenizer} for how the line is split.
+	 * 
+	 * @param line The line which should execute a {@link Command}.
+	 * @throws CommandInterpretException If no {@link CommandInterpeter} could be found matching the input, including if the input is malformed.
+	 * @throws IllegalAccessException If any {@link Field} in the {@link Command} was inaccessible to be populated by an interpreted argument.
+	 * @throws IllegalArgumentException If the line could not be tokenized.
+	 */
+	public void executeLine(CharSequence line) throws CommandInterpretException, IllegalAccessException {
+		// The tokens are copied out of the thread's tokenizer, which a streamed parameter could otherwise read after the
+		// command has executed another line.
+		execute(TOKENIZER.get().tokenize(line).toArray());
+	}
+	
+	/**
+	 * Completes the word at the cursor of a line being typed, see {@link #complete(CharSequence, int, int)}.
+	 * 
+	 * @param line The line.
+	 * @param cursor The index of the cursor in the line.
+	 * @return The candidates for the word at the cursor, of which there are at most {@link #COMPLETION_LIMIT}.
+	 */
+	public Completion complete(CharSequence line, int cursor) {
+		return complete(line, cursor, COMPLETION_LIMIT);
+	}
+	
+	/**
+	 * Completes the word at the cursor of a line being typed, which may be the keyword of a command or {@link SubCommand}, the
+	 * alias or name of an option (if it begins with '-'), or a value of an option or parameter which its converter suggests, see
+	 * {@link CompletingArgumentConverter}. Only the last command of a {@link CommandSequence} is completed, and the line need not
+	 * be complete, so an unterminated quote is completed as the word it began.
+	 * <p>
+	 * Keywords and option keys are found in the same tries commands are dispatched from, whose keywords are already sorted, so
+	 * each completion descends only the characters of the word and visits only the candidates it returns, however many
+	 * commands there are.
+	 * 
+	 * @param line The line.
+	 * @param cursor The index of the cursor in the line, the characters after which are ignored.
+	 * @param limit The maximum number of candidates.
+	 * @return The candidates for the word at the cursor.
+	 */
+	public Completion complete(CharSequence line, int cursor, int limit) {
+		Tokenizer tokenizer = TOKENIZER.get();
+		Tokens tokens = tokenizer.tokenizePartial(line, 0, cursor);
+		int partial = tokenizer.getPartialStart();
+		int size = partial < 0 ? tokens.size() : tokens.size() - 1;
+		String word = partial < 0 ? "" : tokens.getString(size);
+		int first = 0;
+		for (int i = 0; i < size; i++) if (tokens.isOperator(i)) first = i + 1;
+		String[] words = new String[size - first];
+		for (int i = 0; i < words.length; i++) words[i] = tokens.getString(first + i);
+		Completion.Builder completion = new Completion.Builder(partial < 0 ? cursor : partial, cursor, word, limit);
+		if (words.length == 0) return completion.add(commands, word, "", Expected.KEYWORD).build();
+		CommandInterpreter interpreter = lookup(commands, words[0]);
+		if (interpreter == null) return completion.build();
+		return interpreter.complete(words, 1, word, completion).build();
+	}
+	
+	/**
+	 * Interprets an input as {@link #execute(String...)} would, without instantiating or executing the {@link Command}, so that
+	 * input may be checked before it is executed (or queued to be). Since a command is not instantiated, checks a command makes
+	 * of its own fields are not made.
+	 * 
+	 * @param args The arguments which should execute a {@link Command}.
+	 * @return Where and why the input could not be interpreted, or null if it could be.
+	 */
+	public Diagnostic validate(String... args) {
+		Cursor cursor = Cursor.of(Arrays.asList(args).iterator());
+		try {
+			findInterpreter(cursor).plan(cursor, true).discard();
+			return null;
+		} catch (CommandInterpretException e) {
+			return e.getDiagnostic();
+		} finally {
+			cursor.release();
+		}
+	}
+	
+	/**
+	 * Parses and executes a line of commands separated by {@code ;}, {@code &&} or {@code ||}, see {@link CommandSequence}.
+	 * 
+	 * @param line The line of commands.
+	 * @return The outcome of every command.
+	 * @throws IllegalArgumentException If the line could not be tokenized, or is not a sequence of commands.
+	 */
+	public CommandSequence.Result executeSequence(CharSequence line) {
+		return CommandSequence.parse(line).execute(this);
+	}
+	
+	/**
+	 * Executes a parsed sequence of commands back to back on the calling thread. A sequence may be parsed once and executed
+	 * repeatedly, so that its commands are not tokenized again.
+	 * 
+	 * @param sequence The sequence of commands.
+	 * @return The outcome of every command, once the whole sequence has executed.
+	 */
+	public CommandSequence.Result execute(CommandSequence sequence) {
+		return sequence.execute(this);
+	}
+	
+	/**
+	 * Executes a parsed sequence of commands back to back on the calling thread, within a context which receives the output
+	 * of every command. The result of each command is held by the returned {@link CommandSequence.Result}, and that of the last
+	 * by the context.
+	 * 
+	 * @param context The context of the execution, whose output is flushed once the sequence has executed.
+	 * @param sequence The sequence of commands.
+	 * @return The outcome of every command, once the whole sequence has executed.
+	 */
+	public CommandSequence.Result execute(CommandContext context, CommandSequence sequence) {
+		CommandContext previous = bind(context);
+		context.setResult(null);
+		try {
+			CommandSequence.Result result = sequence.execute(this);
+			context.setResult(result.getValue(result.getSequence().size() - 1));
+			return result;
+		} finally {
+			bind(previous);
+			context.flush();
+		}
+	}
+	
+	/**
+	 * Executes a script file of commands, one per line, stopping at the first failure.
+	 * The file is memory-mapped and each line is tokenized directly from the mapped bytes, see {@link Tokenizer}.
+	 * Blank lines and lines beginning with '#' are ignored.
+	 * 
+	 * @param script The path of the (UTF-8) script.
+	 * @return The aggregated outcome of the script.
+	 * @throws IOException If the script could not be read.
+	 */
+	public ScriptReport executeScript(Path script) throws IOException {
+		return executeScript(script, ErrorPolicy.STOP);
+	}
+	
+	/**
+	 * Executes a script file of commands, one per line.
+	 * The file is memory-mapped and each line is tokenized directly from the mapped bytes, see {@link Tokenizer}.
+	 * Blank lines and lines beginning with '#' are ignored.
+	 * 
+	 * @param script The path of the (UTF-8) script.
+	 * @param policy The {@link ErrorPolicy} which decides whether execution continues after a failed command.
+	 * @return The aggregated outcome of the script.
+	 * @throws IOException If the script could not be read.
+	 */
+	public ScriptReport executeScript(Path script, ErrorPolicy policy) throws IOException {
+		return new ScriptExecutor(this, policy).execute(script);
+	}
+	
+	/**
+	 * Executes a stream of commands, one per line, reading the channel in chunks until it is exhausted.
+	 * Blank lines and lines beginning with '#' are ignored.
+	 * 
+	 * @param channel The channel the (UTF-8) commands are read from, which is not closed.
+	 * @param policy The {@link ErrorPolicy} which decides whether execution continues after a failed command.
+	 * @return The aggregated outcome of the stream.
+	 * @throws IOException If the channel could not be read.
+	 */
+	public ScriptReport executeStream(ReadableByteChannel channel, ErrorPolicy policy) throws IOException {
+		return new ScriptExecutor(this, policy).execute(channel);
+	}
+	
 	/**
 	 * Executes an input, which should be interpreted from spaces.
 	 * 
 	 * @param argItr An iterator over the arguments which should execute a {@link Command}.
+	 * @return The result of the command, see {@link ContextCommand}.
+	 * @throws CommandInterpretException If no {@link CommandInterpeter} could be found matching the input, including if the input is malformed.
+	 * @throws IllegalAccessException If any {@link Field} in the {@link Command} was inaccessible to be populated by an interpreted argument.
+	 */
+	Object execute(Iterator<String> argItr) throws CommandInterpretException, IllegalAccessException {
+		ParseCache cache = parseCache;
+		if (cache == null && journal == null) return interpret(argItr);
+		List<String> tokens = new ArrayList<>();
+		argItr.forEachRemaining(tokens::add);
+		return execute(tokens, cache);
+	}
+	
+	/**
+	 * Executes an input whose tokens are held, noting them for the journal if there is one.
+	 * 
+	 * @param tokens The arguments which should execute a {@link Command}, which are copied if they are cached or journaled.
+	 * @param cache The cache of interpreted command lines, or null if there is none.
+	 * @return The result of the command, see {@link ContextCommand}.
+	 * @throws CommandInterpretException If no {@link CommandInterpeter} could be found matching the input, including if the input is malformed.
+	 * @throws IllegalAccessException If any {@link Field} in the {@link Command} was inaccessible to be populated by an interpreted argument.
+	 */
+	private Object execute(List<String> tokens, ParseCache cache) throws CommandInterpretException, IllegalAccessException {
+		CommandJournal j = journal;
+		if (j == null) return cache == null ? interpret(tokens.iterator()) : interpret(tokens, cache);
+		String[] previous = j.issue(tokens);
+		try {
+			return cache == null ? interpret(tokens.iterator()) : interpret(tokens, cache);
+		} finally {
+			j.restore(previous);
+		}
+	}
+	
+	/**
+	 * Interprets and executes an input.
+	 * 
+	 * @param argItr An iterator over the arguments which should execute a {@link Command}.
+	 * @return The result of the command, see {@link ContextCommand}.
+	 * @throws CommandInterpretException If no {@link CommandInterpeter} could be found matching the input, including if the input is malformed.
+	 * @throws IllegalAccessException If any {@link Field} in the {@link Command} was inaccessible to be populated by an interpreted argument.
+	 */
+	private Object interpret(Iterator<String> argItr) throws CommandInterpretException, IllegalAccessException {
+		CommandListener l = listener;
+		Cursor cursor = Cursor.of(argItr);
+		try {
+			if (l == null) return findInterpreter(cursor).plan(cursor, true).execute();
+			long start = System.nanoTime();
+			return observe(l, observeDispatch(l, cursor, start), cursor, start);
+		} finally {
+			cursor.release();
+		}
+	}
+	
+	/**
+	 * Executes an input through the cache of interpreted command lines.
+	 * 
+	 * @param tokens The arguments which should execute a {@link Command}, which are copied if they are cached.
+	 * @param cache The cache of interpreted command lines.
+	 * @return The result of the command, see {@link ContextCommand}.
 	 * @throws CommandInterpretException If no {@link CommandInterpeter} could be found matching the input, including if the input is malformed.
 	 * @throws IllegalAccessException If any {@link Field} in the {@link Command} was inaccessible to be populated by an interpreted argument.
 	 */
-	private void execute(Iterator<String> argItr) throws CommandInterpretException, IllegalAccessException {
-		if (!argItr.hasNext()) throw new CommandInterpretException("Out of tokens!");
+	private Object interpret(List<String> tokens, ParseCache cache) throws CommandInterpretException, IllegalAccessException {
+		CommandListener l = listener;
+		long start = l == null ? 0 : System.nanoTime();
+		KeywordTrie<CommandInterpreter> snapshot = commands;
+		int settings = generation.get();
+		BindingPlan plan = cache.get(tokens, this, snapshot, settings);
+		long dispatched = 0;
+		if (plan == null) {
+			Cursor cursor = Cursor.of(tokens.iterator());
+			CommandInterpreter interpreter;
+			try {
+				if (l == null) {
+					interpreter = findInterpreter(cursor);
+					plan = interpreter.plan(cursor);
+				} else {
+					interpreter = observeDispatch(l, cursor, start);
+					dispatched = System.nanoTime();
+					plan = observePlan(l, interpreter, cursor, start);
+				}
+			} finally {
+				cursor.release();
+			}
+			if (plan.isCacheable()) cache.put(Collections.unmodifiableList(new ArrayList<>(tokens)), plan, interpreter, snapshot, settings);
+		} else if (l != null) {
+			dispatched = System.nanoTime();
+		}
+		if (l == null) return plan.execute();
+		return observe(l, plan, start, dispatched);
+	}
+	
+	/**
+	 * Finds the {@link CommandInterpreter} for the first argument, reporting a failure to the listener.
+	 * 
+	 * @param listener The {@link CommandListener}.
+	 * @param argItr An iterator over the arguments, positioned before the keyword.
+	 * @param start The time the execution started, from {@link System#nanoTime()}.
+	 * @return The {@link CommandInterpreter} of the keyword.
+	 * @throws CommandInterpretException If there is no argument, or no {@link CommandInterpreter} for it.
+	 */
+	private CommandInterpreter observeDispatch(CommandListener listener, Iterator<String> argItr, long start) throws CommandInterpretException {
+		try {
+			return findInterpreter(argItr);
+		} catch (CommandInterpretException | RuntimeException e) {
+			listener.failed(null, Phase.DISPATCH, e, System.nanoTime() - start);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Interprets the arguments to a command, reporting a failure to the listener.
+	 * 
+	 * @param listener The {@link CommandListener}.
+	 * @param interpreter The {@link CommandInterpreter} of the command.
+	 * @param argItr An iterator over the arguments to the interpreter.
+	 * @param start The time the execution started, from {@link System#nanoTime()}.
+	 * @return The {@link BindingPlan} of the interpreted {@link Command}.
+	 * @throws CommandInterpretException If the arguments were malformed or insufficient to populate the {@link Command}.
+	 */
+	private BindingPlan observePlan(CommandListener listener, CommandInterpreter interpreter, Iterator<String> argItr, long start) throws CommandInterpretException {
+		try {
+			return interpreter.plan(argItr);
+		} catch (CommandInterpretException | RuntimeException e) {
+			listener.failed(interpreter.path, Phase.BIND, e, System.nanoTime() - start);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Interprets the arguments to a command and executes it, reporting each phase to the listener.
+	 * 
+	 * @param listener The {@link CommandListener}.
+	 * @param interpreter The {@link CommandInterpreter} of the command.
+	 * @param argItr An iterator over the arguments to the interpreter.
+	 * @param start The time the execution started, from {@link System#nanoTime()}.
+	 * @return The result of the command, see {@link ContextCommand}.
+	 * @throws CommandInterpretException If the arguments were malformed or insufficient to populate the {@link Command}.
+	 * @throws IllegalAccessException If any {@link Field} in the {@link Command} was inaccessible to be populated by an interpreted argument.
+	 */
+	private Object observe(CommandListener listener, CommandInterpreter interpreter, Iterator<String> argItr, long start)
+			throws CommandInterpretException, IllegalAccessException {
+		long dispatched = System.nanoTime();
+		return observe(listener, observePlan(listener, interpreter, argItr, start), start, dispatched);
+	}
+	
+	/**
+	 * Populates and executes a command, reporting each phase to the listener.
+	 * 
+	 * @param listener The {@link CommandListener}.
+	 * @param plan The {@link BindingPlan} of the command.
+	 * @param start The time the execution started, from {@link System#nanoTime()}.
+	 * @param dispatched The time the command was found, from {@link System#nanoTime()}.
+	 * @return The result of the command, see {@link ContextCommand}.
+	 * @throws IllegalAccessException If any {@link Field} in the {@link Command} was inaccessible to be populated by an interpreted argument.
+	 */
+	private Object observe(CommandListener listener, BindingPlan plan, long start, long dispatched) throws IllegalAccessException {
+		String keyword = plan.getKeyword();
+		Command command;
+		try {
+			command = plan.acquire();
+		} catch (IllegalAccessException | RuntimeException e) {
+			listener.failed(keyword, Phase.BIND, e, System.nanoTime() - start);
+			throw e;
+		}
+		long bound = System.nanoTime();
+		Object result;
+		try {
+			result = command.call();
+		} catch (RuntimeException | Error e) {
+			listener.failed(keyword, Phase.EXECUTE, e, System.nanoTime() - start);
+			throw e;
+		} finally {
+			plan.release(command);
+		}
+		listener.executed(keyword, dispatched - start, bound - dispatched, System.nanoTime() - bound);
+		return result;
+	}
+	
+	/**
+	 * Adds a {@link CommandListener} which is notified of every command executed from this command line, after any listeners already added.
+	 * While no listener is added, executions are not timed.
+	 * 
+	 * @param listener The listener.
+	 */
+	public synchronized void addCommandListener(CommandListener listener) {
+		this.listener = CommandListeners.add(this.listener, listener);
+	}
+	
+	/**
+	 * @param listener A {@link CommandListener} which should no longer be notified.
+	 */
+	public synchronized void removeCommandListener(CommandListener listener) {
+		this.listener = CommandListeners.remove(this.listener, listener);
+	}
+	
+	/**
+	 * Enables {@link CommandMetrics} for every command executed from this command line, and adds a {@link StatsCommand} as "stats"
+	 * unless the keyword is already in use. Metrics which are already enabled are kept.
+	 * 
+	 * @return The metrics of this command line.
+	 */
+	public synchronized CommandMetrics enableMetrics() {
+		CommandMetrics metrics = getMetrics();
+		if (metrics == null) {
+			metrics = new CommandMetrics();
+			addCommandListener(metrics);
+		}
+		if (!commands.containsKey("stats")) addCommand("stats", StatsCommand.class);
+		return metrics;
+	}
+	
+	/**
+	 * Disables the {@link CommandMetrics} of this command line. The "stats" command remains, and reports that metrics are disabled.
+	 */
+	public synchronized void disableMetrics() {
+		CommandMetrics metrics = getMetrics();
+		if (metrics != null) removeCommandListener(metrics);
+	}
+	
+	/**
+	 * @return The metrics of this command line, or null if they are not enabled.
+	 */
+	public CommandMetrics getMetrics() {
+		return CommandListeners.find(listener, CommandMetrics.class);
+	}
+	
+	/**
+	 * Enables a {@link CommandJournal} in a directory, which records every command executed from this command line.
+	 * A journal which is already enabled is kept.
+	 * 
+	 * @param directory The directory the journal's segments are written to.
+	 * @return The journal of this command line.
+	 * @throws IOException If the journal could not be opened.
+	 */
+	public synchronized CommandJournal enableJournal(Path directory) throws IOException {
+		CommandJournal j = journal;
+		if (j == null) {
+			j = new CommandJournal(directory);
+			setJournal(j);
+		}
+		return j;
+	}
+	
+	/**
+	 * Sets the {@link CommandJournal} which records every command executed from this command line, replacing any other journal,
+	 * which is not closed.
+	 * 
+	 * @param journal The journal, or null to record no commands.
+	 */
+	public synchronized void setJournal(CommandJournal journal) {
+		CommandJournal previous = this.journal;
+		if (previous == journal) return;
+		if (previous != null) removeCommandListener(previous);
+		// The tokens are noted for the journal before it is notified, so it is only notified once it will find them.
+		this.journal = journal;
+		if (journal != null) addCommandListener(journal);
+	}
+	
+	/**
+	 * Disables the {@link CommandJournal} of this command line, closing it once its queued commands are written.
+	 */
+	public synchronized void disableJournal() {
+		CommandJournal j = journal;
+		if (j != null) {
+			setJournal(null);
+			j.close();
+		}
+	}
+	
+	/**
+	 * @return The journal of this command line, or null if there is none.
+	 */
+	public CommandJournal getJournal() {
+		return journal;
+	}
+	
+	/**
+	 * Gets the help of every command and sub command, which is built when first requested and rebuilt after commands are added.
+	 * 
+	 * @return The searchable {@link HelpIndex} of the current commands.
+	 */
+	public HelpIndex getHelpIndex() {
+		HelpIndex index = helpIndex;
+		if (index == null || !index.isCurrent()) {
+			index = new HelpIndex(this);
+			helpIndex = index;
+		}
+		return index;
+	}
+	
+	/**
+	 * Builds the {@link HelpIndex} and renders the help of every command at a width in the background, so that the first
+	 * request for help (such as from an interactive shell) does not reflect over or lay out any commands.
+	 * 
+	 * @param executor The executor the help is prepared on.
+	 * @param width The number of columns help is expected to be wrapped to.
+	 * @return A future completed with the index once every help dialog has been rendered.
+	 */
+	public CompletableFuture<HelpIndex> prepareHelp(Executor executor, int width) {
+		return CompletableFuture.supplyAsync(() -> {
+			HelpIndex index = getHelpIndex();
+			index.prerender(width);
+			return index;
+		}, executor);
+	}
+	
+	/**
+	 * Writes the keyword and summary of every command and sub command.
+	 * 
+	 * @param out The output the index is appended to.
+	 * @param width The number of columns lines are wrapped to, such as {@link HelpIndex#terminalWidth()}.
+	 * @throws IOException If the output could not be appended to.
+	 */
+	public void writeHelp(Appendable out, int width) throws IOException {
+		getHelpIndex().writeIndex(out, width);
+	}
+	
+	/**
+	 * Builds the interpreters of every sub command, which are otherwise built when first dispatched to, so that no later
+	 * execution reflects over a command class. Latency sensitive applications may call this once their commands are added.
+	 * 
+	 * @return The number of interpreters, including those of sub commands.
+	 */
+	public int warmUp() {
+		int count = 0;
+		KeywordTrie<CommandInterpreter> snapshot = commands;
+		for (String keyword : snapshot.keys()) {
+			CommandInterpreter interpreter = snapshot.get(keyword);
+			count++;
+			if (interpreter.hasSubCommandLine()) count += interpreter.getSubCommandLine().warmUp();
+		}
+		return count;
+	}
+	
+	/**
+	 * @return The commands currently added to this command line.
+	 */
+	KeywordTrie<CommandInterpreter> getCommands() {
+		return commands;
+	}
+	
+	/**
+	 * Enables a cache of interpreted command lines, so that repeated lines skip interpretation and argument conversion.
+	 * Converted values are shared by every {@link Command} executed from a cached line, see {@link ParseCache}.
+	 * 
+	 * @param maxEntries The maximum number of command lines which should be cached, evicting the least recently used.
+	 * @return The new (empty) cache, which reports its hits and misses.
+	 */
+	public ParseCache enableParseCache(int maxEntries) {
+		ParseCache cache = new ParseCache(maxEntries);
+		parseCache = cache;
+		return cache;
+	}
+	
+	/**
+	 * Disables the cache of interpreted command lines.
+	 */
+	public void disableParseCache() {
+		parseCache = null;
+	}
+	
+	/**
+	 * @return The cache of interpreted command lines, or null if it is not enabled.
+	 */
+	public ParseCache getParseCache() {
+		return parseCache;
+	}
+	
+	/**
+	 * Submits an input for asynchronous execution, see {@link #submit(Duration, String...)}.
+	 * 
+	 * @param args The arguments which should execute a {@link Command}.
+	 * @return A future completed when the {@link Command} has executed, which interrupts the command if cancelled.
+	 */
+	public CompletableFuture<Void> submit(String... args) {
+		return submit(null, args);
+	}
+	
+	/**
+	 * Submits an input for asynchronous execution, by default on its own virtual thread (or a pooled thread where virtual threads are unavailable).
+	 * The returned future completes exceptionally with any exception {@link #execute(String...)} would throw, or the {@link Command} threw.
+	 * If the command has a {@link CommandInterpreter#setConcurrencyLimit(int) concurrency limit}, the execution first waits for a permit.
+	 * 
+	 * @param timeout The time after which the command is interrupted and the future fails with a {@link TimeoutException}, or null for none.
+	 * @param args The arguments which should execute a {@link Command}.
+	 * @return A future completed when the {@link Command} has executed, which interrupts the command if cancelled.
+	 */
+	public CompletableFuture<Void> submit(Duration timeout, String... args) {
+		CommandFuture future = new CommandFuture();
+		List<String> tokens = Arrays.asList(args.clone());
+		Executor e = executor;
+		try {
+			(e == null ? CommandExecutors.getDefault() : e).execute(() -> future.run(() -> {
+				Cursor cursor = Cursor.of(tokens.iterator());
+				CommandListener l = listener;
+				CommandJournal j = journal;
+				String[] previous = j == null ? null : j.issue(tokens);
+				long start = l == null ? 0 : System.nanoTime();
+				try {
+					CommandInterpreter interpreter = l == null ? findInterpreter(cursor) : observeDispatch(l, cursor, start);
+					Semaphore limit = interpreter.limit;
+					if (limit != null) limit.acquire();
+					try {
+						if (l == null) interpreter.plan(cursor).execute();
+						else observe(l, interpreter, cursor, start);
+					} finally {
+						if (limit != null) limit.release();
+					}
+				} finally {
+					cursor.release();
+					if (j != null) j.restore(previous);
+				}
+			}));
+		} catch (RejectedExecutionException ex) {
+			future.completeExceptionally(ex);
+		}
+		if (timeout != null) {
+			CompletableFuture.delayedExecutor(timeout.toNanos(), TimeUnit.NANOSECONDS).execute(future::timeout);
+		}
+		return future;
+	}
+	
+	/**
+	 * Sets the executor {@link #submit(Duration, String...) submitted} commands run on.
+	 * 
+	 * @param executor The executor, or null to use a virtual thread per command.
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+	
+	/**
+	 * Limits how many submitted executions of a command may run at once, see {@link CommandInterpreter#setConcurrencyLimit(int)}.
+	 * 
+	 * @param keyword The keyword of the command.
+	 * @param limit The maximum number of concurrent executions, or 0 for no limit.
+	 * @throws IllegalArgumentException If no command has the keyword.
+	 */
+	public void setConcurrencyLimit(String keyword, int limit) {
+		CommandInterpreter interpreter = getInterpreterForCommandWord(keyword);
+		if (interpreter == null) throw new IllegalArgumentException("Command keyword '" + keyword + "' not found!");
+		interpreter.setConcurrencyLimit(limit);
+	}
+	
+	/**
+	 * Finds the {@link CommandInterpreter} for the first argument.
+	 * 
+	 * @param argItr An iterator over the arguments, positioned before the keyword.
+	 * @return The {@link CommandInterpreter} of the keyword.
+	 * @throws CommandInterpretException If there is no argument, or no {@link CommandInterpreter} for it.
+	 */
+	private CommandInterpreter findInterpreter(Iterator<String> argItr) throws CommandInterpretException {
+		if (!argItr.hasNext()) throw fail(InterpretFailure.OUT_OF_TOKENS, 0, null, Expected.KEYWORD, null, null, null, "");
 		String commandWord = argItr.next();
-		CommandInterpreter interpreter = commands.get(commandWord);
-		if (interpreter == null) throw new CommandInterpretException("Command keyword '" + commandWord + "' not found!");
-		interpreter.interpret(argItr).execute();
+		KeywordTrie<CommandInterpreter> snapshot = commands;
+		CommandInterpreter interpreter = lookup(snapshot, commandWord);
+		if (interpreter == null) throw fail(InterpretFailure.UNKNOWN_COMMAND, 0, commandWord, Expected.KEYWORD, null, null, snapshot, "");
+		return interpreter;
+	}
+	
+	/**
+	 * @param snapshot The commands.
+	 * @param word A keyword, or an abbreviation of one if they are allowed.
+	 * @return The {@link CommandInterpreter} of the keyword, or null if there is none.
+	 */
+	CommandInterpreter lookup(KeywordTrie<CommandInterpreter> snapshot, String word) {
+		CommandInterpreter interpreter = snapshot.get(word);
+		if (interpreter == null && abbreviations) {
+			String keyword = snapshot.findUniquePrefix(word, 0, word.length());
+			if (keyword != null) interpreter = snapshot.get(keyword);
+		}
+		return interpreter;
 	}
 	
 	/**
@@ -340,6 +1772,57 @@ public class CommandLine {
 	 */
 	public <T> void addConverter(Class<T> clazz, ArgumentConverter<T> converter) {
 		converters.put(clazz, converter);
+		generation.incrementAndGet();
+	}
+	
+	/**
+	 * Finds the {@link ArgumentConverter} for a type: the converter added for the exact class, otherwise the converter of the boxed
+	 * class for a primitive, or an {@link EnumConverter} (created once) for an enum.
+	 * 
+	 * @param clazz The expected class of the output typed object.
+	 * @return The converter for the type, or null if there is none.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public ArgumentConverter<?> getConverter(Class<?> clazz) {
+		ArgumentConverter<?> converter = converters.get(clazz);
+		if (converter != null) return converter;
+		if (clazz.isPrimitive()) return converters.get(MethodType.methodType(clazz).wrap().returnType());
+		if (clazz.isEnum()) return converters.computeIfAbsent(clazz, c -> new EnumConverter(c));
+		return null;
+	}
+	
+	/**
+	 * Gets the output of the command executing on the calling thread, which is that of its {@link CommandContext}, such as
+	 * the session of a {@link SocketCommandLine}, or stdout if it has none. {@link Command}s should print to this
+	 * (see {@link Command#out()}) rather than to {@link System#out}.
+	 * 
+	 * @return The output of the calling thread's context.
+	 */
+	public static PrintStream output() {
+		CommandContext context = CONTEXT.get();
+		return context != null ? context.getOut() : System.out;
+	}
+	
+	/**
+	 * @return The {@link CommandContext} of the command executing on the calling thread, or a new context whose output is stdout
+	 *         if it has none, so that commands executed without one never share a writer.
+	 */
+	static CommandContext context() {
+		CommandContext context = CONTEXT.get();
+		return context != null ? context : new CommandContext();
+	}
+	
+	/**
+	 * Binds the context of commands executed on the calling thread.
+	 * 
+	 * @param context The context, or null to restore stdout.
+	 * @return The context which was bound before, or null if there was none.
+	 */
+	static CommandContext bind(CommandContext context) {
+		CommandContext previous = CONTEXT.get();
+		if (context == null) CONTEXT.remove();
+		else CONTEXT.set(context);
+		return previous;
 	}
 	
 	/**
@@ -349,7 +1832,7 @@ public class CommandLine {
 	 * @return The associated {@link CommandInterpreter} if it exists, otherwise null.
 	 */
 	public CommandInterpreter getInterpreterForCommandWord(String word) {
-		return hasCommandWord(word) ? commands.get(word) : null;
+		return commands.get(word);
 	}
 	
 	/**
@@ -360,15 +1843,228 @@ public class CommandLine {
 		return commands.containsKey(word);
 	}
 	
+	/**
+	 * Suggests keywords which are close to a misspelled keyword.
+	 * 
+	 * @param word The misspelled keyword.
+	 * @return The closest keywords (by edit distance), closest first.
+	 */
+	public List<String> suggestCommandWords(CharSequence word) {
+		return commands.suggest(word, SUGGESTION_DISTANCE, SUGGESTION_LIMIT);
+	}
+	
+	/**
+	 * Creates the exception for input which could not be interpreted, whose message is only built if it is asked for.
+	 * 
+	 * @param reason The reason the input could not be interpreted.
+	 * @param index The index of the token at fault.
+	 * @param token The token at fault, or null if the input ended before it.
+	 * @param expected What was expected at the token.
+	 * @param name The name of the expected option or parameter, or null.
+	 * @param detail The message of a converter's failure, or null.
+	 * @param candidates The keywords or option aliases which may be suggested, or null.
+	 * @param prefix The prefix each suggestion is shown with.
+	 * @return The exception.
+	 */
+	private CommandInterpretException fail(InterpretFailure reason, int index, String token, Expected expected, String name,
+			String detail, KeywordTrie<?> candidates, String prefix) {
+		return new CommandInterpretException(new Diagnostic(reason, index, token, expected, name, detail, candidates, prefix));
+	}
+	
+	/**
+	 * An iterator over the arguments of an input which counts the arguments read, so that a failure can be placed at a token,
+	 * and which can step back over the last argument read. Each thread reuses a cursor for its inputs, unless it interprets
+	 * another input while one is in use.
+	 */
+	private static final class Cursor implements Iterator<String> {
+		
+		private static final ThreadLocal<Cursor> CURRENT = ThreadLocal.withInitial(Cursor::new);
+		
+		private Iterator<String> rest;
+		private String last;
+		private boolean pushed;
+		private int position;
+		
+		/**
+		 * @param argItr An iterator over the arguments of an input.
+		 * @return The calling thread's cursor over the arguments, which must be {@link #release() released}.
+		 */
+		static Cursor of(Iterator<String> argItr) {
+			Cursor c = CURRENT.get();
+			if (c.rest != null) c = new Cursor();
+			return c.reset(argItr);
+		}
+		
+		Cursor reset(Iterator<String> argItr) {
+			rest = argItr;
+			last = null;
+			pushed = false;
+			position = 0;
+			return this;
+		}
+		
+		/**
+		 * Lets the thread reuse this cursor, without keeping the input reachable.
+		 */
+		void release() {
+			rest = null;
+			last = null;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return pushed || rest.hasNext();
+		}
+		
+		@Override
+		public String next() {
+			if (pushed) pushed = false;
+			else last = rest.next();
+			position++;
+			return last;
+		}
+		
+		/**
+		 * Steps back over the last argument read, so that it is read again.
+		 */
+		void pushBack() {
+			pushed = true;
+			position--;
+		}
+		
+		/**
+		 * @return A cursor over the arguments which have not been read, which remains valid once this cursor is released.
+		 */
+		Cursor detach() {
+			Cursor c = new Cursor().reset(rest);
+			c.last = last;
+			c.pushed = pushed;
+			return c;
+		}
+		
+		/**
+		 * Replaces the last argument read with a value, which is read next in its place.
+		 * 
+		 * @param value The value, such as the inline value of a long option.
+		 */
+		void replace(String value) {
+			last = value;
+			pushBack();
+		}
+		
+		/**
+		 * @return The number of arguments read, which is the index of the next.
+		 */
+		int position() {
+			return position;
+		}
+		
+		/**
+		 * @return The last argument read.
+		 */
+		String last() {
+			return last;
+		}
+		
+	}
+	
+	/**
+	 * The converted defaults of the options of a {@link CommandInterpreter}, as of a generation of the converters.
+	 */
+	private static final class Defaults {
+		
+		final int generation;
+		final Object[] values;
+		final long[] primitives;
+		
+		Defaults(int generation, Object[] values, long[] primitives) {
+			this.generation = generation;
+			this.values = values;
+			this.primitives = primitives;
+		}
+		
+	}
+	
+	/**
+	 * @param value A converted value.
+	 * @return True if the value is null or of a type whose instances cannot change, so that it may be shared by every command.
+	 */
+	private static boolean isImmutable(Object value) {
+		return value == null || value instanceof String || value instanceof Boolean || value instanceof Character || value instanceof Enum
+				|| value instanceof Path || value instanceof Class || value instanceof BigInteger || value instanceof BigDecimal
+				|| value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long
+				|| value instanceof Float || value instanceof Double;
+	}
+	
+	/**
+	 * The arguments of a streamed field, each converted as it is read.
+	 */
+	private static final class Converting implements Iterator<Object> {
+		
+		private final ArgumentConverter<?> converter;
+		private final Iterator<String> arguments;
+		
+		Converting(ArgumentConverter<?> converter, Iterator<String> arguments) {
+			this.converter = converter;
+			this.arguments = arguments;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return arguments.hasNext();
+		}
+		
+		@Override
+		public Object next() {
+			return converter.parseArg(arguments);
+		}
+		
+	}
+	
 	/**
 	 * Thrown when an {@link CommandInterpreter} is unable to successfully interpret command line input.
 	 */
 	public class CommandInterpretException extends Exception {
 		
 		private static final long serialVersionUID = -8133225772318315478L;
+		
+		private final Diagnostic diagnostic;
 
 		public CommandInterpretException(String message) {
-			super(message);
+			this(InterpretFailure.MALFORMED, message);
+		}
+		
+		public CommandInterpretException(InterpretFailure reason, String message) {
+			this(new Diagnostic(reason, message));
+		}
+		
+		/**
+		 * Creates an exception without a stack trace, unless the {@value Diagnostic#STACK_TRACES} system property is "true".
+		 * 
+		 * @param diagnostic Where and why the input could not be interpreted.
+		 */
+		public CommandInterpretException(Diagnostic diagnostic) {
+			super(null, null, false, Diagnostic.CAPTURE_STACK_TRACES);
+			this.diagnostic = diagnostic;
+		}
+		
+		/**
+		 * @return The reason the input could not be interpreted.
+		 */
+		public InterpretFailure getReason() {
+			return diagnostic.getReason();
+		}
+		
+		/**
+		 * @return Where and why the input could not be interpreted.
+		 */
+		public Diagnostic getDiagnostic() {
+			return diagnostic;
+		}
+		
+		@Override
+		public String getMessage() {
+			return diagnostic.getMessage();
 		}
 		
 	}
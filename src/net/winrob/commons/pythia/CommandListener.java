@@ -0,0 +1,55 @@
+package net.winrob.commons.pythia;
+
+/**
+ * Observes every command a {@link CommandLine} executes, and how long each phase of its execution took.
+ * Listeners are called on the thread which executed the command, so they should be cheap and thread safe.
+ * 
+ * @author Winter Roberts
+ */
+public interface CommandListener {
+	
+	/**
+	 * Called after a command executed successfully.
+	 * 
+	 * @param keyword The keyword of the command, including the keywords of any parent commands (e.g. "cache evict").
+	 * @param dispatchNanos The time taken to find the command by its keyword, including any wait for a concurrency permit.
+	 * @param bindNanos The time taken to interpret the arguments and populate the {@link Command}.
+	 * @param executeNanos The time taken by {@link Command#execute()}.
+	 */
+	default void executed(String keyword, long dispatchNanos, long bindNanos, long executeNanos) {
+	}
+	
+	/**
+	 * Called after a command failed, before the failure is thrown to the caller.
+	 * 
+	 * @param keyword The keyword of the command, or null if no command could be found.
+	 * @param phase The {@link Phase} which failed.
+	 * @param cause The exception the command failed with.
+	 * @param elapsedNanos The time from the start of the execution until it failed.
+	 */
+	default void failed(String keyword, Phase phase, Throwable cause, long elapsedNanos) {
+	}
+	
+	/**
+	 * The phases of a command's execution.
+	 */
+	enum Phase {
+		
+		/**
+		 * Finding the command by its keyword.
+		 */
+		DISPATCH,
+		
+		/**
+		 * Interpreting the arguments and populating the {@link Command}.
+		 */
+		BIND,
+		
+		/**
+		 * Running {@link Command#execute()}.
+		 */
+		EXECUTE
+		
+	}
+	
+}
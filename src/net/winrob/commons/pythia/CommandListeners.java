@@ -0,0 +1,79 @@
+package net.winrob.commons.pythia;
+
+import java.util.Arrays;
+
+/**
+ * Several {@link CommandListener}s notified in the order they were added.
+ * A {@link CommandLine} only holds a composite while more than one listener is added, so a single listener is called directly.
+ * 
+ * @author Winter Roberts
+ */
+final class CommandListeners implements CommandListener {
+	
+	private final CommandListener[] listeners;
+	
+	private CommandListeners(CommandListener[] listeners) {
+		this.listeners = listeners;
+	}
+	
+	/**
+	 * @param current The current listener, which may be null or a composite.
+	 * @param listener The listener to add.
+	 * @return The listener which notifies both.
+	 */
+	static CommandListener add(CommandListener current, CommandListener listener) {
+		if (current == null) return listener;
+		CommandListener[] existing = current instanceof CommandListeners ? ((CommandListeners) current).listeners : new CommandListener[] { current };
+		CommandListener[] all = Arrays.copyOf(existing, existing.length + 1);
+		all[existing.length] = listener;
+		return new CommandListeners(all);
+	}
+	
+	/**
+	 * @param current The current listener, which may be null or a composite.
+	 * @param listener The listener to remove.
+	 * @return The listener which notifies the rest, or null if none remain.
+	 */
+	static CommandListener remove(CommandListener current, CommandListener listener) {
+		if (current == listener) return null;
+		if (!(current instanceof CommandListeners)) return current;
+		CommandListener[] existing = ((CommandListeners) current).listeners;
+		CommandListener[] rest = new CommandListener[existing.length];
+		int n = 0;
+		for (CommandListener l : existing) {
+			if (l != listener) rest[n++] = l;
+		}
+		if (n == existing.length) return current;
+		return n == 1 ? rest[0] : new CommandListeners(Arrays.copyOf(rest, n));
+	}
+	
+	/**
+	 * @param current The current listener, which may be null or a composite.
+	 * @param type The class of listener to find.
+	 * @return The first listener of the class, or null if there is none.
+	 */
+	static <T extends CommandListener> T find(CommandListener current, Class<T> type) {
+		if (type.isInstance(current)) return type.cast(current);
+		if (current instanceof CommandListeners) {
+			for (CommandListener l : ((CommandListeners) current).listeners) {
+				if (type.isInstance(l)) return type.cast(l);
+			}
+		}
+		return null;
+	}
+	
+	@Override
+	public void executed(String keyword, long dispatchNanos, long bindNanos, long executeNanos) {
+		for (CommandListener l : listeners) {
+			l.executed(keyword, dispatchNanos, bindNanos, executeNanos);
+		}
+	}
+	
+	@Override
+	public void failed(String keyword, Phase phase, Throwable cause, long elapsedNanos) {
+		for (CommandListener l : listeners) {
+			l.failed(keyword, phase, cause, elapsedNanos);
+		}
+	}
+	
+}
@@ -0,0 +1,255 @@
+package net.winrob.commons.pythia;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+
+/**
+ * A {@link CommandListener} which counts the executions and failures of each command, and records a histogram of its latencies.
+ * Recording takes no locks: counters are {@link LongAdder}s and histograms are striped by thread, see {@link LatencyHistogram}.
+ * <p>
+ * Metrics are enabled with {@link CommandLine#enableMetrics()}, can be printed by the built-in {@link StatsCommand}, and can be
+ * published over JMX with {@link #register(String)}.
+ * 
+ * @author Winter Roberts
+ */
+public class CommandMetrics implements CommandListener, CommandMetricsMBean {
+	
+	/**
+	 * The JMX domain metrics are {@link #register(String) registered} in.
+	 */
+	public static final String DOMAIN = "net.winrob.commons.pythia";
+	
+	private static final int SUMMARY_LIMIT = 10;
+	
+	private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+	private final Recorder unknown = new Recorder(null);
+	
+	@Override
+	public void executed(String keyword, long dispatchNanos, long bindNanos, long executeNanos) {
+		recorder(keyword).executed(dispatchNanos + bindNanos + executeNanos, executeNanos);
+	}
+	
+	@Override
+	public void failed(String keyword, Phase phase, Throwable cause, long elapsedNanos) {
+		(keyword == null ? unknown : recorder(keyword)).failed(cause, elapsedNanos);
+	}
+	
+	private Recorder recorder(String keyword) {
+		Recorder r = recorders.get(keyword);
+		return r != null ? r : recorders.computeIfAbsent(keyword, Recorder::new);
+	}
+	
+	/**
+	 * @param keyword The keyword of a command, including the keywords of any parent commands.
+	 * @return A snapshot of the command's metrics, or null if it has not been executed.
+	 */
+	public CommandStats getStats(String keyword) {
+		Recorder r = recorders.get(keyword);
+		return r == null ? null : r.snapshot();
+	}
+	
+	/**
+	 * @return A snapshot of the metrics of every executed command, and of inputs which named no command (with a null keyword) if there were any.
+	 */
+	public List<CommandStats> getStats() {
+		List<CommandStats> stats = new ArrayList<>(recorders.size() + 1);
+		for (Recorder r : recorders.values()) {
+			stats.add(r.snapshot());
+		}
+		if (unknown.executions.sum() != 0) stats.add(unknown.snapshot());
+		return stats;
+	}
+	
+	/**
+	 * @param limit The number of commands which should be returned.
+	 * @param order The order of the commands.
+	 * @return A snapshot of the metrics of the first commands in the order.
+	 */
+	public List<CommandStats> top(int limit, Order order) {
+		List<CommandStats> stats = getStats();
+		stats.sort(order.comparator);
+		return stats.size() > limit ? new ArrayList<>(stats.subList(0, limit)) : stats;
+	}
+	
+	/**
+	 * Renders a table of the first commands in an order, with the failures of each by cause.
+	 * 
+	 * @param limit The number of commands which should be listed.
+	 * @param order The order of the commands.
+	 * @return The rendered table.
+	 */
+	public String summary(int limit, Order order) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%-20s %10s %8s %10s %10s %10s %10s", "COMMAND", "EXECUTIONS", "FAILURES", "MEAN", "P50", "P99", "MAX"));
+		for (CommandStats s : top(limit, order)) {
+			sb.append("\r\n").append(s);
+			for (Map.Entry<String, Long> e : s.getErrors().entrySet()) {
+				sb.append("\r\n    ").append(e.getKey()).append(": ").append(e.getValue());
+			}
+		}
+		return sb.toString();
+	}
+	
+	@Override
+	public String summary(int limit, String order) {
+		return summary(limit, Order.valueOf(order.trim().toUpperCase()));
+	}
+	
+	@Override
+	public String getSummary() {
+		return summary(SUMMARY_LIMIT, Order.EXECUTIONS);
+	}
+	
+	@Override
+	public long getExecutions() {
+		long n = unknown.executions.sum();
+		for (Recorder r : recorders.values()) {
+			n += r.executions.sum();
+		}
+		return n;
+	}
+	
+	@Override
+	public long getFailures() {
+		long n = unknown.failures.sum();
+		for (Recorder r : recorders.values()) {
+			n += r.failures.sum();
+		}
+		return n;
+	}
+	
+	@Override
+	public String[] getKeywords() {
+		return recorders.keySet().toArray(new String[0]);
+	}
+	
+	@Override
+	public void reset() {
+		recorders.clear();
+		unknown.reset();
+	}
+	
+	/**
+	 * Registers these metrics with the platform MBean server, as {@value #DOMAIN}:type=CommandMetrics,name=<i>name</i>.
+	 * 
+	 * @param name The name which distinguishes these metrics from those of other {@link CommandLine}s.
+	 * @return The name the metrics were registered under.
+	 * @throws JMException If the metrics could not be registered, such as if the name is already in use.
+	 */
+	public ObjectName register(String name) throws JMException {
+		ObjectName objectName = objectName(name);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+	
+	/**
+	 * Unregisters these metrics from the platform MBean server.
+	 * 
+	 * @param name The name the metrics were {@link #register(String) registered} with.
+	 * @throws JMException If the metrics were not registered under the name.
+	 */
+	public void unregister(String name) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		server.unregisterMBean(objectName(name));
+	}
+	
+	private static ObjectName objectName(String name) throws JMException {
+		return new ObjectName(DOMAIN + ":type=CommandMetrics,name=" + ObjectName.quote(name));
+	}
+	
+	@Override
+	public String toString() {
+		return "CommandMetrics[commands=" + recorders.size() + ", executions=" + getExecutions() + ", failures=" + getFailures() + "]";
+	}
+	
+	/**
+	 * @param cause The exception a command failed with.
+	 * @return The cause the failure is counted under.
+	 */
+	static String causeOf(Throwable cause) {
+		if (cause instanceof CommandInterpretException) return ((CommandInterpretException) cause).getReason().name();
+		return cause.getClass().getSimpleName();
+	}
+	
+	/**
+	 * The orders commands can be listed in, greatest first.
+	 */
+	public enum Order {
+		
+		EXECUTIONS(Comparator.comparingLong(CommandStats::getExecutions)),
+		FAILURES(Comparator.comparingLong(CommandStats::getFailures)),
+		MEAN(Comparator.comparingLong(CommandStats::getMeanNanos)),
+		P99(Comparator.comparingLong(CommandStats::getP99Nanos)),
+		MAX(Comparator.comparingLong(CommandStats::getMaxNanos));
+		
+		private final Comparator<CommandStats> comparator;
+		
+		private Order(Comparator<CommandStats> comparator) {
+			this.comparator = comparator.reversed();
+		}
+		
+	}
+	
+	/**
+	 * The counters and histogram of one command.
+	 */
+	private static final class Recorder {
+		
+		private final String keyword;
+		private final LongAdder executions = new LongAdder();
+		private final LongAdder failures = new LongAdder();
+		private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private final LongAdder executeNanos = new LongAdder();
+		
+		private Recorder(String keyword) {
+			this.keyword = keyword;
+		}
+		
+		private void executed(long nanos, long execute) {
+			executions.increment();
+			latency.record(nanos);
+			executeNanos.add(execute);
+		}
+		
+		private void failed(Throwable cause, long nanos) {
+			executions.increment();
+			failures.increment();
+			errors.computeIfAbsent(causeOf(cause), c -> new LongAdder()).increment();
+			latency.record(nanos);
+		}
+		
+		private CommandStats snapshot() {
+			long n = executions.sum();
+			long failed = failures.sum();
+			Map<String, Long> e = new TreeMap<>();
+			errors.forEach((cause, count) -> e.put(cause, count.sum()));
+			long[] counts = latency.counts();
+			return new CommandStats(keyword, n, failed, e, n == 0 ? 0 : latency.getSum() / n, latency.valueAt(counts, 0.5),
+					latency.valueAt(counts, 0.9), latency.valueAt(counts, 0.99), latency.getMax(),
+					n == failed ? 0 : executeNanos.sum() / (n - failed));
+		}
+		
+		private void reset() {
+			executions.reset();
+			failures.reset();
+			errors.clear();
+			latency.reset();
+			executeNanos.reset();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,42 @@
+package net.winrob.commons.pythia;
+
+/**
+ * The JMX management interface of {@link CommandMetrics}.
+ * 
+ * @author Winter Roberts
+ */
+public interface CommandMetricsMBean {
+	
+	/**
+	 * @return The number of executions of every command, whether they succeeded or failed.
+	 */
+	long getExecutions();
+	
+	/**
+	 * @return The number of failed executions of every command, including inputs which named no command.
+	 */
+	long getFailures();
+	
+	/**
+	 * @return The keywords of every command which has been executed.
+	 */
+	String[] getKeywords();
+	
+	/**
+	 * @return The summary of the ten most executed commands.
+	 */
+	String getSummary();
+	
+	/**
+	 * @param limit The number of commands which should be listed.
+	 * @param order The name of the {@link CommandMetrics.Order} the commands should be listed in.
+	 * @return The summary of the first commands in the order.
+	 */
+	String summary(int limit, String order);
+	
+	/**
+	 * Discards every recorded execution.
+	 */
+	void reset();
+	
+}
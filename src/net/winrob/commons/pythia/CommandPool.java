@@ -0,0 +1,46 @@
+package net.winrob.commons.pythia;
+
+import java.util.function.Supplier;
+
+import net.winrob.commons.pythia.Command.Reusable;
+
+/**
+ * Holds an idle instance of a {@link Reusable} command for each thread, so that a thread which executes the command repeatedly
+ * binds the same instance each time. An execution which finds its thread's instance in use (such as a command which executes
+ * itself) creates a new one.
+ * 
+ * @author Winter Roberts
+ */
+final class CommandPool {
+	
+	private final Supplier<? extends Command> factory;
+	private final ThreadLocal<Command> idle = new ThreadLocal<>();
+	
+	/**
+	 * @param factory Creates new instances of the command.
+	 */
+	CommandPool(Supplier<? extends Command> factory) {
+		this.factory = factory;
+	}
+	
+	/**
+	 * @return The idle instance of the current thread, or a new instance if it has none.
+	 */
+	Command acquire() {
+		Command c = idle.get();
+		if (c == null) return factory.get();
+		idle.set(null);
+		return c;
+	}
+	
+	/**
+	 * Resets an instance which finished executing, and makes it the idle instance of the current thread.
+	 * 
+	 * @param command The instance.
+	 */
+	void release(Command command) {
+		command.reset();
+		idle.set(command);
+	}
+	
+}
@@ -0,0 +1,296 @@
+package net.winrob.commons.pythia;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+import net.winrob.commons.pythia.Tokenizer.Tokens;
+
+/**
+ * A sequence of commands parsed once from a line, such as {@code load a && verify a || rollback a; status}, which may be
+ * executed any number of times by {@link CommandLine#execute(CommandSequence)}.
+ * <p>
+ * Commands are separated by {@link Operator}s, which decide whether the next command executes from the outcome of the last
+ * command which did, as a shell does: {@code ;} always executes the next command, {@code &&} only if the last command
+ * succeeded and {@code ||} only if it failed. A command which is skipped does not change the outcome, so in
+ * {@code a && b || c}, {@code c} executes if either {@code a} or {@code b} failed.
+ * 
+ * @author Winter Roberts
+ */
+public final class CommandSequence {
+	
+	private static final ThreadLocal<Tokenizer> TOKENIZER = ThreadLocal.withInitial(Tokenizer::new);
+	
+	private final String[][] commands;
+	private final Operator[] operators;
+	
+	private CommandSequence(String[][] commands, Operator[] operators) {
+		this.commands = commands;
+		this.operators = operators;
+	}
+	
+	/**
+	 * Parses a line into a sequence, see {@link Tokenizer} for how each command is split.
+	 * 
+	 * @param line The line of commands.
+	 * @return The sequence, which is empty if the line was blank.
+	 * @throws IllegalArgumentException If the line could not be tokenized, or an operator does not follow a command (a trailing {@code ;} is allowed).
+	 */
+	public static CommandSequence parse(CharSequence line) {
+		return parse(TOKENIZER.get().tokenize(line, 0, line.length(), true));
+	}
+	
+	/**
+	 * Creates a sequence from tokens which were tokenized with operators.
+	 * 
+	 * @param tokens The tokens, see {@link Tokenizer#tokenize(CharSequence, int, int, boolean)}.
+	 * @return The sequence.
+	 * @throws IllegalArgumentException If an operator does not follow a command (a trailing {@code ;} is allowed).
+	 */
+	public static CommandSequence parse(Tokens tokens) {
+		List<String[]> commands = new ArrayList<>();
+		List<Operator> operators = new ArrayList<>();
+		Operator operator = Operator.THEN;
+		int start = 0;
+		int size = tokens.size();
+		for (int i = 0; i <= size; i++) {
+			if (i < size && !tokens.isOperator(i)) continue;
+			if (i == start) {
+				if (i == size && operator == Operator.THEN) break;
+				throw new IllegalArgumentException("Expected a command before " + (i < size ? "'" + tokens.getString(i) + "'" : "the end of the line") + " at token " + i);
+			}
+			String[] command = new String[i - start];
+			for (int t = start; t < i; t++) command[t - start] = tokens.getString(t);
+			commands.add(command);
+			operators.add(operator);
+			if (i < size) operator = Operator.of(tokens.get(i));
+			start = i + 1;
+		}
+		return new CommandSequence(commands.toArray(new String[0][]), operators.toArray(new Operator[0]));
+	}
+	
+	/**
+	 * @return The number of commands.
+	 */
+	public int size() {
+		return commands.length;
+	}
+	
+	/**
+	 * @param index The index of a command.
+	 * @return A copy of the command's tokens.
+	 */
+	public String[] getCommand(int index) {
+		return commands[index].clone();
+	}
+	
+	/**
+	 * @param index The index of a command.
+	 * @return The operator preceding the command, which is {@link Operator#THEN} for the first command.
+	 */
+	public Operator getOperator(int index) {
+		return operators[index];
+	}
+	
+	/**
+	 * Executes every command whose operator allows it, back to back on the calling thread.
+	 * 
+	 * @param commandLine The command line the commands are executed on.
+	 * @return The outcome of each command.
+	 */
+	Result execute(CommandLine commandLine) {
+		Outcome[] outcomes = new Outcome[commands.length];
+		Object[] values = null;
+		Exception[] causes = null;
+		boolean succeeded = true;
+		for (int i = 0; i < commands.length; i++) {
+			Operator operator = operators[i];
+			if (operator == Operator.AND && !succeeded || operator == Operator.OR && succeeded) {
+				outcomes[i] = Outcome.SKIPPED;
+				continue;
+			}
+			try {
+				Object value = commandLine.execute(Arrays.asList(commands[i]).iterator());
+				if (value != null) {
+					if (values == null) values = new Object[commands.length];
+					values[i] = value;
+				}
+				outcomes[i] = Outcome.SUCCEEDED;
+				succeeded = true;
+			} catch (CommandInterpretException | IllegalAccessException | RuntimeException e) {
+				if (causes == null) causes = new Exception[commands.length];
+				causes[i] = e;
+				outcomes[i] = Outcome.FAILED;
+				succeeded = false;
+			}
+		}
+		return new Result(this, outcomes, values, causes, succeeded);
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < commands.length; i++) {
+			if (i != 0) sb.append(' ').append(operators[i].symbol).append(' ');
+			sb.append(String.join(" ", commands[i]));
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Separates two commands, deciding whether the second executes.
+	 */
+	public enum Operator {
+		
+		/**
+		 * {@code ;}, the next command always executes.
+		 */
+		THEN(";"),
+		
+		/**
+		 * {@code &&}, the next command executes only if the last executed command succeeded.
+		 */
+		AND("&&"),
+		
+		/**
+		 * {@code ||}, the next command executes only if the last executed command failed.
+		 */
+		OR("||");
+		
+		private final String symbol;
+		
+		private Operator(String symbol) {
+			this.symbol = symbol;
+		}
+		
+		/**
+		 * @return The operator as it is written.
+		 */
+		public String getSymbol() {
+			return symbol;
+		}
+		
+		private static Operator of(CharSequence token) {
+			switch (token.charAt(0)) {
+			case '&': return AND;
+			case '|': return OR;
+			default: return THEN;
+			}
+		}
+		
+	}
+	
+	/**
+	 * What became of one command of an executed sequence.
+	 */
+	public enum Outcome {
+		
+		SUCCEEDED,
+		FAILED,
+		
+		/**
+		 * The command was not executed, because of the outcome of the command before it.
+		 */
+		SKIPPED
+		
+	}
+	
+	/**
+	 * The outcome of every command of an executed sequence, delivered once the whole sequence has executed.
+	 */
+	public static final class Result {
+		
+		private final CommandSequence sequence;
+		private final Outcome[] outcomes;
+		private final Object[] values;
+		private final Exception[] causes;
+		private final boolean successful;
+		
+		private Result(CommandSequence sequence, Outcome[] outcomes, Object[] values, Exception[] causes, boolean successful) {
+			this.sequence = sequence;
+			this.outcomes = outcomes;
+			this.values = values;
+			this.causes = causes;
+			this.successful = successful;
+		}
+		
+		/**
+		 * @return The sequence which was executed.
+		 */
+		public CommandSequence getSequence() {
+			return sequence;
+		}
+		
+		/**
+		 * @param index The index of a command.
+		 * @return Whether the command succeeded, failed or was skipped.
+		 */
+		public Outcome getOutcome(int index) {
+			return outcomes[index];
+		}
+		
+		/**
+		 * @param index The index of a command.
+		 * @return The result of the command if it is a {@link ContextCommand} which succeeded, otherwise null.
+		 */
+		public Object getValue(int index) {
+			if (index < 0 || index >= outcomes.length) return null;
+			return values != null ? values[index] : null;
+		}
+		
+		/**
+		 * @param index The index of a command.
+		 * @return The exception the command failed with, or null if it did not fail.
+		 */
+		public Exception getCause(int index) {
+			return causes != null ? causes[index] : null;
+		}
+		
+		/**
+		 * @return The outcome of each command, in order.
+		 */
+		public List<Outcome> getOutcomes() {
+			return Collections.unmodifiableList(Arrays.asList(outcomes));
+		}
+		
+		/**
+		 * @return The number of commands which executed, whether they succeeded or failed.
+		 */
+		public int getExecuted() {
+			int executed = 0;
+			for (Outcome o : outcomes) if (o != Outcome.SKIPPED) executed++;
+			return executed;
+		}
+		
+		/**
+		 * @return The number of commands which failed.
+		 */
+		public int getFailed() {
+			int failed = 0;
+			for (Outcome o : outcomes) if (o == Outcome.FAILED) failed++;
+			return failed;
+		}
+		
+		/**
+		 * @return True if the last command which executed succeeded (or none did), as the exit status of a shell, false otherwise.
+		 */
+		public boolean isSuccessful() {
+			return successful;
+		}
+		
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append(getExecuted()).append(" of ").append(outcomes.length).append(" command(s) executed, ").append(getFailed()).append(" failed");
+			for (int i = 0; i < outcomes.length; i++) {
+				if (outcomes[i] != Outcome.FAILED) continue;
+				sb.append("\r\n  ").append(String.join(" ", sequence.commands[i])).append(" (").append(causes[i].getMessage()).append(')');
+			}
+			return sb.toString();
+		}
+		
+	}
+	
+}
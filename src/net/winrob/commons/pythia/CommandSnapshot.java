@@ -0,0 +1,450 @@
+package net.winrob.commons.pythia;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+import net.winrob.commons.pythia.Command.Reusable;
+import net.winrob.commons.pythia.Command.SubCommand;
+import net.winrob.commons.pythia.CommandSpec.OptionSpec;
+import net.winrob.commons.pythia.CommandSpec.ParameterSpec;
+
+/**
+ * A file of built {@link CommandSpec}s, which a later start of the application restores instead of reflecting over every
+ * {@link Command} class, see {@link CommandLine#addCommands(Map, Path)}.
+ * <p>
+ * A snapshot holds each command class reachable from its keywords, including {@link SubCommand}s, once: its options and
+ * parameters (with the name and type of the field each populates), description, sub commands, whether it is {@link Reusable},
+ * and its help pre-rendered at {@link CommandSpec#DEFAULT_WIDTH}. Each class is recorded with a {@link Fingerprints fingerprint}
+ * of where it was loaded from, and a snapshot is only restored if the keywords name the same classes and every fingerprint still
+ * matches, so a snapshot written before a command changed is stale rather than wrong. A class whose class file cannot be found,
+ * such as one defined at runtime, never matches.
+ * <p>
+ * Restored specs defer the reflection which remains: the binder of each field and the factory of each command are resolved
+ * from the generated or reflected spec when the command is first executed, so that the commands a short-lived process never
+ * executes cost it no reflection at all.
+ * 
+ * @author Winter Roberts
+ */
+final class CommandSnapshot {
+	
+	/**
+	 * The first bytes of every snapshot ("PYS1").
+	 */
+	private static final int MAGIC = 0x50595331;
+	private static final int VERSION = 1;
+	private static final Map<String, Class<?>> PRIMITIVES = new HashMap<>();
+	
+	static {
+		for (Class<?> c : new Class<?>[] { boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class }) {
+			PRIMITIVES.put(c.getName(), c);
+		}
+	}
+	
+	private CommandSnapshot() {
+	}
+	
+	/**
+	 * Writes a snapshot of commands, replacing the file atomically where the file system allows so that a process starting
+	 * meanwhile reads either the old snapshot or the new one.
+	 * 
+	 * @param file The file.
+	 * @param commands The {@link Command} classes by keyword.
+	 * @param specs Finds the spec of a command class, or of one of its {@link SubCommand}s.
+	 * @throws IOException If the file could not be written.
+	 */
+	static void write(Path file, Map<String, Class<? extends Command>> commands, Function<Class<? extends Command>, CommandSpec> specs) throws IOException {
+		// Classes are numbered in the order they are found, so a sub command follows the class which declares it.
+		List<Class<? extends Command>> classes = new ArrayList<>();
+		List<Integer> parents = new ArrayList<>();
+		Map<Class<? extends Command>, Integer> index = new HashMap<>();
+		for (Class<? extends Command> c : commands.values()) {
+			if (index.putIfAbsent(c, classes.size()) == null) {
+				classes.add(c);
+				parents.add(-1);
+			}
+		}
+		List<CommandSpec> built = new ArrayList<>();
+		for (int i = 0; i < classes.size(); i++) {
+			CommandSpec spec = specs.apply(classes.get(i));
+			built.add(spec);
+			for (Class<? extends Command> sub : spec.getSubCommands().values()) {
+				if (index.putIfAbsent(sub, classes.size()) == null) {
+					classes.add(sub);
+					parents.add(i);
+				}
+			}
+		}
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(classes.size());
+		Fingerprints fingerprints = new Fingerprints();
+		for (int i = 0; i < classes.size(); i++) {
+			writeString(out, classes.get(i).getName());
+			out.writeInt(parents.get(i));
+			out.writeLong(fingerprints.of(classes.get(i)));
+		}
+		out.writeInt(commands.size());
+		for (Entry<String, Class<? extends Command>> e : commands.entrySet()) {
+			writeString(out, e.getKey());
+			out.writeInt(index.get(e.getValue()));
+		}
+		for (CommandSpec spec : built) {
+			out.writeBoolean(spec.isReusable());
+			writeString(out, spec.getDescription());
+			writeString(out, spec.getHelp());
+			out.writeInt(spec.getOptions().size());
+			for (OptionSpec o : spec.getOptions()) {
+				writeString(out, o.getName());
+				writeString(out, o.getAlias());
+				out.writeInt(o.getDefaults().length);
+				for (String d : o.getDefaults()) writeString(out, d);
+				writeString(out, o.getDescription());
+				out.writeBoolean(o.isUseNamed());
+				writeBinder(out, o.getBinder());
+			}
+			out.writeInt(spec.getParameters().size());
+			for (ParameterSpec p : spec.getParameters()) {
+				writeString(out, p.getName());
+				out.writeInt(p.getArity());
+				writeString(out, p.getDescription());
+				writeBinder(out, p.getBinder());
+			}
+			out.writeInt(spec.getSubCommands().size());
+			for (Entry<String, Class<? extends Command>> e : spec.getSubCommands().entrySet()) {
+				writeString(out, e.getKey());
+				out.writeInt(index.get(e.getValue()));
+			}
+		}
+		out.flush();
+		
+		Path directory = file.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		try {
+			Files.write(temporary, bytes.toByteArray());
+			try {
+				Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+	
+	private static void writeBinder(DataOutputStream out, FieldBinder binder) throws IOException {
+		writeString(out, binder.getName());
+		writeString(out, binder.getType().getName());
+		writeString(out, binder.getElementType() == null ? null : binder.getElementType().getName());
+	}
+	
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	/**
+	 * Restores the specs of a snapshot, if it was written for the same commands and none of their classes has changed since.
+	 * 
+	 * @param file The file.
+	 * @param commands The {@link Command} classes by keyword, which the snapshot must have been written for.
+	 * @param mode The {@link BindingMode} fields are bound with once the binders are resolved.
+	 * @param instantiation The {@link InstantiationStrategy} for commands without a generated factory.
+	 * @return The restored specs by class, including those of {@link SubCommand}s, or null if there is no snapshot, or it is
+	 *         corrupt or stale.
+	 * @throws IOException If the file exists but could not be read.
+	 */
+	static Map<Class<?>, CommandSpec> read(Path file, Map<String, Class<? extends Command>> commands, BindingMode mode, InstantiationStrategy instantiation)
+			throws IOException {
+		ByteBuffer in;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+		try {
+			if (in.getInt() != MAGIC || in.getInt() != VERSION) return null;
+			
+			// Every class is found and fingerprinted before any spec is decoded, so a stale snapshot is rejected early.
+			Map<String, Class<? extends Command>> byName = new HashMap<>();
+			for (Class<? extends Command> c : commands.values()) byName.put(c.getName(), c);
+			List<Class<? extends Command>> classes = new ArrayList<>();
+			Fingerprints fingerprints = new Fingerprints();
+			for (int i = 0, n = in.getInt(); i < n; i++) {
+				String name = readString(in);
+				int parent = in.getInt();
+				long fingerprint = in.getLong();
+				Class<? extends Command> c = parent < 0 ? byName.get(name) : load(name, classes.get(parent));
+				if (c == null || fingerprint == 0 || fingerprint != fingerprints.of(c)) return null;
+				classes.add(c);
+			}
+			int keywords = in.getInt();
+			if (keywords != commands.size()) return null;
+			for (int i = 0; i < keywords; i++) {
+				if (commands.get(readString(in)) != classes.get(in.getInt())) return null;
+			}
+			
+			Map<Class<?>, CommandSpec> specs = new HashMap<>();
+			Map<ClassLoader, Map<String, Class<?>>> types = new HashMap<>();
+			for (Class<? extends Command> c : classes) {
+				Map<String, Class<?>> known = types.computeIfAbsent(c.getClassLoader(), l -> new HashMap<>(PRIMITIVES));
+				specs.put(c, readSpec(in, c, classes, known, new Deferred(c, mode, instantiation)));
+			}
+			return specs;
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | ClassNotFoundException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+	
+	private static CommandSpec readSpec(ByteBuffer in, Class<? extends Command> command, List<Class<? extends Command>> classes,
+			Map<String, Class<?>> types, Deferred deferred) throws ClassNotFoundException {
+		boolean reusable = in.get() != 0;
+		String description = readString(in);
+		String help = readString(in);
+		OptionSpec[] options = new OptionSpec[in.getInt()];
+		for (int i = 0; i < options.length; i++) {
+			String name = readString(in);
+			String alias = readString(in);
+			String[] defaults = new String[in.getInt()];
+			for (int d = 0; d < defaults.length; d++) defaults[d] = readString(in);
+			String optionDescription = readString(in);
+			boolean useNamed = in.get() != 0;
+			options[i] = new OptionSpec(name, alias, defaults, optionDescription, useNamed, readBinder(in, command, types, deferred));
+		}
+		ParameterSpec[] parameters = new ParameterSpec[in.getInt()];
+		for (int i = 0; i < parameters.length; i++) {
+			String name = readString(in);
+			int arity = in.getInt();
+			String parameterDescription = readString(in);
+			parameters[i] = new ParameterSpec(name, arity, parameterDescription, readBinder(in, command, types, deferred));
+		}
+		Map<String, Class<? extends Command>> subCommands = new LinkedHashMap<>();
+		for (int i = 0, n = in.getInt(); i < n; i++) {
+			subCommands.put(readString(in), classes.get(in.getInt()));
+		}
+		return new CommandSpec(command, description, options, parameters, subCommands, help, deferred::newInstance, reusable);
+	}
+	
+	private static FieldBinder readBinder(ByteBuffer in, Class<? extends Command> command, Map<String, Class<?>> types, Deferred deferred)
+			throws ClassNotFoundException {
+		String name = readString(in);
+		Class<?> type = type(readString(in), command, types);
+		String element = readString(in);
+		return new DeferredBinder(name, type, element == null ? null : type(element, command, types), deferred);
+	}
+	
+	private static String readString(ByteBuffer in) {
+		int length = in.getInt();
+		if (length < 0) return null;
+		if (length > in.remaining()) throw new BufferUnderflowException();
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * @param types The types already found through the class loader of the command, starting with the primitive types.
+	 */
+	private static Class<?> type(String name, Class<?> command, Map<String, Class<?>> types) throws ClassNotFoundException {
+		Class<?> type = types.get(name);
+		if (type == null) types.put(name, type = Class.forName(name, false, command.getClassLoader()));
+		return type;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static Class<? extends Command> load(String name, Class<?> parent) throws ClassNotFoundException {
+		Class<?> c = Class.forName(name, false, parent.getClassLoader());
+		return Command.class.isAssignableFrom(c) ? (Class<? extends Command>) c : null;
+	}
+	
+	/**
+	 * Fingerprints classes by where they were loaded from, without reading them: a class from an archive by the size and
+	 * modification time of the archive, which are read once for all of its classes, and a class from a directory by those of its
+	 * class file. Rebuilding an archive makes its classes stale even if they are unchanged, which costs one start the reflection
+	 * the snapshot would have saved. A class whose location is unknown is fingerprinted by the contents of its class file.
+	 */
+	static final class Fingerprints {
+		
+		private final Map<Path, Long> archives = new HashMap<>();
+		
+		/**
+		 * @param c The class.
+		 * @return The fingerprint, or 0 if the class file could not be found.
+		 */
+		long of(Class<?> c) {
+			Path location = location(c);
+			if (location == null) return contents(c);
+			try {
+				if (Files.isDirectory(location)) return attributes(location.resolve(c.getName().replace('.', '/') + ".class"));
+				Long f = archives.get(location);
+				if (f == null) archives.put(location, f = attributes(location));
+				return f;
+			} catch (IOException e) {
+				return 0;
+			}
+		}
+		
+		private static Path location(Class<?> c) {
+			CodeSource source = c.getProtectionDomain().getCodeSource();
+			URL url = source == null ? null : source.getLocation();
+			if (url == null || !"file".equals(url.getProtocol())) return null;
+			try {
+				return Paths.get(url.toURI());
+			} catch (URISyntaxException | IllegalArgumentException e) {
+				return null;
+			}
+		}
+		
+		private static long attributes(Path file) throws IOException {
+			BasicFileAttributes a = Files.readAttributes(file, BasicFileAttributes.class);
+			return a.lastModifiedTime().toMillis() * 31 + a.size();
+		}
+		
+		/**
+		 * Reads the class file through the class, so that classes of named modules are found.
+		 * 
+		 * @return The length of the class file in the high bits and its CRC-32C in the low bits, or 0 if it could not be read.
+		 */
+		private static long contents(Class<?> c) {
+			try (InputStream in = c.getResourceAsStream("/" + c.getName().replace('.', '/') + ".class")) {
+				if (in == null) return 0;
+				byte[] bytes = in.readAllBytes();
+				CRC32C crc = new CRC32C();
+				crc.update(bytes, 0, bytes.length);
+				return (long) bytes.length << 32 | crc.getValue();
+			} catch (IOException e) {
+				return 0;
+			}
+		}
+		
+	}
+	
+	/**
+	 * What a restored spec resolves when its command is first executed: the generated or reflected spec, whose binders and
+	 * factory are used from then on.
+	 */
+	private static final class Deferred {
+		
+		private final Class<? extends Command> command;
+		private final BindingMode mode;
+		private final InstantiationStrategy instantiation;
+		private volatile CommandSpec spec;
+		private volatile Supplier<? extends Command> factory;
+		
+		private Deferred(Class<? extends Command> command, BindingMode mode, InstantiationStrategy instantiation) {
+			this.command = command;
+			this.mode = mode;
+			this.instantiation = instantiation;
+		}
+		
+		private CommandSpec spec() {
+			CommandSpec s = spec;
+			if (s == null) spec = s = CommandSpec.of(command, mode);
+			return s;
+		}
+		
+		private FieldBinder binder(String name) {
+			CommandSpec s = spec();
+			for (OptionSpec o : s.getOptions()) {
+				if (o.getBinder().getName().equals(name)) return o.getBinder();
+			}
+			for (ParameterSpec p : s.getParameters()) {
+				if (p.getBinder().getName().equals(name)) return p.getBinder();
+			}
+			throw new IllegalStateException("Field '" + name + "' not found in " + command.getName());
+		}
+		
+		private Command newInstance() {
+			Supplier<? extends Command> f = factory;
+			if (f == null) {
+				f = spec().getFactory();
+				if (f == null) f = instantiation.factory(command);
+				if (f == null) throw new IllegalStateException("Command " + command.getName() + " cannot be instantiated");
+				factory = f;
+			}
+			return f.get();
+		}
+		
+	}
+	
+	/**
+	 * A binder whose type is known from the snapshot, and which resolves the binder that writes its field when first used.
+	 */
+	private static final class DeferredBinder extends FieldBinder {
+		
+		private final Deferred deferred;
+		private volatile FieldBinder target;
+		
+		private DeferredBinder(String name, Class<?> type, Class<?> elementType, Deferred deferred) {
+			super(name, type, elementType);
+			this.deferred = deferred;
+		}
+		
+		private FieldBinder target() {
+			FieldBinder t = target;
+			if (t == null) target = t = deferred.binder(name);
+			return t;
+		}
+		
+		@Override
+		public void set(Command command, Object value) throws IllegalAccessException {
+			target().set(command, value);
+		}
+		
+		@Override
+		public void setInt(Command command, int value) throws IllegalAccessException {
+			target().setInt(command, value);
+		}
+		
+		@Override
+		public void setLong(Command command, long value) throws IllegalAccessException {
+			target().setLong(command, value);
+		}
+		
+		@Override
+		public void setDouble(Command command, double value) throws IllegalAccessException {
+			target().setDouble(command, value);
+		}
+		
+		@Override
+		public void setBoolean(Command command, boolean value) throws IllegalAccessException {
+			target().setBoolean(command, value);
+		}
+		
+	}
+	
+}
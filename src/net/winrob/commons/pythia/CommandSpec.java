@@ -0,0 +1,488 @@
+package net.winrob.commons.pythia;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import net.winrob.commons.pythia.Command.Description;
+import net.winrob.commons.pythia.Command.Option;
+import net.winrob.commons.pythia.Command.Parameter;
+import net.winrob.commons.pythia.Command.Reusable;
+import net.winrob.commons.pythia.Command.SubCommand;
+
+/**
+ * The definition of a {@link Command} class: its {@link Option}s, {@link Parameter}s, {@link SubCommand}s and {@link Description}.
+ * A spec is either generated at compile time by the Pythia annotation processor or built by reflecting over the class.
+ * 
+ * @author Winter Roberts
+ */
+public final class CommandSpec {
+	
+	/**
+	 * The number of columns help dialogs are wrapped to unless another width is given.
+	 */
+	public static final int DEFAULT_WIDTH = 72;
+	
+	private static final String HELP_INDENT = "              ";
+	private static final int MIN_WRAP = 20;
+	
+	private final Class<? extends Command> command;
+	private final String description;
+	private final List<OptionSpec> options;
+	private final List<ParameterSpec> parameters;
+	private final Map<String, Class<? extends Command>> subCommands;
+	private final Supplier<? extends Command> factory;
+	
+	private final List<OptionSpec> sortedOptions;
+	
+	private volatile String help;
+	private volatile SizedHelp sizedHelp;
+	private volatile Boolean reusable;
+	
+	/**
+	 * @param command The {@link Command} class this spec defines.
+	 * @param description The {@link Description} of the command, or null.
+	 * @param options The {@link Option}s of the command.
+	 * @param parameters The {@link Parameter}s of the command, in any order.
+	 * @param subCommands The {@link SubCommand} classes by keyword, in declaration order.
+	 * @param help The pre-rendered help dialog (without the leading keyword), or null if it should be rendered when first needed.
+	 */
+	public CommandSpec(Class<? extends Command> command, String description, OptionSpec[] options, ParameterSpec[] parameters,
+			Map<String, Class<? extends Command>> subCommands, String help) {
+		this(command, description, options, parameters, subCommands, help, null);
+	}
+	
+	/**
+	 * @param command The {@link Command} class this spec defines.
+	 * @param description The {@link Description} of the command, or null.
+	 * @param options The {@link Option}s of the command.
+	 * @param parameters The {@link Parameter}s of the command, in any order.
+	 * @param subCommands The {@link SubCommand} classes by keyword, in declaration order.
+	 * @param help The pre-rendered help dialog (without the leading keyword), or null if it should be rendered when first needed.
+	 * @param factory Creates new instances of the command (such as a reference to its constructor), or null if they should be
+	 *        created by the {@link InstantiationStrategy} of the {@link CommandLine}.
+	 */
+	public CommandSpec(Class<? extends Command> command, String description, OptionSpec[] options, ParameterSpec[] parameters,
+			Map<String, Class<? extends Command>> subCommands, String help, Supplier<? extends Command> factory) {
+		this(command, description, options, parameters, subCommands, help, factory, null);
+	}
+	
+	/**
+	 * @param reusable Whether the command is {@link Reusable}, or null if its annotations should be read when first needed.
+	 */
+	CommandSpec(Class<? extends Command> command, String description, OptionSpec[] options, ParameterSpec[] parameters,
+			Map<String, Class<? extends Command>> subCommands, String help, Supplier<? extends Command> factory, Boolean reusable) {
+		this.command = command;
+		this.description = description;
+		this.options = Collections.unmodifiableList(Arrays.asList(options));
+		ParameterSpec[] sorted = parameters.clone();
+		Arrays.sort(sorted, Comparator.comparingInt(ParameterSpec::getArity));
+		for (int i = 0; i < sorted.length - 1; i++) {
+			if (sorted[i].isVariadic()) throw new IllegalArgumentException("Parameter '" + sorted[i].getName() + "' of " + command.getName()
+					+ " takes the remaining arguments, so it must have the highest arity");
+		}
+		this.parameters = Collections.unmodifiableList(Arrays.asList(sorted));
+		this.subCommands = Collections.unmodifiableMap(new LinkedHashMap<>(subCommands));
+		List<OptionSpec> byAlias = new ArrayList<>(this.options);
+		byAlias.sort(Comparator.comparing(OptionSpec::getAlias));
+		this.sortedOptions = byAlias;
+		this.help = help;
+		this.factory = factory;
+		this.reusable = reusable;
+	}
+	
+	/**
+	 * Finds the spec for a {@link Command} class. In {@link BindingMode#GENERATED} mode the spec generated at compile time is
+	 * preferred, otherwise (or if there is none) the class is reflected over, so that an explicitly chosen mode binds every field.
+	 * 
+	 * @param command The {@link Command} class.
+	 * @param mode The {@link BindingMode} used to bind the fields.
+	 * @return The spec for the class.
+	 * @throws RuntimeException If two {@link Parameter}s share an arity.
+	 */
+	public static CommandSpec of(Class<? extends Command> command, BindingMode mode) {
+		if (mode == BindingMode.GENERATED) {
+			CommandSpec generated = CommandSpecRegistry.lookup(command, BindingMode.COMPILED);
+			if (generated != null) return generated;
+		}
+		return reflect(command, mode);
+	}
+	
+	/**
+	 * Builds the spec for a {@link Command} class by reflecting over its declared fields and annotations.
+	 * 
+	 * @param command The {@link Command} class.
+	 * @param mode The {@link BindingMode} used to bind the fields.
+	 * @return The spec for the class.
+	 * @throws RuntimeException If two {@link Parameter}s share an arity.
+	 */
+	public static CommandSpec reflect(Class<? extends Command> command, BindingMode mode) {
+		Map<String, Class<? extends Command>> subCommands = new LinkedHashMap<>();
+		for (SubCommand sc : command.getAnnotationsByType(SubCommand.class)) {
+			subCommands.put(sc.keyword(), sc.command());
+		}
+		
+		List<OptionSpec> options = new ArrayList<>();
+		Map<Integer, Field> arities = new LinkedHashMap<>();
+		List<ParameterSpec> parameters = new ArrayList<>();
+		for (Field f : command.getDeclaredFields()) {
+			if (f.isAnnotationPresent(Parameter.class)) {
+				Parameter p = f.getAnnotation(Parameter.class);
+				Field other = arities.putIfAbsent(p.arity(), f);
+				if (other != null) {
+					String arityErr = String.format(
+							"Arity (%d) overloaded, usage by fields %s (%s) and %s (%s)",
+							p.arity(), f.getName(), f.getType().getTypeName(), other.getName(), other.getType().getTypeName());
+					throw new RuntimeException(arityErr);
+				}
+				f.setAccessible(true);
+				parameters.add(new ParameterSpec(p.name(), p.arity(), p.description(), FieldBinder.of(f, mode)));
+			} else if (f.isAnnotationPresent(Option.class)) {
+				Option o = f.getAnnotation(Option.class);
+				f.setAccessible(true);
+				options.add(new OptionSpec(o.name(), o.alias(), o.default_(), o.description(), o.useNamed(), FieldBinder.of(f, mode)));
+			}
+		}
+		
+		Description[] d = command.getAnnotationsByType(Description.class);
+		String description = d != null && d.length != 0 ? d[d.length - 1].description() : null;
+		
+		return new CommandSpec(command, description, options.toArray(new OptionSpec[0]), parameters.toArray(new ParameterSpec[0]), subCommands, null);
+	}
+	
+	/**
+	 * @return The {@link Command} class this spec defines.
+	 */
+	public Class<? extends Command> getCommand() {
+		return command;
+	}
+	
+	/**
+	 * @return The {@link Description} of the command, or null if it has none.
+	 */
+	public String getDescription() {
+		return description;
+	}
+	
+	/**
+	 * @return The {@link Option}s of the command, in declaration order.
+	 */
+	public List<OptionSpec> getOptions() {
+		return options;
+	}
+	
+	/**
+	 * @return The {@link Parameter}s of the command, ordered by arity.
+	 */
+	public List<ParameterSpec> getParameters() {
+		return parameters;
+	}
+	
+	/**
+	 * @return The {@link SubCommand} classes by keyword, in declaration order.
+	 */
+	public Map<String, Class<? extends Command>> getSubCommands() {
+		return subCommands;
+	}
+	
+	/**
+	 * @return The factory which creates new instances of the command, or null if none was generated.
+	 */
+	public Supplier<? extends Command> getFactory() {
+		return factory;
+	}
+	
+	/**
+	 * @return True if the command is {@link Reusable}, false otherwise.
+	 */
+	boolean isReusable() {
+		Boolean r = reusable;
+		if (r == null) reusable = r = command.isAnnotationPresent(Reusable.class);
+		return r;
+	}
+	
+	/**
+	 * Gets the help dialog for the command, which should follow the keyword that invokes it.
+	 * 
+	 * @return The help dialog at {@link #DEFAULT_WIDTH}, rendered when first requested unless it was pre-rendered.
+	 */
+	public String getHelp() {
+		String h = help;
+		if (h == null) help = h = renderHelp();
+		return h;
+	}
+	
+	/**
+	 * Gets the help dialog for the command wrapped to a width, which should follow the keyword that invokes it.
+	 * The dialog for the most recently requested width other than {@link #DEFAULT_WIDTH} is kept.
+	 * 
+	 * @param width The number of columns lines are wrapped to.
+	 * @return The help dialog.
+	 */
+	public String getHelp(int width) {
+		if (width == DEFAULT_WIDTH) return getHelp();
+		SizedHelp h = sizedHelp;
+		if (h == null || h.width != width) sizedHelp = h = new SizedHelp(width, renderHelp(width));
+		return h.text;
+	}
+	
+	/**
+	 * Builds the help dialog for the command at {@link #DEFAULT_WIDTH}, without the keyword that invokes it.
+	 * 
+	 * @return The rendered help dialog.
+	 */
+	public String renderHelp() {
+		return renderHelp(DEFAULT_WIDTH);
+	}
+	
+	/**
+	 * Builds the help dialog for the command, without the keyword that invokes it.
+	 * 
+	 * @param width The number of columns lines are wrapped to.
+	 * @return The rendered help dialog.
+	 */
+	public String renderHelp(int width) {
+		StringBuilder builder = new StringBuilder(256);
+		try {
+			writeHelp(builder, width);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * Writes the help dialog for the command, without the keyword that invokes it, in a single pass over its descriptions.
+	 * 
+	 * @param out The output the dialog is appended to.
+	 * @param width The number of columns lines are wrapped to.
+	 * @throws IOException If the output could not be appended to.
+	 */
+	public void writeHelp(Appendable out, int width) throws IOException {
+		// Flags with a single character alias may be clustered, so they are shown together.
+		boolean clustered = false;
+		for (OptionSpec o : sortedOptions) {
+			if (!isClustered(o)) continue;
+			out.append(clustered ? "" : " [-").append(o.getAlias());
+			clustered = true;
+		}
+		if (clustered) out.append(']');
+		for (OptionSpec o : sortedOptions) {
+			if (isClustered(o)) continue;
+			out.append(" [-").append(o.getAlias());
+			if (!o.isFlag()) out.append(" <").append(o.getName()).append('>');
+			out.append(']');
+		}
+		
+		for (ParameterSpec p : parameters) {
+			out.append(" <").append(p.getName()).append(p.isVariadic() ? "...>" : ">");
+		}
+		if (description != null) {
+			out.append("\r\n");
+			out.append("  ");
+			wrapText(out, description, "  ", Math.max(MIN_WRAP, width - 2));
+			out.append("\r\n");
+		}
+		
+		out.append("\r\n");
+		
+		int wrapLength = Math.max(MIN_WRAP, width - HELP_INDENT.length());
+		if (!sortedOptions.isEmpty()) {
+			out.append("  OPTIONS:\r\n");
+			for (OptionSpec o : sortedOptions) {
+				out.append("    -");
+				pad(out, o.getAlias(), HELP_INDENT.length() - 5);
+				wrapText(out, o.getDescription(), HELP_INDENT, wrapLength);
+				out.append("\r\n");
+			}
+		}
+		
+		if (!parameters.isEmpty()) {
+			out.append("  PARAMETERS:\r\n");
+			for (ParameterSpec p : parameters) {
+				out.append("    ");
+				pad(out, p.getName(), HELP_INDENT.length() - 4);
+				wrapText(out, p.getDescription(), HELP_INDENT, wrapLength);
+				out.append("\r\n");
+			}
+		}
+	}
+	
+	private static boolean isClustered(OptionSpec o) {
+		return o.isFlag() && o.getAlias().length() == 1;
+	}
+	
+	/**
+	 * Appends text left-justified in a column of the given width.
+	 */
+	private static void pad(Appendable out, String text, int column) throws IOException {
+		out.append(text);
+		for (int i = text.length(); i < column; i++) out.append(' ');
+	}
+	
+	/**
+	 * Appends word-wrapped text in a single pass, breaking lines at spaces.
+	 * If a word exceeds the line's wrap length, it is placed on a line of its own.
+	 * 
+	 * @param out The output the text is appended to.
+	 * @param text The text that should be word-wrapped.
+	 * @param wrapStart The blank spaces which should occur before each wrapped line.
+	 * @param wrapLength The maximum length of a line before word-wrapping should occur.
+	 * @throws IOException If the output could not be appended to.
+	 */
+	static void wrapText(Appendable out, String text, String wrapStart, int wrapLength) throws IOException {
+		int length = text.length();
+		int column = 0;
+		int start = 0;
+		while (start < length) {
+			int end = text.indexOf(' ', start);
+			if (end < 0) end = length;
+			if (column > 0 && column + 1 + end - start > wrapLength) {
+				out.append("\r\n").append(wrapStart);
+				column = 0;
+			} else if (start > 0) {
+				out.append(' ');
+				column++;
+			}
+			out.append(text, start, end);
+			column += end - start;
+			start = end + 1;
+		}
+	}
+	
+	/**
+	 * A help dialog rendered for a width other than the default.
+	 */
+	private static final class SizedHelp {
+		
+		private final int width;
+		private final String text;
+		
+		private SizedHelp(int width, String text) {
+			this.width = width;
+			this.text = text;
+		}
+		
+	}
+	
+	/**
+	 * The definition of a single {@link Option} and the field it populates.
+	 */
+	public static final class OptionSpec {
+		
+		private final String name;
+		private final String alias;
+		private final String[] defaults;
+		private final String description;
+		private final boolean useNamed;
+		private final FieldBinder binder;
+		
+		/**
+		 * @param name The name of the option.
+		 * @param alias The alias of the option.
+		 * @param defaults The default argument(s) of the option, empty if the option is required.
+		 * @param description The description of the option.
+		 * @param useNamed True if the option may also be used by its name.
+		 * @param binder The {@link FieldBinder} for the option's field, or null if the spec is only used for help.
+		 */
+		public OptionSpec(String name, String alias, String[] defaults, String description, boolean useNamed, FieldBinder binder) {
+			this.name = name;
+			this.alias = alias;
+			this.defaults = defaults;
+			this.description = description;
+			this.useNamed = useNamed;
+			this.binder = binder;
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public String getAlias() {
+			return alias;
+		}
+		
+		/**
+		 * @return The default argument(s) of the option, empty if the option is required.
+		 */
+		public String[] getDefaults() {
+			return defaults;
+		}
+		
+		public String getDescription() {
+			return description;
+		}
+		
+		public boolean isUseNamed() {
+			return useNamed;
+		}
+		
+		public FieldBinder getBinder() {
+			return binder;
+		}
+		
+		/**
+		 * @return True if the option is a flag, which is set by its alias alone and may be clustered with others (e.g. "-vd"), false if it takes an argument.
+		 */
+		public boolean isFlag() {
+			return binder != null && (binder.getKind() == FieldBinder.Kind.BOOLEAN || binder.getType().isAssignableFrom(Boolean.class));
+		}
+		
+	}
+	
+	/**
+	 * The definition of a single {@link Parameter} and the field it populates.
+	 */
+	public static final class ParameterSpec {
+		
+		private final String name;
+		private final int arity;
+		private final String description;
+		private final FieldBinder binder;
+		
+		/**
+		 * @param name The name of the parameter.
+		 * @param arity The arity (position) of the parameter.
+		 * @param description The description of the parameter.
+		 * @param binder The {@link FieldBinder} for the parameter's field, or null if the spec is only used for help.
+		 */
+		public ParameterSpec(String name, int arity, String description, FieldBinder binder) {
+			this.name = name;
+			this.arity = arity;
+			this.description = description;
+			this.binder = binder;
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public int getArity() {
+			return arity;
+		}
+		
+		public String getDescription() {
+			return description;
+		}
+		
+		public FieldBinder getBinder() {
+			return binder;
+		}
+		
+		/**
+		 * @return True if the parameter takes every remaining argument, see {@link FieldBinder#isVariadic()}.
+		 */
+		public boolean isVariadic() {
+			return binder != null && binder.isVariadic();
+		}
+		
+	}
+
+}
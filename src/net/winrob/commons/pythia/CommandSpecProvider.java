@@ -0,0 +1,18 @@
+package net.winrob.commons.pythia;
+
+/**
+ * Provides {@link CommandSpec}s built at compile time, discovered through {@link java.util.ServiceLoader}.
+ * Implementations are generated by the Pythia annotation processor, one for each package containing {@link Command}s.
+ * 
+ * @author Winter Roberts
+ */
+public interface CommandSpecProvider {
+	
+	/**
+	 * Registers the spec factory of every {@link Command} this provider knows.
+	 * 
+	 * @param registry The registry which should receive the specs.
+	 */
+	public void registerSpecs(CommandSpecRegistry registry);
+
+}
@@ -0,0 +1,63 @@
+package net.winrob.commons.pythia;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.function.Function;
+
+/**
+ * The static registry of {@link CommandSpec}s generated at compile time, loaded once from every {@link CommandSpecProvider}.
+ * 
+ * @author Winter Roberts
+ */
+public final class CommandSpecRegistry {
+	
+	/**
+	 * The system property which, when "false", disables lookup of generated specs so that every {@link Command} is reflected.
+	 */
+	public static final String PROPERTY = "pythia.generated";
+	
+	private final Map<Class<? extends Command>, Function<BindingMode, CommandSpec>> specs = new HashMap<>();
+	
+	private CommandSpecRegistry() {
+	}
+	
+	/**
+	 * Registers the spec factory for a {@link Command} class.
+	 * 
+	 * @param command The {@link Command} class.
+	 * @param spec Creates the {@link CommandSpec} of the class, given the {@link BindingMode} for any non-generated field binding.
+	 */
+	public void register(Class<? extends Command> command, Function<BindingMode, CommandSpec> spec) {
+		specs.put(command, spec);
+	}
+	
+	/**
+	 * Finds the generated spec for a {@link Command} class.
+	 * 
+	 * @param command The {@link Command} class.
+	 * @param mode The {@link BindingMode} for any field which the generated code could not bind directly.
+	 * @return The generated {@link CommandSpec}, or null if none was generated for the class.
+	 */
+	public static CommandSpec lookup(Class<? extends Command> command, BindingMode mode) {
+		Function<BindingMode, CommandSpec> spec = Holder.INSTANCE.specs.get(command);
+		return spec == null ? null : spec.apply(mode);
+	}
+	
+	private static class Holder {
+		
+		private static final CommandSpecRegistry INSTANCE = load();
+		
+		private static CommandSpecRegistry load() {
+			CommandSpecRegistry registry = new CommandSpecRegistry();
+			if (!"false".equalsIgnoreCase(System.getProperty(PROPERTY))) {
+				for (CommandSpecProvider provider : ServiceLoader.load(CommandSpecProvider.class)) {
+					provider.registerSpecs(registry);
+				}
+			}
+			return registry;
+		}
+		
+	}
+
+}
@@ -0,0 +1,113 @@
+package net.winrob.commons.pythia;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the {@link CommandMetrics} of one command: how often it ran, how often it failed and why, and how long it took.
+ * Latencies are of the whole execution (dispatch, binding and {@link Command#execute()}), and are accurate to within 12.5%.
+ * 
+ * @author Winter Roberts
+ */
+public final class CommandStats {
+	
+	private final String keyword;
+	private final long executions;
+	private final long failures;
+	private final Map<String, Long> errors;
+	private final long meanNanos;
+	private final long p50Nanos;
+	private final long p90Nanos;
+	private final long p99Nanos;
+	private final long maxNanos;
+	private final long meanExecuteNanos;
+	
+	CommandStats(String keyword, long executions, long failures, Map<String, Long> errors, long meanNanos, long p50Nanos,
+			long p90Nanos, long p99Nanos, long maxNanos, long meanExecuteNanos) {
+		this.keyword = keyword;
+		this.executions = executions;
+		this.failures = failures;
+		this.errors = Collections.unmodifiableMap(errors);
+		this.meanNanos = meanNanos;
+		this.p50Nanos = p50Nanos;
+		this.p90Nanos = p90Nanos;
+		this.p99Nanos = p99Nanos;
+		this.maxNanos = maxNanos;
+		this.meanExecuteNanos = meanExecuteNanos;
+	}
+	
+	/**
+	 * @return The keyword of the command, or null for inputs which named no command.
+	 */
+	public String getKeyword() {
+		return keyword;
+	}
+	
+	/**
+	 * @return The number of executions, whether they succeeded or failed.
+	 */
+	public long getExecutions() {
+		return executions;
+	}
+	
+	/**
+	 * @return The number of failed executions.
+	 */
+	public long getFailures() {
+		return failures;
+	}
+	
+	/**
+	 * @return The number of failures by cause: the {@link InterpretFailure} of a {@link CommandLine.CommandInterpretException},
+	 * otherwise the simple name of the exception's class.
+	 */
+	public Map<String, Long> getErrors() {
+		return errors;
+	}
+	
+	public long getMeanNanos() {
+		return meanNanos;
+	}
+	
+	public long getP50Nanos() {
+		return p50Nanos;
+	}
+	
+	public long getP90Nanos() {
+		return p90Nanos;
+	}
+	
+	public long getP99Nanos() {
+		return p99Nanos;
+	}
+	
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+	
+	/**
+	 * @return The mean time taken by {@link Command#execute()} alone, in successful executions.
+	 */
+	public long getMeanExecuteNanos() {
+		return meanExecuteNanos;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%-20s %10d %8d %10s %10s %10s %10s", keyword == null ? "(unknown)" : keyword, executions, failures,
+				format(meanNanos), format(p50Nanos), format(p99Nanos), format(maxNanos));
+	}
+	
+	/**
+	 * @param nanos A duration.
+	 * @return The duration in the largest unit which keeps it at least 1, e.g. "1.25ms".
+	 */
+	static String format(long nanos) {
+		if (nanos < TimeUnit.MICROSECONDS.toNanos(1)) return nanos + "ns";
+		if (nanos < TimeUnit.MILLISECONDS.toNanos(1)) return String.format("%.2fus", nanos / 1e3);
+		if (nanos < TimeUnit.SECONDS.toNanos(1)) return String.format("%.2fms", nanos / 1e6);
+		return String.format("%.2fs", nanos / 1e9);
+	}
+	
+}
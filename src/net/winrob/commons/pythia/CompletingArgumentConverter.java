@@ -0,0 +1,67 @@
+package net.winrob.commons.pythia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An {@link ArgumentConverter} which can suggest the arguments it accepts, so that they are offered by
+ * {@link CommandLine#complete(CharSequence, int)} for the options and parameters it converts.
+ * 
+ * @author Winter Roberts
+ * 
+ * @param <T> The type an argument should be converted to.
+ */
+public interface CompletingArgumentConverter<T> extends ArgumentConverter<T> {
+	
+	/**
+	 * Suggests the arguments which begin with a prefix. Completion may be requested at every keystroke, so a converter with many
+	 * arguments should find them in a sorted or indexed form rather than by scanning each of them.
+	 * <p>
+	 * If there are more arguments than the limit, those returned must be the first in lexicographic order, and the rest are
+	 * accounted for by {@link #count(String)} and {@link #commonPrefix(String)}, so that they are neither lost from the count nor
+	 * completed past.
+	 * 
+	 * @param prefix The argument typed so far, which may be empty.
+	 * @param limit The maximum number of arguments which will be offered, beyond which more may be returned but are ignored.
+	 * @return The first arguments beginning with the prefix, in any order.
+	 */
+	public List<String> complete(String prefix, int limit);
+	
+	/**
+	 * Counts the arguments which begin with a prefix, which is only asked for when {@link #complete(String, int)} reached its
+	 * limit. By default every argument is found with {@link #complete(String, int)}.
+	 * 
+	 * @param prefix The argument typed so far, which may be empty.
+	 * @return The number of arguments beginning with the prefix, including those beyond any limit.
+	 */
+	public default int count(String prefix) {
+		return complete(prefix, Integer.MAX_VALUE).size();
+	}
+	
+	/**
+	 * Extends a prefix for as long as every argument which begins with it agrees, which is only asked for when
+	 * {@link #complete(String, int)} reached its limit. By default every argument is found with {@link #complete(String, int)}.
+	 * 
+	 * @param prefix The argument typed so far, which may be empty.
+	 * @return The longest prefix shared by every argument beginning with the prefix, or the prefix if there are none.
+	 */
+	public default String commonPrefix(String prefix) {
+		List<String> found = new ArrayList<>(complete(prefix, Integer.MAX_VALUE));
+		found.removeIf(s -> !s.startsWith(prefix));
+		if (found.isEmpty()) return prefix;
+		return shared(Collections.min(found), Collections.max(found));
+	}
+	
+	/**
+	 * @param first The first of sorted arguments.
+	 * @param last The last of the sorted arguments.
+	 * @return The longest prefix of the first and last arguments, which every argument between them shares.
+	 */
+	static String shared(String first, String last) {
+		int n = 0;
+		while (n < Math.min(first.length(), last.length()) && first.charAt(n) == last.charAt(n)) n++;
+		return first.substring(0, n);
+	}
+	
+}
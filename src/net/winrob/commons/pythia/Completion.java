@@ -0,0 +1,205 @@
+package net.winrob.commons.pythia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.winrob.commons.pythia.Diagnostic.Expected;
+
+/**
+ * The candidates for the word being typed at the cursor of a line, found by {@link CommandLine#complete(CharSequence, int)}.
+ * A front end replaces the characters from {@link #getStart()} to {@link #getEnd()} with a candidate
+ * ({@link Tokenizer#escape(CharSequence) escaped}), or with the {@link #getCommonPrefix() common prefix} of every candidate.
+ * 
+ * @author Winter Roberts
+ */
+public final class Completion {
+	
+	private final int start;
+	private final int end;
+	private final String word;
+	private final Expected expected;
+	private final List<String> candidates;
+	private final int count;
+	private final String commonPrefix;
+	
+	private Completion(int start, int end, String word, Expected expected, List<String> candidates, int count, String commonPrefix) {
+		this.start = start;
+		this.end = end;
+		this.word = word;
+		this.expected = expected;
+		this.candidates = candidates;
+		this.count = count;
+		this.commonPrefix = commonPrefix;
+	}
+	
+	/**
+	 * @return The index in the line of the first character of the word being completed, which is the cursor if the word is empty.
+	 */
+	public int getStart() {
+		return start;
+	}
+	
+	/**
+	 * @return The index of the cursor.
+	 */
+	public int getEnd() {
+		return end;
+	}
+	
+	/**
+	 * @return The word typed so far, as it is tokenized (without quotes or escapes).
+	 */
+	public String getWord() {
+		return word;
+	}
+	
+	/**
+	 * @return What the word is, such as the keyword of a command or the value of an option, or null if nothing is expected there.
+	 */
+	public Expected getExpected() {
+		return expected;
+	}
+	
+	/**
+	 * @return The candidates, in lexicographic order, of which there are at most the limit of the completion.
+	 */
+	public List<String> getCandidates() {
+		return candidates;
+	}
+	
+	/**
+	 * @return The number of candidates there were, which may exceed the number returned if they were limited.
+	 */
+	public int getCount() {
+		return count;
+	}
+	
+	/**
+	 * @return The longest prefix shared by every candidate, which is the word if there are no candidates.
+	 */
+	public String getCommonPrefix() {
+		return commonPrefix;
+	}
+	
+	/**
+	 * @return True if there are no candidates, false otherwise.
+	 */
+	public boolean isEmpty() {
+		return count == 0;
+	}
+	
+	@Override
+	public String toString() {
+		return word + " -> " + candidates + (count > candidates.size() ? " (" + count + ")" : "");
+	}
+	
+	/**
+	 * Gathers the candidates for a word from the sources which may complete it, each of which is already sorted.
+	 */
+	static final class Builder {
+		
+		private final int start;
+		private final int end;
+		private final String word;
+		private final int limit;
+		private Expected expected;
+		private List<String> candidates = Collections.emptyList();
+		private int count;
+		private boolean merged;
+		private String commonPrefix;
+		
+		/**
+		 * @param start The index of the first character of the word being completed.
+		 * @param end The index of the cursor.
+		 * @param word The word typed so far.
+		 * @param limit The maximum number of candidates.
+		 */
+		Builder(int start, int end, String word, int limit) {
+			this.start = start;
+			this.end = end;
+			this.word = word;
+			this.limit = limit;
+		}
+		
+		/**
+		 * Adds the keywords of a trie which complete the word, without visiting the keywords beyond the limit.
+		 * 
+		 * @param trie The keywords (or option keys).
+		 * @param typed The word, less the prefix it is shown with.
+		 * @param prefix The prefix each keyword is shown with, such as "-" for an option key.
+		 * @param expected What the keywords are.
+		 * @return This builder.
+		 */
+		Builder add(KeywordTrie<?> trie, String typed, String prefix, Expected expected) {
+			int n = trie.countWithPrefix(typed);
+			if (n == 0) return this;
+			List<String> keys = trie.keysWithPrefix(typed, limit);
+			if (!prefix.isEmpty()) keys.replaceAll(k -> prefix + k);
+			String common = trie.commonPrefix(typed);
+			return add(keys, n, prefix + common, expected);
+		}
+		
+		/**
+		 * Adds the arguments a converter suggests for the word. If the converter reaches the limit, the count and common prefix
+		 * of its arguments are asked of it, since those it returned may not be all of them.
+		 * 
+		 * @param converter The converter, which adds nothing unless it is a {@link CompletingArgumentConverter}.
+		 * @param typed The word, less the prefix it is shown with.
+		 * @param prefix The prefix each argument is shown with, such as "--name=" for the inline value of an option.
+		 * @param expected What the arguments are.
+		 * @return This builder.
+		 */
+		Builder add(ArgumentConverter<?> converter, String typed, String prefix, Expected expected) {
+			if (!(converter instanceof CompletingArgumentConverter)) return this;
+			CompletingArgumentConverter<?> completing = (CompletingArgumentConverter<?>) converter;
+			List<String> found = new ArrayList<>(completing.complete(typed, limit));
+			found.removeIf(s -> !s.startsWith(typed));
+			if (found.isEmpty()) return this;
+			Collections.sort(found);
+			int n = found.size();
+			String common;
+			if (n < limit) {
+				// The first and last of the sorted arguments share only what every argument shares.
+				common = CompletingArgumentConverter.shared(found.get(0), found.get(n - 1));
+			} else {
+				n = Math.max(n, completing.count(typed));
+				common = completing.commonPrefix(typed);
+				found = found.subList(0, limit);
+			}
+			if (!prefix.isEmpty()) found.replaceAll(s -> prefix + s);
+			return add(found, n, prefix + common, expected);
+		}
+		
+		private Builder add(List<String> found, int n, String common, Expected expected) {
+			if (this.expected == null) this.expected = expected;
+			if (count == 0) {
+				candidates = found;
+				commonPrefix = common;
+			} else {
+				// Candidates of another source are merged in order, and the common prefix is shortened to what both share.
+				List<String> all = new ArrayList<>(candidates.size() + found.size());
+				all.addAll(candidates);
+				all.addAll(found);
+				Collections.sort(all);
+				candidates = all.size() > limit ? all.subList(0, limit) : all;
+				int shared = 0;
+				while (shared < Math.min(commonPrefix.length(), common.length()) && commonPrefix.charAt(shared) == common.charAt(shared)) shared++;
+				commonPrefix = commonPrefix.substring(0, shared);
+				merged = true;
+			}
+			count += n;
+			return this;
+		}
+		
+		/**
+		 * @return The completion.
+		 */
+		Completion build() {
+			List<String> c = merged ? new ArrayList<>(candidates) : candidates;
+			return new Completion(start, end, word, expected, Collections.unmodifiableList(c), count, count == 0 ? word : commonPrefix);
+		}
+		
+	}
+	
+}
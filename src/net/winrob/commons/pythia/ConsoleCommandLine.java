@@ -1,25 +1,49 @@
 package net.winrob.commons.pythia;
 
 import java.io.Console;
+import java.io.IOException;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+import net.winrob.commons.pythia.Tokenizer.Tokens;
 
 /**
  * An {@link CommandLine} that accepts inputs from the application stdin.
+ * <p>
+ * When the application is attached to a terminal, lines are read by a line editor which completes keywords, options and values
+ * with Tab (see {@link #complete(CharSequence, int)}) and keeps a history, unless {@link #setLineEditing(boolean) disabled}.
+ * <p>
+ * Commands run one at a time, in the order their lines were read, while the console goes on reading up to
+ * {@value #MAX_PENDING_LINES} lines ahead of them, unless they are {@link #setAsynchronous(boolean) submitted concurrently}.
  */
 public class ConsoleCommandLine extends CommandLine {
 	
-	private static ConsoleCommandLine self;
-	private Thread consoleThread;
-	private boolean running = false;
+	/**
+	 * The number of lines which may be read and waiting to execute before the console stops reading.
+	 */
+	public static final int MAX_PENDING_LINES = 64;
+	
+	private final Thread consoleThread;
+	private volatile boolean running = false;
+	private volatile boolean asynchronous = false;
+	private volatile boolean lineEditing = true;
+	private volatile LineEditor editor;
 	
 	private ConsoleCommandLine() {
-		self = this;
 		consoleThread = new Thread(() -> {
 			
 			boolean useConsole = true;
 			Console c = System.console();
 			Scanner s = null;
+			Tokenizer tokenizer = new Tokenizer();
+			// Each line is submitted once the line before it has completed, and no more lines are read while too many wait.
+			CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+			Semaphore pending = new Semaphore(MAX_PENDING_LINES);
+			LineEditor lineEditor = lineEditing ? LineEditor.open(this) : null;
+			editor = lineEditor;
 			if(c==null){
 				useConsole = false;
 				s = new Scanner(System.in);
@@ -27,44 +51,85 @@ public class ConsoleCommandLine extends CommandLine {
 			while(running) {
 				String cPre = "";
 				try {
-					if(useConsole) cPre = c.readLine("> ");
+					if(lineEditor!=null) {
+						cPre = lineEditor.readLine("> ");
+						if(cPre==null) {
+							// The terminal's input ended (Ctrl-D), so there is nothing more to read.
+							running = false;
+							continue;
+						}
+					}
+					else if(useConsole) cPre = c.readLine("> ");
 					else cPre = s.nextLine();
-				} catch (NoSuchElementException e) {
+				} catch (NoSuchElementException | IOException e) {
 					continue;
 				}
-				if(cPre.matches("^[ \\t\\r\\n\\s]*$")) continue;
+				Tokens tokens;
+				try {
+					tokens = tokenizer.tokenize(cPre);
+				} catch (IllegalArgumentException e) {
+					System.out.println(e.getMessage());
+					continue;
+				}
+				if(tokens.isEmpty()) continue;
 				System.out.println("Issued command: "+cPre);
 				
-				String regex = "\\s+(?=((\\\\[\\\\\"]|[^\\\\\"])*\"(\\\\[\\\\\"]|[^\\\\\"])*\")*(\\\\[\\\\\"]|[^\\\\\"])*$)";
-				String[] tokens = cPre.split(regex);
-				for (int i = 0; i < tokens.length; i++) {
-					String token = tokens[i];
-					if (token.startsWith("\"") && token.endsWith("\"")) token = token.substring(1, token.length() - 1);
-					tokens[i] = token;
+				String[] args = tokens.toArray();
+				if(asynchronous) {
+					submit(args).whenComplete((r, e) -> {
+						if(e!=null) report(e);
+					});
+					continue;
 				}
-				
 				try {
-					ConsoleCommandLine.getInstance().execute(tokens);
-				} catch (IllegalAccessException e) {
-					e.printStackTrace();
-				} catch (CommandInterpretException e) {
-					e.printStackTrace();
+					pending.acquire();
+				} catch (InterruptedException e) {
+					running = false;
+					continue;
 				}
+				last = last.thenCompose(v -> submit(args)).handle((r, e) -> {
+					if(e!=null) report(e);
+					pending.release();
+					return null;
+				});
 			}
 			if(s!=null) {
 				s.close();
 			}
+			if(lineEditor!=null) {
+				lineEditor.close();
+			}
 			
 		});
 		consoleThread.setName("Pythia-Console");
 		
-		Runtime.getRuntime().addShutdownHook(new Thread(() -> running = false));
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			running = false;
+			// The terminal is left in raw mode unless it is restored, as the console thread may be blocked reading it.
+			LineEditor e = editor;
+			if(e!=null) e.close();
+			// Commands still queued for the journal are written before the application exits.
+			CommandJournal j = getJournal();
+			if(j!=null) j.close();
+		}));
+	}
+	
+	/**
+	 * Reports a failed command. Bad input is reported by its message alone, while a failure of the command itself is reported
+	 * with its stack trace.
+	 * 
+	 * @param e The exception the command failed with.
+	 */
+	private static void report(Throwable e) {
+		if (e instanceof CompletionException && e.getCause() != null) e = e.getCause();
+		if (e instanceof CommandInterpretException) System.out.println(e.getMessage());
+		else e.printStackTrace();
 	}
 	
 	/**
 	 * Starts, or restarts, the application's command processing thread.
 	 */
-	public void startConsoleThread() {
+	public synchronized void startConsoleThread() {
 		if(!consoleThread.isAlive()) {
 			running = true;
 			consoleThread.start();
@@ -78,6 +143,41 @@ public class ConsoleCommandLine extends CommandLine {
 		running = false;
 	}
 	
+	/**
+	 * Sets whether the console thread {@link #submit(String...) submits} each command as soon as its line is read, so that
+	 * commands run concurrently and in no particular order, or submits each command once the command before it has completed.
+	 * 
+	 * @param asynchronous True if commands should run concurrently, false if they should run in order (the default).
+	 */
+	public void setAsynchronous(boolean asynchronous) {
+		this.asynchronous = asynchronous;
+	}
+	
+	/**
+	 * @return True if the console thread submits commands without waiting for the commands before them, false otherwise.
+	 */
+	public boolean isAsynchronous() {
+		return asynchronous;
+	}
+	
+	/**
+	 * Sets whether the console thread reads lines with a line editor, which puts the terminal in raw mode to complete words
+	 * with Tab. Takes effect when the console thread is started, and has no effect unless the application is attached to a
+	 * terminal whose mode can be set with {@code stty}.
+	 * 
+	 * @param lineEditing True if lines should be edited (the default), false if they should be read by {@link Console#readLine()}.
+	 */
+	public void setLineEditing(boolean lineEditing) {
+		this.lineEditing = lineEditing;
+	}
+	
+	/**
+	 * @return True if the console thread reads lines with a line editor when it is attached to a terminal, false otherwise.
+	 */
+	public boolean isLineEditing() {
+		return lineEditing;
+	}
+	
 	/**
 	 * @return True if the console thread has been initialized and is alive, false otherwise.
 	 */
@@ -89,7 +189,13 @@ public class ConsoleCommandLine extends CommandLine {
 	 * @return The singleton instance of the console command line.
 	 */
 	public static ConsoleCommandLine getInstance() {
-		return self == null ? new ConsoleCommandLine() : self;
+		return Holder.INSTANCE;
+	}
+	
+	private static class Holder {
+		
+		private static final ConsoleCommandLine INSTANCE = new ConsoleCommandLine();
+		
 	}
 
 }
@@ -0,0 +1,40 @@
+package net.winrob.commons.pythia;
+
+/**
+ * A {@link Command} which executes within a {@link CommandContext}, writing to the context's output and returning a typed result.
+ * <p>
+ * Commands which only extend {@link Command} are executed as they always were, printing to {@link Command#out()}, which is
+ * the output of the context they are executed in, and returning no result.
+ * 
+ * @param <R> The type of the result.
+ * @author Winter Roberts
+ */
+public abstract class ContextCommand<R> extends Command {
+	
+	/**
+	 * Executes the command.
+	 * 
+	 * @param context The context the command is executed in, which is stdout (and discards the result) if none was given.
+	 * @return The result, which the caller receives from {@link CommandContext#getResult()}, or null.
+	 */
+	public abstract R execute(CommandContext context);
+	
+	/**
+	 * Executes the command in the context of the calling thread, discarding the result.
+	 */
+	@Override
+	public final void execute() {
+		call();
+	}
+	
+	@Override
+	final Object call() {
+		CommandContext context = CommandLine.context();
+		try {
+			return execute(context);
+		} finally {
+			context.flushWriter();
+		}
+	}
+	
+}
@@ -0,0 +1,205 @@
+package net.winrob.commons.pythia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+
+/**
+ * Where and why an input could not be interpreted: the {@link InterpretFailure}, the index of the token at fault, what was
+ * expected there and, for a misspelled keyword or option, the closest alternatives.
+ * <p>
+ * A diagnostic is cheap to create, since its message and suggestions are only built when they are asked for, so that
+ * rejecting routine bad input costs little more than accepting it. It is carried by a {@link CommandInterpretException}, or
+ * returned by {@link CommandLine#validate(String...)}.
+ * 
+ * @author Winter Roberts
+ */
+public final class Diagnostic {
+	
+	/**
+	 * The system property which, if "true", makes each {@link CommandInterpretException} capture its stack trace. By default
+	 * they do not, since they describe bad input rather than a fault in the program.
+	 */
+	public static final String STACK_TRACES = "pythia.stackTraces";
+	
+	static final boolean CAPTURE_STACK_TRACES = Boolean.getBoolean(STACK_TRACES);
+	
+	private final InterpretFailure reason;
+	private final int index;
+	private final String token;
+	private final Expected expected;
+	private final String name;
+	private final String detail;
+	private final KeywordTrie<?> candidates;
+	private final String prefix;
+	
+	private List<String> suggestions;
+	private String message;
+	
+	/**
+	 * @param reason The reason the input could not be interpreted.
+	 * @param index The index of the token at fault, or -1 if it is not known.
+	 * @param token The token at fault, or null if the input ended before it.
+	 * @param expected What was expected at the token, or null if not known.
+	 * @param name The name of the expected option or parameter, or null.
+	 * @param detail The message of the converter's failure for {@link InterpretFailure#INVALID_VALUE}, or null.
+	 * @param candidates The keywords (or option aliases) close to the token which should be suggested, or null.
+	 * @param prefix The prefix each suggestion is shown with.
+	 */
+	Diagnostic(InterpretFailure reason, int index, String token, Expected expected, String name, String detail, KeywordTrie<?> candidates, String prefix) {
+		this.reason = reason;
+		this.index = index;
+		this.token = token;
+		this.expected = expected;
+		this.name = name;
+		this.detail = detail;
+		this.candidates = candidates;
+		this.prefix = prefix;
+	}
+	
+	/**
+	 * @param reason The reason the input could not be interpreted.
+	 * @param message The message.
+	 */
+	Diagnostic(InterpretFailure reason, String message) {
+		this(reason, -1, null, null, null, null, null, "");
+		this.message = message;
+	}
+	
+	/**
+	 * @return The reason the input could not be interpreted.
+	 */
+	public InterpretFailure getReason() {
+		return reason;
+	}
+	
+	/**
+	 * @return The index of the token at fault, counted from the command's keyword, which is the number of tokens if the input ended before it, or -1 if it is not known.
+	 */
+	public int getIndex() {
+		return index;
+	}
+	
+	/**
+	 * @return The token at fault, or null if the input ended before it.
+	 */
+	public String getToken() {
+		return token;
+	}
+	
+	/**
+	 * @return What was expected at the token, or null if not known.
+	 */
+	public Expected getExpected() {
+		return expected;
+	}
+	
+	/**
+	 * @return The name of the expected option or parameter, or null if the failure was not of one.
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * @return The keywords or option aliases closest to the token (by edit distance), closest first, which is empty unless the token was not recognised.
+	 */
+	public List<String> getSuggestions() {
+		List<String> s = suggestions;
+		if (s == null) {
+			if (candidates == null || token == null) {
+				s = Collections.emptyList();
+			} else {
+				List<String> found = candidates.suggest(token.substring(prefix.length()), CommandLine.SUGGESTION_DISTANCE, CommandLine.SUGGESTION_LIMIT);
+				s = new ArrayList<>(found.size());
+				for (String f : found) s.add(prefix + f);
+				s = Collections.unmodifiableList(s);
+			}
+			suggestions = s;
+		}
+		return s;
+	}
+	
+	/**
+	 * @return A description of the failure for the user, including any suggestions.
+	 */
+	public String getMessage() {
+		String m = message;
+		if (m == null) {
+			m = message = buildMessage();
+		}
+		return m;
+	}
+	
+	private String buildMessage() {
+		switch (reason) {
+		case OUT_OF_TOKENS:
+			return "Out of tokens!";
+		case UNKNOWN_COMMAND:
+			return "Command keyword '" + token + "' not found!" + didYouMean();
+		case UNKNOWN_OPTION:
+			return "Unknown option '" + token + "'!" + didYouMean();
+		case DUPLICATE_OPTION:
+			return "Option '" + name + "' is already assigned by '" + token + "'!";
+		case MISSING_OPTION:
+			return "Missing required option '" + name + "'";
+		case MISSING_VALUE:
+			return "Missing value for '" + name + "'!";
+		case INVALID_VALUE:
+			return "Invalid value '" + token + "' for '" + name + "'" + (detail != null ? ": " + detail : "!");
+		case INCOMPLETE_PARAMETERS:
+			return "Incomplete parameter list!";
+		default:
+			return detail;
+		}
+	}
+	
+	/**
+	 * @return A "did you mean" hint listing the suggestions, or an empty string if there are none.
+	 */
+	private String didYouMean() {
+		List<String> s = getSuggestions();
+		if (s.isEmpty()) return "";
+		StringBuilder sb = new StringBuilder(" Did you mean ");
+		for (int i = 0; i < s.size(); i++) {
+			if (i != 0) sb.append(i == s.size() - 1 ? " or " : ", ");
+			sb.append('\'').append(s.get(i)).append('\'');
+		}
+		return sb.append('?').toString();
+	}
+	
+	@Override
+	public String toString() {
+		return index < 0 ? getMessage() : getMessage() + " (token " + index + ")";
+	}
+	
+	/**
+	 * What an input held, or should have held, at the token at fault.
+	 */
+	public enum Expected {
+		
+		/**
+		 * The keyword of a command.
+		 */
+		KEYWORD,
+		
+		/**
+		 * The alias of an option.
+		 */
+		OPTION,
+		
+		/**
+		 * The value of an option.
+		 */
+		VALUE,
+		
+		/**
+		 * The value of a parameter.
+		 */
+		PARAMETER
+		
+	}
+	
+}
@@ -0,0 +1,26 @@
+package net.winrob.commons.pythia;
+
+import java.util.Iterator;
+
+/**
+ * An {@link ArgumentConverter} which can convert argument(s) to a primitive {@code double} without boxing,
+ * so that primitive fields are populated without allocation.
+ * 
+ * @author Winter Roberts
+ */
+public interface DoubleArgumentConverter extends ArgumentConverter<Double> {
+	
+	/**
+	 * Parse argument(s), converting them to a primitive {@code double}.
+	 * 
+	 * @param itr String iterator to be consumed.
+	 * @return The parsed value.
+	 */
+	public double parseDouble(Iterator<String> itr);
+	
+	@Override
+	public default Double parseArg(Iterator<String> itr) {
+		return parseDouble(itr);
+	}
+
+}
@@ -0,0 +1,17 @@
+package net.winrob.commons.pythia;
+
+import java.util.Iterator;
+
+/**
+ * An {@link ArgumentConverter} for a single argument to a {@link Double} (or {@code double}).
+ * 
+ * @author Winter Roberts
+ */
+public class DoubleConverter implements DoubleArgumentConverter {
+
+	@Override
+	public double parseDouble(Iterator<String> itr) {
+		return Double.parseDouble(itr.next());
+	}
+
+}
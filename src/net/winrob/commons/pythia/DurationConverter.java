@@ -0,0 +1,34 @@
+package net.winrob.commons.pythia;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+
+/**
+ * An {@link ArgumentConverter} for a single argument to a {@link Duration}, either in ISO-8601 form (e.g. "PT1M30S")
+ * or as an amount with a unit suffix: "ns", "us", "ms", "s", "m", "h" or "d" (e.g. "250ms").
+ * 
+ * @author Winter Roberts
+ */
+public class DurationConverter implements ArgumentConverter<Duration> {
+
+	@Override
+	public Duration parseArg(Iterator<String> itr) {
+		String arg = itr.next();
+		if (arg.startsWith("P") || arg.startsWith("p") || arg.startsWith("-P")) return Duration.parse(arg);
+		int unitStart = arg.length();
+		while (unitStart > 0 && Character.isLetter(arg.charAt(unitStart - 1))) unitStart--;
+		long amount = Long.parseLong(arg.substring(0, unitStart));
+		switch (arg.substring(unitStart)) {
+		case "ns": return Duration.of(amount, ChronoUnit.NANOS);
+		case "us": return Duration.of(amount, ChronoUnit.MICROS);
+		case "ms": return Duration.ofMillis(amount);
+		case "s": return Duration.ofSeconds(amount);
+		case "m": return Duration.ofMinutes(amount);
+		case "h": return Duration.ofHours(amount);
+		case "d": return Duration.ofDays(amount);
+		default: throw new IllegalArgumentException("Unknown duration unit in '" + arg + "'");
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+package net.winrob.commons.pythia;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An {@link ArgumentConverter} for a single argument to a constant of an enum, matched by name (ignoring case if no constant matches exactly).
+ * The names of the constants are completed from a sorted copy, made when they are first completed.
+ * 
+ * @author Winter Roberts
+ *
+ * @param <E> The enum type.
+ */
+public class EnumConverter<E extends Enum<E>> implements CompletingArgumentConverter<E> {
+	
+	private final Class<E> type;
+	private volatile String[] names;
+	
+	/**
+	 * @param type The enum type.
+	 */
+	public EnumConverter(Class<E> type) {
+		this.type = type;
+	}
+
+	@Override
+	public E parseArg(Iterator<String> itr) {
+		String arg = itr.next();
+		E[] constants = type.getEnumConstants();
+		for (E e : constants) {
+			if (e.name().equals(arg)) return e;
+		}
+		for (E e : constants) {
+			if (e.name().equalsIgnoreCase(arg)) return e;
+		}
+		throw new IllegalArgumentException("No " + type.getSimpleName() + " named '" + arg + "'");
+	}
+	
+	@Override
+	public List<String> complete(String prefix, int limit) {
+		String[] sorted = names();
+		List<String> found = new ArrayList<>();
+		for (int i = first(sorted, prefix); i < sorted.length && found.size() < limit && sorted[i].startsWith(prefix); i++) found.add(sorted[i]);
+		return found;
+	}
+	
+	@Override
+	public int count(String prefix) {
+		String[] sorted = names();
+		int first = first(sorted, prefix);
+		int end = first;
+		while (end < sorted.length && sorted[end].startsWith(prefix)) end++;
+		return end - first;
+	}
+	
+	@Override
+	public String commonPrefix(String prefix) {
+		String[] sorted = names();
+		int first = first(sorted, prefix);
+		int last = first + count(prefix) - 1;
+		return last < first ? prefix : CompletingArgumentConverter.shared(sorted[first], sorted[last]);
+	}
+	
+	private String[] names() {
+		String[] sorted = names;
+		if (sorted == null) {
+			E[] constants = type.getEnumConstants();
+			sorted = new String[constants.length];
+			for (int i = 0; i < constants.length; i++) sorted[i] = constants[i].name();
+			Arrays.sort(sorted);
+			names = sorted;
+		}
+		return sorted;
+	}
+	
+	/**
+	 * @return The index of the first name which is not less than the prefix, which is the first beginning with it if any does.
+	 */
+	private static int first(String[] sorted, String prefix) {
+		int i = Arrays.binarySearch(sorted, prefix);
+		return i < 0 ? -i - 1 : i;
+	}
+
+}
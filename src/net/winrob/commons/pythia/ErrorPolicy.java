@@ -0,0 +1,25 @@
+package net.winrob.commons.pythia;
+
+/**
+ * Decides how script execution continues after a command fails.
+ * 
+ * @author Winter Roberts
+ */
+public enum ErrorPolicy {
+	
+	/**
+	 * Stop at the first failed command, which is recorded in the {@link ScriptReport}.
+	 */
+	STOP,
+	
+	/**
+	 * Continue after failed commands, which are only counted.
+	 */
+	SKIP,
+	
+	/**
+	 * Continue after failed commands, recording each in the {@link ScriptReport}.
+	 */
+	COLLECT
+
+}
@@ -0,0 +1,519 @@
+package net.winrob.commons.pythia;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Writes an interpreted value to a single {@link Command} field, created once for each field when a {@link Command} is added.
+ * Fields of type {@code int}, {@code long}, {@code double} and {@code boolean} may also be written without boxing.
+ * <p>
+ * A field which is an array, {@link List}, {@link Collection}, {@link Set}, {@link Iterator} or {@link Stream} is variadic: as a
+ * parameter, it takes every remaining argument, each converted to its {@link #getElementType() element type}. An
+ * {@link Iterator} or {@link Stream} is streamed, converting each argument only as the command reads it.
+ * 
+ * @author Winter Roberts
+ */
+public abstract class FieldBinder {
+	
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Command.class, Object.class);
+	
+	protected final String name;
+	protected final Class<?> type;
+	protected final Kind kind;
+	protected final Class<?> elementType;
+	
+	protected FieldBinder(String name, Class<?> type) {
+		this(name, type, elementOf(type));
+	}
+	
+	/**
+	 * @param name The name of the field.
+	 * @param type The declared type of the field.
+	 * @param elementType The type of each element of a variadic field, or null if the field is not variadic.
+	 */
+	protected FieldBinder(String name, Class<?> type, Class<?> elementType) {
+		this.name = name;
+		this.type = type;
+		this.kind = Kind.of(type);
+		this.elementType = isVariadic(type) ? elementType != null ? elementType : String.class : null;
+	}
+	
+	/**
+	 * Writes a value to the bound field of a {@link Command}.
+	 * 
+	 * @param command The {@link Command} instance which should be populated.
+	 * @param value The value which should be written.
+	 * @throws IllegalAccessException If the field could not be written.
+	 */
+	public abstract void set(Command command, Object value) throws IllegalAccessException;
+	
+	/**
+	 * Writes an {@code int} to the bound field of a {@link Command}, which should be of {@link Kind#INT}.
+	 * 
+	 * @param command The {@link Command} instance which should be populated.
+	 * @param value The value which should be written.
+	 * @throws IllegalAccessException If the field could not be written.
+	 */
+	public void setInt(Command command, int value) throws IllegalAccessException {
+		set(command, value);
+	}
+	
+	/**
+	 * Writes a {@code long} to the bound field of a {@link Command}, which should be of {@link Kind#LONG}.
+	 * 
+	 * @param command The {@link Command} instance which should be populated.
+	 * @param value The value which should be written.
+	 * @throws IllegalAccessException If the field could not be written.
+	 */
+	public void setLong(Command command, long value) throws IllegalAccessException {
+		set(command, value);
+	}
+	
+	/**
+	 * Writes a {@code double} to the bound field of a {@link Command}, which should be of {@link Kind#DOUBLE}.
+	 * 
+	 * @param command The {@link Command} instance which should be populated.
+	 * @param value The value which should be written.
+	 * @throws IllegalAccessException If the field could not be written.
+	 */
+	public void setDouble(Command command, double value) throws IllegalAccessException {
+		set(command, value);
+	}
+	
+	/**
+	 * Writes a {@code boolean} to the bound field of a {@link Command}, which should be of {@link Kind#BOOLEAN}.
+	 * 
+	 * @param command The {@link Command} instance which should be populated.
+	 * @param value The value which should be written.
+	 * @throws IllegalAccessException If the field could not be written.
+	 */
+	public void setBoolean(Command command, boolean value) throws IllegalAccessException {
+		set(command, value);
+	}
+	
+	/**
+	 * @return The name of the field this binder writes to.
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * @return The declared type of the field this binder writes to.
+	 */
+	public Class<?> getType() {
+		return type;
+	}
+	
+	/**
+	 * @return The {@link Kind} of the field this binder writes to.
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+	
+	/**
+	 * @return The type each argument of a variadic field is converted to, or null if the field is not variadic.
+	 */
+	public Class<?> getElementType() {
+		return elementType;
+	}
+	
+	/**
+	 * @return True if the field takes every remaining argument, false if it takes one value.
+	 */
+	public boolean isVariadic() {
+		return elementType != null;
+	}
+	
+	/**
+	 * @return True if the field is an {@link Iterator} or {@link Stream}, whose arguments are converted as they are read.
+	 */
+	public boolean isStreamed() {
+		return type == Iterator.class || type == Stream.class;
+	}
+	
+	/**
+	 * @param type The declared type of a field.
+	 * @return True if a field of the type is variadic, false otherwise.
+	 */
+	static boolean isVariadic(Class<?> type) {
+		return type.isArray() || type == List.class || type == Collection.class || type == Set.class || type == Iterator.class || type == Stream.class;
+	}
+	
+	/**
+	 * Resolves the element type of a variadic field from its generic type, such as {@code Path} for {@code List<Path>}.
+	 * An element type which is not a class (such as a type variable) is taken as {@link String}, the type of the arguments.
+	 * 
+	 * @param generic The generic type of a field.
+	 * @return The element type, or null if the field is not variadic.
+	 */
+	static Class<?> elementOf(Type generic) {
+		Class<?> raw = rawType(generic);
+		if (raw == null || !isVariadic(raw)) return null;
+		if (raw.isArray()) return raw.getComponentType();
+		if (generic instanceof ParameterizedType) {
+			Class<?> element = rawType(((ParameterizedType) generic).getActualTypeArguments()[0]);
+			if (element != null && element != Object.class) return element;
+		}
+		return String.class;
+	}
+	
+	private static Class<?> rawType(Type type) {
+		if (type instanceof WildcardType) type = ((WildcardType) type).getUpperBounds()[0];
+		if (type instanceof ParameterizedType) type = ((ParameterizedType) type).getRawType();
+		return type instanceof Class ? (Class<?>) type : null;
+	}
+	
+	/**
+	 * Creates a binder for a field, according to the {@link BindingMode}.
+	 * 
+	 * @param field The (accessible) field which should be written by the binder.
+	 * @param mode The {@link BindingMode} which decides how the field is written.
+	 * @return A new binder for the field.
+	 */
+	public static FieldBinder of(Field field, BindingMode mode) {
+		if (mode != BindingMode.REFLECTIVE) {
+			try {
+				MethodHandle setter = MethodHandles.lookup().unreflectSetter(field);
+				MethodHandle primitiveSetter = field.getType().isPrimitive()
+						? setter.asType(MethodType.methodType(void.class, Command.class, field.getType())) : null;
+				return new CompiledBinder(field, setter.asType(SETTER_TYPE), primitiveSetter);
+			} catch (IllegalAccessException e) {
+				// Fall through, the reflective binder will report the failure when used.
+			}
+		}
+		return new ReflectiveBinder(field);
+	}
+	
+	/**
+	 * Creates a binder for a declared field which could not be accessed directly by generated code.
+	 * 
+	 * @param command The {@link Command} class which declares the field.
+	 * @param name The name of the field.
+	 * @param mode The {@link BindingMode} which decides how the field is written.
+	 * @return A new binder for the field.
+	 * @throws IllegalStateException If the field does not exist.
+	 */
+	public static FieldBinder of(Class<? extends Command> command, String name, BindingMode mode) {
+		try {
+			Field field = command.getDeclaredField(name);
+			field.setAccessible(true);
+			return of(field, mode);
+		} catch (NoSuchFieldException e) {
+			throw new IllegalStateException("Field '" + name + "' not found in " + command.getName(), e);
+		}
+	}
+	
+	/**
+	 * Creates a binder which writes a field through a {@link Setter}, typically generated at compile time.
+	 * 
+	 * @param name The name of the field.
+	 * @param type The declared type of the field.
+	 * @param setter The {@link Setter} which writes the field.
+	 * @return A new binder for the field.
+	 */
+	public static FieldBinder of(String name, Class<?> type, Setter setter) {
+		return new GeneratedBinder(name, type, elementOf(type), setter);
+	}
+	
+	/**
+	 * Creates a binder which writes a variadic field through a {@link Setter}, typically generated at compile time.
+	 * 
+	 * @param name The name of the field.
+	 * @param type The declared type of the field, such as {@link List}.
+	 * @param elementType The type each argument is converted to, such as the type argument of a {@link List}.
+	 * @param setter The {@link Setter} which writes the field.
+	 * @return A new binder for the field.
+	 */
+	public static FieldBinder of(String name, Class<?> type, Class<?> elementType, Setter setter) {
+		return new GeneratedBinder(name, type, elementType, setter);
+	}
+	
+	/**
+	 * Creates a binder which writes an {@code int} field through an {@link IntSetter}, typically generated at compile time.
+	 * 
+	 * @param name The name of the field.
+	 * @param setter The {@link IntSetter} which writes the field.
+	 * @return A new binder for the field.
+	 */
+	public static FieldBinder ofInt(String name, IntSetter setter) {
+		return new GeneratedBinder(name, int.class, null, (c, v) -> setter.set(c, (Integer) v)) {
+			
+			@Override
+			public void setInt(Command command, int value) {
+				setter.set(command, value);
+			}
+			
+		};
+	}
+	
+	/**
+	 * Creates a binder which writes a {@code long} field through a {@link LongSetter}, typically generated at compile time.
+	 * 
+	 * @param name The name of the field.
+	 * @param setter The {@link LongSetter} which writes the field.
+	 * @return A new binder for the field.
+	 */
+	public static FieldBinder ofLong(String name, LongSetter setter) {
+		return new GeneratedBinder(name, long.class, null, (c, v) -> setter.set(c, (Long) v)) {
+			
+			@Override
+			public void setLong(Command command, long value) {
+				setter.set(command, value);
+			}
+			
+		};
+	}
+	
+	/**
+	 * Creates a binder which writes a {@code double} field through a {@link DoubleSetter}, typically generated at compile time.
+	 * 
+	 * @param name The name of the field.
+	 * @param setter The {@link DoubleSetter} which writes the field.
+	 * @return A new binder for the field.
+	 */
+	public static FieldBinder ofDouble(String name, DoubleSetter setter) {
+		return new GeneratedBinder(name, double.class, null, (c, v) -> setter.set(c, (Double) v)) {
+			
+			@Override
+			public void setDouble(Command command, double value) {
+				setter.set(command, value);
+			}
+			
+		};
+	}
+	
+	/**
+	 * Creates a binder which writes a {@code boolean} field through a {@link BooleanSetter}, typically generated at compile time.
+	 * 
+	 * @param name The name of the field.
+	 * @param setter The {@link BooleanSetter} which writes the field.
+	 * @return A new binder for the field.
+	 */
+	public static FieldBinder ofBoolean(String name, BooleanSetter setter) {
+		return new GeneratedBinder(name, boolean.class, null, (c, v) -> setter.set(c, (Boolean) v)) {
+			
+			@Override
+			public void setBoolean(Command command, boolean value) {
+				setter.set(command, value);
+			}
+			
+		};
+	}
+	
+	/**
+	 * The way a field's value is held, which decides whether it can be written without boxing.
+	 */
+	public enum Kind {
+		
+		OBJECT, INT, LONG, DOUBLE, BOOLEAN;
+		
+		/**
+		 * @param type The declared type of a field.
+		 * @return The kind of the field.
+		 */
+		public static Kind of(Class<?> type) {
+			if (type == int.class) return INT;
+			if (type == long.class) return LONG;
+			if (type == double.class) return DOUBLE;
+			if (type == boolean.class) return BOOLEAN;
+			return OBJECT;
+		}
+		
+	}
+	
+	/**
+	 * Directly writes a value to a field of a {@link Command}.
+	 */
+	@FunctionalInterface
+	public interface Setter {
+		
+		/**
+		 * @param command The {@link Command} instance which should be populated.
+		 * @param value The value which should be written.
+		 */
+		public void set(Command command, Object value);
+		
+	}
+	
+	/**
+	 * Directly writes an {@code int} to a field of a {@link Command}.
+	 */
+	@FunctionalInterface
+	public interface IntSetter {
+		
+		public void set(Command command, int value);
+		
+	}
+	
+	/**
+	 * Directly writes a {@code long} to a field of a {@link Command}.
+	 */
+	@FunctionalInterface
+	public interface LongSetter {
+		
+		public void set(Command command, long value);
+		
+	}
+	
+	/**
+	 * Directly writes a {@code double} to a field of a {@link Command}.
+	 */
+	@FunctionalInterface
+	public interface DoubleSetter {
+		
+		public void set(Command command, double value);
+		
+	}
+	
+	/**
+	 * Directly writes a {@code boolean} to a field of a {@link Command}.
+	 */
+	@FunctionalInterface
+	public interface BooleanSetter {
+		
+		public void set(Command command, boolean value);
+		
+	}
+	
+	/**
+	 * Writes fields through {@link Field#set(Object, Object)}.
+	 */
+	private static class ReflectiveBinder extends FieldBinder {
+		
+		private final Field field;
+		
+		private ReflectiveBinder(Field field) {
+			super(field.getName(), field.getType(), elementOf(field.getGenericType()));
+			this.field = field;
+		}
+
+		@Override
+		public void set(Command command, Object value) throws IllegalAccessException {
+			field.set(command, value);
+		}
+		
+		@Override
+		public void setInt(Command command, int value) throws IllegalAccessException {
+			field.setInt(command, value);
+		}
+		
+		@Override
+		public void setLong(Command command, long value) throws IllegalAccessException {
+			field.setLong(command, value);
+		}
+		
+		@Override
+		public void setDouble(Command command, double value) throws IllegalAccessException {
+			field.setDouble(command, value);
+		}
+		
+		@Override
+		public void setBoolean(Command command, boolean value) throws IllegalAccessException {
+			field.setBoolean(command, value);
+		}
+		
+	}
+	
+	/**
+	 * Writes fields through setter {@link MethodHandle}s resolved at creation.
+	 */
+	private static class CompiledBinder extends FieldBinder {
+		
+		private final MethodHandle setter;
+		private final MethodHandle primitiveSetter;
+		
+		private CompiledBinder(Field field, MethodHandle setter, MethodHandle primitiveSetter) {
+			super(field.getName(), field.getType(), elementOf(field.getGenericType()));
+			this.setter = setter;
+			this.primitiveSetter = primitiveSetter;
+		}
+
+		@Override
+		public void set(Command command, Object value) {
+			try {
+				setter.invokeExact(command, value);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		@Override
+		public void setInt(Command command, int value) {
+			try {
+				primitiveSetter.invokeExact(command, value);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		@Override
+		public void setLong(Command command, long value) {
+			try {
+				primitiveSetter.invokeExact(command, value);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		@Override
+		public void setDouble(Command command, double value) {
+			try {
+				primitiveSetter.invokeExact(command, value);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		@Override
+		public void setBoolean(Command command, boolean value) {
+			try {
+				primitiveSetter.invokeExact(command, value);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Writes fields through a {@link Setter}.
+	 */
+	private static class GeneratedBinder extends FieldBinder {
+		
+		private final Setter setter;
+		
+		private GeneratedBinder(String name, Class<?> type, Class<?> elementType, Setter setter) {
+			super(name, type, elementType);
+			this.setter = setter;
+		}
+
+		@Override
+		public void set(Command command, Object value) {
+			setter.set(command, value);
+		}
+		
+	}
+
+}
@@ -0,0 +1,309 @@
+package net.winrob.commons.pythia;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.winrob.commons.pythia.CommandLine.CommandInterpreter;
+import net.winrob.commons.pythia.CommandSpec.OptionSpec;
+import net.winrob.commons.pythia.CommandSpec.ParameterSpec;
+
+/**
+ * An index of the help of every command (and sub command) of a {@link CommandLine}, which can be searched by keyword,
+ * option alias or name, parameter name and description, and written to any {@link Appendable} without being buffered.
+ * <p>
+ * An index is a snapshot of the commands when it was built, see {@link CommandLine#getHelpIndex()}. Searching looks up each
+ * word of a query in a sorted array of every term, so it does not scan the commands.
+ * 
+ * @author Winter Roberts
+ */
+public final class HelpIndex {
+	
+	/**
+	 * The environment variable read for the width of the terminal, see {@link #terminalWidth()}.
+	 */
+	public static final String COLUMNS = "COLUMNS";
+	
+	private static final int KEYWORD_COLUMN = 24;
+	
+	private final List<CommandLine> lines;
+	private final List<KeywordTrie<CommandInterpreter>> sources;
+	private final List<Entry> entries;
+	private final String[] terms;
+	private final int[][] postings;
+	
+	/**
+	 * Builds the index of a command line's current commands.
+	 * 
+	 * @param commandLine The command line.
+	 */
+	HelpIndex(CommandLine commandLine) {
+		lines = new ArrayList<>();
+		sources = new ArrayList<>();
+		List<Entry> all = new ArrayList<>();
+		collect(commandLine, all);
+		all.sort((a, b) -> a.keyword.compareTo(b.keyword));
+		entries = Collections.unmodifiableList(all);
+		
+		Map<String, BitSet> byTerm = new TreeMap<>();
+		for (int i = 0; i < all.size(); i++) {
+			Entry e = all.get(i);
+			addTerms(byTerm, e.keyword, i);
+			CommandSpec spec = e.spec;
+			addTerms(byTerm, spec.getDescription(), i);
+			for (OptionSpec o : spec.getOptions()) {
+				addTerms(byTerm, o.getName(), i);
+				addTerms(byTerm, o.getAlias(), i);
+				addTerms(byTerm, o.getDescription(), i);
+			}
+			for (ParameterSpec p : spec.getParameters()) {
+				addTerms(byTerm, p.getName(), i);
+				addTerms(byTerm, p.getDescription(), i);
+			}
+		}
+		terms = byTerm.keySet().toArray(new String[0]);
+		postings = new int[terms.length][];
+		int t = 0;
+		for (BitSet b : byTerm.values()) {
+			postings[t++] = b.stream().toArray();
+		}
+	}
+	
+	private void collect(CommandLine commandLine, List<Entry> entries) {
+		KeywordTrie<CommandInterpreter> commands = commandLine.getCommands();
+		lines.add(commandLine);
+		sources.add(commands);
+		for (String keyword : commands.keys()) {
+			CommandInterpreter interpreter = commands.get(keyword);
+			entries.add(new Entry(interpreter.getPath(), interpreter.getSpec()));
+			if (interpreter.hasSubCommandLine()) collect(interpreter.getSubCommandLine(), entries);
+		}
+	}
+	
+	/**
+	 * @return True if no command has been added to any of the indexed command lines since this index was built, false otherwise.
+	 */
+	boolean isCurrent() {
+		for (int i = 0; i < lines.size(); i++) {
+			if (lines.get(i).getCommands() != sources.get(i)) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Adds each word of some text (split at anything but letters and digits, and lower cased) as a term of an entry.
+	 */
+	private static void addTerms(Map<String, BitSet> byTerm, String text, int entry) {
+		if (text == null) return;
+		int length = text.length();
+		int start = -1;
+		for (int i = 0; i <= length; i++) {
+			boolean word = i < length && Character.isLetterOrDigit(text.charAt(i));
+			if (word && start < 0) {
+				start = i;
+			} else if (!word && start >= 0) {
+				byTerm.computeIfAbsent(text.substring(start, i).toLowerCase(Locale.ROOT), k -> new BitSet()).set(entry);
+				start = -1;
+			}
+		}
+	}
+	
+	/**
+	 * @return Every command, ordered by keyword.
+	 */
+	public List<Entry> getEntries() {
+		return entries;
+	}
+	
+	/**
+	 * @param keyword The keyword of a command, including the keywords of any parent commands (e.g. "cache evict").
+	 * @return The command, or null if there is none.
+	 */
+	public Entry get(String keyword) {
+		int lo = 0, hi = entries.size() - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = entries.get(mid).keyword.compareTo(keyword);
+			if (c == 0) return entries.get(mid);
+			if (c < 0) lo = mid + 1;
+			else hi = mid - 1;
+		}
+		return null;
+	}
+	
+	/**
+	 * Finds the commands matching every word of a query, where a word matches a command if it begins any word of the command's
+	 * keyword, option names and aliases, parameter names or descriptions (ignoring case).
+	 * 
+	 * @param query The words to search for.
+	 * @return The matching commands, those whose keyword begins with the first word first, and otherwise ordered by keyword.
+	 */
+	public List<Entry> search(String query) {
+		BitSet matches = null;
+		Map<String, BitSet> words = new TreeMap<>();
+		addTerms(words, query, 0);
+		for (String word : words.keySet()) {
+			BitSet m = new BitSet(entries.size());
+			int t = Arrays.binarySearch(terms, word);
+			for (int i = t < 0 ? -t - 1 : t; i < terms.length && terms[i].startsWith(word); i++) {
+				for (int e : postings[i]) m.set(e);
+			}
+			if (matches == null) matches = m;
+			else matches.and(m);
+			if (matches.isEmpty()) return Collections.emptyList();
+		}
+		if (matches == null) return Collections.emptyList();
+		String first = query.trim().toLowerCase(Locale.ROOT);
+		int space = first.indexOf(' ');
+		if (space >= 0) first = first.substring(0, space);
+		List<Entry> result = new ArrayList<>(matches.cardinality());
+		List<Entry> rest = new ArrayList<>();
+		for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+			Entry e = entries.get(i);
+			(e.keyword.toLowerCase(Locale.ROOT).startsWith(first) ? result : rest).add(e);
+		}
+		result.addAll(rest);
+		return result;
+	}
+	
+	/**
+	 * Writes a line for each command: its keyword and the first sentence of its description.
+	 * 
+	 * @param out The output the index is appended to.
+	 * @param width The number of columns lines are wrapped to.
+	 * @throws IOException If the output could not be appended to.
+	 */
+	public void writeIndex(Appendable out, int width) throws IOException {
+		writeIndex(out, entries, width);
+	}
+	
+	/**
+	 * Writes a line for each of some commands: its keyword and the first sentence of its description.
+	 * 
+	 * @param out The output the index is appended to.
+	 * @param entries The commands, such as the result of {@link #search(String)}.
+	 * @param width The number of columns lines are wrapped to.
+	 * @throws IOException If the output could not be appended to.
+	 */
+	public static void writeIndex(Appendable out, List<Entry> entries, int width) throws IOException {
+		int column = 0;
+		for (Entry e : entries) column = Math.max(column, e.keyword.length());
+		column = Math.min(column, KEYWORD_COLUMN) + 4;
+		char[] indent = new char[column];
+		Arrays.fill(indent, ' ');
+		String wrapStart = new String(indent);
+		for (Entry e : entries) {
+			out.append("  ").append(e.keyword);
+			if (e.keyword.length() + 2 > column - 2) {
+				out.append("\r\n").append(wrapStart);
+			} else {
+				for (int i = e.keyword.length() + 2; i < column; i++) out.append(' ');
+			}
+			CommandSpec.wrapText(out, e.getSummary(), wrapStart, Math.max(20, width - column));
+			out.append("\r\n");
+		}
+	}
+	
+	/**
+	 * Writes the help dialog of every command, each following its keyword.
+	 * 
+	 * @param out The output the help is appended to.
+	 * @param width The number of columns lines are wrapped to.
+	 * @throws IOException If the output could not be appended to.
+	 */
+	public void writeHelp(Appendable out, int width) throws IOException {
+		for (Entry e : entries) {
+			e.writeHelp(out, width);
+			out.append("\r\n");
+		}
+	}
+	
+	/**
+	 * Renders the help dialog of every command at a width, so that later requests for it are not rendered.
+	 * 
+	 * @param width The number of columns lines are wrapped to.
+	 */
+	public void prerender(int width) {
+		for (Entry e : entries) {
+			e.spec.getHelp(width);
+		}
+	}
+	
+	/**
+	 * @return The width of the terminal given by the {@value #COLUMNS} environment variable, otherwise {@link CommandSpec#DEFAULT_WIDTH}.
+	 */
+	public static int terminalWidth() {
+		String columns = System.getenv(COLUMNS);
+		if (columns != null) {
+			try {
+				int width = Integer.parseInt(columns.trim());
+				if (width > 0) return width;
+			} catch (NumberFormatException e) {
+				// Not a width, use the default.
+			}
+		}
+		return CommandSpec.DEFAULT_WIDTH;
+	}
+	
+	/**
+	 * The help of one command.
+	 */
+	public static final class Entry {
+		
+		private final String keyword;
+		private final CommandSpec spec;
+		
+		private Entry(String keyword, CommandSpec spec) {
+			this.keyword = keyword;
+			this.spec = spec;
+		}
+		
+		/**
+		 * @return The keyword of the command, including the keywords of any parent commands.
+		 */
+		public String getKeyword() {
+			return keyword;
+		}
+		
+		/**
+		 * @return The spec of the command, with its options, parameters and full help dialog.
+		 */
+		public CommandSpec getSpec() {
+			return spec;
+		}
+		
+		/**
+		 * @return The first sentence of the command's description, or an empty string if it has none.
+		 */
+		public String getSummary() {
+			String d = spec.getDescription();
+			if (d == null) return "";
+			int end = d.indexOf(". ");
+			return end < 0 ? d : d.substring(0, end + 1);
+		}
+		
+		/**
+		 * Writes the help dialog of the command, following its keyword.
+		 * 
+		 * @param out The output the help is appended to.
+		 * @param width The number of columns lines are wrapped to.
+		 * @throws IOException If the output could not be appended to.
+		 */
+		public void writeHelp(Appendable out, int width) throws IOException {
+			out.append(keyword).append(spec.getHelp(width));
+		}
+		
+		@Override
+		public String toString() {
+			return keyword;
+		}
+		
+	}
+	
+}
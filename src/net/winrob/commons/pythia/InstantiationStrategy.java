@@ -0,0 +1,60 @@
+package net.winrob.commons.pythia;
+
+import java.util.function.Supplier;
+
+/**
+ * Creates the factory a {@link CommandLine} instantiates a {@link Command} class with. The factory is created once, when the
+ * command is added, and called for every execution of the command.
+ * <p>
+ * A factory given to {@link CommandLine#addCommand(String, Class, Supplier)}, or generated at compile time by the Pythia
+ * annotation processor, is preferred to the strategy.
+ * 
+ * @author Winter Roberts
+ */
+@FunctionalInterface
+public interface InstantiationStrategy {
+	
+	/**
+	 * Calls the no-argument constructor of the command (which may be private) through a generated {@link Supplier}.
+	 */
+	InstantiationStrategy CONSTRUCTOR = Instantiators::constructor;
+	
+	/**
+	 * Allocates the command without calling any constructor, through {@link ObjectInstantiator}, so field initializers do not run.
+	 */
+	InstantiationStrategy UNSAFE = Instantiators::unsafe;
+	
+	/**
+	 * Calls the no-argument constructor of the command, or allocates it without a constructor if it has none.
+	 */
+	InstantiationStrategy DEFAULT = command -> {
+		Supplier<? extends Command> factory = CONSTRUCTOR.factory(command);
+		return factory != null ? factory : UNSAFE.factory(command);
+	};
+	
+	/**
+	 * The system property which may be used to select the default strategy, either "default", "constructor" or "unsafe".
+	 */
+	String PROPERTY = "pythia.instantiation";
+	
+	/**
+	 * @param command The {@link Command} class.
+	 * @return A factory which creates new, unpopulated instances of the class, or null if this strategy cannot instantiate it.
+	 */
+	Supplier<? extends Command> factory(Class<? extends Command> command);
+	
+	/**
+	 * @return The strategy named by the {@link #PROPERTY} system property, or {@link #DEFAULT} if it is not set.
+	 */
+	static InstantiationStrategy getDefault() {
+		String strategy = System.getProperty(PROPERTY);
+		if (strategy == null) return DEFAULT;
+		switch (strategy.trim().toLowerCase()) {
+		case "constructor": return CONSTRUCTOR;
+		case "unsafe": return UNSAFE;
+		case "default": return DEFAULT;
+		default: throw new IllegalArgumentException("Unknown instantiation strategy '" + strategy + "'");
+		}
+	}
+	
+}
@@ -0,0 +1,93 @@
+package net.winrob.commons.pythia;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.function.Supplier;
+
+/**
+ * The built-in {@link InstantiationStrategy}s.
+ * 
+ * @author Winter Roberts
+ */
+final class Instantiators {
+	
+	private static final MethodType SUPPLIER = MethodType.methodType(Supplier.class);
+	private static final MethodType GET = MethodType.methodType(Object.class);
+	
+	private Instantiators() {
+	}
+	
+	/**
+	 * Creates a factory calling the no-argument constructor of a command. The constructor is spun into a {@link Supplier} with
+	 * {@link LambdaMetafactory}, so each instantiation is a direct constructor call, and otherwise invoked through its handle.
+	 * 
+	 * @param command The {@link Command} class.
+	 * @return The factory, or null if the class is abstract or has no no-argument constructor.
+	 */
+	@SuppressWarnings("unchecked")
+	static Supplier<? extends Command> constructor(Class<? extends Command> command) {
+		if (!isConcrete(command)) return null;
+		Constructor<? extends Command> constructor;
+		try {
+			constructor = command.getDeclaredConstructor();
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+		MethodHandle handle;
+		Lookup lookup;
+		try {
+			lookup = MethodHandles.privateLookupIn(command, MethodHandles.lookup());
+			handle = lookup.findConstructor(command, MethodType.methodType(void.class));
+		} catch (IllegalAccessException | NoSuchMethodException | RuntimeException e) {
+			// The command's module does not open its package, so only a public (or made accessible) constructor can be used.
+			try {
+				constructor.setAccessible(true);
+				handle = MethodHandles.lookup().unreflectConstructor(constructor);
+				lookup = null;
+			} catch (IllegalAccessException | RuntimeException ex) {
+				return null;
+			}
+		}
+		if (lookup != null) {
+			try {
+				CallSite site = LambdaMetafactory.metafactory(lookup, "get", SUPPLIER, GET, handle, MethodType.methodType(command));
+				return (Supplier<? extends Command>) site.getTarget().invokeExact();
+			} catch (Throwable e) {
+				// Fall through to the constructor handle.
+			}
+		}
+		MethodHandle target = handle.asType(MethodType.methodType(Command.class));
+		return () -> {
+			try {
+				return (Command) target.invokeExact();
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		};
+	}
+	
+	/**
+	 * Creates a factory allocating a command without calling a constructor.
+	 * 
+	 * @param command The {@link Command} class.
+	 * @return The factory, or null if the class is abstract or the runtime does not provide {@code sun.misc.Unsafe}.
+	 */
+	static Supplier<? extends Command> unsafe(Class<? extends Command> command) {
+		ObjectInstantiator instantiator = ObjectInstantiator.getInstance();
+		if (!isConcrete(command) || !instantiator.isAvailable()) return null;
+		return () -> instantiator.newInstance(command);
+	}
+	
+	private static boolean isConcrete(Class<?> command) {
+		return !command.isInterface() && !Modifier.isAbstract(command.getModifiers());
+	}
+	
+}
@@ -0,0 +1,26 @@
+package net.winrob.commons.pythia;
+
+import java.util.Iterator;
+
+/**
+ * An {@link ArgumentConverter} which can convert argument(s) to a primitive {@code int} without boxing,
+ * so that primitive fields are populated without allocation.
+ * 
+ * @author Winter Roberts
+ */
+public interface IntArgumentConverter extends ArgumentConverter<Integer> {
+	
+	/**
+	 * Parse argument(s), converting them to a primitive {@code int}.
+	 * 
+	 * @param itr String iterator to be consumed.
+	 * @return The parsed value.
+	 */
+	public int parseInt(Iterator<String> itr);
+	
+	@Override
+	public default Integer parseArg(Iterator<String> itr) {
+		return parseInt(itr);
+	}
+
+}
@@ -3,14 +3,14 @@ package net.winrob.commons.pythia;
 import java.util.Iterator;
 
 /**
- * An {@link ArgumentConverter} for a single argument to an {@link Integer}.
+ * An {@link ArgumentConverter} for a single argument to an {@link Integer} (or {@code int}).
  * 
  * @author Winter Roberts
  */
-public class IntegerConverter implements ArgumentConverter<Integer> {
+public class IntegerConverter implements IntArgumentConverter {
 
 	@Override
-	public Integer parseArg(Iterator<String> itr) {
+	public int parseInt(Iterator<String> itr) {
 		return Integer.parseInt(itr.next());
 	}
 
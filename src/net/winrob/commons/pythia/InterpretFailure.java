@@ -0,0 +1,57 @@
+package net.winrob.commons.pythia;
+
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+
+/**
+ * The reason a {@link CommandInterpretException} was thrown, by which failures are counted in {@link CommandMetrics}.
+ * 
+ * @author Winter Roberts
+ */
+public enum InterpretFailure {
+	
+	/**
+	 * The input held no keyword.
+	 */
+	OUT_OF_TOKENS,
+	
+	/**
+	 * No command has the keyword.
+	 */
+	UNKNOWN_COMMAND,
+	
+	/**
+	 * The command has no option with the alias.
+	 */
+	UNKNOWN_OPTION,
+	
+	/**
+	 * An option was given more than once.
+	 */
+	DUPLICATE_OPTION,
+	
+	/**
+	 * An option without a default was not given.
+	 */
+	MISSING_OPTION,
+	
+	/**
+	 * Fewer arguments were given than the command has parameters.
+	 */
+	INCOMPLETE_PARAMETERS,
+	
+	/**
+	 * The input ended before the value of an option or parameter.
+	 */
+	MISSING_VALUE,
+	
+	/**
+	 * The value of an option or parameter could not be converted.
+	 */
+	INVALID_VALUE,
+	
+	/**
+	 * The input was otherwise malformed.
+	 */
+	MALFORMED
+	
+}
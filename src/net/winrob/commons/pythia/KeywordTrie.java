@@ -0,0 +1,348 @@
+package net.winrob.commons.pythia;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable prefix tree mapping keywords to values, matched directly against {@link CharSequence} ranges.
+ * Updates copy only the path to the changed keyword, so a trie may be shared freely while newer versions are built.
+ * 
+ * @author Winter Roberts
+ *
+ * @param <V> The type of value each keyword maps to.
+ */
+public final class KeywordTrie<V> {
+	
+	private static final KeywordTrie<?> EMPTY = new KeywordTrie<>(new Node<>());
+	
+	private final Node<V> root;
+	
+	private KeywordTrie(Node<V> root) {
+		this.root = root;
+	}
+	
+	/**
+	 * @param <V> The type of value each keyword maps to.
+	 * @return A trie with no keywords.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V> KeywordTrie<V> empty() {
+		return (KeywordTrie<V>) EMPTY;
+	}
+	
+	/**
+	 * @return The number of keywords in this trie.
+	 */
+	public int size() {
+		return root.count;
+	}
+	
+	/**
+	 * @param key A keyword.
+	 * @return True if the keyword is in this trie, false otherwise.
+	 */
+	public boolean containsKey(CharSequence key) {
+		Node<V> n = find(key, 0, key.length());
+		return n != null && n.key != null;
+	}
+	
+	/**
+	 * @param key A keyword.
+	 * @return The value of the keyword, or null if it is not in this trie.
+	 */
+	public V get(CharSequence key) {
+		return get(key, 0, key.length());
+	}
+	
+	/**
+	 * Finds the value of the keyword spelled by a range of characters, without copying them.
+	 * 
+	 * @param s The characters containing the keyword.
+	 * @param start The index of the first character of the keyword.
+	 * @param end The index after the last character of the keyword.
+	 * @return The value of the keyword, or null if it is not in this trie.
+	 */
+	public V get(CharSequence s, int start, int end) {
+		Node<V> n = find(s, start, end);
+		return n == null ? null : n.value;
+	}
+	
+	/**
+	 * Finds the only keyword which begins with a range of characters, so that keywords may be abbreviated.
+	 * A keyword which matches the range exactly is always returned, even if it is the prefix of others.
+	 * 
+	 * @param s The characters containing the abbreviation.
+	 * @param start The index of the first character of the abbreviation.
+	 * @param end The index after the last character of the abbreviation.
+	 * @return The keyword, or null if none or more than one keyword begins with the abbreviation.
+	 */
+	public String findUniquePrefix(CharSequence s, int start, int end) {
+		Node<V> n = find(s, start, end);
+		if (n == null) return null;
+		if (n.key != null) return n.key;
+		if (n.count != 1) return null;
+		while (n.key == null) n = n.children[0];
+		return n.key;
+	}
+	
+	/**
+	 * Lists every keyword which begins with a prefix, in lexicographic order.
+	 * 
+	 * @param prefix The prefix.
+	 * @return The sorted keywords beginning with the prefix.
+	 */
+	public List<String> keysWithPrefix(CharSequence prefix) {
+		Node<V> n = find(prefix, 0, prefix.length());
+		if (n == null) return Collections.emptyList();
+		List<String> keys = new ArrayList<>(n.count);
+		collect(n, keys);
+		return keys;
+	}
+	
+	/**
+	 * Lists the first keywords which begin with a prefix, in lexicographic order, visiting no more of the trie than it returns.
+	 * 
+	 * @param prefix The prefix.
+	 * @param limit The maximum number of keywords.
+	 * @return The first (sorted) keywords beginning with the prefix.
+	 */
+	public List<String> keysWithPrefix(CharSequence prefix, int limit) {
+		Node<V> n = find(prefix, 0, prefix.length());
+		if (n == null || limit <= 0) return Collections.emptyList();
+		List<String> keys = new ArrayList<>(Math.min(n.count, limit));
+		collect(n, keys, limit);
+		return keys;
+	}
+	
+	/**
+	 * @param prefix The prefix.
+	 * @return The number of keywords which begin with the prefix.
+	 */
+	public int countWithPrefix(CharSequence prefix) {
+		Node<V> n = find(prefix, 0, prefix.length());
+		return n == null ? 0 : n.count;
+	}
+	
+	/**
+	 * Extends a prefix for as long as every keyword which begins with it agrees, as a shell completes a word as far as it can.
+	 * 
+	 * @param prefix The prefix.
+	 * @return The longest prefix shared by every keyword beginning with the prefix, or null if no keyword begins with it.
+	 */
+	public String commonPrefix(CharSequence prefix) {
+		Node<V> n = find(prefix, 0, prefix.length());
+		if (n == null) return null;
+		StringBuilder sb = new StringBuilder(prefix);
+		while (n.key == null && n.labels.length == 1) {
+			sb.append(n.labels[0]);
+			n = n.children[0];
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * @return Every keyword in this trie, in lexicographic order.
+	 */
+	public List<String> keys() {
+		return keysWithPrefix("");
+	}
+	
+	/**
+	 * Finds the keywords which are closest to a (misspelled) word by edit distance, for "did you mean" suggestions.
+	 * 
+	 * @param word The misspelled word.
+	 * @param maxDistance The largest edit distance a suggestion may have.
+	 * @param limit The maximum number of suggestions.
+	 * @return The suggested keywords, closest first.
+	 */
+	public List<String> suggest(CharSequence word, int maxDistance, int limit) {
+		List<List<String>> byDistance = new ArrayList<>();
+		for (int i = 0; i <= maxDistance; i++) byDistance.add(new ArrayList<>());
+		int[] row = new int[word.length() + 1];
+		for (int i = 0; i < row.length; i++) row[i] = i;
+		for (int i = 0; i < root.labels.length; i++) {
+			suggest(root.children[i], root.labels[i], word, row, maxDistance, byDistance);
+		}
+		List<String> suggestions = new ArrayList<>();
+		for (List<String> keys : byDistance) {
+			for (String key : keys) {
+				if (suggestions.size() == limit) return suggestions;
+				suggestions.add(key);
+			}
+		}
+		return suggestions;
+	}
+	
+	/**
+	 * @param key The keyword.
+	 * @param value The value of the keyword.
+	 * @return A trie which also maps the keyword to the value, replacing any previous value.
+	 */
+	public KeywordTrie<V> with(String key, V value) {
+		return new KeywordTrie<>(insert(root, key, 0, value));
+	}
+	
+	/**
+	 * @param key The keyword.
+	 * @return A trie without the keyword, or this trie if it did not contain the keyword.
+	 */
+	public KeywordTrie<V> without(String key) {
+		if (!containsKey(key)) return this;
+		Node<V> r = remove(root, key, 0);
+		return r == null ? empty() : new KeywordTrie<>(r);
+	}
+	
+	private Node<V> find(CharSequence s, int start, int end) {
+		Node<V> n = root;
+		for (int i = start; i < end && n != null; i++) {
+			n = n.child(s.charAt(i));
+		}
+		return n;
+	}
+	
+	private static <V> void collect(Node<V> n, List<String> keys) {
+		if (n.key != null) keys.add(n.key);
+		for (Node<V> child : n.children) collect(child, keys);
+	}
+	
+	private static <V> void collect(Node<V> n, List<String> keys, int limit) {
+		if (n.key != null) keys.add(n.key);
+		for (int i = 0; i < n.children.length && keys.size() < limit; i++) collect(n.children[i], keys, limit);
+	}
+	
+	private static <V> void suggest(Node<V> n, char c, CharSequence word, int[] previous, int maxDistance, List<List<String>> byDistance) {
+		int[] row = new int[previous.length];
+		row[0] = previous[0] + 1;
+		int min = row[0];
+		for (int i = 1; i < row.length; i++) {
+			int cost = word.charAt(i - 1) == c ? 0 : 1;
+			row[i] = Math.min(Math.min(row[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+			min = Math.min(min, row[i]);
+		}
+		int distance = row[row.length - 1];
+		if (n.key != null && distance <= maxDistance) byDistance.get(distance).add(n.key);
+		if (min > maxDistance) return;
+		for (int i = 0; i < n.labels.length; i++) {
+			suggest(n.children[i], n.labels[i], word, row, maxDistance, byDistance);
+		}
+	}
+	
+	private static <V> Node<V> insert(Node<V> n, String key, int depth, V value) {
+		Node<V> copy = n == null ? new Node<>() : n.copy();
+		if (depth == key.length()) {
+			if (copy.key == null) copy.count++;
+			copy.key = key;
+			copy.value = value;
+			return copy;
+		}
+		char c = key.charAt(depth);
+		int i = Arrays.binarySearch(copy.labels, c);
+		if (i >= 0) {
+			Node<V> child = copy.children[i];
+			Node<V> updated = insert(child, key, depth + 1, value);
+			copy.children = copy.children.clone();
+			copy.children[i] = updated;
+			copy.count += updated.count - child.count;
+		} else {
+			i = -i - 1;
+			Node<V> updated = insert(null, key, depth + 1, value);
+			copy.labels = insertAt(copy.labels, i, c);
+			copy.children = insertAt(copy.children, i, updated);
+			copy.count += updated.count;
+		}
+		return copy;
+	}
+	
+	private static <V> Node<V> remove(Node<V> n, String key, int depth) {
+		Node<V> copy = n.copy();
+		if (depth == key.length()) {
+			copy.key = null;
+			copy.value = null;
+		} else {
+			int i = Arrays.binarySearch(copy.labels, key.charAt(depth));
+			Node<V> updated = remove(copy.children[i], key, depth + 1);
+			if (updated == null) {
+				copy.labels = removeAt(copy.labels, i);
+				copy.children = removeAt(copy.children, i);
+			} else {
+				copy.children = copy.children.clone();
+				copy.children[i] = updated;
+			}
+		}
+		copy.count--;
+		return copy.count == 0 ? null : copy;
+	}
+	
+	private static char[] insertAt(char[] a, int i, char c) {
+		char[] b = new char[a.length + 1];
+		System.arraycopy(a, 0, b, 0, i);
+		b[i] = c;
+		System.arraycopy(a, i, b, i + 1, a.length - i);
+		return b;
+	}
+	
+	private static <T> T[] insertAt(T[] a, int i, T t) {
+		T[] b = Arrays.copyOf(a, a.length + 1);
+		System.arraycopy(a, i, b, i + 1, a.length - i);
+		b[i] = t;
+		return b;
+	}
+	
+	private static char[] removeAt(char[] a, int i) {
+		char[] b = new char[a.length - 1];
+		System.arraycopy(a, 0, b, 0, i);
+		System.arraycopy(a, i + 1, b, i, b.length - i);
+		return b;
+	}
+	
+	private static <T> T[] removeAt(T[] a, int i) {
+		T[] b = Arrays.copyOf(a, a.length - 1);
+		System.arraycopy(a, i + 1, b, i, b.length - i);
+		return b;
+	}
+	
+	/**
+	 * A node of the trie, with its children sorted by the character leading to them.
+	 * Nodes are only modified while they are copied, before the trie containing them is published.
+	 */
+	private static class Node<V> {
+		
+		private static final char[] NO_LABELS = new char[0];
+		
+		private char[] labels = NO_LABELS;
+		private Node<V>[] children = emptyChildren();
+		private String key;
+		private V value;
+		private int count;
+		
+		private Node<V> child(char c) {
+			char[] l = labels;
+			// Linear search is faster than binary search for the small fan-out typical of keywords.
+			if (l.length <= 8) {
+				for (int i = 0; i < l.length; i++) if (l[i] == c) return children[i];
+				return null;
+			}
+			int i = Arrays.binarySearch(l, c);
+			return i >= 0 ? children[i] : null;
+		}
+		
+		private Node<V> copy() {
+			Node<V> copy = new Node<>();
+			copy.labels = labels;
+			copy.children = children;
+			copy.key = key;
+			copy.value = value;
+			copy.count = count;
+			return copy;
+		}
+		
+		@SuppressWarnings("unchecked")
+		private static <V> Node<V>[] emptyChildren() {
+			return (Node<V>[]) new Node<?>[0];
+		}
+		
+	}
+
+}
@@ -0,0 +1,125 @@
+package net.winrob.commons.pythia;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds, with buckets of logarithmically increasing width.
+ * Each power of two is split into {@value #SUB_BUCKETS} linear buckets (as in HdrHistogram), so a recorded value is known
+ * to within 12.5%. The buckets are striped by thread, so that threads recording at once rarely update the same counter.
+ * 
+ * @author Winter Roberts
+ */
+final class LatencyHistogram {
+	
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	// Values of 2^41ns (about 36 minutes) or more share the last bucket, their maximum is still recorded exactly.
+	private static final int MAX_EXPONENT = 40;
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+	private static final int STRIPES = Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()));
+	
+	private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+	
+	LatencyHistogram() {
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new AtomicLongArray(BUCKETS);
+		}
+	}
+	
+	/**
+	 * @param nanos The latency which should be recorded.
+	 */
+	void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+		stripes[stripe].getAndIncrement(bucket(nanos));
+		sum.add(nanos);
+		max.accumulate(nanos);
+	}
+	
+	/**
+	 * @param nanos A latency.
+	 * @return The index of the bucket which counts the latency.
+	 */
+	static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS) return (int) nanos;
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+		int mantissa = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + mantissa;
+	}
+	
+	/**
+	 * @param bucket The index of a bucket.
+	 * @return The greatest latency counted by the bucket.
+	 */
+	static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) return bucket;
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		long mantissa = SUB_BUCKETS + bucket % SUB_BUCKETS;
+		return ((mantissa + 1) << (exponent - SUB_BITS)) - 1;
+	}
+	
+	/**
+	 * @return The count of every bucket, summed over the stripes.
+	 */
+	long[] counts() {
+		long[] counts = new long[BUCKETS];
+		for (AtomicLongArray stripe : stripes) {
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] += stripe.get(i);
+			}
+		}
+		return counts;
+	}
+	
+	/**
+	 * @param counts The counts of each bucket, see {@link #counts()}.
+	 * @param quantile The quantile, between 0 and 1.
+	 * @return The upper bound of the bucket holding the quantile (but no more than the maximum), or 0 if nothing was recorded.
+	 */
+	long valueAt(long[] counts, double quantile) {
+		long total = 0;
+		for (long c : counts) total += c;
+		if (total == 0) return 0;
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) return Math.min(upperBound(i), getMax());
+		}
+		return getMax();
+	}
+	
+	/**
+	 * @return The sum of every recorded latency.
+	 */
+	long getSum() {
+		return sum.sum();
+	}
+	
+	/**
+	 * @return The greatest recorded latency.
+	 */
+	long getMax() {
+		return max.get();
+	}
+	
+	/**
+	 * Discards every recorded latency. Latencies recorded during a reset may be partly discarded.
+	 */
+	void reset() {
+		for (AtomicLongArray stripe : stripes) {
+			for (int i = 0; i < BUCKETS; i++) {
+				stripe.set(i, 0);
+			}
+		}
+		sum.reset();
+		max.reset();
+	}
+	
+}
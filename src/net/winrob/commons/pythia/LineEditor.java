@@ -0,0 +1,300 @@
+package net.winrob.commons.pythia;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Edits the lines typed at a terminal, which is put in raw mode (through {@code stty}) so that each key is read as it is
+ * typed. Tab completes the word at the cursor from a {@link CommandLine}, as far as its candidates agree, and a second Tab lists
+ * them. The arrow keys move within the line and through its history, and the usual control keys (Ctrl-A, Ctrl-E, Ctrl-K,
+ * Ctrl-U, Ctrl-W, Ctrl-L) edit it. Ctrl-D on an empty line ends the input.
+ * <p>
+ * The terminal keeps its signals, so Ctrl-C still interrupts the application, and its settings are restored when the editor is
+ * {@link #close() closed}.
+ * 
+ * @author Winter Roberts
+ */
+final class LineEditor implements Closeable {
+	
+	private static final int HISTORY_SIZE = 500;
+	private static final char BELL = 7;
+	
+	private final CommandLine commandLine;
+	private final Reader in;
+	private final PrintStream out;
+	private final String saved;
+	private final List<String> history;
+	
+	private StringBuilder line;
+	private int cursor;
+	private String prompt;
+	private boolean listing;
+	private boolean closed;
+	
+	private LineEditor(CommandLine commandLine, String saved) {
+		this.commandLine = commandLine;
+		this.saved = saved;
+		in = new InputStreamReader(System.in, Charset.defaultCharset());
+		out = System.out;
+		history = new ArrayList<>();
+	}
+	
+	/**
+	 * Puts the terminal in raw mode, if there is one.
+	 * 
+	 * @param commandLine The command line words are completed from.
+	 * @return The editor, or null if the application is not attached to a terminal whose mode can be set.
+	 */
+	static LineEditor open(CommandLine commandLine) {
+		if (System.console() == null || File.separatorChar != '/') return null;
+		try {
+			String saved = stty("-g").trim();
+			if (saved.isEmpty()) return null;
+			stty("-icanon -echo min 1 time 0");
+			return new LineEditor(commandLine, saved);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Reads a line, showing a prompt.
+	 * 
+	 * @param prompt The prompt.
+	 * @return The line, or null if the input ended.
+	 * @throws IOException If the terminal could not be read.
+	 */
+	String readLine(String prompt) throws IOException {
+		this.prompt = prompt;
+		line = new StringBuilder();
+		cursor = 0;
+		listing = false;
+		int recalled = history.size();
+		String editing = "";
+		out.print(prompt);
+		out.flush();
+		while (true) {
+			int c = in.read();
+			boolean tab = false;
+			switch (c) {
+			case -1:
+				return line.length() == 0 ? null : accept();
+			case '\r':
+			case '\n':
+				return accept();
+			case 4: // Ctrl-D
+				if (line.length() == 0) {
+					out.println();
+					return null;
+				}
+				delete(cursor, cursor + 1);
+				break;
+			case 127:
+			case '\b':
+				delete(cursor - 1, cursor);
+				break;
+			case '\t':
+				complete();
+				tab = true;
+				break;
+			case 1: // Ctrl-A
+				cursor = 0;
+				break;
+			case 5: // Ctrl-E
+				cursor = line.length();
+				break;
+			case 11: // Ctrl-K
+				delete(cursor, line.length());
+				break;
+			case 21: // Ctrl-U
+				delete(0, cursor);
+				break;
+			case 23: // Ctrl-W
+				int start = cursor;
+				while (start > 0 && Character.isWhitespace(line.charAt(start - 1))) start--;
+				while (start > 0 && !Character.isWhitespace(line.charAt(start - 1))) start--;
+				delete(start, cursor);
+				break;
+			case 12: // Ctrl-L
+				out.print("\033[H\033[2J");
+				break;
+			case 27:
+				int key = escape();
+				if (key == 'A' || key == 'B') {
+					if (recalled == history.size()) editing = line.toString();
+					recalled = Math.max(0, Math.min(history.size(), recalled + (key == 'A' ? -1 : 1)));
+					line = new StringBuilder(recalled == history.size() ? editing : history.get(recalled));
+					cursor = line.length();
+				} else if (key == 'C') {
+					cursor = Math.min(line.length(), cursor + 1);
+				} else if (key == 'D') {
+					cursor = Math.max(0, cursor - 1);
+				} else if (key == 'H') {
+					cursor = 0;
+				} else if (key == 'F') {
+					cursor = line.length();
+				} else if (key == '~') {
+					delete(cursor, cursor + 1);
+				}
+				break;
+			default:
+				if (c >= ' ') {
+					line.insert(cursor++, (char) c);
+				}
+			}
+			listing = tab;
+			redraw();
+		}
+	}
+	
+	/**
+	 * Reads the rest of an escape sequence.
+	 * 
+	 * @return The final character of a cursor key ('A' to 'D', 'H' or 'F'), '~' for Delete, or 0 for any other sequence.
+	 */
+	private int escape() throws IOException {
+		int c = in.read();
+		if (c != '[' && c != 'O') return 0;
+		c = in.read();
+		if (c >= 'A' && c <= 'D' || c == 'H' || c == 'F') return c;
+		if (c == '3' && in.read() == '~') return '~';
+		// Other sequences (such as Insert or Page Up) are read to their end and ignored.
+		while (c >= '0' && c <= '9' || c == ';') c = in.read();
+		return 0;
+	}
+	
+	/**
+	 * Completes the word at the cursor, as far as its candidates agree, listing them if it is already complete and this is the
+	 * second Tab in a row.
+	 */
+	private void complete() {
+		Completion completion = commandLine.complete(line, cursor);
+		if (completion.isEmpty()) {
+			out.print(BELL);
+			return;
+		}
+		String replacement;
+		if (completion.getCount() == 1) {
+			String candidate = completion.getCandidates().get(0);
+			// A completed word is followed by a space, unless it is a directory or one already follows it.
+			boolean spaced = completion.getEnd() < line.length() && Character.isWhitespace(line.charAt(completion.getEnd()));
+			replacement = Tokenizer.escape(candidate) + (spaced || candidate.endsWith(File.separator) ? "" : " ");
+		} else if (!completion.getCommonPrefix().equals(completion.getWord())) {
+			replacement = Tokenizer.escape(completion.getCommonPrefix());
+		} else {
+			if (listing) list(completion);
+			else out.print(BELL);
+			return;
+		}
+		line.replace(completion.getStart(), completion.getEnd(), replacement);
+		cursor = completion.getStart() + replacement.length();
+	}
+	
+	/**
+	 * Lists the candidates of a completion in columns below the line.
+	 */
+	private void list(Completion completion) {
+		List<String> candidates = completion.getCandidates();
+		int width = 0;
+		for (String c : candidates) width = Math.max(width, c.length());
+		width += 2;
+		int columns = Math.max(1, terminalWidth() / width);
+		StringBuilder sb = new StringBuilder("\r\n");
+		for (int i = 0; i < candidates.size(); i++) {
+			String c = candidates.get(i);
+			sb.append(c);
+			if ((i + 1) % columns == 0 || i == candidates.size() - 1) sb.append("\r\n");
+			else for (int s = c.length(); s < width; s++) sb.append(' ');
+		}
+		if (completion.getCount() > candidates.size()) {
+			sb.append("(").append(completion.getCount() - candidates.size()).append(" more)\r\n");
+		}
+		out.print(sb);
+	}
+	
+	private void delete(int start, int end) {
+		start = Math.max(0, start);
+		end = Math.min(line.length(), end);
+		if (start >= end) return;
+		line.delete(start, end);
+		cursor = start;
+	}
+	
+	private void redraw() {
+		StringBuilder sb = new StringBuilder("\r").append(prompt).append(line).append("\033[K");
+		int back = line.length() - cursor;
+		if (back > 0) sb.append("\033[").append(back).append('D');
+		out.print(sb);
+		out.flush();
+	}
+	
+	private String accept() {
+		out.print("\r\n");
+		out.flush();
+		String accepted = line.toString();
+		if (!accepted.isBlank() && (history.isEmpty() || !history.get(history.size() - 1).equals(accepted))) {
+			if (history.size() == HISTORY_SIZE) history.remove(0);
+			history.add(accepted);
+		}
+		return accepted;
+	}
+	
+	/**
+	 * @return The width of the terminal, or the {@link HelpIndex#terminalWidth() default width} if it could not be found.
+	 */
+	private static int terminalWidth() {
+		try {
+			String[] size = stty("size").trim().split("\\s+");
+			if (size.length == 2) return Integer.parseInt(size[1]);
+		} catch (IOException | NumberFormatException e) {
+			// Use the default.
+		}
+		return HelpIndex.terminalWidth();
+	}
+	
+	/**
+	 * Restores the terminal's settings, once.
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed) return;
+		closed = true;
+		try {
+			stty(saved);
+		} catch (IOException e) {
+			// The terminal is gone.
+		}
+	}
+	
+	/**
+	 * Runs {@code stty} on the terminal.
+	 * 
+	 * @param args The arguments.
+	 * @return The output.
+	 * @throws IOException If {@code stty} could not be run, or failed.
+	 */
+	private static String stty(String args) throws IOException {
+		Process p = new ProcessBuilder("sh", "-c", "stty " + args + " < /dev/tty").redirectErrorStream(true).start();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (InputStream s = p.getInputStream()) {
+			s.transferTo(output);
+		}
+		try {
+			if (p.waitFor() != 0) throw new IOException("stty " + args + " failed: " + output);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted running stty", e);
+		}
+		return output.toString(Charset.defaultCharset());
+	}
+	
+}
@@ -0,0 +1,26 @@
+package net.winrob.commons.pythia;
+
+import java.util.Iterator;
+
+/**
+ * An {@link ArgumentConverter} which can convert argument(s) to a primitive {@code long} without boxing,
+ * so that primitive fields are populated without allocation.
+ * 
+ * @author Winter Roberts
+ */
+public interface LongArgumentConverter extends ArgumentConverter<Long> {
+	
+	/**
+	 * Parse argument(s), converting them to a primitive {@code long}.
+	 * 
+	 * @param itr String iterator to be consumed.
+	 * @return The parsed value.
+	 */
+	public long parseLong(Iterator<String> itr);
+	
+	@Override
+	public default Long parseArg(Iterator<String> itr) {
+		return parseLong(itr);
+	}
+
+}
@@ -0,0 +1,17 @@
+package net.winrob.commons.pythia;
+
+import java.util.Iterator;
+
+/**
+ * An {@link ArgumentConverter} for a single argument to a {@link Long} (or {@code long}).
+ * 
+ * @author Winter Roberts
+ */
+public class LongConverter implements LongArgumentConverter {
+
+	@Override
+	public long parseLong(Iterator<String> itr) {
+		return Long.parseLong(itr.next());
+	}
+
+}
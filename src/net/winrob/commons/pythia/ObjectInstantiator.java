@@ -1,28 +1,42 @@
 package net.winrob.commons.pythia;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 
-import sun.misc.Unsafe;
-
 /**
- * A class used to instantiate other classes without calling their constructors.
+ * A class used to instantiate other classes without calling their constructors, through {@code sun.misc.Unsafe}.
+ * Unsafe is resolved reflectively, so this class loads (but is unavailable) on runtimes without the jdk.unsupported module.
+ * It is only the fallback of {@link InstantiationStrategy#DEFAULT}, for {@link Command}s without a no-argument constructor.
  * 
  * @author Winter Roberts
- *
+ * 
  */
 public class ObjectInstantiator {
 	
-	private static Unsafe sUnsafe;
-	private static ObjectInstantiator self = null;
+	private final MethodHandle allocateInstance;
 	
 	private ObjectInstantiator() {
+		MethodHandle allocate;
 		try {
-			final Field unsafeField = Unsafe.class.getDeclaredField("theUnsafe");
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			final Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
 			unsafeField.setAccessible(true);
-			sUnsafe = (Unsafe) unsafeField.get(null);
+			allocate = MethodHandles.lookup()
+					.findVirtual(unsafeClass, "allocateInstance", MethodType.methodType(Object.class, Class.class))
+					.bindTo(unsafeField.get(null));
 		} catch (Throwable e) {
-			sUnsafe = null;
+			allocate = null;
 		}
+		allocateInstance = allocate;
+	}
+	
+	/**
+	 * @return True if this runtime allows classes to be instantiated without calling their constructors, false otherwise.
+	 */
+	public boolean isAvailable() {
+		return allocateInstance != null;
 	}
 	
 	/**
@@ -30,14 +44,20 @@ public class ObjectInstantiator {
 	 * 
 	 * @param <T> The runtime class type which need to be allocated.
 	 * @param clss The class.
-	 * @return A new instance of the given class.
+	 * @return A new instance of the given class, or null if the class cannot be instantiated (such as an abstract class).
+	 * @throws IllegalStateException If the runtime does not provide {@code sun.misc.Unsafe}, see {@link #isAvailable()}.
 	 */
 	@SuppressWarnings("unchecked")
 	public final <T> T newInstance(Class<T> clss) {
+		if (allocateInstance == null) throw new IllegalStateException("sun.misc.Unsafe is not available, " + clss.getName() + " cannot be allocated");
 		try {
-			return (T)sUnsafe.allocateInstance(clss);
+			return (T) (Object) allocateInstance.invokeExact(clss);
 		} catch (InstantiationException e) {
 			return null;
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
 		}
 	}
 	
@@ -45,7 +65,12 @@ public class ObjectInstantiator {
 	 * @return A singleton instance of the instantiator.
 	 */
 	public static ObjectInstantiator getInstance() {
-		if(self==null) self = new ObjectInstantiator();
-		return self;
+		return Holder.INSTANCE;
+	}
+	
+	private static class Holder {
+		
+		private static final ObjectInstantiator INSTANCE = new ObjectInstantiator();
+		
 	}
 }
@@ -0,0 +1,90 @@
+package net.winrob.commons.pythia;
+
+import java.util.Arrays;
+
+/**
+ * The immutable table an interpreter scans options with, mapping each option key (an alias, or "-" and the name of an
+ * option which may be used by name) to the index of the option. Single-character ASCII keys, which are most options and the
+ * only ones which may be clustered, are held in an array indexed by the character, so they are found without walking the trie.
+ *
+ * @author Winter Roberts
+ */
+final class OptionTable {
+
+	static final OptionTable EMPTY = new OptionTable(KeywordTrie.empty(), new int[0]);
+
+	private static final int ASCII = 128;
+
+	private final KeywordTrie<Integer> keys;
+	private final int[] ascii;
+
+	private OptionTable(KeywordTrie<Integer> keys, int[] ascii) {
+		this.keys = keys;
+		this.ascii = ascii;
+	}
+
+	/**
+	 * @param key The key of an option.
+	 * @param index The index of the option.
+	 * @return A copy of this table with the key.
+	 */
+	OptionTable with(String key, int index) {
+		int[] a = ascii;
+		if (key.length() == 1 && key.charAt(0) < ASCII) {
+			a = Arrays.copyOf(ascii, ASCII);
+			if (ascii.length == 0) Arrays.fill(a, -1);
+			a[key.charAt(0)] = index;
+		}
+		return new OptionTable(keys.with(key, Integer.valueOf(index)), a);
+	}
+
+	/**
+	 * @param key The key of an option.
+	 * @return True if the key is in this table, false otherwise.
+	 */
+	boolean containsKey(String key) {
+		return keys.containsKey(key);
+	}
+
+	/**
+	 * Finds the option with a single-character key, such as one of a cluster of flags.
+	 *
+	 * @param c The key.
+	 * @return The index of the option, or -1 if there is none.
+	 */
+	int get(char c) {
+		if (c < ASCII) return ascii.length == 0 ? -1 : ascii[c];
+		Integer i = keys.get(String.valueOf(c));
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * Finds the option whose key is spelled by a range of characters, without copying them.
+	 *
+	 * @param s The characters containing the key.
+	 * @param start The index of the first character of the key.
+	 * @param end The index after the last character of the key.
+	 * @param abbreviations True if the range may be the unique prefix of a key.
+	 * @return The index of the option, or -1 if there is none.
+	 */
+	int find(CharSequence s, int start, int end, boolean abbreviations) {
+		if (end - start == 1) {
+			int i = get(s.charAt(start));
+			if (i >= 0 || !abbreviations) return i;
+		}
+		Integer i = keys.get(s, start, end);
+		if (i == null && abbreviations) {
+			String key = keys.findUniquePrefix(s, start, end);
+			if (key != null) i = keys.get(key);
+		}
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * @return The keys, from which the closest to a misspelled option are suggested.
+	 */
+	KeywordTrie<Integer> keys() {
+		return keys;
+	}
+
+}
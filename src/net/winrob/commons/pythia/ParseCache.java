@@ -0,0 +1,159 @@
+package net.winrob.commons.pythia;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.winrob.commons.pythia.CommandLine.CommandInterpreter;
+
+/**
+ * A bounded, least-recently-used cache of the {@link BindingPlan}s interpreted from whole command lines, keyed by their tokens.
+ * Repeated command lines skip interpretation and argument conversion, and only populate a fresh {@link Command} instance.
+ * <p>
+ * Values converted for a cached line are shared by every {@link Command} executed from it, so the cache should only be
+ * enabled when every {@link ArgumentConverter} in use produces immutable values.
+ * <p>
+ * A cached line remembers the interpreter of its keyword and the commands of the {@link CommandLine} it was interpreted
+ * against, so that once the commands change (see {@link CommandLine#replaceCommand(String, Class)}), each line is checked
+ * against them when it is next executed, rather than the cache being cleared or scanned. Likewise a line cached before a
+ * converter was added or {@link CommandLine#setAllowAbbreviations(boolean) abbreviation matching} changed is interpreted again.
+ * 
+ * @author Winter Roberts
+ */
+public final class ParseCache {
+	
+	private final int maxEntries;
+	private final Map<List<String>, Cached> plans;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	
+	/**
+	 * @param maxEntries The maximum number of command lines which should be cached.
+	 */
+	ParseCache(int maxEntries) {
+		if (maxEntries <= 0) throw new IllegalArgumentException("Cache size must be positive");
+		this.maxEntries = maxEntries;
+		plans = new LinkedHashMap<List<String>, Cached>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<List<String>, Cached> eldest) {
+				return size() > ParseCache.this.maxEntries;
+			}
+			
+		};
+	}
+	
+	/**
+	 * @param tokens The tokens of a command line.
+	 * @param commandLine The command line, which finds the current interpreter of the keyword if its commands have changed since the line was cached.
+	 * @param commands The current commands of the command line.
+	 * @param generation The current number of changes of the converters and abbreviation matching of the command line.
+	 * @return The cached plan of the command line, or null if it is not cached, or its keyword's interpreter or the converters
+	 *         or abbreviation matching have changed.
+	 */
+	BindingPlan get(List<String> tokens, CommandLine commandLine, KeywordTrie<CommandInterpreter> commands, int generation) {
+		Cached entry;
+		synchronized (plans) {
+			entry = plans.get(tokens);
+		}
+		if (entry != null && entry.generation != generation) {
+			synchronized (plans) {
+				plans.remove(tokens, entry);
+			}
+			entry = null;
+		} else if (entry != null && entry.commands != commands) {
+			if (commandLine.lookup(commands, tokens.get(0)) == entry.interpreter) {
+				entry.commands = commands;
+			} else {
+				synchronized (plans) {
+					plans.remove(tokens, entry);
+				}
+				entry = null;
+			}
+		}
+		if (entry == null) misses.increment();
+		else hits.increment();
+		return entry == null ? null : entry.plan;
+	}
+	
+	/**
+	 * @param tokens The (immutable) tokens of a command line.
+	 * @param plan The plan interpreted from the command line.
+	 * @param interpreter The interpreter of the line's keyword.
+	 * @param commands The commands the line was interpreted against.
+	 * @param generation The number of changes of the converters and abbreviation matching before the line was interpreted.
+	 */
+	void put(List<String> tokens, BindingPlan plan, CommandInterpreter interpreter, KeywordTrie<CommandInterpreter> commands, int generation) {
+		synchronized (plans) {
+			plans.put(tokens, new Cached(plan, interpreter, commands, generation));
+		}
+	}
+	
+	/**
+	 * Removes every cached command line.
+	 */
+	public void clear() {
+		synchronized (plans) {
+			plans.clear();
+		}
+	}
+	
+	/**
+	 * @return The number of command lines found in the cache.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	/**
+	 * @return The number of command lines which were not cached, and had to be interpreted.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	/**
+	 * @return The number of cached command lines.
+	 */
+	public int size() {
+		synchronized (plans) {
+			return plans.size();
+		}
+	}
+	
+	/**
+	 * @return The maximum number of cached command lines.
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+	
+	/**
+	 * A cached plan, with what it was interpreted against.
+	 */
+	private static final class Cached {
+		
+		private final BindingPlan plan;
+		private final CommandInterpreter interpreter;
+		private final int generation;
+		// Updated once the line is found to be unaffected by a change of the commands, so it is checked only once per change.
+		private volatile KeywordTrie<CommandInterpreter> commands;
+		
+		private Cached(BindingPlan plan, CommandInterpreter interpreter, KeywordTrie<CommandInterpreter> commands, int generation) {
+			this.plan = plan;
+			this.interpreter = interpreter;
+			this.commands = commands;
+			this.generation = generation;
+		}
+		
+	}
+	
+	@Override
+	public String toString() {
+		return "ParseCache[size=" + size() + "/" + maxEntries + ", hits=" + getHits() + ", misses=" + getMisses() + "]";
+	}
+
+}
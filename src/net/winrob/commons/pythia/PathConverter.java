@@ -0,0 +1,57 @@
+package net.winrob.commons.pythia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An {@link ArgumentConverter} for a single argument to a {@link Path}, which completes the entries of the directory being typed.
+ * Every matching entry is listed and sorted before the first are suggested, so that the count and common prefix of a large
+ * directory are found from the same listing.
+ * 
+ * @author Winter Roberts
+ */
+public class PathConverter implements CompletingArgumentConverter<Path> {
+
+	@Override
+	public Path parseArg(Iterator<String> itr) {
+		return Paths.get(itr.next());
+	}
+	
+	@Override
+	public List<String> complete(String prefix, int limit) {
+		List<String> found = list(prefix);
+		return found.size() > limit ? found.subList(0, limit) : found;
+	}
+	
+	/**
+	 * @param prefix The path typed so far.
+	 * @return Every entry of the directory being typed which begins with the name typed so far, in lexicographic order.
+	 */
+	private static List<String> list(String prefix) {
+		int slash = Math.max(prefix.lastIndexOf('/'), prefix.lastIndexOf(File.separatorChar));
+		String directory = prefix.substring(0, slash + 1);
+		String name = prefix.substring(slash + 1);
+		List<String> found = new ArrayList<>();
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(Paths.get(directory.isEmpty() ? "." : directory))) {
+			for (Path entry : entries) {
+				String n = entry.getFileName().toString();
+				if (!n.startsWith(name)) continue;
+				found.add(directory + n + (Files.isDirectory(entry) ? File.separator : ""));
+			}
+		} catch (IOException | InvalidPathException e) {
+			// Nothing is suggested for a directory which cannot be listed.
+		}
+		Collections.sort(found);
+		return found;
+	}
+
+}
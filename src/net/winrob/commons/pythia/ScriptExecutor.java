@@ -0,0 +1,156 @@
+package net.winrob.commons.pythia;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+import net.winrob.commons.pythia.Tokenizer.Tokens;
+
+/**
+ * Executes a script of commands, one per line, decoding and tokenizing each line directly from the bytes it was read into.
+ * Blank lines and lines beginning with '#' are ignored.
+ * 
+ * @author Winter Roberts
+ */
+class ScriptExecutor {
+	
+	private static final long MAP_SIZE = 1 << 26;
+	private static final int READ_SIZE = 1 << 16;
+	
+	private final CommandLine commandLine;
+	private final ScriptReport report;
+	private final Tokenizer tokenizer = new Tokenizer();
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private CharBuffer chars = CharBuffer.allocate(8192);
+	private long lineNumber;
+	
+	ScriptExecutor(CommandLine commandLine, ErrorPolicy policy) {
+		this.commandLine = commandLine;
+		this.report = new ScriptReport(policy);
+	}
+	
+	/**
+	 * Executes a script file, memory-mapping it a region at a time.
+	 * 
+	 * @param script The path of the script.
+	 * @return The report of the execution.
+	 * @throws IOException If the script could not be read.
+	 */
+	ScriptReport execute(Path script) throws IOException {
+		try (FileChannel channel = FileChannel.open(script, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = 0;
+			while (position < size && !report.isStopped()) {
+				MappedByteBuffer region = channel.map(MapMode.READ_ONLY, position, Math.min(MAP_SIZE, size - position));
+				boolean last = position + region.capacity() == size;
+				decode(region, last);
+				// Bytes of a character split across regions were not consumed, and begin the next region.
+				position += region.position();
+			}
+			if (size == 0) decode(ByteBuffer.allocate(0), true);
+		}
+		return report;
+	}
+	
+	/**
+	 * Executes a script read from a channel in chunks.
+	 * 
+	 * @param channel The channel the script is read from, which is not closed.
+	 * @return The report of the execution.
+	 * @throws IOException If the script could not be read.
+	 */
+	ScriptReport execute(ReadableByteChannel channel) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocateDirect(READ_SIZE);
+		while (!report.isStopped() && channel.read(bytes) != -1) {
+			bytes.flip();
+			decode(bytes, false);
+			bytes.compact();
+		}
+		bytes.flip();
+		if (!report.isStopped()) decode(bytes, true);
+		return report;
+	}
+	
+	private void decode(ByteBuffer bytes, boolean endOfInput) {
+		while (!report.isStopped()) {
+			CoderResult result = decoder.decode(bytes, chars, endOfInput);
+			if (result.isOverflow()) {
+				if (!executeLines(false)) grow();
+			} else {
+				// Every byte read so far is decoded, so the lines it completed run before the channel is read again, which may
+				// block until they have.
+				if (!endOfInput) executeLines(false);
+				break;
+			}
+		}
+		if (endOfInput && !report.isStopped()) {
+			while (decoder.flush(chars).isOverflow()) grow();
+			executeLines(true);
+			decoder.reset();
+		}
+	}
+	
+	/**
+	 * Executes every complete line in the character buffer (whose content always begins at index 0 once flipped), keeping any incomplete line for the next decode.
+	 * 
+	 * @param endOfInput True if an incomplete final line should also be executed.
+	 * @return True if any line was executed, false if the buffer holds only part of a line.
+	 */
+	private boolean executeLines(boolean endOfInput) {
+		chars.flip();
+		int start = chars.position();
+		int limit = chars.limit();
+		boolean executed = false;
+		for (int i = start; i < limit && !report.isStopped(); i++) {
+			if (chars.get(i) == '\n') {
+				executeLine(start, i);
+				start = i + 1;
+				executed = true;
+			}
+		}
+		if (endOfInput && start < limit && !report.isStopped()) {
+			executeLine(start, limit);
+			start = limit;
+		}
+		chars.position(start);
+		chars.compact();
+		return executed;
+	}
+	
+	private void executeLine(int start, int end) {
+		lineNumber++;
+		report.lineRead();
+		if (end > start && chars.get(end - 1) == '\r') end--;
+		int first = start;
+		while (first < end && Character.isWhitespace(chars.get(first))) first++;
+		if (first == end || chars.get(first) == '#') return;
+		try {
+			Tokens tokens = tokenizer.tokenize(chars, start, end);
+			commandLine.execute(tokens.toArray());
+			report.succeeded();
+		} catch (CommandInterpretException | IllegalAccessException | RuntimeException e) {
+			report.failed(lineNumber, chars.subSequence(start, end).toString(), e);
+		}
+	}
+	
+	private void grow() {
+		CharBuffer grown = CharBuffer.allocate(chars.capacity() * 2);
+		chars.flip();
+		grown.put(chars);
+		chars = grown;
+	}
+
+}
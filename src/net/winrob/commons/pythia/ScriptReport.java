@@ -0,0 +1,143 @@
+package net.winrob.commons.pythia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The aggregated outcome of executing a script of commands, one command per line.
+ * 
+ * @author Winter Roberts
+ */
+public final class ScriptReport {
+	
+	private final ErrorPolicy policy;
+	private long lines;
+	private long executed;
+	private long failed;
+	private boolean stopped;
+	private final List<Failure> failures = new ArrayList<>();
+	
+	ScriptReport(ErrorPolicy policy) {
+		this.policy = policy;
+	}
+	
+	void lineRead() {
+		lines++;
+	}
+	
+	void succeeded() {
+		executed++;
+	}
+	
+	void failed(long line, String text, Exception cause) {
+		executed++;
+		failed++;
+		if (policy != ErrorPolicy.SKIP) failures.add(new Failure(line, text, cause));
+		if (policy == ErrorPolicy.STOP) stopped = true;
+	}
+	
+	/**
+	 * @return The {@link ErrorPolicy} the script was executed with.
+	 */
+	public ErrorPolicy getPolicy() {
+		return policy;
+	}
+	
+	/**
+	 * @return The number of lines read, including blank and comment lines.
+	 */
+	public long getLines() {
+		return lines;
+	}
+	
+	/**
+	 * @return The number of commands attempted, whether they succeeded or failed.
+	 */
+	public long getExecuted() {
+		return executed;
+	}
+	
+	/**
+	 * @return The number of commands which failed.
+	 */
+	public long getFailed() {
+		return failed;
+	}
+	
+	/**
+	 * @return True if execution stopped early because of a failure, false otherwise.
+	 */
+	public boolean isStopped() {
+		return stopped;
+	}
+	
+	/**
+	 * @return True if no command failed, false otherwise.
+	 */
+	public boolean isSuccessful() {
+		return failed == 0;
+	}
+	
+	/**
+	 * @return The recorded failures in line order, which is empty if the script was executed with {@link ErrorPolicy#SKIP}.
+	 */
+	public List<Failure> getFailures() {
+		return Collections.unmodifiableList(failures);
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(executed).append(" command(s) executed from ").append(lines).append(" line(s), ").append(failed).append(" failed");
+		if (stopped) sb.append(", stopped early");
+		for (Failure f : failures) {
+			sb.append("\r\n  ").append(f);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * A command which failed, and the line it was read from.
+	 */
+	public static final class Failure {
+		
+		private final long line;
+		private final String text;
+		private final Exception cause;
+		
+		private Failure(long line, String text, Exception cause) {
+			this.line = line;
+			this.text = text;
+			this.cause = cause;
+		}
+		
+		/**
+		 * @return The (1-based) line number of the command.
+		 */
+		public long getLine() {
+			return line;
+		}
+		
+		/**
+		 * @return The text of the line.
+		 */
+		public String getText() {
+			return text;
+		}
+		
+		/**
+		 * @return The exception the command failed with.
+		 */
+		public Exception getCause() {
+			return cause;
+		}
+		
+		@Override
+		public String toString() {
+			return "line " + line + ": " + text + " (" + cause.getMessage() + ")";
+		}
+		
+	}
+
+}
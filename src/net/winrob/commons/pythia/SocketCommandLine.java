@@ -0,0 +1,323 @@
+package net.winrob.commons.pythia;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * A front end which serves a {@link CommandLine} to many concurrent sessions over a local socket, so that a running
+ * application can be administered without attaching a terminal.
+ * <p>
+ * Each connection is a session which sends commands one per line (UTF-8, see {@link Tokenizer}), where a line may be a
+ * {@link CommandSequence} such as {@code a; b && c}. It receives the output of each command, which is printed to the session's
+ * own {@link CommandLine#output()} rather than to stdout, and a line beginning "error: " for each command which failed. The lines of a session are executed in order, one at a time, on the executor, while a
+ * single selector thread reads and writes every session.
+ * <p>
+ * A session is held back rather than buffered without bound: once it has {@link #setMaxPendingLines(int) too many} lines
+ * waiting, it is not read until they are executed, and a command which has {@link #setOutputLimit(int) too much} output
+ * waiting to be sent blocks until the client has read it. Sessions may also be {@link #setRateLimit(double, int) rate limited}.
+ * 
+ * @author Winter Roberts
+ */
+public class SocketCommandLine {
+	
+	private static final byte[] REFUSED = "error: too many sessions\n".getBytes(StandardCharsets.UTF_8);
+	
+	private final CommandLine commandLine;
+	private final Set<SocketSession> sessions;
+	private final Queue<Runnable> tasks;
+	
+	private volatile Executor executor;
+	private volatile int maxSessions;
+	private volatile int maxPendingLines;
+	private volatile int maxLineLength;
+	private volatile int outputLimit;
+	private volatile double rate;
+	private volatile int burst;
+	
+	private Selector selector;
+	private ServerSocketChannel server;
+	private Thread selectorThread;
+	private volatile boolean running;
+	
+	/**
+	 * Creates a front end for a command line, which serves nothing until it is {@link #start(SocketAddress) started}.
+	 * 
+	 * @param commandLine The command line sessions execute commands on.
+	 */
+	public SocketCommandLine(CommandLine commandLine) {
+		this.commandLine = commandLine;
+		sessions = ConcurrentHashMap.newKeySet();
+		tasks = new ConcurrentLinkedQueue<>();
+		executor = CommandExecutors.getDefault();
+		maxSessions = 256;
+		maxPendingLines = 64;
+		maxLineLength = 1 << 16;
+		outputLimit = 1 << 20;
+	}
+	
+	/**
+	 * Sets the executor commands are executed on, by default one virtual thread per session where the runtime supports them.
+	 * A command may block its thread while its output is sent, so the executor should not be a small fixed pool.
+	 * 
+	 * @param executor The executor which should execute the lines of sessions.
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+	
+	/**
+	 * @param maxSessions The maximum number of concurrent sessions, beyond which connections are refused (256 by default).
+	 */
+	public void setMaxSessions(int maxSessions) {
+		this.maxSessions = maxSessions;
+	}
+	
+	/**
+	 * @param maxPendingLines The number of lines a session may have waiting to execute before it is no longer read (64 by default).
+	 */
+	public void setMaxPendingLines(int maxPendingLines) {
+		this.maxPendingLines = Math.max(1, maxPendingLines);
+	}
+	
+	/**
+	 * @param maxLineLength The maximum length of a line in bytes, beyond which the session is closed (64KiB by default).
+	 */
+	public void setMaxLineLength(int maxLineLength) {
+		this.maxLineLength = maxLineLength;
+	}
+	
+	/**
+	 * @param outputLimit The number of bytes of output a session may have waiting to be sent before commands writing to it block (1MiB by default).
+	 */
+	public void setOutputLimit(int outputLimit) {
+		this.outputLimit = outputLimit;
+	}
+	
+	/**
+	 * Limits the rate each session may execute lines (each of which may be a sequence of commands) at. Lines beyond the limit
+	 * are not executed, and write an error instead.
+	 * 
+	 * @param linesPerSecond The sustained number of lines per second, or 0 for no limit (the default).
+	 * @param burst The number of lines which may be executed at once after the session has been idle.
+	 */
+	public void setRateLimit(double linesPerSecond, int burst) {
+		this.rate = linesPerSecond;
+		this.burst = Math.max(1, burst);
+	}
+	
+	/**
+	 * Binds to a socket address and starts serving sessions on a new selector thread.
+	 * 
+	 * @param address The address, such as a loopback {@link InetSocketAddress} (whose port may be 0), or a {@link #unixAddress(Path)}.
+	 * @return The bound address.
+	 * @throws IOException If the address could not be bound.
+	 * @throws IllegalStateException If this front end is already started.
+	 * @throws UnsupportedOperationException If the address is a Unix-domain address, and the runtime does not support them.
+	 */
+	public synchronized SocketAddress start(SocketAddress address) throws IOException {
+		if (running) throw new IllegalStateException("Already started");
+		ServerSocketChannel channel = open(address);
+		Selector s;
+		try {
+			channel.configureBlocking(false);
+			channel.bind(address);
+			s = Selector.open();
+			channel.register(s, SelectionKey.OP_ACCEPT);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		server = channel;
+		selector = s;
+		running = true;
+		selectorThread = new Thread(this::select, "Pythia-Socket");
+		selectorThread.setDaemon(true);
+		selectorThread.start();
+		return channel.getLocalAddress();
+	}
+	
+	/**
+	 * Stops accepting connections, and closes every session. Commands which are executing are not interrupted.
+	 */
+	public synchronized void stop() {
+		if (!running) return;
+		running = false;
+		selector.wakeup();
+		try {
+			selectorThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * @return True if this front end is started, false otherwise.
+	 */
+	public boolean isAlive() {
+		return running;
+	}
+	
+	/**
+	 * @return The number of open sessions.
+	 */
+	public int getSessionCount() {
+		return sessions.size();
+	}
+	
+	/**
+	 * @return The command line sessions execute commands on.
+	 */
+	public CommandLine getCommandLine() {
+		return commandLine;
+	}
+	
+	Executor getExecutor() {
+		return executor;
+	}
+	
+	int getMaxPendingLines() {
+		return maxPendingLines;
+	}
+	
+	int getMaxLineLength() {
+		return maxLineLength;
+	}
+	
+	int getOutputLimit() {
+		return outputLimit;
+	}
+	
+	double getRate() {
+		return rate;
+	}
+	
+	int getBurst() {
+		return burst;
+	}
+	
+	/**
+	 * Runs a task on the selector thread, which is the only thread to change the interest of a session's key.
+	 * 
+	 * @param task The task.
+	 */
+	void schedule(Runnable task) {
+		tasks.add(task);
+		Selector s = selector;
+		if (s != null) s.wakeup();
+	}
+	
+	void closed(SocketSession session) {
+		sessions.remove(session);
+	}
+	
+	private void select() {
+		try {
+			while (running) {
+				selector.select();
+				Runnable task;
+				while ((task = tasks.poll()) != null) task.run();
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) continue;
+					if (key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					SocketSession session = (SocketSession) key.attachment();
+					try {
+						if (key.isReadable()) session.read();
+						if (key.isValid() && key.isWritable()) session.write();
+					} catch (IOException | RuntimeException e) {
+						session.close();
+					}
+				}
+			}
+		} catch (IOException | ClosedSelectorException e) {
+			running = false;
+		} finally {
+			for (SocketSession session : sessions) session.close();
+			tasks.clear();
+			try {
+				server.close();
+				selector.close();
+			} catch (IOException e) {
+				// Already stopping.
+			}
+		}
+	}
+	
+	private void accept() throws IOException {
+		SocketChannel channel = server.accept();
+		if (channel == null) return;
+		if (sessions.size() >= maxSessions) {
+			channel.configureBlocking(false);
+			channel.write(ByteBuffer.wrap(REFUSED));
+			channel.close();
+			return;
+		}
+		channel.configureBlocking(false);
+		SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+		SocketSession session = new SocketSession(this, channel, key);
+		key.attach(session);
+		sessions.add(session);
+	}
+	
+	/**
+	 * Opens a server channel for the protocol family of an address. Unix-domain sockets are resolved dynamically, so that they
+	 * are used when available without requiring a runtime which has them.
+	 */
+	private static ServerSocketChannel open(SocketAddress address) throws IOException {
+		if (address instanceof InetSocketAddress) return ServerSocketChannel.open();
+		try {
+			ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+			return (ServerSocketChannel) MethodHandles.publicLookup()
+					.findStatic(ServerSocketChannel.class, "open", MethodType.methodType(ServerSocketChannel.class, ProtocolFamily.class))
+					.invokeExact(unix);
+		} catch (IOException e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new UnsupportedOperationException("Unix-domain sockets are not supported by this runtime", e);
+		}
+	}
+	
+	/**
+	 * Creates the address of a Unix-domain socket, which is only reachable from the local machine and may be protected by file
+	 * permissions. The socket file is not deleted when the front end stops.
+	 * 
+	 * @param path The path of the socket file, which must not exist.
+	 * @return The address.
+	 * @throws UnsupportedOperationException If the runtime does not support Unix-domain sockets.
+	 */
+	public static SocketAddress unixAddress(Path path) {
+		try {
+			Class<?> type = Class.forName("java.net.UnixDomainSocketAddress");
+			return (SocketAddress) MethodHandles.publicLookup()
+					.findStatic(type, "of", MethodType.methodType(type, Path.class))
+					.invoke(path);
+		} catch (Throwable e) {
+			throw new UnsupportedOperationException("Unix-domain sockets are not supported by this runtime", e);
+		}
+	}
+	
+}
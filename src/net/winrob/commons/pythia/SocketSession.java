@@ -0,0 +1,302 @@
+package net.winrob.commons.pythia;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+
+/**
+ * One connection to a {@link SocketCommandLine}. Lines are read on the selector thread and queued, then executed in order by
+ * one task at a time on the executor, whose output is queued as buffers for the selector thread to write.
+ * 
+ * @author Winter Roberts
+ */
+class SocketSession {
+	
+	private static final int READ_SIZE = 1 << 13;
+	private static final int CHUNK_SIZE = 1 << 13;
+	
+	private final SocketCommandLine owner;
+	private final SocketChannel channel;
+	private final SelectionKey key;
+	
+	private ByteBuffer in;
+	private final Queue<String> lines;
+	private boolean draining;
+	private boolean endOfInput;
+	
+	private final Queue<ByteBuffer> outbound;
+	private final SessionOutput output;
+	private final PrintStream out;
+	private final CommandContext context;
+	private volatile boolean closed;
+	
+	private double tokens;
+	private long refilled;
+	
+	SocketSession(SocketCommandLine owner, SocketChannel channel, SelectionKey key) {
+		this.owner = owner;
+		this.channel = channel;
+		this.key = key;
+		in = ByteBuffer.allocate(READ_SIZE);
+		lines = new ArrayDeque<>();
+		outbound = new ConcurrentLinkedQueue<>();
+		output = new SessionOutput();
+		out = new PrintStream(output, false, StandardCharsets.UTF_8);
+		context = new CommandContext(out);
+		tokens = owner.getBurst();
+		refilled = System.nanoTime();
+	}
+	
+	/**
+	 * Reads from the channel and queues every complete line. Called on the selector thread.
+	 */
+	void read() throws IOException {
+		if (channel.read(in) < 0) {
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+			synchronized (this) {
+				endOfInput = true;
+			}
+			closeIfDone();
+			return;
+		}
+		in.flip();
+		int start = in.position();
+		int limit = in.limit();
+		for (int i = start; i < limit; i++) {
+			if (in.get(i) == '\n') {
+				int end = i > start && in.get(i - 1) == '\r' ? i - 1 : i;
+				queue(new String(in.array(), in.arrayOffset() + start, end - start, StandardCharsets.UTF_8));
+				start = i + 1;
+			}
+		}
+		in.position(start);
+		in.compact();
+		if (!in.hasRemaining()) {
+			if (in.capacity() >= owner.getMaxLineLength()) {
+				// The selector thread must not block on the output, so the error is queued directly.
+				output.queue(ByteBuffer.wrap(("error: line exceeds " + owner.getMaxLineLength() + " bytes\n").getBytes(StandardCharsets.UTF_8)));
+				key.interestOps((key.interestOps() | SelectionKey.OP_WRITE) & ~SelectionKey.OP_READ);
+				synchronized (this) {
+					lines.clear();
+					endOfInput = true;
+				}
+				return;
+			}
+			ByteBuffer grown = ByteBuffer.allocate(Math.min(in.capacity() * 2, owner.getMaxLineLength()));
+			in.flip();
+			grown.put(in);
+			in = grown;
+		}
+	}
+	
+	private void queue(String line) {
+		boolean start;
+		synchronized (this) {
+			lines.add(line);
+			if (lines.size() >= owner.getMaxPendingLines()) key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+			start = !draining;
+			draining = true;
+		}
+		if (start) owner.getExecutor().execute(this::drain);
+	}
+	
+	/**
+	 * Executes queued lines until there are none. Only one drain of a session runs at a time, so its lines execute in order.
+	 */
+	private void drain() {
+		CommandContext previous = CommandLine.bind(context);
+		try {
+			while (!closed) {
+				String line;
+				boolean resume;
+				synchronized (this) {
+					line = lines.poll();
+					if (line == null) break;
+					resume = lines.size() == owner.getMaxPendingLines() - 1 && !endOfInput;
+				}
+				if (resume) owner.schedule(this::resumeReading);
+				execute(line);
+				context.flush();
+			}
+		} finally {
+			CommandLine.bind(previous);
+			boolean done;
+			synchronized (this) {
+				// A line queued after the loop found none is drained by another task, which this one must start.
+				draining = !lines.isEmpty() && !closed;
+				done = endOfInput && !draining;
+			}
+			if (draining) owner.getExecutor().execute(this::drain);
+			else if (done) owner.schedule(this::closeIfDone);
+		}
+	}
+	
+	private void execute(String line) {
+		if (line.isBlank()) return;
+		if (!acquire()) {
+			out.println("error: rate limit exceeded");
+			return;
+		}
+		CommandSequence.Result result;
+		try {
+			result = owner.getCommandLine().executeSequence(line);
+		} catch (IllegalArgumentException e) {
+			out.println("error: " + e.getMessage());
+			return;
+		}
+		// Results are delivered once the whole line has executed, after the output of its commands.
+		for (int i = 0; i < result.getSequence().size(); i++) {
+			Exception cause = result.getCause(i);
+			Object value = result.getValue(i);
+			if (cause != null) out.println("error: " + (cause instanceof CommandInterpretException ? cause.getMessage() : cause.toString()));
+			else if (value != null) out.println(value);
+		}
+	}
+	
+	/**
+	 * Takes a token from the session's bucket, which refills at the rate limit of the {@link SocketCommandLine}.
+	 * 
+	 * @return True if the command may execute, false if the session has exceeded its rate.
+	 */
+	private boolean acquire() {
+		double rate = owner.getRate();
+		if (rate <= 0) return true;
+		long now = System.nanoTime();
+		tokens = Math.min(owner.getBurst(), tokens + (now - refilled) * rate / 1e9);
+		refilled = now;
+		if (tokens < 1) return false;
+		tokens--;
+		return true;
+	}
+	
+	private void resumeReading() {
+		if (key.isValid()) key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+	}
+	
+	/**
+	 * Writes queued output to the channel until it would block. Called on the selector thread.
+	 */
+	void write() throws IOException {
+		ByteBuffer buffer;
+		while ((buffer = outbound.peek()) != null) {
+			channel.write(buffer);
+			if (buffer.hasRemaining()) return;
+			outbound.poll();
+			output.sent(buffer.limit());
+		}
+		key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+		closeIfDone();
+	}
+	
+	private void closeIfDone() {
+		boolean done;
+		synchronized (this) {
+			done = endOfInput && !draining && lines.isEmpty();
+		}
+		if (done && outbound.isEmpty()) close();
+	}
+	
+	/**
+	 * Closes the session, releasing any command blocked on its output. Called on the selector thread.
+	 */
+	void close() {
+		if (closed) return;
+		closed = true;
+		key.cancel();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// Closed regardless.
+		}
+		output.sent(0);
+		owner.closed(this);
+	}
+	
+	/**
+	 * Collects the output of commands into buffers queued for the selector thread, blocking a command while too much is queued.
+	 */
+	private final class SessionOutput extends OutputStream {
+		
+		private ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+		private long pending;
+		
+		@Override
+		public void write(int b) throws IOException {
+			if (!buffer.hasRemaining()) flush();
+			buffer.put((byte) b);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (!buffer.hasRemaining()) flush();
+				int n = Math.min(len, buffer.remaining());
+				buffer.put(b, off, n);
+				off += n;
+				len -= n;
+			}
+		}
+		
+		@Override
+		public void flush() throws IOException {
+			if (closed) throw new IOException("Session closed");
+			if (buffer.position() == 0) return;
+			synchronized (this) {
+				while (pending >= owner.getOutputLimit() && !closed) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IOException("Interrupted waiting for the session to read its output");
+					}
+				}
+				if (closed) throw new IOException("Session closed");
+			}
+			buffer.flip();
+			if (buffer.limit() < CHUNK_SIZE / 2) {
+				// Short output (the usual reply to a command) is copied, so that the chunk is kept for the next command.
+				queue(ByteBuffer.allocate(buffer.limit()).put(buffer).flip());
+				buffer.clear();
+			} else {
+				queue(buffer);
+				buffer = ByteBuffer.allocate(CHUNK_SIZE);
+			}
+			owner.schedule(() -> {
+				if (key.isValid()) key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+			});
+		}
+		
+		/**
+		 * Queues a buffer to be sent, without waiting for earlier output to be sent.
+		 * 
+		 * @param b The buffer, ready to be read.
+		 */
+		void queue(ByteBuffer b) {
+			synchronized (this) {
+				pending += b.remaining();
+			}
+			outbound.add(b);
+		}
+		
+		/**
+		 * Releases commands blocked on output which has now been sent.
+		 * 
+		 * @param size The number of bytes sent.
+		 */
+		synchronized void sent(int size) {
+			pending -= size;
+			notifyAll();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,36 @@
+package net.winrob.commons.pythia;
+
+import java.util.List;
+
+/**
+ * Prints a summary of the {@link CommandMetrics} of the command line it was executed from, which
+ * {@link CommandLine#enableMetrics()} registers as "stats". The listed statistics are also its result.
+ * 
+ * @author Winter Roberts
+ */
+@Command.Description(description = "Prints the commands with the most executions, failures or greatest latencies.")
+public class StatsCommand extends ContextCommand<List<CommandStats>> {
+	
+	@Option(name = "top", alias = "n", default_ = "10", description = "The number of commands to list.")
+	public int top;
+	
+	@Option(name = "sort", alias = "s", default_ = "EXECUTIONS", description = "The order to list commands in: EXECUTIONS, FAILURES, MEAN, P99 or MAX.")
+	public CommandMetrics.Order sort;
+	
+	@Option(name = "reset", alias = "r", default_ = "false", description = "Discard the metrics after printing them.")
+	public boolean reset;
+	
+	@Override
+	public List<CommandStats> execute(CommandContext context) {
+		CommandMetrics metrics = commandLine.getMetrics();
+		if (metrics == null) {
+			context.getOut().println("Metrics are not enabled.");
+			return null;
+		}
+		List<CommandStats> stats = metrics.top(top, sort);
+		context.getOut().println(metrics.summary(top, sort));
+		if (reset) metrics.reset();
+		return stats;
+	}
+	
+}
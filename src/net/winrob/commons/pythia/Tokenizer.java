@@ -0,0 +1,347 @@
+package net.winrob.commons.pythia;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Splits a command line into tokens in a single pass, separating on unquoted whitespace.
+ * Single quotes preserve their contents literally. Within double quotes (or outside of quotes) a backslash escapes the following
+ * character if it is whitespace, a quote, a backslash or an operator character ({@code ;}, {@code &} or {@code |}), the characters
+ * {@link #escape(CharSequence)} escapes, and is otherwise kept, so {@code C:\temp} is the single token {@code C:\temp}.
+ * Adjacent quoted and unquoted text joins into one token, so {@code a"b c"} is the single token {@code ab c}.
+ * <p>
+ * When {@link #tokenize(CharSequence, int, int, boolean) operators} are recognized, an unquoted {@code ;}, {@code &&} or
+ * {@code ||} is a token of its own (even without surrounding whitespace), marked as an {@link Tokens#isOperator(int) operator},
+ * which separates the commands of a {@link CommandSequence}.
+ * <p>
+ * A tokenizer reuses its buffers and the {@link Tokens} it returns, which are only valid until the next call to {@link #tokenize(CharSequence)}.
+ * Tokenizers are not thread safe.
+ * 
+ * @author Winter Roberts
+ */
+public final class Tokenizer {
+	
+	private char[] buffer = new char[128];
+	private int[] starts = new int[16];
+	private int[] ends = new int[16];
+	private boolean[] operators = new boolean[16];
+	private int count;
+	private int partial;
+	
+	private final Tokens tokens = new Tokens();
+	
+	/**
+	 * Tokenizes a line, replacing the previous contents of this tokenizer's {@link Tokens}.
+	 * 
+	 * @param line The line which should be tokenized.
+	 * @return The tokens of the line, valid until this tokenizer is next used.
+	 * @throws IllegalArgumentException If a quote is not terminated.
+	 */
+	public Tokens tokenize(CharSequence line) {
+		return tokenize(line, 0, line.length());
+	}
+	
+	/**
+	 * Tokenizes a range of characters, such as one line of a larger buffer, replacing the previous contents of this tokenizer's {@link Tokens}.
+	 * 
+	 * @param chars The characters containing the line.
+	 * @param start The index of the first character of the line.
+	 * @param end The index after the last character of the line.
+	 * @return The tokens of the line, valid until this tokenizer is next used.
+	 * @throws IllegalArgumentException If a quote is not terminated.
+	 */
+	public Tokens tokenize(CharSequence chars, int start, int end) {
+		return tokenize(chars, start, end, false);
+	}
+	
+	/**
+	 * Tokenizes a range of characters, replacing the previous contents of this tokenizer's {@link Tokens}.
+	 * 
+	 * @param chars The characters containing the line.
+	 * @param start The index of the first character of the line.
+	 * @param end The index after the last character of the line.
+	 * @param operators True if unquoted {@code ;}, {@code &&} and {@code ||} should be operator tokens, false if they are ordinary characters.
+	 * @return The tokens of the line, valid until this tokenizer is next used.
+	 * @throws IllegalArgumentException If a quote is not terminated.
+	 */
+	public Tokens tokenize(CharSequence chars, int start, int end, boolean operators) {
+		return scan(chars, start, end, operators, false);
+	}
+	
+	/**
+	 * Tokenizes the beginning of a line being typed, up to the cursor, recognizing operators. Unlike
+	 * {@link #tokenize(CharSequence, int, int, boolean)}, an unterminated quote ends the last token rather than failing, a backslash
+	 * at the cursor is left out of it as the start of an escape, and the index at which that token began is kept, see
+	 * {@link #getPartialStart()}.
+	 * 
+	 * @param chars The characters containing the line.
+	 * @param start The index of the first character of the line.
+	 * @param end The index of the cursor.
+	 * @return The tokens before the cursor, valid until this tokenizer is next used.
+	 */
+	Tokens tokenizePartial(CharSequence chars, int start, int end) {
+		return scan(chars, start, end, true, true);
+	}
+	
+	/**
+	 * @return The index (in the characters last passed to {@link #tokenizePartial(CharSequence, int, int)}) at which the last token
+	 *         began, if it was still being typed at the cursor, or -1 if the cursor followed whitespace or an operator.
+	 */
+	int getPartialStart() {
+		return partial;
+	}
+	
+	private Tokens scan(CharSequence chars, int start, int end, boolean operators, boolean lenient) {
+		int length = end - start;
+		if (buffer.length < length) buffer = new char[Math.max(length, buffer.length * 2)];
+		count = 0;
+		partial = -1;
+		int size = 0;
+		boolean inToken = false;
+		char quote = 0;
+		for (int i = start; i < end; i++) {
+			char c = chars.charAt(i);
+			if (quote == '\'') {
+				if (c == '\'') quote = 0;
+				else buffer[size++] = c;
+			} else if (c == '\\' && (quote == '"' || quote == 0)) {
+				if (!inToken) {
+					beginToken(size);
+					partial = i;
+					inToken = true;
+				}
+				if (i + 1 < end && isEscapable(chars.charAt(i + 1))) buffer[size++] = chars.charAt(++i);
+				else if (i + 1 < end || !lenient) buffer[size++] = c;
+			} else if (quote == '"') {
+				if (c == '"') quote = 0;
+				else buffer[size++] = c;
+			} else if (Character.isWhitespace(c)) {
+				if (inToken) {
+					ends[count++] = size;
+					inToken = false;
+				}
+			} else if (operators && (c == ';' || (c == '&' || c == '|') && i + 1 < end && chars.charAt(i + 1) == c)) {
+				if (inToken) {
+					ends[count++] = size;
+					inToken = false;
+				}
+				beginToken(size);
+				this.operators[count] = true;
+				buffer[size++] = c;
+				if (c != ';') buffer[size++] = chars.charAt(++i);
+				ends[count++] = size;
+			} else {
+				if (!inToken) {
+					beginToken(size);
+					partial = i;
+					inToken = true;
+				}
+				if (c == '"' || c == '\'') quote = c;
+				else buffer[size++] = c;
+			}
+		}
+		if (quote != 0 && !lenient) throw new IllegalArgumentException("Unterminated " + quote + " quote");
+		if (inToken) ends[count++] = size;
+		else partial = -1;
+		return tokens;
+	}
+	
+	/**
+	 * Tokenizes a line into new strings, see {@link #tokenize(CharSequence)}.
+	 * 
+	 * @param line The line which should be tokenized.
+	 * @return The tokens of the line.
+	 * @throws IllegalArgumentException If a quote is not terminated.
+	 */
+	public static String[] split(CharSequence line) {
+		return new Tokenizer().tokenize(line).toArray();
+	}
+	
+	/**
+	 * Escapes a word, so that it is a single token with the same contents when it is tokenized.
+	 * 
+	 * @param word The word.
+	 * @return The word, with a backslash before each whitespace, quote, backslash or operator character.
+	 */
+	public static String escape(CharSequence word) {
+		StringBuilder sb = null;
+		for (int i = 0; i < word.length(); i++) {
+			char c = word.charAt(i);
+			if (isEscapable(c)) {
+				if (sb == null) sb = new StringBuilder(word.length() + 4).append(word, 0, i);
+				sb.append('\\');
+			}
+			if (sb != null) sb.append(c);
+		}
+		return sb == null ? word.toString() : sb.toString();
+	}
+	
+	/**
+	 * @return True if a backslash before the character escapes it, false if the backslash is kept as an ordinary character.
+	 */
+	private static boolean isEscapable(char c) {
+		return Character.isWhitespace(c) || c == '"' || c == '\'' || c == '\\' || c == ';' || c == '&' || c == '|';
+	}
+	
+	private void beginToken(int start) {
+		if (count == starts.length) {
+			starts = Arrays.copyOf(starts, count * 2);
+			ends = Arrays.copyOf(ends, count * 2);
+			operators = Arrays.copyOf(operators, count * 2);
+		}
+		starts[count] = start;
+		operators[count] = false;
+	}
+	
+	/**
+	 * The tokens of the line last passed to {@link Tokenizer#tokenize(CharSequence)}, as views over the tokenizer's buffer.
+	 */
+	public final class Tokens implements Iterable<CharSequence> {
+		
+		private Token[] views = new Token[0];
+		
+		private Tokens() {
+		}
+		
+		/**
+		 * @return The number of tokens.
+		 */
+		public int size() {
+			return count;
+		}
+		
+		/**
+		 * @return True if the line held no tokens (was blank), false otherwise.
+		 */
+		public boolean isEmpty() {
+			return count == 0;
+		}
+		
+		/**
+		 * @param index The index of the token.
+		 * @return A reusable view of the token, which changes when the tokenizer is next used.
+		 */
+		public CharSequence get(int index) {
+			if (index < 0 || index >= count) throw new IndexOutOfBoundsException("Token " + index + " of " + count);
+			if (views.length < count) {
+				Token[] grown = Arrays.copyOf(views, starts.length);
+				for (int i = views.length; i < grown.length; i++) grown[i] = new Token(i);
+				views = grown;
+			}
+			return views[index];
+		}
+		
+		/**
+		 * @param index The index of the token.
+		 * @return True if the token is an unquoted {@code ;}, {@code &&} or {@code ||} recognized as an operator, false otherwise.
+		 */
+		public boolean isOperator(int index) {
+			if (index < 0 || index >= count) throw new IndexOutOfBoundsException("Token " + index + " of " + count);
+			return operators[index];
+		}
+		
+		/**
+		 * @param index The index of the token.
+		 * @return The token as a new string.
+		 */
+		public String getString(int index) {
+			if (index < 0 || index >= count) throw new IndexOutOfBoundsException("Token " + index + " of " + count);
+			return new String(buffer, starts[index], ends[index] - starts[index]);
+		}
+		
+		/**
+		 * @return Every token as a new string.
+		 */
+		public String[] toArray() {
+			String[] array = new String[count];
+			for (int i = 0; i < count; i++) array[i] = getString(i);
+			return array;
+		}
+		
+		/**
+		 * @return An iterator which creates each token's string only as it is reached, which must not be read once the
+		 *         tokenizer is next used. Input which a command may keep reading, such as a streamed parameter, should be
+		 *         copied with {@link #toArray()} instead.
+		 */
+		public Iterator<String> strings() {
+			return new Iterator<String>() {
+				
+				private int next = 0;
+
+				@Override
+				public boolean hasNext() {
+					return next < count;
+				}
+
+				@Override
+				public String next() {
+					if (!hasNext()) throw new NoSuchElementException();
+					return getString(next++);
+				}
+				
+			};
+		}
+
+		@Override
+		public Iterator<CharSequence> iterator() {
+			return new Iterator<CharSequence>() {
+				
+				private int next = 0;
+
+				@Override
+				public boolean hasNext() {
+					return next < count;
+				}
+
+				@Override
+				public CharSequence next() {
+					if (!hasNext()) throw new NoSuchElementException();
+					return get(next++);
+				}
+				
+			};
+		}
+		
+		@Override
+		public String toString() {
+			return Arrays.toString(toArray());
+		}
+		
+	}
+	
+	/**
+	 * A view of a single token within the tokenizer's buffer.
+	 */
+	private final class Token implements CharSequence {
+		
+		private final int index;
+		
+		private Token(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public int length() {
+			return ends[index] - starts[index];
+		}
+
+		@Override
+		public char charAt(int i) {
+			if (i < 0 || i >= length()) throw new IndexOutOfBoundsException("Index " + i + " of " + length());
+			return buffer[starts[index] + i];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().substring(start, end);
+		}
+		
+		@Override
+		public String toString() {
+			return new String(buffer, starts[index], length());
+		}
+		
+	}
+
+}
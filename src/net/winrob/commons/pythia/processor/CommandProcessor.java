@@ -0,0 +1,421 @@
+package net.winrob.commons.pythia.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import net.winrob.commons.pythia.Command;
+import net.winrob.commons.pythia.Command.Description;
+import net.winrob.commons.pythia.Command.Option;
+import net.winrob.commons.pythia.Command.Parameter;
+import net.winrob.commons.pythia.Command.SubCommand;
+import net.winrob.commons.pythia.CommandSpec;
+import net.winrob.commons.pythia.CommandSpec.OptionSpec;
+import net.winrob.commons.pythia.CommandSpec.ParameterSpec;
+import net.winrob.commons.pythia.CommandSpecProvider;
+import net.winrob.commons.pythia.FieldBinder;
+
+/**
+ * Generates a {@link CommandSpecProvider} for each package containing annotated {@link Command}s, so that a
+ * {@link net.winrob.commons.pythia.CommandLine} can interpret them without reflecting over their fields.
+ * The processor also pre-renders each command's help dialog, references its no-argument constructor as the command's factory,
+ * and reports arity and alias collisions as compile errors.
+ * 
+ * @author Winter Roberts
+ */
+@SupportedAnnotationTypes({
+	"net.winrob.commons.pythia.Command.Option",
+	"net.winrob.commons.pythia.Command.Parameter",
+	"net.winrob.commons.pythia.Command.SubCommand",
+	"net.winrob.commons.pythia.Command.Description"
+})
+public class CommandProcessor extends AbstractProcessor {
+	
+	/**
+	 * The simple name of each generated {@link CommandSpecProvider}.
+	 */
+	public static final String PROVIDER_NAME = "PythiaCommandSpecs";
+	
+	private static final String SERVICE_FILE = "META-INF/services/" + CommandSpecProvider.class.getName();
+	
+	private static final Set<String> VARIADIC = Set.of("java.util.List", "java.util.Collection", "java.util.Set", "java.util.Iterator", "java.util.stream.Stream");
+	
+	private Elements elements;
+	private Types types;
+	private Messager messager;
+	private Filer filer;
+	
+	private Set<String> generated = new LinkedHashSet<>();
+	private Set<String> processed = new HashSet<>();
+	
+	@Override
+	public synchronized void init(ProcessingEnvironment processingEnv) {
+		super.init(processingEnv);
+		elements = processingEnv.getElementUtils();
+		types = processingEnv.getTypeUtils();
+		messager = processingEnv.getMessager();
+		filer = processingEnv.getFiler();
+	}
+	
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			writeServiceFile();
+			return false;
+		}
+		
+		Set<TypeElement> commands = new LinkedHashSet<>();
+		for (Element e : roundEnv.getElementsAnnotatedWith(Option.class)) commands.add((TypeElement) e.getEnclosingElement());
+		for (Element e : roundEnv.getElementsAnnotatedWith(Parameter.class)) commands.add((TypeElement) e.getEnclosingElement());
+		for (Element e : roundEnv.getElementsAnnotatedWith(Description.class)) commands.add((TypeElement) e);
+		for (Element e : roundEnv.getElementsAnnotatedWith(SubCommand.class)) {
+			commands.add((TypeElement) e);
+			for (SubCommand sc : e.getAnnotationsByType(SubCommand.class)) {
+				TypeMirror sub = subCommandType(sc);
+				if (sub.getKind() == TypeKind.DECLARED) commands.add((TypeElement) ((DeclaredType) sub).asElement());
+			}
+		}
+		
+		Map<String, List<TypeElement>> byPackage = new LinkedHashMap<>();
+		TypeMirror commandType = elements.getTypeElement(Command.class.getCanonicalName()).asType();
+		for (TypeElement type : commands) {
+			if (!processed.add(type.getQualifiedName().toString())) continue;
+			if (!types.isSubtype(type.asType(), commandType)) {
+				messager.printMessage(Kind.ERROR, type.getQualifiedName() + " is annotated as a command, but does not extend " + Command.class.getName(), type);
+				continue;
+			}
+			if (!validate(type)) continue;
+			if (!isAccessible(type)) {
+				messager.printMessage(Kind.NOTE, type.getQualifiedName() + " is not accessible from its package, it will be interpreted reflectively", type);
+				continue;
+			}
+			String pkg = elements.getPackageOf(type).getQualifiedName().toString();
+			byPackage.computeIfAbsent(pkg, k -> new ArrayList<>()).add(type);
+		}
+		
+		for (Map.Entry<String, List<TypeElement>> e : byPackage.entrySet()) {
+			writeProvider(e.getKey(), e.getValue());
+		}
+		return false;
+	}
+	
+	/**
+	 * Reports parameter arity collisions, variadic parameters which are not last, and option / sub command keyword collisions
+	 * of a command as compile errors.
+	 * 
+	 * @param type The command type.
+	 * @return True if the command is valid, false otherwise.
+	 */
+	private boolean validate(TypeElement type) {
+		boolean valid = true;
+		Map<Integer, VariableElement> arities = new HashMap<>();
+		Map<String, VariableElement> aliases = new HashMap<>();
+		List<VariableElement> variadic = new ArrayList<>();
+		int lastArity = Integer.MIN_VALUE;
+		for (VariableElement f : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			Parameter p = f.getAnnotation(Parameter.class);
+			Option o = f.getAnnotation(Option.class);
+			if (p != null) {
+				VariableElement other = arities.putIfAbsent(p.arity(), f);
+				if (other != null) {
+					messager.printMessage(Kind.ERROR, String.format("Arity (%d) overloaded, usage by fields %s and %s", p.arity(), f.getSimpleName(), other.getSimpleName()), f);
+					valid = false;
+				}
+				if (isVariadic(f)) variadic.add(f);
+				lastArity = Math.max(lastArity, p.arity());
+			} else if (o != null) {
+				List<String> keys = new ArrayList<>();
+				if (o.useNamed()) keys.add("-" + o.name());
+				keys.add(o.alias());
+				for (String key : keys) {
+					VariableElement other = aliases.putIfAbsent(key, f);
+					if (other != null) {
+						messager.printMessage(Kind.ERROR, "Option keyword '" + key + "' is already in use by field " + other.getSimpleName() + "!", f);
+						valid = false;
+					}
+				}
+			}
+		}
+		for (VariableElement f : variadic) {
+			if (f.getAnnotation(Parameter.class).arity() < lastArity) {
+				messager.printMessage(Kind.ERROR, "Parameter '" + f.getSimpleName() + "' takes the remaining arguments, so it must have the highest arity", f);
+				valid = false;
+			}
+		}
+		Set<String> keywords = new HashSet<>();
+		for (SubCommand sc : type.getAnnotationsByType(SubCommand.class)) {
+			if (!keywords.add(sc.keyword())) {
+				messager.printMessage(Kind.ERROR, "Keyword '" + sc.keyword() + "' is already in use!", type);
+				valid = false;
+			}
+		}
+		return valid;
+	}
+	
+	private void writeProvider(String pkg, List<TypeElement> commands) {
+		String simpleName = PROVIDER_NAME;
+		for (int i = 2; generated.contains(qualify(pkg, simpleName)); i++) simpleName = PROVIDER_NAME + i;
+		String name = qualify(pkg, simpleName);
+		try (PrintWriter out = new PrintWriter(filer.createSourceFile(name, commands.toArray(new Element[0])).openWriter())) {
+			if (!pkg.isEmpty()) {
+				out.println("package " + pkg + ";");
+				out.println();
+			}
+			out.println("import java.util.LinkedHashMap;");
+			out.println("import java.util.Map;");
+			out.println();
+			out.println("import net.winrob.commons.pythia.BindingMode;");
+			out.println("import net.winrob.commons.pythia.Command;");
+			out.println("import net.winrob.commons.pythia.CommandSpec;");
+			out.println("import net.winrob.commons.pythia.CommandSpec.OptionSpec;");
+			out.println("import net.winrob.commons.pythia.CommandSpec.ParameterSpec;");
+			out.println("import net.winrob.commons.pythia.CommandSpecProvider;");
+			out.println("import net.winrob.commons.pythia.CommandSpecRegistry;");
+			out.println("import net.winrob.commons.pythia.FieldBinder;");
+			out.println();
+			out.println("/**");
+			out.println(" * Generated by " + getClass().getName() + ", do not edit.");
+			out.println(" */");
+			out.println("public final class " + simpleName + " implements CommandSpecProvider {");
+			out.println();
+			out.println("\t@Override");
+			out.println("\tpublic void registerSpecs(CommandSpecRegistry registry) {");
+			for (int i = 0; i < commands.size(); i++) {
+				out.println("\t\tregistry.register(" + classLiteral(commands.get(i).asType()) + ", " + simpleName + "::spec" + i + ");");
+			}
+			out.println("\t}");
+			for (int i = 0; i < commands.size(); i++) {
+				out.println();
+				writeSpecMethod(out, "spec" + i, commands.get(i));
+			}
+			out.println();
+			out.println("}");
+		} catch (IOException e) {
+			messager.printMessage(Kind.ERROR, "Unable to write " + name + ": " + e.getMessage());
+			return;
+		}
+		generated.add(name);
+	}
+	
+	private void writeSpecMethod(PrintWriter out, String method, TypeElement type) {
+		String cmd = types.erasure(type.asType()).toString();
+		List<OptionSpec> helpOptions = new ArrayList<>();
+		List<ParameterSpec> helpParameters = new ArrayList<>();
+		List<String> options = new ArrayList<>();
+		List<String> parameters = new ArrayList<>();
+		for (VariableElement f : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			Parameter p = f.getAnnotation(Parameter.class);
+			Option o = f.getAnnotation(Option.class);
+			if (p != null) {
+				// As for flags, a binder only marks a variadic parameter in the help.
+				FieldBinder variadic = isVariadic(f) ? FieldBinder.of(f.getSimpleName().toString(), List.class, null) : null;
+				helpParameters.add(new ParameterSpec(p.name(), p.arity(), p.description(), variadic));
+				parameters.add("new ParameterSpec(" + literal(p.name()) + ", " + p.arity() + ", " + literal(p.description()) + ", " + binder(cmd, f) + ")");
+			} else if (o != null) {
+				// The help is rendered without binders, except to mark flags, whose usage differs.
+				FieldBinder flag = isFlag(f) ? FieldBinder.of(f.getSimpleName().toString(), Boolean.class, null) : null;
+				helpOptions.add(new OptionSpec(o.name(), o.alias(), o.default_(), o.description(), o.useNamed(), flag));
+				StringBuilder defaults = new StringBuilder("new String[] {");
+				for (int i = 0; i < o.default_().length; i++) defaults.append(i == 0 ? " " : ", ").append(literal(o.default_()[i]));
+				defaults.append(o.default_().length == 0 ? "}" : " }");
+				options.add("new OptionSpec(" + literal(o.name()) + ", " + literal(o.alias()) + ", " + defaults + ", "
+						+ literal(o.description()) + ", " + o.useNamed() + ", " + binder(cmd, f) + ")");
+			}
+		}
+		Description d = type.getAnnotation(Description.class);
+		String description = d == null ? null : d.description();
+		String help = new CommandSpec(Command.class, description, helpOptions.toArray(new OptionSpec[0]),
+				helpParameters.toArray(new ParameterSpec[0]), Collections.emptyMap(), null).renderHelp();
+		
+		out.println("\t@SuppressWarnings(\"unchecked\")");
+		out.println("\tprivate static CommandSpec " + method + "(BindingMode mode) {");
+		out.println("\t\tMap<String, Class<? extends Command>> subCommands = new LinkedHashMap<>();");
+		for (SubCommand sc : type.getAnnotationsByType(SubCommand.class)) {
+			out.println("\t\tsubCommands.put(" + literal(sc.keyword()) + ", " + classLiteral(subCommandType(sc)) + ");");
+		}
+		out.println("\t\treturn new CommandSpec(" + cmd + ".class, " + literal(description) + ",");
+		out.println("\t\t\t\tnew OptionSpec[] {" + join(options) + "},");
+		out.println("\t\t\t\tnew ParameterSpec[] {" + join(parameters) + "},");
+		out.println("\t\t\t\tsubCommands,");
+		out.println("\t\t\t\t" + literal(help) + ",");
+		out.println("\t\t\t\t" + (isConstructible(type) ? cmd + "::new" : "null") + ");");
+		out.println("\t}");
+	}
+	
+	/**
+	 * @return Java source creating the {@link net.winrob.commons.pythia.FieldBinder} of a field, which writes the field directly when it is accessible.
+	 */
+	private String binder(String cmd, VariableElement f) {
+		String name = f.getSimpleName().toString();
+		TypeMirror type = types.erasure(f.asType());
+		if (f.getModifiers().contains(Modifier.PRIVATE) || f.getModifiers().contains(Modifier.FINAL) || f.getModifiers().contains(Modifier.STATIC)) {
+			return "FieldBinder.of(" + cmd + ".class, " + literal(name) + ", mode)";
+		}
+		switch (type.getKind()) {
+		case INT: return "FieldBinder.ofInt(" + literal(name) + ", (c, v) -> ((" + cmd + ") c)." + name + " = v)";
+		case LONG: return "FieldBinder.ofLong(" + literal(name) + ", (c, v) -> ((" + cmd + ") c)." + name + " = v)";
+		case DOUBLE: return "FieldBinder.ofDouble(" + literal(name) + ", (c, v) -> ((" + cmd + ") c)." + name + " = v)";
+		case BOOLEAN: return "FieldBinder.ofBoolean(" + literal(name) + ", (c, v) -> ((" + cmd + ") c)." + name + " = v)";
+		default: break;
+		}
+		String cast = type.getKind().isPrimitive() ? types.boxedClass((PrimitiveType) type).getQualifiedName().toString() : type.toString();
+		String element = isVariadic(f) ? elementType(f) + ", " : "";
+		return "FieldBinder.of(" + literal(name) + ", " + type + ".class, " + element + "(c, v) -> ((" + cmd + ") c)." + name + " = (" + cast + ") v)";
+	}
+	
+	/**
+	 * @return True if the field takes every remaining argument as a parameter, see {@link FieldBinder#isVariadic()}.
+	 */
+	private boolean isVariadic(VariableElement f) {
+		TypeMirror type = types.erasure(f.asType());
+		if (type.getKind() == TypeKind.ARRAY) return true;
+		if (type.getKind() != TypeKind.DECLARED) return false;
+		String name = ((TypeElement) types.asElement(type)).getQualifiedName().toString();
+		return VARIADIC.contains(name);
+	}
+	
+	/**
+	 * @return Java source naming the class each argument of a variadic field is converted to.
+	 */
+	private String elementType(VariableElement f) {
+		TypeMirror type = f.asType();
+		TypeMirror element = null;
+		if (type.getKind() == TypeKind.ARRAY) {
+			element = ((ArrayType) type).getComponentType();
+		} else if (!((DeclaredType) type).getTypeArguments().isEmpty()) {
+			element = ((DeclaredType) type).getTypeArguments().get(0);
+			if (element.getKind() == TypeKind.WILDCARD) element = ((WildcardType) element).getExtendsBound();
+		}
+		if (element == null || element.getKind() == TypeKind.TYPEVAR) return "String.class";
+		element = types.erasure(element);
+		return element.toString().equals("java.lang.Object") ? "String.class" : element + ".class";
+	}
+	
+	/**
+	 * @return True if the field is of a type an option sets as a flag, see {@link OptionSpec#isFlag()}.
+	 */
+	private boolean isFlag(VariableElement f) {
+		TypeMirror type = f.asType();
+		return type.getKind() == TypeKind.BOOLEAN || types.isAssignable(elements.getTypeElement(Boolean.class.getName()).asType(), type);
+	}
+	
+	private void writeServiceFile() {
+		if (generated.isEmpty()) return;
+		try {
+			FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			try (Writer w = file.openWriter()) {
+				for (String name : generated) w.write(name + "\n");
+			}
+		} catch (IOException e) {
+			messager.printMessage(Kind.ERROR, "Unable to write " + SERVICE_FILE + ": " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * @return True if the type can be referenced from generated code in its package, false otherwise.
+	 */
+	private boolean isAccessible(TypeElement type) {
+		for (Element e = type; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+			if (e.getModifiers().contains(Modifier.PRIVATE)) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * @return True if generated code in the type's package can call its no-argument constructor, false otherwise.
+	 */
+	private boolean isConstructible(TypeElement type) {
+		if (type.getModifiers().contains(Modifier.ABSTRACT)) return false;
+		if (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)) return false;
+		for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			if (c.getParameters().isEmpty()) return !c.getModifiers().contains(Modifier.PRIVATE);
+		}
+		return false;
+	}
+	
+	private TypeMirror subCommandType(SubCommand sc) {
+		try {
+			sc.command();
+			throw new IllegalStateException("Sub command class was loaded during annotation processing");
+		} catch (MirroredTypeException e) {
+			return e.getTypeMirror();
+		}
+	}
+	
+	private String classLiteral(TypeMirror type) {
+		return types.erasure(type).toString() + ".class";
+	}
+	
+	private static String qualify(String pkg, String simpleName) {
+		return pkg.isEmpty() ? simpleName : pkg + "." + simpleName;
+	}
+	
+	private static String join(List<String> items) {
+		if (items.isEmpty()) return "";
+		return "\n\t\t\t\t\t\t" + String.join(",\n\t\t\t\t\t\t", items) + "\n\t\t\t\t";
+	}
+	
+	/**
+	 * @return A Java string literal of the value, or null.
+	 */
+	private static String literal(String value) {
+		if (value == null) return "null";
+		StringBuilder sb = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"': sb.append("\\\""); break;
+			case '\\': sb.append("\\\\"); break;
+			case '\n': sb.append("\\n"); break;
+			case '\r': sb.append("\\r"); break;
+			case '\t': sb.append("\\t"); break;
+			default:
+				if (c < 0x20 || c > 0x7e) sb.append(String.format("\\u%04x", (int) c));
+				else sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+	
+}
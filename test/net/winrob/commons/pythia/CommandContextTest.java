@@ -0,0 +1,96 @@
+package net.winrob.commons.pythia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the context of commands executed without one, whose output is stdout.
+ * 
+ * @author Winter Roberts
+ */
+public class CommandContextTest {
+	
+	private PrintStream stdout;
+	private ByteArrayOutputStream captured;
+	private CommandLine commandLine;
+	
+	public static class Write extends ContextCommand<Void> {
+		
+		@Parameter(name = "text", arity = 0)
+		public String text;
+		
+		@Override
+		public Void execute(CommandContext context) {
+			context.getWriter().print(text);
+			Thread.yield();
+			context.getWriter().println(text);
+			return null;
+		}
+		
+	}
+	
+	@BeforeEach
+	public void setUp() {
+		stdout = System.out;
+		captured = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+		commandLine = new CommandLine();
+		commandLine.addCommand("write", Write.class);
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		System.setOut(stdout);
+	}
+	
+	@Test
+	public void concurrentExecutionsDoNotShareAWriter() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<>();
+		Set<String> expected = new HashSet<>();
+		for (int t = 0; t < 8; t++) {
+			for (int i = 0; i < 500; i++) {
+				String text = t + "-" + i;
+				expected.add(text + text);
+				futures.add(executor.submit(() -> {
+					commandLine.execute("write", text);
+					return null;
+				}));
+			}
+		}
+		for (Future<?> f : futures) f.get(30, TimeUnit.SECONDS);
+		executor.shutdown();
+		assertEquals(expected, lines());
+	}
+	
+	@Test
+	public void writerFollowsSystemOut() throws Exception {
+		commandLine.execute("write", "first");
+		ByteArrayOutputStream replaced = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(replaced, true, StandardCharsets.UTF_8));
+		commandLine.execute("write", "second");
+		assertEquals(Set.of("firstfirst"), lines());
+		assertEquals("secondsecond" + System.lineSeparator(), replaced.toString(StandardCharsets.UTF_8));
+	}
+	
+	private Set<String> lines() {
+		return new HashSet<>(Arrays.asList(captured.toString(StandardCharsets.UTF_8).split(System.lineSeparator())));
+	}
+	
+}
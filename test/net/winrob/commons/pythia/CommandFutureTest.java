@@ -0,0 +1,100 @@
+package net.winrob.commons.pythia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that cancelling a submitted command interrupts it, and only it, on a pooled thread which goes on to run other commands.
+ * 
+ * @author Winter Roberts
+ */
+public class CommandFutureTest {
+	
+	private static final AtomicInteger interrupted = new AtomicInteger();
+	private static volatile CountDownLatch started;
+	
+	private CommandLine commandLine;
+	private ExecutorService pool;
+	
+	public static class Quick extends Command {
+		
+		@Override
+		public void execute() {
+		}
+		
+	}
+	
+	public static class Check extends Command {
+		
+		@Override
+		public void execute() {
+			Thread.yield();
+			if (Thread.currentThread().isInterrupted()) interrupted.incrementAndGet();
+		}
+		
+	}
+	
+	public static class Wait extends Command {
+		
+		@Override
+		public void execute() {
+			started.countDown();
+			try {
+				Thread.sleep(30_000);
+			} catch (InterruptedException e) {
+				interrupted.incrementAndGet();
+			}
+		}
+		
+	}
+	
+	@BeforeEach
+	public void setUp() {
+		interrupted.set(0);
+		started = new CountDownLatch(1);
+		pool = Executors.newSingleThreadExecutor();
+		commandLine = new CommandLine();
+		commandLine.setExecutor(pool);
+		commandLine.addCommand("quick", Quick.class);
+		commandLine.addCommand("check", Check.class);
+		commandLine.addCommand("wait", Wait.class);
+	}
+	
+	@AfterEach
+	public void tearDown() throws InterruptedException {
+		pool.shutdownNow();
+		assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void cancelInterruptsTheRunningCommand() throws Exception {
+		CompletableFuture<Void> future = commandLine.submit("wait");
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		assertTrue(future.cancel(true));
+		commandLine.submit("quick").get(10, TimeUnit.SECONDS);
+		assertEquals(1, interrupted.get());
+	}
+	
+	@Test
+	public void cancelRacingCompletionDoesNotInterruptTheNextCommand() throws Exception {
+		for (int i = 0; i < 5000; i++) {
+			CompletableFuture<Void> quick = commandLine.submit("quick");
+			CompletableFuture<Void> check = commandLine.submit("check");
+			quick.cancel(true);
+			check.get(10, TimeUnit.SECONDS);
+		}
+		assertEquals(0, interrupted.get(), "A command was interrupted by the cancellation of the command before it");
+	}
+	
+}
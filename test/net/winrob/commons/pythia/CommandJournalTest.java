@@ -0,0 +1,230 @@
+package net.winrob.commons.pythia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.winrob.commons.pythia.CommandJournal.Record;
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+import net.winrob.commons.pythia.CommandListener.Phase;
+
+/**
+ * Writes commands to a {@link CommandJournal} and reads them back: records, rotation and pruning of segments, a torn last record,
+ * dropped commands and replay.
+ * 
+ * @author Winter Roberts
+ */
+public class CommandJournalTest {
+	
+	private static final List<String> echoed = new ArrayList<>();
+	
+	@TempDir
+	Path directory;
+	
+	private CommandLine commandLine;
+	private CommandJournal journal;
+	
+	public static class Echo extends Command {
+		
+		@Parameter(name = "text", arity = 0)
+		public String text;
+		
+		@Override
+		public void execute() {
+			echoed.add(text);
+		}
+		
+	}
+	
+	public static class Fail extends Command {
+		
+		@Override
+		public void execute() {
+			throw new IllegalStateException("boom");
+		}
+		
+	}
+	
+	@BeforeEach
+	public void setUp() throws IOException {
+		echoed.clear();
+		commandLine = new CommandLine();
+		commandLine.addCommand("echo", Echo.class);
+		commandLine.addCommand("fail", Fail.class);
+		journal = new CommandJournal(directory);
+		journal.setSync(false);
+		commandLine.setJournal(journal);
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		journal.close();
+	}
+	
+	@Test
+	public void recordsRoundTripThroughRead() throws Exception {
+		commandLine.execute("echo", "hello world");
+		assertThrows(IllegalStateException.class, () -> commandLine.execute("fail"));
+		assertThrows(CommandInterpretException.class, () -> commandLine.execute("nope", "x"));
+		journal.flush();
+		assertEquals(3, journal.getWritten());
+		
+		List<Path> segments = journal.getSegments();
+		assertEquals(1, segments.size());
+		List<Record> records = CommandJournal.read(segments.get(0));
+		assertEquals(3, records.size());
+		
+		Record echo = records.get(0);
+		assertTrue(echo.isSucceeded());
+		assertEquals("echo", echo.getKeyword());
+		assertEquals(List.of("echo", "hello world"), echo.getTokens());
+		assertNull(echo.getError());
+		assertEquals(echo.getTokens(), Arrays.asList(new Tokenizer().tokenize(echo.getLine()).toArray()));
+		
+		Record fail = records.get(1);
+		assertFalse(fail.isSucceeded());
+		assertEquals(Phase.EXECUTE, fail.getFailedPhase());
+		assertEquals("fail", fail.getKeyword());
+		assertEquals(IllegalStateException.class.getName() + ": boom", fail.getError());
+		
+		Record unknown = records.get(2);
+		assertEquals(Phase.DISPATCH, unknown.getFailedPhase());
+		assertNull(unknown.getKeyword());
+		assertEquals(List.of("nope", "x"), unknown.getTokens());
+	}
+	
+	@Test
+	public void rotatesSegmentsOfTheirSize() throws Exception {
+		journal.setSegmentSize(64);
+		for (int i = 0; i < 20; i++) commandLine.execute("echo", "line-" + i);
+		journal.flush();
+		
+		List<Path> segments = journal.getSegments();
+		assertTrue(segments.size() > 1, "The journal was not rotated");
+		List<String> read = new ArrayList<>();
+		for (Path segment : segments) {
+			// A segment only goes past its size if a single record does.
+			List<Record> records = CommandJournal.read(segment);
+			assertTrue(Files.size(segment) <= 64 || records.size() == 1, segment + " holds " + records.size() + " records");
+			for (Record r : records) read.add(r.getTokens().get(1));
+		}
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 20; i++) expected.add("line-" + i);
+		assertEquals(expected, read);
+	}
+	
+	@Test
+	public void prunesTheOldestSegments() throws Exception {
+		journal.setSegmentSize(64);
+		journal.setMaxSegments(3);
+		for (int i = 0; i < 20; i++) commandLine.execute("echo", "line-" + i);
+		journal.flush();
+		
+		List<Path> segments = journal.getSegments();
+		assertEquals(3, segments.size());
+		List<Record> last = CommandJournal.read(segments.get(2));
+		assertEquals("line-19", last.get(last.size() - 1).getTokens().get(1));
+		// The segments kept hold the most recent commands, without a gap.
+		List<String> read = new ArrayList<>();
+		for (Path segment : segments) {
+			for (Record r : CommandJournal.read(segment)) read.add(r.getTokens().get(1));
+		}
+		int first = Integer.parseInt(read.get(0).substring("line-".length()));
+		for (int i = 0; i < read.size(); i++) assertEquals("line-" + (first + i), read.get(i));
+	}
+	
+	@Test
+	public void skipsATornLastRecord() throws Exception {
+		for (int i = 0; i < 3; i++) commandLine.execute("echo", "line-" + i);
+		journal.close();
+		Path segment = journal.getSegments().get(0);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 3);
+		}
+		List<Record> records = CommandJournal.read(segment);
+		assertEquals(2, records.size());
+		assertEquals("line-1", records.get(1).getTokens().get(1));
+	}
+	
+	@Test
+	public void skipsACorruptLastRecord() throws Exception {
+		for (int i = 0; i < 3; i++) commandLine.execute("echo", "line-" + i);
+		journal.close();
+		Path segment = journal.getSegments().get(0);
+		byte[] bytes = Files.readAllBytes(segment);
+		bytes[bytes.length - 2] ^= 0x5A;
+		Files.write(segment, bytes);
+		assertEquals(2, CommandJournal.read(segment).size());
+	}
+	
+	@Test
+	public void rejectsAFileWhichIsNotASegment() throws Exception {
+		Path other = Files.write(directory.resolve("other.log"), new byte[] { 1, 2, 3, 4, 5 });
+		assertThrows(IOException.class, () -> CommandJournal.read(other));
+	}
+	
+	@Test
+	public void dropsCommandsOnceClosed() throws Exception {
+		commandLine.execute("echo", "kept");
+		journal.close();
+		for (int i = 0; i < 3; i++) commandLine.execute("echo", "dropped");
+		assertEquals(1, journal.getWritten());
+		assertEquals(3, journal.getDropped());
+		assertThrows(IOException.class, journal::flush);
+	}
+	
+	@Test
+	public void dropsCommandsWhileTheQueueIsFull() throws Exception {
+		journal.close();
+		try (CommandJournal full = new CommandJournal(directory.resolve("full"), 1)) {
+			int n = 10_000;
+			for (int i = 0; i < n; i++) full.executed("echo", 0, 0, 0);
+			full.flush();
+			assertTrue(full.getDropped() > 0, "No command was dropped by a queue of one");
+			assertEquals(n, full.getWritten() + full.getDropped());
+			assertEquals(full.getWritten(), CommandJournal.read(full.getSegments().get(0)).size());
+		}
+	}
+	
+	@Test
+	public void replaysOnlyTheFilteredRecords() throws Exception {
+		commandLine.execute("echo", "first");
+		assertThrows(IllegalStateException.class, () -> commandLine.execute("fail"));
+		commandLine.execute("echo", "second");
+		journal.flush();
+		Path segment = journal.getSegments().get(0);
+		
+		echoed.clear();
+		CommandLine replayed = new CommandLine();
+		replayed.addCommand("echo", Echo.class);
+		replayed.addCommand("fail", Fail.class);
+		ScriptReport report = CommandJournal.replay(segment, replayed, ErrorPolicy.STOP, Record::isSucceeded);
+		assertTrue(report.isSuccessful(), report.toString());
+		assertEquals(3, report.getLines());
+		assertEquals(2, report.getExecuted());
+		assertEquals(List.of("first", "second"), echoed);
+		
+		echoed.clear();
+		report = CommandJournal.replay(segment, replayed, ErrorPolicy.COLLECT);
+		assertEquals(1, report.getFailed());
+		assertEquals(2, report.getFailures().get(0).getLine());
+		assertEquals(List.of("first", "second"), echoed);
+	}
+	
+}
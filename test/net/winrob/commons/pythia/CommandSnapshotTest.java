@@ -0,0 +1,236 @@
+package net.winrob.commons.pythia;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.winrob.commons.pythia.Command.SubCommand;
+
+/**
+ * Writes {@link CommandSnapshot}s and restores them into new command lines, checking that restored commands bind and execute as
+ * built ones do, and that a snapshot which no longer matches its commands, or is damaged, is built again rather than restored.
+ * 
+ * @author Winter Roberts
+ */
+public class CommandSnapshotTest {
+	
+	private static Object[] last;
+	
+	@TempDir
+	Path directory;
+	
+	private Path file;
+	
+	public static class Calc extends Command {
+		
+		@Option(name = "count", alias = "c", default_ = "3", description = "How many times")
+		public int count;
+		
+		@Option(name = "total", alias = "t", default_ = "10000000000")
+		public long total;
+		
+		@Option(name = "ratio", alias = "r", default_ = "0.5")
+		public double ratio;
+		
+		@Option(name = "verbose", alias = "v", default_ = "false")
+		public boolean verbose;
+		
+		@Parameter(name = "label", arity = 0, description = "What it is called")
+		public String label;
+		
+		@Parameter(name = "values", arity = 1)
+		public int[] values;
+		
+		@Override
+		public void execute() {
+			last = new Object[] { count, total, ratio, verbose, label, values };
+		}
+		
+	}
+	
+	public static class Words extends Command {
+		
+		@Parameter(name = "words", arity = 0)
+		public List<String> words;
+		
+		@Override
+		public void execute() {
+			last = new Object[] { words };
+		}
+		
+	}
+	
+	@SubCommand(keyword = "words", command = Words.class)
+	public static class Group extends Command {
+		
+		@Override
+		public void execute() {
+		}
+		
+	}
+	
+	@BeforeEach
+	public void setUp() {
+		last = null;
+		file = directory.resolve("commands.snapshot");
+	}
+	
+	@Test
+	public void restoresCommandsWhichExecuteAsBuilt() throws Exception {
+		CommandLine built = new CommandLine();
+		assertFalse(built.addCommands(module(), file));
+		assertTrue(Files.exists(file));
+		
+		CommandLine restored = new CommandLine();
+		assertTrue(restored.addCommands(module(), file));
+		CommandSpec spec = restored.getInterpreterForCommandWord("calc").getSpec();
+		assertTrue(spec.getOptions().get(0).getBinder().getClass().getName().endsWith("$DeferredBinder"), "The spec was not restored");
+		assertEquals(built.getInterpreterForCommandWord("calc").getSpec().getHelp(), spec.getHelp());
+		
+		restored.execute("calc", "-c", "7", "-v", "-r", "0.25", "name", "1", "2", "3");
+		assertEquals(7, last[0]);
+		assertEquals(10_000_000_000L, last[1]);
+		assertEquals(0.25, last[2]);
+		assertEquals(true, last[3]);
+		assertEquals("name", last[4]);
+		assertArrayEquals(new int[] { 1, 2, 3 }, (int[]) last[5]);
+		
+		restored.execute("calc", "other");
+		assertEquals(3, last[0]);
+		assertEquals(false, last[3]);
+		assertArrayEquals(new int[0], (int[]) last[5]);
+		
+		restored.execute("group", "words", "a", "b");
+		assertEquals(List.of("a", "b"), last[0]);
+	}
+	
+	@Test
+	public void rejectsASnapshotOfOtherKeywords() throws Exception {
+		new CommandLine().addCommands(module(), file);
+		
+		Map<String, Class<? extends Command>> renamed = new LinkedHashMap<>();
+		renamed.put("compute", Calc.class);
+		renamed.put("group", Group.class);
+		assertNull(CommandSnapshot.read(file, renamed, BindingMode.GENERATED, InstantiationStrategy.getDefault()));
+		
+		Map<String, Class<? extends Command>> fewer = new LinkedHashMap<>();
+		fewer.put("calc", Calc.class);
+		assertNull(CommandSnapshot.read(file, fewer, BindingMode.GENERATED, InstantiationStrategy.getDefault()));
+		
+		Map<String, Class<? extends Command>> other = new LinkedHashMap<>();
+		other.put("calc", Words.class);
+		other.put("group", Group.class);
+		assertNull(CommandSnapshot.read(file, other, BindingMode.GENERATED, InstantiationStrategy.getDefault()));
+		
+		assertNotNull(CommandSnapshot.read(file, module(), BindingMode.GENERATED, InstantiationStrategy.getDefault()));
+	}
+	
+	@Test
+	public void rejectsASnapshotOfAChangedClass() throws Exception {
+		new CommandLine().addCommands(module(), file);
+		Path classFile = classFile(Words.class);
+		FileTime modified = Files.getLastModifiedTime(classFile);
+		try {
+			// A sub command changing makes the snapshot stale as much as a command does.
+			Files.setLastModifiedTime(classFile, FileTime.fromMillis(modified.toMillis() + 10_000));
+			assertNull(CommandSnapshot.read(file, module(), BindingMode.GENERATED, InstantiationStrategy.getDefault()));
+			assertFalse(new CommandLine().addCommands(module(), file));
+		} finally {
+			Files.setLastModifiedTime(classFile, modified);
+		}
+		assertFalse(new CommandLine().addCommands(module(), file), "The snapshot written for the changed class was restored");
+		assertTrue(new CommandLine().addCommands(module(), file));
+	}
+	
+	@Test
+	public void neverRestoresAClassWithoutAClassFile() throws Exception {
+		Class<? extends Command> defined = new Isolated().define(Words.class);
+		assertEquals(0, new CommandSnapshot.Fingerprints().of(defined));
+		Map<String, Class<? extends Command>> module = Map.of("words", defined);
+		assertFalse(new CommandLine().addCommands(module, file));
+		assertFalse(new CommandLine().addCommands(module, file));
+	}
+	
+	@Test
+	public void rebuildsADamagedSnapshot() throws Exception {
+		new CommandLine().addCommands(module(), file);
+		byte[] bytes = Files.readAllBytes(file);
+		
+		for (int length : new int[] { 0, 3, 12, bytes.length / 2, bytes.length - 1 }) {
+			Files.write(file, Arrays.copyOf(bytes, length));
+			assertNull(CommandSnapshot.read(file, module(), BindingMode.GENERATED, InstantiationStrategy.getDefault()), "Truncated to " + length);
+		}
+		byte[] garbage = bytes.clone();
+		for (int i = 8; i < garbage.length; i++) garbage[i] = (byte) 0xFF;
+		Files.write(file, garbage);
+		assertNull(CommandSnapshot.read(file, module(), BindingMode.GENERATED, InstantiationStrategy.getDefault()));
+		
+		CommandLine rebuilt = new CommandLine();
+		assertFalse(rebuilt.addCommands(module(), file));
+		rebuilt.execute("calc", "x");
+		assertEquals("x", last[4]);
+		assertTrue(new CommandLine().addCommands(module(), file));
+	}
+	
+	@Test
+	public void restoresNothingWithoutASnapshot() throws Exception {
+		assertNull(CommandSnapshot.read(file, module(), BindingMode.GENERATED, InstantiationStrategy.getDefault()));
+	}
+	
+	private static Map<String, Class<? extends Command>> module() {
+		Map<String, Class<? extends Command>> module = new LinkedHashMap<>();
+		module.put("calc", Calc.class);
+		module.put("group", Group.class);
+		return module;
+	}
+	
+	private static Path classFile(Class<?> c) throws Exception {
+		URL url = c.getResource("/" + c.getName().replace('.', '/') + ".class");
+		return Paths.get(url.toURI());
+	}
+	
+	/**
+	 * Defines a copy of a class at runtime, with no location and no class file to be found.
+	 */
+	private static final class Isolated extends ClassLoader {
+		
+		private Isolated() {
+			super(CommandSnapshotTest.class.getClassLoader());
+		}
+		
+		@SuppressWarnings("unchecked")
+		Class<? extends Command> define(Class<? extends Command> c) throws IOException {
+			byte[] bytes;
+			try (InputStream in = c.getResourceAsStream("/" + c.getName().replace('.', '/') + ".class")) {
+				bytes = in.readAllBytes();
+			}
+			return (Class<? extends Command>) defineClass(c.getName(), bytes, 0, bytes.length);
+		}
+		
+		@Override
+		public URL getResource(String name) {
+			return null;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,83 @@
+package net.winrob.commons.pythia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that completing the argument of a converter with more matches than the limit counts all of them, and extends the word only
+ * as far as all of them agree.
+ * 
+ * @author Winter Roberts
+ */
+public class CompletionTest {
+	
+	public enum Level { LOG_DEBUG, LOG_ERROR, LOG_INFO, LOG_TRACE, LOG_WARN, LIB }
+	
+	public static class Open extends Command {
+		
+		@Option(name = "level", alias = "l", default_ = "LOG_INFO", useNamed = true)
+		public Level level;
+		
+		@Parameter(name = "file", arity = 0)
+		public Path file;
+		
+		@Override
+		public void execute() {
+		}
+		
+	}
+	
+	@TempDir
+	Path directory;
+	
+	private CommandLine commandLine;
+	
+	@BeforeEach
+	public void setUp() throws Exception {
+		// More entries than the limit begin with "log-2024-", and the one which does not may be listed after all of them.
+		for (int i = 0; i < 70; i++) Files.createFile(directory.resolve(String.format("log-2024-%02d", i)));
+		Files.createFile(directory.resolve("lib"));
+		commandLine = new CommandLine();
+		commandLine.addCommand("open", Open.class);
+	}
+	
+	@Test
+	public void pathCompletionCountsAndSharesOverEveryEntry() {
+		String line = "open " + directory + File.separator + "l";
+		Completion completion = commandLine.complete(line, line.length());
+		assertEquals(71, completion.getCount());
+		assertEquals(directory + File.separator + "l", completion.getCommonPrefix());
+		
+		List<String> expected = new ArrayList<>();
+		expected.add(directory + File.separator + "lib");
+		for (int i = 0; i < 63; i++) expected.add(directory + File.separator + String.format("log-2024-%02d", i));
+		assertEquals(expected, completion.getCandidates());
+	}
+	
+	@Test
+	public void pathCompletionExtendsAsFarAsEveryEntryAgrees() {
+		String line = "open " + directory + File.separator + "lo";
+		Completion completion = commandLine.complete(line, line.length());
+		assertEquals(70, completion.getCount());
+		assertEquals(directory + File.separator + "log-2024-", completion.getCommonPrefix());
+	}
+	
+	@Test
+	public void enumCompletionCountsBeyondTheLimit() {
+		String line = "open --level=LOG";
+		Completion completion = commandLine.complete(line, line.length(), 2);
+		assertEquals(List.of("--level=LOG_DEBUG", "--level=LOG_ERROR"), completion.getCandidates());
+		assertEquals(5, completion.getCount());
+		assertEquals("--level=LOG_", completion.getCommonPrefix());
+	}
+	
+}
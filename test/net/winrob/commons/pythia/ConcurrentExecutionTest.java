@@ -0,0 +1,186 @@
+package net.winrob.commons.pythia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import net.winrob.commons.pythia.Command.Reusable;
+
+/**
+ * Executes commands from many threads against one shared {@link CommandLine}, and checks that every execution ran exactly once
+ * with the values of its own line, whether commands are pooled or created for each execution and whether lines are replayed from
+ * the {@link ParseCache}.
+ * 
+ * @author Winter Roberts
+ */
+public class ConcurrentExecutionTest {
+	
+	private static final int THREADS = 8;
+	private static final int EXECUTIONS = 4000;
+	// Each thread repeats its lines, so that cached plans are shared by the threads which replay them.
+	private static final int DISTINCT = 40;
+	
+	private static final Map<String, AtomicInteger> EXECUTED = new ConcurrentHashMap<>();
+	private static final LongAdder INTERFERED = new LongAdder();
+	
+	private ExecutorService executor;
+	
+	@BeforeEach
+	public void setUp() {
+		EXECUTED.clear();
+		INTERFERED.reset();
+		executor = Executors.newFixedThreadPool(THREADS + 1);
+	}
+	
+	@AfterEach
+	public void tearDown() throws InterruptedException {
+		executor.shutdownNow();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	}
+	
+	public static class Record extends Command {
+		
+		@Option(name = "thread", alias = "t", default_ = "-1", useNamed = true)
+		public int thread;
+		
+		@Option(name = "odd", alias = "o", default_ = "false")
+		public boolean odd;
+		
+		@Parameter(name = "iteration", arity = 0)
+		public long iteration;
+		
+		@Override
+		public void execute() {
+			String line = thread + ":" + iteration + ":" + odd;
+			// Another execution writing to this instance, or to the plan it was bound from, would show up between the reads.
+			Thread.yield();
+			executed(line, thread + ":" + iteration + ":" + odd, odd == (iteration % 2 == 1));
+		}
+		
+	}
+	
+	@Reusable
+	public static class PooledRecord extends Command {
+		
+		@Option(name = "thread", alias = "t", default_ = "-1", useNamed = true)
+		public int thread;
+		
+		@Option(name = "odd", alias = "o", default_ = "false")
+		public boolean odd;
+		
+		@Parameter(name = "iteration", arity = 0)
+		public long iteration;
+		
+		@Override
+		public void execute() {
+			String line = thread + ":" + iteration + ":" + odd;
+			Thread.yield();
+			executed(line, thread + ":" + iteration + ":" + odd, odd == (iteration % 2 == 1));
+		}
+		
+	}
+	
+	/**
+	 * @param line The values the command was bound with, as it began executing.
+	 * @param after The values of the command after it yielded to the other threads.
+	 * @param consistent True if the values belong to the same line, false otherwise.
+	 */
+	private static void executed(String line, String after, boolean consistent) {
+		if (!line.equals(after) || !consistent) INTERFERED.increment();
+		EXECUTED.computeIfAbsent(line, k -> new AtomicInteger()).incrementAndGet();
+	}
+	
+	@ParameterizedTest(name = "pooled={0}, cached={1}")
+	@CsvSource({ "false, false", "false, true", "true, false", "true, true" })
+	public void executesEveryLineOnceWithItsOwnValues(boolean pooled, boolean cached) throws Exception {
+		CommandLine commandLine = new CommandLine();
+		commandLine.addCommand("record", pooled ? PooledRecord.class : Record.class);
+		if (cached) commandLine.enableParseCache(THREADS * DISTINCT);
+		
+		run(commandLine, null);
+		
+		assertExecuted();
+		if (cached) assertTrue(commandLine.getParseCache().getHits() > 0, "No line was replayed from the cache");
+	}
+	
+	@Test
+	public void registersWhileExecuting() throws Exception {
+		CommandLine commandLine = new CommandLine();
+		commandLine.addCommand("record", PooledRecord.class);
+		commandLine.enableParseCache(THREADS * DISTINCT);
+		
+		run(commandLine, () -> {
+			for (int i = 0; i < 500; i++) {
+				commandLine.addCommand("extra-" + i, Record.class);
+				if (i % 2 == 1) assertTrue(commandLine.removeCommand("extra-" + (i - 1)));
+			}
+		});
+		
+		assertExecuted();
+		for (int i = 0; i < 500; i++) {
+			assertEquals(i % 2 == 1, commandLine.hasCommandWord("extra-" + i), "extra-" + i);
+		}
+		assertTrue(commandLine.hasCommandWord("record"));
+	}
+	
+	/**
+	 * Executes every line of every thread at once, along with a task which changes the registered commands.
+	 */
+	private void run(CommandLine commandLine, Runnable registration) throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			int thread = t;
+			futures.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < EXECUTIONS; i++) {
+					long iteration = i % DISTINCT;
+					if (iteration % 2 == 1) commandLine.execute("record", "-t", String.valueOf(thread), "-o", String.valueOf(iteration));
+					else commandLine.execute("record", String.valueOf(iteration), "--thread=" + thread);
+				}
+				return null;
+			}));
+		}
+		if (registration != null) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				registration.run();
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+	}
+	
+	private static void assertExecuted() {
+		assertEquals(0, INTERFERED.sum(), "Executions saw values which changed while they ran");
+		assertEquals(THREADS * DISTINCT, EXECUTED.size(), "Distinct lines executed");
+		int total = 0;
+		for (int t = 0; t < THREADS; t++) {
+			for (int i = 0; i < DISTINCT; i++) {
+				AtomicInteger count = EXECUTED.get(t + ":" + i + ":" + (i % 2 == 1));
+				assertEquals(EXECUTIONS / DISTINCT, count == null ? 0 : count.get(), "Executions of thread " + t + ", iteration " + i);
+				total += count.get();
+			}
+		}
+		assertEquals(THREADS * EXECUTIONS, total);
+	}
+	
+}
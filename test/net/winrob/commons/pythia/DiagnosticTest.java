@@ -0,0 +1,161 @@
+package net.winrob.commons.pythia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+import net.winrob.commons.pythia.Diagnostic.Expected;
+
+/**
+ * Checks the {@link Diagnostic} of malformed input: the token at fault, what was expected there and the suggestions for a
+ * misspelling, that {@link CommandLine#validate(String...)} never creates the command, and that the exceptions carrying
+ * diagnostics have no stack trace.
+ * 
+ * @author Winter Roberts
+ */
+public class DiagnosticTest {
+	
+	private static final AtomicInteger constructed = new AtomicInteger();
+	
+	private CommandLine commandLine;
+	
+	public static class Deploy extends Command {
+		
+		@Option(name = "target", alias = "t", useNamed = true)
+		public String target;
+		
+		@Option(name = "retries", alias = "r", default_ = "3", useNamed = true)
+		public int retries;
+		
+		@Option(name = "force", alias = "f", default_ = "false", useNamed = true)
+		public boolean force;
+		
+		@Parameter(name = "name", arity = 0)
+		public String name;
+		
+		public Deploy() {
+			constructed.incrementAndGet();
+		}
+		
+		@Override
+		public void execute() {
+		}
+		
+	}
+	
+	@BeforeEach
+	public void setUp() {
+		constructed.set(0);
+		commandLine = new CommandLine();
+		commandLine.addCommand("deploy", Deploy.class);
+		commandLine.addCommand("delete", Deploy.class);
+	}
+	
+	@Test
+	public void unknownCommandSuggestsKeywords() {
+		Diagnostic d = commandLine.validate("depoly", "app");
+		assertEquals(InterpretFailure.UNKNOWN_COMMAND, d.getReason());
+		assertEquals(0, d.getIndex());
+		assertEquals("depoly", d.getToken());
+		assertEquals(Expected.KEYWORD, d.getExpected());
+		assertEquals(List.of("deploy"), d.getSuggestions());
+	}
+	
+	@Test
+	public void misspelledOptionSuggestsOptions() {
+		Diagnostic d = commandLine.validate("deploy", "app", "--targte", "prod");
+		assertEquals(InterpretFailure.UNKNOWN_OPTION, d.getReason());
+		assertEquals(2, d.getIndex());
+		assertEquals("--targte", d.getToken());
+		assertEquals(Expected.OPTION, d.getExpected());
+		assertEquals(List.of("--target"), d.getSuggestions());
+	}
+	
+	@Test
+	public void unknownOptionIsReportedWhereItIs() {
+		Diagnostic d = commandLine.validate("deploy", "-t", "prod", "-z", "app");
+		assertEquals(InterpretFailure.UNKNOWN_OPTION, d.getReason());
+		assertEquals(3, d.getIndex());
+		assertEquals("-z", d.getToken());
+		assertEquals(Expected.OPTION, d.getExpected());
+		// Every single-letter alias is as close to it as the others.
+		assertEquals(List.of("-f", "-r", "-t"), d.getSuggestions());
+	}
+	
+	@Test
+	public void duplicateOptionIsReportedAtItsSecondUse() {
+		Diagnostic d = commandLine.validate("deploy", "-t", "a", "app", "--target=b");
+		assertEquals(InterpretFailure.DUPLICATE_OPTION, d.getReason());
+		assertEquals(4, d.getIndex());
+		assertEquals(Expected.OPTION, d.getExpected());
+		assertEquals("target", d.getName());
+	}
+	
+	@Test
+	public void missingValueExpectsTheValueOfItsOption() {
+		Diagnostic d = commandLine.validate("deploy", "app", "-t");
+		assertEquals(InterpretFailure.MISSING_VALUE, d.getReason());
+		assertEquals(3, d.getIndex());
+		assertNull(d.getToken());
+		assertEquals(Expected.VALUE, d.getExpected());
+		assertEquals("target", d.getName());
+	}
+	
+	@Test
+	public void invalidValueIsReportedAtTheValue() {
+		Diagnostic d = commandLine.validate("deploy", "-t", "prod", "-r", "many", "app");
+		assertEquals(InterpretFailure.INVALID_VALUE, d.getReason());
+		assertEquals(4, d.getIndex());
+		assertEquals(Expected.VALUE, d.getExpected());
+		assertEquals("retries", d.getName());
+	}
+	
+	@Test
+	public void missingOptionAndParameterAreNamed() {
+		Diagnostic d = commandLine.validate("deploy", "app");
+		assertEquals(InterpretFailure.MISSING_OPTION, d.getReason());
+		assertEquals(Expected.OPTION, d.getExpected());
+		assertEquals("target", d.getName());
+		
+		d = commandLine.validate("deploy", "-t", "prod");
+		assertEquals(InterpretFailure.INCOMPLETE_PARAMETERS, d.getReason());
+		assertEquals(3, d.getIndex());
+		assertEquals(Expected.PARAMETER, d.getExpected());
+		assertEquals("name", d.getName());
+	}
+	
+	@Test
+	public void validateNeverCreatesTheCommand() throws Exception {
+		assertNull(commandLine.validate("deploy", "-t", "prod", "-f", "app"));
+		assertNotNull(commandLine.validate("deploy", "app", "--targte", "prod"));
+		assertNotNull(commandLine.validate("deploy", "-t", "prod", "-r", "many", "app"));
+		assertEquals(0, constructed.get());
+		
+		commandLine.execute("deploy", "-t", "prod", "app");
+		assertEquals(1, constructed.get());
+	}
+	
+	@Test
+	public void exceptionsCarryTheDiagnosticWithoutAStackTrace() {
+		assumeFalse(Diagnostic.CAPTURE_STACK_TRACES, "Stack traces were enabled with " + Diagnostic.STACK_TRACES);
+		CommandInterpretException e = assertThrows(CommandInterpretException.class, () -> commandLine.execute("deploy", "app", "--targte", "prod"));
+		assertEquals(0, e.getStackTrace().length);
+		Diagnostic d = e.getDiagnostic();
+		assertEquals(InterpretFailure.UNKNOWN_OPTION, d.getReason());
+		assertEquals(2, d.getIndex());
+		assertEquals(List.of("--target"), d.getSuggestions());
+		assertSame(d.getMessage(), e.getMessage());
+		assertEquals(0, constructed.get());
+	}
+	
+}
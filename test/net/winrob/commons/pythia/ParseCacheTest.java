@@ -0,0 +1,100 @@
+package net.winrob.commons.pythia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Iterator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.winrob.commons.pythia.CommandLine.CommandInterpretException;
+
+/**
+ * Checks that a line replayed from the {@link ParseCache} behaves as it would if it were interpreted again, after the settings it
+ * was interpreted with have changed.
+ * 
+ * @author Winter Roberts
+ */
+public class ParseCacheTest {
+	
+	private static String last;
+	private static StringBuilder lastNote;
+	
+	private CommandLine commandLine;
+	private ParseCache cache;
+	
+	public static class Greet extends Command {
+		
+		@Option(name = "name", alias = "n", default_ = "world")
+		public String name;
+		
+		@Option(name = "note", alias = "m", default_ = "note")
+		public StringBuilder note;
+		
+		@Override
+		public void execute() {
+			last = name;
+			lastNote = note;
+		}
+		
+	}
+	
+	@BeforeEach
+	public void setUp() {
+		last = null;
+		lastNote = null;
+		commandLine = new CommandLine();
+		commandLine.addConverter(String.class, (Iterator<String> args) -> args.next());
+		commandLine.addConverter(StringBuilder.class, (Iterator<String> args) -> new StringBuilder(args.next()));
+		commandLine.addCommand("greet", Greet.class);
+		cache = commandLine.enableParseCache(16);
+	}
+	
+	@Test
+	public void replaysUnchangedLines() throws Exception {
+		commandLine.execute("greet", "-n", "pythia");
+		commandLine.execute("greet", "-n", "pythia");
+		assertEquals("pythia", last);
+		assertEquals(1, cache.getHits());
+	}
+	
+	@Test
+	public void interpretsAgainAfterAbbreviationsChange() throws Exception {
+		commandLine.setAllowAbbreviations(true);
+		commandLine.execute("gr", "-n", "pythia");
+		assertEquals("pythia", last);
+		commandLine.setAllowAbbreviations(false);
+		assertThrows(CommandInterpretException.class, () -> commandLine.execute("gr", "-n", "pythia"));
+		assertEquals(0, cache.getHits());
+	}
+	
+	@Test
+	public void interpretsAgainAfterConverterChanges() throws Exception {
+		commandLine.execute("greet", "-n", "pythia");
+		commandLine.addConverter(String.class, (Iterator<String> args) -> args.next().toUpperCase());
+		commandLine.execute("greet", "-n", "pythia");
+		assertEquals("PYTHIA", last);
+		assertEquals(0, cache.getHits());
+	}
+	
+	@Test
+	public void convertsDefaultsAgainAfterConverterChanges() throws Exception {
+		commandLine.execute("greet");
+		assertEquals("world", last);
+		commandLine.addConverter(String.class, (Iterator<String> args) -> args.next().toUpperCase());
+		commandLine.execute("greet");
+		assertEquals("WORLD", last);
+	}
+	
+	@Test
+	public void doesNotShareMutableDefaults() throws Exception {
+		commandLine.execute("greet");
+		StringBuilder first = lastNote;
+		commandLine.execute("greet", "-n", "pythia");
+		assertEquals("note", lastNote.toString());
+		assertNotSame(first, lastNote);
+	}
+	
+}
@@ -0,0 +1,92 @@
+package net.winrob.commons.pythia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Feeds a script through a {@link Pipe} a line at a time, as a producer which waits on each command before writing the next line
+ * would, and checks that each line runs as soon as it is read.
+ * 
+ * @author Winter Roberts
+ */
+public class ScriptStreamTest {
+	
+	private static final BlockingQueue<Integer> marked = new LinkedBlockingQueue<>();
+	
+	private CommandLine commandLine;
+	private ExecutorService executor;
+	
+	public static class Mark extends Command {
+		
+		@Parameter(name = "value", arity = 0)
+		public int value;
+		
+		@Override
+		public void execute() {
+			marked.add(value);
+		}
+		
+	}
+	
+	@BeforeEach
+	public void setUp() {
+		marked.clear();
+		commandLine = new CommandLine();
+		commandLine.addCommand("mark", Mark.class);
+		executor = Executors.newSingleThreadExecutor();
+	}
+	
+	@AfterEach
+	public void tearDown() throws InterruptedException {
+		executor.shutdownNow();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void eachLineRunsBeforeTheNextIsWritten() throws Exception {
+		Pipe pipe = Pipe.open();
+		Future<ScriptReport> report = executor.submit(() -> commandLine.executeStream(pipe.source(), ErrorPolicy.STOP));
+		for (int i = 0; i < 100; i++) {
+			// The last line has no line break until it is followed by the next.
+			write(pipe, (i == 0 ? "" : "\n") + "mark " + i);
+			if (i > 0) assertEquals(i - 1, marked.poll(10, TimeUnit.SECONDS), "Line " + (i - 1) + " did not run once it was read");
+		}
+		write(pipe, "\n# done\n");
+		assertEquals(99, marked.poll(10, TimeUnit.SECONDS));
+		pipe.sink().close();
+		ScriptReport result = report.get(10, TimeUnit.SECONDS);
+		assertTrue(result.isSuccessful(), result.toString());
+		assertEquals(0, marked.size());
+	}
+	
+	@Test
+	public void unterminatedLastLineRunsAtEndOfInput() throws Exception {
+		Pipe pipe = Pipe.open();
+		Future<ScriptReport> report = executor.submit(() -> commandLine.executeStream(pipe.source(), ErrorPolicy.STOP));
+		write(pipe, "mark 1\nmark 2");
+		assertEquals(1, marked.poll(10, TimeUnit.SECONDS));
+		pipe.sink().close();
+		assertTrue(report.get(10, TimeUnit.SECONDS).isSuccessful());
+		assertEquals(2, marked.poll(10, TimeUnit.SECONDS));
+	}
+	
+	private static void write(Pipe pipe, String text) throws Exception {
+		ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+		while (bytes.hasRemaining()) pipe.sink().write(bytes);
+	}
+	
+}
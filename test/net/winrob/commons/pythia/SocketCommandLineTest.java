@@ -0,0 +1,259 @@
+package net.winrob.commons.pythia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Drives a {@link SocketCommandLine} from loopback clients: many clients at once, a client which does not read its output, a
+ * client which sends more lines than a session holds, a rate limited client and clients which go away.
+ * 
+ * @author Winter Roberts
+ */
+public class SocketCommandLineTest {
+	
+	private static final AtomicInteger printed = new AtomicInteger();
+	private static final AtomicInteger echoed = new AtomicInteger();
+	private static volatile CountDownLatch released;
+	
+	private SocketCommandLine front;
+	private SocketAddress address;
+	private ExecutorService clients;
+	
+	public static class Echo extends Command {
+		
+		@Parameter(name = "text", arity = 0)
+		public String text;
+		
+		@Override
+		public void execute() {
+			echoed.incrementAndGet();
+			out().println("echo " + text);
+		}
+		
+	}
+	
+	public static class Dump extends Command {
+		
+		@Parameter(name = "count", arity = 0)
+		public int count;
+		
+		@Override
+		public void execute() {
+			for (int i = 0; i < count; i++) {
+				out().println("entry " + i);
+				printed.incrementAndGet();
+			}
+		}
+		
+	}
+	
+	public static class Block extends Command {
+		
+		@Override
+		public void execute() {
+			try {
+				released.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			out().println("released");
+		}
+		
+	}
+	
+	@BeforeEach
+	public void setUp() throws IOException {
+		printed.set(0);
+		echoed.set(0);
+		released = new CountDownLatch(1);
+		CommandLine commandLine = new CommandLine();
+		commandLine.addCommand("echo", Echo.class);
+		commandLine.addCommand("dump", Dump.class);
+		commandLine.addCommand("block", Block.class);
+		front = new SocketCommandLine(commandLine);
+		front.setOutputLimit(16 * 1024);
+		address = front.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		clients = Executors.newCachedThreadPool();
+	}
+	
+	@AfterEach
+	public void tearDown() throws InterruptedException {
+		released.countDown();
+		front.stop();
+		clients.shutdownNow();
+		assertTrue(clients.awaitTermination(10, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void burstClientsEachReceiveTheirOwnOutputInOrder() throws Exception {
+		int lines = 300;
+		List<Future<Integer>> received = new ArrayList<>();
+		for (int c = 0; c < 16; c++) {
+			int client = c;
+			received.add(clients.submit(() -> {
+				try (Socket socket = connect()) {
+					StringBuilder burst = new StringBuilder();
+					for (int i = 0; i < lines; i++) burst.append("echo c").append(client).append('-').append(i).append('\n');
+					send(socket, burst.toString());
+					socket.shutdownOutput();
+					BufferedReader reader = reader(socket);
+					int n = 0;
+					for (String line; (line = reader.readLine()) != null; n++) {
+						assertEquals("echo c" + client + "-" + n, line);
+					}
+					return n;
+				}
+			}));
+		}
+		for (Future<Integer> f : received) assertEquals(lines, f.get(60, TimeUnit.SECONDS));
+		awaitSessions(0);
+	}
+	
+	@Test
+	public void slowReaderHoldsBackItsCommandUntilItReads() throws Exception {
+		int count = 1_000_000;
+		try (Socket socket = connect()) {
+			send(socket, "dump " + count + "\n");
+			// The command stops once the output it is waiting to send, and the socket buffers, are full.
+			int stalled = awaitStall();
+			assertTrue(stalled < count, "The command wrote all of its output to a client which read none of it");
+			
+			BufferedReader reader = reader(socket);
+			for (int i = 0; i < count; i++) assertEquals("entry " + i, reader.readLine());
+			socket.shutdownOutput();
+			assertNull(reader.readLine());
+		}
+		assertEquals(count, printed.get());
+		awaitSessions(0);
+	}
+	
+	@Test
+	public void fullSessionPausesReadingAndResumes() throws Exception {
+		front.setMaxPendingLines(4);
+		int lines = 1000;
+		try (Socket socket = connect()) {
+			StringBuilder burst = new StringBuilder("block\n");
+			for (int i = 0; i < lines; i++) burst.append("echo ").append(i).append('\n');
+			Future<?> sent = clients.submit(() -> {
+				send(socket, burst.toString());
+				return null;
+			});
+			Thread.sleep(200);
+			assertEquals(0, echoed.get(), "A line executed before the line ahead of it");
+			
+			released.countDown();
+			sent.get(30, TimeUnit.SECONDS);
+			socket.shutdownOutput();
+			BufferedReader reader = reader(socket);
+			assertEquals("released", reader.readLine());
+			for (int i = 0; i < lines; i++) assertEquals("echo " + i, reader.readLine());
+			assertNull(reader.readLine());
+		}
+		assertEquals(lines, echoed.get());
+	}
+	
+	@Test
+	public void rateLimitRejectsLinesBeyondTheBurst() throws Exception {
+		front.setRateLimit(0.001, 3);
+		try (Socket socket = connect()) {
+			send(socket, "echo 0\necho 1\necho 2\necho 3\necho 4\n");
+			socket.shutdownOutput();
+			BufferedReader reader = reader(socket);
+			for (int i = 0; i < 3; i++) assertEquals("echo " + i, reader.readLine());
+			assertEquals("error: rate limit exceeded", reader.readLine());
+			assertEquals("error: rate limit exceeded", reader.readLine());
+			assertNull(reader.readLine());
+		}
+		assertEquals(3, echoed.get());
+	}
+	
+	@Test
+	public void disconnectedClientReleasesItsBlockedCommand() throws Exception {
+		try (Socket socket = connect()) {
+			send(socket, "dump 1000000\n");
+			awaitStall();
+			assertEquals(1, front.getSessionCount());
+		}
+		// Writes to the closed session fail (which the command's PrintStream records) rather than waiting for it forever.
+		awaitSessions(0);
+		assertEquals(1_000_000, awaitStall());
+	}
+	
+	@Test
+	public void stopClosesOpenSessions() throws Exception {
+		try (Socket idle = connect(); Socket other = connect()) {
+			send(other, "echo open\n");
+			assertEquals("echo open", reader(other).readLine());
+			awaitSessions(2);
+			front.stop();
+			assertFalse(front.isAlive());
+			assertEquals(-1, idle.getInputStream().read());
+			assertEquals(-1, other.getInputStream().read());
+		}
+		assertEquals(0, front.getSessionCount());
+	}
+	
+	private Socket connect() throws IOException {
+		Socket socket = new Socket();
+		socket.setReceiveBufferSize(4096);
+		socket.setSoTimeout(30_000);
+		socket.connect(address);
+		return socket;
+	}
+	
+	private static void send(Socket socket, String lines) throws IOException {
+		OutputStream out = socket.getOutputStream();
+		out.write(lines.getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+	
+	private static BufferedReader reader(Socket socket) throws IOException {
+		return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Waits until the dump command has printed nothing more for a while.
+	 * 
+	 * @return The number of lines it had printed.
+	 */
+	private static int awaitStall() throws InterruptedException {
+		int last = -1;
+		for (int i = 0; i < 100; i++) {
+			Thread.sleep(100);
+			int now = printed.get();
+			if (now == last && now > 0) return now;
+			last = now;
+		}
+		throw new AssertionError("The command never stopped printing");
+	}
+	
+	private void awaitSessions(int count) throws InterruptedException {
+		for (int i = 0; i < 100 && front.getSessionCount() != count; i++) Thread.sleep(50);
+		assertEquals(count, front.getSessionCount());
+	}
+	
+}
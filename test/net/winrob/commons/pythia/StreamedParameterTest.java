@@ -0,0 +1,98 @@
+package net.winrob.commons.pythia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a streamed parameter, which its command may read after it was dispatched, reads the arguments of its own line
+ * although the line was tokenized into a buffer which is reused.
+ * 
+ * @author Winter Roberts
+ */
+public class StreamedParameterTest {
+	
+	private static final List<String> read = new ArrayList<>();
+	private static final List<Iterator<String>> kept = new ArrayList<>();
+	
+	private CommandLine commandLine;
+	
+	public static class Nest extends Command {
+		
+		@Parameter(name = "words", arity = 0)
+		public Stream<String> words;
+		
+		@Override
+		public void execute() {
+			try {
+				commandLine.executeLine("keep other line entirely");
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			read.add(words.collect(Collectors.joining(" ")));
+		}
+		
+	}
+	
+	public static class Keep extends Command {
+		
+		@Parameter(name = "words", arity = 0)
+		public Iterator<String> words;
+		
+		@Override
+		public void execute() {
+			kept.add(words);
+		}
+		
+	}
+	
+	@BeforeEach
+	public void setUp() {
+		read.clear();
+		kept.clear();
+		commandLine = new CommandLine();
+		commandLine.addCommand("nest", Nest.class);
+		commandLine.addCommand("keep", Keep.class);
+	}
+	
+	@Test
+	public void streamSurvivesANestedLine() throws Exception {
+		commandLine.executeLine("nest a b c");
+		assertEquals(List.of("a b c"), read);
+	}
+	
+	@Test
+	public void keptIteratorSurvivesTheNextLine() throws Exception {
+		commandLine.executeLine("keep first second");
+		commandLine.executeLine("keep x y z");
+		assertEquals(List.of("first", "second"), drain(kept.get(0)));
+		assertEquals(List.of("x", "y", "z"), drain(kept.get(1)));
+	}
+	
+	@Test
+	public void keptIteratorSurvivesTheNextLineOfAScript() throws Exception {
+		byte[] script = "keep first second\nkeep x y z\n".getBytes(StandardCharsets.UTF_8);
+		ScriptReport report = commandLine.executeStream(Channels.newChannel(new ByteArrayInputStream(script)), ErrorPolicy.STOP);
+		assertTrue(report.isSuccessful(), report.toString());
+		assertEquals(List.of("first", "second"), drain(kept.get(0)));
+		assertEquals(List.of("x", "y", "z"), drain(kept.get(1)));
+	}
+	
+	private static List<String> drain(Iterator<String> words) {
+		List<String> list = new ArrayList<>();
+		words.forEachRemaining(list::add);
+		return list;
+	}
+	
+}
@@ -0,0 +1,145 @@
+package net.winrob.commons.pythia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.winrob.commons.pythia.Tokenizer.Tokens;
+
+/**
+ * Checks how a {@link Tokenizer} splits lines: quoting and adjacency, which backslashes escape and which are kept, operators,
+ * {@link Tokenizer#escape(CharSequence)} and the partial lines completion tokenizes.
+ * 
+ * @author Winter Roberts
+ */
+public class TokenizerTest {
+	
+	private final Tokenizer tokenizer = new Tokenizer();
+	
+	@Test
+	public void splitsOnUnquotedWhitespace() {
+		assertEquals(List.of("a", "b", "c"), split("  a  b\tc "));
+		assertEquals(List.of(), split("   "));
+	}
+	
+	@Test
+	public void keepsQuotedTextTogether() {
+		assertEquals(List.of("a b", "c d"), split("\"a b\" 'c d'"));
+		assertEquals(List.of("it's", "say \"hi\""), split("\"it's\" 'say \"hi\"'"));
+		assertEquals(List.of("", "x"), split("\"\" x"));
+	}
+	
+	@Test
+	public void joinsAdjacentQuotedAndUnquotedText() {
+		assertEquals(List.of("ab cd"), split("a\"b c\"d"));
+		assertEquals(List.of("--name=two words"), split("--name='two words'"));
+	}
+	
+	@Test
+	public void failsOnAnUnterminatedQuote() {
+		assertThrows(IllegalArgumentException.class, () -> split("echo \"abc"));
+		assertThrows(IllegalArgumentException.class, () -> split("echo 'abc"));
+	}
+	
+	@Test
+	public void consumesBackslashesWhichEscape() {
+		assertEquals(List.of("a b"), split("a\\ b"));
+		assertEquals(List.of("\"x\"", "'y'"), split("\\\"x\\\" \\'y\\'"));
+		assertEquals(List.of("a\\b"), split("a\\\\b"));
+		assertEquals(List.of("a\"b", "c\\d"), split("\"a\\\"b\" \"c\\\\d\""));
+	}
+	
+	@Test
+	public void keepsBackslashesWhichDoNotEscape() {
+		assertEquals(List.of("C:\\temp"), split("C:\\temp"));
+		assertEquals(List.of("C:\\temp\\new"), split("\"C:\\temp\\new\""));
+		assertEquals(List.of("\\d+"), split("\\d+"));
+		// A backslash at the end of the line has nothing to escape.
+		assertEquals(List.of("end\\"), split("end\\"));
+		// Single quotes keep backslashes literally, including before a quote.
+		assertEquals(List.of("a\\", "b"), split("'a\\' b"));
+	}
+	
+	@Test
+	public void separatesOperatorsOutsideQuotes() {
+		Tokens tokens = tokenizer.tokenize("a;b && c||d", 0, 11, true);
+		assertEquals(List.of("a", ";", "b", "&&", "c", "||", "d"), Arrays.asList(tokens.toArray()));
+		for (int i = 0; i < tokens.size(); i++) assertEquals(i % 2 == 1, tokens.isOperator(i), "Token " + i);
+	}
+	
+	@Test
+	public void keepsOperatorCharactersInsideQuotesOrEscaped() {
+		String line = "\"a;b\" 'c&&d' e\\;f g\\|\\|h i & j";
+		Tokens tokens = tokenizer.tokenize(line, 0, line.length(), true);
+		assertEquals(List.of("a;b", "c&&d", "e;f", "g||h", "i", "&", "j"), Arrays.asList(tokens.toArray()));
+		for (int i = 0; i < tokens.size(); i++) assertFalse(tokens.isOperator(i), "Token " + i);
+	}
+	
+	@Test
+	public void treatsOperatorsAsTextUnlessRecognized() {
+		assertEquals(List.of("a;b", "&&", "c"), split("a;b && c"));
+	}
+	
+	@Test
+	public void escapedWordsTokenizeToThemselves() {
+		List<String> words = List.of("plain", "two words", "C:\\temp", "quote\"d", "it's", "a;b", "x&&y", "p||q", "back\\", "tab\there",
+				"\\", "new\nline");
+		StringBuilder line = new StringBuilder();
+		for (String word : words) {
+			String escaped = Tokenizer.escape(word);
+			assertEquals(List.of(word), split(escaped), escaped);
+			Tokens tokens = tokenizer.tokenize(escaped, 0, escaped.length(), true);
+			assertEquals(1, tokens.size(), escaped);
+			assertFalse(tokens.isOperator(0), escaped);
+			line.append(escaped).append(' ');
+		}
+		assertEquals(words, split(line));
+		assertEquals("plain", Tokenizer.escape("plain"));
+	}
+	
+	@Test
+	public void tokenizesUpToTheCursor() {
+		assertEquals(List.of("echo", "hel"), partial("echo hel", 8));
+		assertEquals(5, tokenizer.getPartialStart());
+		assertEquals(List.of("echo", "he"), partial("echo hello", 7));
+		assertEquals(5, tokenizer.getPartialStart());
+	}
+	
+	@Test
+	public void partialAfterWhitespaceOrAnOperatorHasNoStart() {
+		assertEquals(List.of("echo"), partial("echo ", 5));
+		assertEquals(-1, tokenizer.getPartialStart());
+		assertEquals(List.of("a", "&&"), partial("a &&", 4));
+		assertEquals(-1, tokenizer.getPartialStart());
+		assertEquals(List.of("a", ";", "b"), partial("a;b", 3));
+		assertEquals(2, tokenizer.getPartialStart());
+	}
+	
+	@Test
+	public void partialEndsAnUnterminatedQuote() {
+		assertEquals(List.of("echo", "hello wo"), partial("echo \"hello wo", 14));
+		assertEquals(5, tokenizer.getPartialStart());
+	}
+	
+	@Test
+	public void partialLeavesOutABackslashAtTheCursor() {
+		assertEquals(List.of("echo", "a"), partial("echo a\\", 7));
+		assertEquals(5, tokenizer.getPartialStart());
+		assertEquals(List.of("echo", "a b"), partial("echo a\\ b", 9));
+		assertEquals(List.of("echo", "C:\\t"), partial("echo C:\\t", 9));
+	}
+	
+	private List<String> split(CharSequence line) {
+		return Arrays.asList(tokenizer.tokenize(line).toArray());
+	}
+	
+	private List<String> partial(String line, int cursor) {
+		return Arrays.asList(tokenizer.tokenizePartial(line, 0, cursor).toArray());
+	}
+	
+}
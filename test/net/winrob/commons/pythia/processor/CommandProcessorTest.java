@@ -0,0 +1,268 @@
+package net.winrob.commons.pythia.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.winrob.commons.pythia.BindingMode;
+import net.winrob.commons.pythia.Command;
+import net.winrob.commons.pythia.CommandSpec;
+import net.winrob.commons.pythia.CommandSpec.OptionSpec;
+import net.winrob.commons.pythia.CommandSpec.ParameterSpec;
+import net.winrob.commons.pythia.CommandSpecProvider;
+import net.winrob.commons.pythia.FieldBinder;
+
+/**
+ * Runs the {@link CommandProcessor} in a {@link JavaCompiler} over small commands, checking that it rejects what
+ * {@link CommandSpec#reflect(Class, BindingMode)} would reject, and that the specs it generates equal the reflected ones.
+ * 
+ * @author Winter Roberts
+ */
+public class CommandProcessorTest {
+	
+	@TempDir
+	Path directory;
+	
+	@Test
+	public void generatesTheSpecsReflectionWould() throws Exception {
+		List<Diagnostic<? extends JavaFileObject>> errors = compile(
+				source("fixture.Deploy",
+						"package fixture;",
+						"import java.util.List;",
+						"import net.winrob.commons.pythia.Command;",
+						"@Command.Description(description = \"Deploys an application\")",
+						"@Command.SubCommand(keyword = \"status\", command = Status.class)",
+						"public class Deploy extends Command {",
+						"	@Command.Option(name = \"target\", alias = \"t\", description = \"Where to\", useNamed = true)",
+						"	public String target;",
+						"	@Command.Option(name = \"retries\", alias = \"r\", default_ = \"3\")",
+						"	public int retries;",
+						"	@Command.Option(name = \"timeout\", alias = \"o\", default_ = \"10000000000\")",
+						"	public long timeout;",
+						"	@Command.Option(name = \"ratio\", alias = \"a\", default_ = \"0.5\")",
+						"	public double ratio;",
+						"	@Command.Option(name = \"force\", alias = \"f\", default_ = \"false\")",
+						"	public boolean force;",
+						"	@Command.Option(name = \"tags\", alias = \"g\", default_ = { \"a\", \"b\" })",
+						"	private String[] tags;",
+						"	@Command.Parameter(name = \"name\", arity = 0, description = \"What to deploy\")",
+						"	public String name;",
+						"	@Command.Parameter(name = \"ports\", arity = 1)",
+						"	public List<Integer> ports;",
+						"	@Override",
+						"	public void execute() {",
+						"	}",
+						"}"),
+				source("fixture.Status",
+						"package fixture;",
+						"import net.winrob.commons.pythia.Command;",
+						"public class Status extends Command {",
+						"	@Command.Parameter(name = \"id\", arity = 0)",
+						"	public Long id;",
+						"	@Override",
+						"	public void execute() {",
+						"	}",
+						"}"));
+		assertTrue(errors.isEmpty(), errors.toString());
+		
+		Path service = directory.resolve("META-INF/services/" + CommandSpecProvider.class.getName());
+		assertEquals(List.of("fixture.PythiaCommandSpecs"), Files.readAllLines(service, StandardCharsets.UTF_8));
+		
+		try (URLClassLoader loader = new URLClassLoader(new URL[] { directory.toUri().toURL() }, getClass().getClassLoader())) {
+			Class<?> provider = loader.loadClass("fixture.PythiaCommandSpecs");
+			assertTrue(CommandSpecProvider.class.isAssignableFrom(provider));
+			Map<Class<? extends Command>, CommandSpec> specs = generatedSpecs(provider, BindingMode.REFLECTIVE);
+			assertEquals(2, specs.size());
+			for (String name : new String[] { "fixture.Deploy", "fixture.Status" }) {
+				Class<? extends Command> command = loader.loadClass(name).asSubclass(Command.class);
+				CommandSpec generated = specs.get(command);
+				assertNotNull(generated, "No spec was generated for " + name);
+				assertSpecEquals(CommandSpec.reflect(command, BindingMode.REFLECTIVE), generated);
+				assertTrue(command.isInstance(generated.getFactory().get()));
+			}
+		}
+	}
+	
+	@Test
+	public void rejectsAnOverloadedArity() throws Exception {
+		assertError("Arity (0) overloaded, usage by fields second and first",
+				command("Overloaded",
+						"	@Command.Parameter(name = \"first\", arity = 0)",
+						"	public String first;",
+						"	@Command.Parameter(name = \"second\", arity = 0)",
+						"	public String second;"));
+	}
+	
+	@Test
+	public void rejectsAnOptionKeywordInUse() throws Exception {
+		assertError("Option keyword 'v' is already in use by field verbose!",
+				command("Clashing",
+						"	@Command.Option(name = \"verbose\", alias = \"v\", default_ = \"false\")",
+						"	public boolean verbose;",
+						"	@Command.Option(name = \"version\", alias = \"v\", default_ = \"1\")",
+						"	public int version;"));
+	}
+	
+	@Test
+	public void rejectsAVariadicParameterBeforeOthers() throws Exception {
+		assertError("Parameter 'rest' takes the remaining arguments, so it must have the highest arity",
+				command("Greedy",
+						"	@Command.Parameter(name = \"rest\", arity = 0)",
+						"	public String[] rest;",
+						"	@Command.Parameter(name = \"last\", arity = 1)",
+						"	public String last;"));
+	}
+	
+	@Test
+	public void rejectsAnnotationsOutsideACommand() throws Exception {
+		assertError("fixture.Plain is annotated as a command, but does not extend " + Command.class.getName(),
+				source("fixture.Plain",
+						"package fixture;",
+						"import net.winrob.commons.pythia.Command;",
+						"public class Plain {",
+						"	@Command.Option(name = \"x\", alias = \"x\")",
+						"	public String x;",
+						"}"));
+	}
+	
+	private void assertError(String message, JavaFileObject source) throws Exception {
+		List<Diagnostic<? extends JavaFileObject>> errors = compile(source);
+		List<String> messages = new ArrayList<>();
+		for (Diagnostic<? extends JavaFileObject> d : errors) messages.add(d.getMessage(Locale.ROOT));
+		assertTrue(messages.contains(message), "Expected \"" + message + "\" among " + messages);
+		assertFalse(Files.exists(directory.resolve("fixture/PythiaCommandSpecs.class")), "A spec was generated for an invalid command");
+	}
+	
+	private static void assertSpecEquals(CommandSpec expected, CommandSpec actual) {
+		String command = expected.getCommand().getName();
+		assertEquals(expected.getCommand(), actual.getCommand());
+		assertEquals(expected.getDescription(), actual.getDescription(), command);
+		assertEquals(expected.getSubCommands(), actual.getSubCommands(), command);
+		assertEquals(expected.getHelp(), actual.getHelp(), command);
+		
+		assertEquals(expected.getOptions().size(), actual.getOptions().size(), command);
+		for (int i = 0; i < expected.getOptions().size(); i++) {
+			OptionSpec e = expected.getOptions().get(i);
+			OptionSpec a = actual.getOptions().get(i);
+			String where = command + " option " + e.getName();
+			assertEquals(e.getName(), a.getName(), where);
+			assertEquals(e.getAlias(), a.getAlias(), where);
+			assertEquals(Arrays.asList(e.getDefaults()), Arrays.asList(a.getDefaults()), where);
+			assertEquals(e.getDescription(), a.getDescription(), where);
+			assertEquals(e.isUseNamed(), a.isUseNamed(), where);
+			assertEquals(e.isFlag(), a.isFlag(), where);
+			assertBinderEquals(e.getBinder(), a.getBinder(), where);
+		}
+		
+		assertEquals(expected.getParameters().size(), actual.getParameters().size(), command);
+		for (int i = 0; i < expected.getParameters().size(); i++) {
+			ParameterSpec e = expected.getParameters().get(i);
+			ParameterSpec a = actual.getParameters().get(i);
+			String where = command + " parameter " + e.getName();
+			assertEquals(e.getName(), a.getName(), where);
+			assertEquals(e.getArity(), a.getArity(), where);
+			assertEquals(e.getDescription(), a.getDescription(), where);
+			assertEquals(e.isVariadic(), a.isVariadic(), where);
+			assertBinderEquals(e.getBinder(), a.getBinder(), where);
+		}
+	}
+	
+	private static void assertBinderEquals(FieldBinder expected, FieldBinder actual, String where) {
+		assertEquals(expected.getName(), actual.getName(), where);
+		assertEquals(expected.getType(), actual.getType(), where);
+		assertEquals(expected.getElementType(), actual.getElementType(), where);
+		assertEquals(expected.getKind(), actual.getKind(), where);
+	}
+	
+	/**
+	 * @return The specs a generated provider creates, by command, read from its spec methods.
+	 */
+	private static Map<Class<? extends Command>, CommandSpec> generatedSpecs(Class<?> provider, BindingMode mode) throws Exception {
+		Map<Class<? extends Command>, CommandSpec> specs = new HashMap<>();
+		for (Method m : provider.getDeclaredMethods()) {
+			if (!Modifier.isStatic(m.getModifiers()) || m.getReturnType() != CommandSpec.class) continue;
+			m.setAccessible(true);
+			CommandSpec spec = (CommandSpec) m.invoke(null, mode);
+			specs.put(spec.getCommand(), spec);
+		}
+		return specs;
+	}
+	
+	/**
+	 * Compiles sources with the {@link CommandProcessor} into the temporary directory.
+	 * 
+	 * @return The errors of the compilation.
+	 */
+	private List<Diagnostic<? extends JavaFileObject>> compile(JavaFileObject... sources) throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertNotNull(compiler, "No Java compiler is available");
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		String classPath = Paths.get(Command.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+		List<String> options = List.of("-classpath", classPath, "-d", directory.toString(), "-s", directory.toString());
+		try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+			JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics, options, null, Arrays.asList(sources));
+			task.setProcessors(List.of(new CommandProcessor()));
+			task.call();
+		}
+		List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<>();
+		for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+			if (d.getKind() == Diagnostic.Kind.ERROR) errors.add(d);
+		}
+		return errors;
+	}
+	
+	private static JavaFileObject command(String name, String... fields) {
+		List<String> lines = new ArrayList<>();
+		lines.add("package fixture;");
+		lines.add("import net.winrob.commons.pythia.Command;");
+		lines.add("public class " + name + " extends Command {");
+		lines.addAll(Arrays.asList(fields));
+		lines.add("	@Override");
+		lines.add("	public void execute() {");
+		lines.add("	}");
+		lines.add("}");
+		return source("fixture." + name, lines.toArray(new String[0]));
+	}
+	
+	private static JavaFileObject source(String name, String... lines) {
+		URI uri = URI.create("string:///" + name.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension);
+		String code = String.join(System.lineSeparator(), lines);
+		return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+			
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return code;
+			}
+			
+		};
+	}
+	
+}